@@ -98,10 +98,10 @@ public class AnalyticsController {
     }
 
     @GetMapping("/products/low-stock")
-    @Operation(summary = "Get low stock alerts", description = "Get products with low stock levels")
+    @Operation(summary = "Get low stock alerts", description = "Get products with low stock levels. Without a threshold each product's minimum stock level is used")
     public ResponseEntity<ApiResponse<List<AnalyticsDTO.LowStockAlert>>> getLowStockAlerts(
             @Parameter(description = "Store ID") @RequestParam Long storeId,
-            @Parameter(description = "Stock threshold") @RequestParam(defaultValue = "10") Integer threshold) {
+            @Parameter(description = "Fixed stock threshold (optional)") @RequestParam(required = false) Integer threshold) {
         try {
             List<AnalyticsDTO.LowStockAlert> alerts = analyticsService.getLowStockAlerts(storeId, threshold);
             return ResponseEntity.ok(ApiResponse.success(alerts));
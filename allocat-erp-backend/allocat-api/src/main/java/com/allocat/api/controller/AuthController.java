@@ -2,12 +2,18 @@ package com.allocat.api.controller;
 
 import com.allocat.api.dto.AuthResponse;
 import com.allocat.api.dto.LoginRequest;
+import com.allocat.api.dto.TerminalLoginRequest;
+import com.allocat.auth.entity.RefreshToken;
 import com.allocat.auth.entity.Store;
 import com.allocat.auth.entity.User;
 import com.allocat.auth.service.AuthService;
+import com.allocat.auth.service.RefreshTokenService;
 import com.allocat.auth.service.StoreService;
+import com.allocat.auth.service.TerminalSessionService;
+import com.allocat.auth.service.TerminalSessionService.TerminalSession;
 import com.allocat.common.dto.ApiResponse;
 import com.allocat.security.jwt.JwtUtil;
+import com.allocat.security.jwt.VerifiedToken;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -18,10 +24,17 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
 @RestController
 @RequestMapping("/api/auth")
 @RequiredArgsConstructor
@@ -32,6 +45,8 @@ public class AuthController {
         private final AuthService authService;
         private final JwtUtil jwtUtil;
         private final StoreService storeService;
+        private final RefreshTokenService refreshTokenService;
+        private final TerminalSessionService terminalSessionService;
 
         @Value("${jwt.expiration}")
         private Long jwtExpiration;
@@ -41,9 +56,10 @@ public class AuthController {
         @ApiResponses(value = {
                         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Login successful", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = AuthResponse.class))),
                         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid credentials"),
-                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad request")
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad request"),
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Too many sign-ins in progress, retry shortly")
         })
-        public ResponseEntity<ApiResponse<AuthResponse>> login(
+        public CompletableFuture<ResponseEntity<ApiResponse<AuthResponse>>> login(
                         @io.swagger.v3.oas.annotations.parameters.RequestBody(description = "Login credentials", required = true, content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = LoginRequest.class), examples = @ExampleObject(name = "Login Example", value = """
                                         {
                                             "username": "surya_example",
@@ -51,61 +67,132 @@ public class AuthController {
                                         }
                                         """))) @Valid @RequestBody LoginRequest loginRequest) {
 
-                try {
-                        // Authenticate user
-                        User user = authService.authenticate(loginRequest.getUsername(), loginRequest.getPassword());
-
-                        // Generate tokens
-                        String roleName = user.getRole() != null ? user.getRole().getName() : "VIEWER";
-                        Long roleId = user.getRole() != null ? user.getRole().getId() : null;
-                        String accessToken = jwtUtil.generateToken(user.getUsername(), roleName, user.getId());
-                        String refreshToken = jwtUtil.generateRefreshToken(user.getUsername());
+                // Password check runs on the bounded login executor; this request thread is released meanwhile
+                return authService.authenticateAsync(loginRequest.getUsername(), loginRequest.getPassword())
+                                .thenApplyAsync(this::loginResponse, authService.ioExecutor())
+                                .exceptionally(this::loginFailure);
+        }
 
-                        // Get store details if user has a store
-                        String storeCode = null;
-                        String storeName = null;
-                        if (user.getStoreId() != null) {
-                                try {
-                                        Store store = storeService.getStoreById(user.getStoreId());
-                                        storeCode = store.getCode();
-                                        storeName = store.getName();
-                                } catch (Exception e) {
-                                        log.warn("Store not found for user {}: {}", user.getUsername(), e.getMessage());
-                                }
+        private ResponseEntity<ApiResponse<AuthResponse>> loginResponse(User user) {
+                // Generate tokens
+                String roleName = user.getRole() != null ? user.getRole().getName() : "VIEWER";
+                Long roleId = user.getRole() != null ? user.getRole().getId() : null;
+                // Each login starts a session that refreshes rotate within and logout ends
+                String sessionId = UUID.randomUUID().toString();
+                String accessToken = jwtUtil.generateToken(user.getUsername(), roleName, user.getId(), user.getStoreId(), sessionId);
+                String refreshTokenId = UUID.randomUUID().toString();
+                String refreshToken = jwtUtil.generateRefreshToken(user.getUsername(), sessionId, refreshTokenId);
+                refreshTokenService.register(user.getId(), sessionId, refreshTokenId, refreshToken,
+                                jwtUtil.verify(refreshToken).expiresAt());
+
+                // Get store details if user has a store
+                String storeCode = null;
+                String storeName = null;
+                if (user.getStoreId() != null) {
+                        try {
+                                Store store = storeService.getStoreById(user.getStoreId());
+                                storeCode = store.getCode();
+                                storeName = store.getName();
+                        } catch (Exception e) {
+                                log.warn("Store not found for user {}: {}", user.getUsername(), e.getMessage());
                         }
+                }
 
-                        // Build response with all user details
-                        AuthResponse authResponse = AuthResponse.builder()
-                                        .accessToken(accessToken)
-                                        .refreshToken(refreshToken)
-                                        .tokenType("Bearer")
-                                        .expiresIn(jwtExpiration)
-                                        .userId(user.getId())
-                                        .username(user.getUsername())
-                                        .email(user.getEmail())
-                                        .firstName(user.getFirstName())
-                                        .lastName(user.getLastName())
-                                        .phone(user.getPhone())
-                                        .roleId(roleId)
-                                        .role(roleName)
-                                        .storeId(user.getStoreId())
-                                        .storeCode(storeCode)
-                                        .storeName(storeName)
-                                        .isActive(user.getActive())
-                                        .lastLoginAt(user.getLastLoginAt() != null ? user.getLastLoginAt().toString()
-                                                        : null)
-                                        .permissions(user.getRole() != null ? user.getRole().getPermissions()
-                                                        : new String[0])
-                                        .build();
-
-                        log.info("Login successful for user: {}", user.getUsername());
-                        return ResponseEntity.ok(ApiResponse.success(authResponse, "Login successful"));
+                // Build response with all user details
+                AuthResponse authResponse = AuthResponse.builder()
+                                .accessToken(accessToken)
+                                .refreshToken(refreshToken)
+                                .tokenType("Bearer")
+                                .expiresIn(jwtExpiration)
+                                .userId(user.getId())
+                                .username(user.getUsername())
+                                .email(user.getEmail())
+                                .firstName(user.getFirstName())
+                                .lastName(user.getLastName())
+                                .phone(user.getPhone())
+                                .roleId(roleId)
+                                .role(roleName)
+                                .storeId(user.getStoreId())
+                                .storeCode(storeCode)
+                                .storeName(storeName)
+                                .isActive(user.getActive())
+                                .lastLoginAt(user.getLastLoginAt() != null ? user.getLastLoginAt().toString()
+                                                : null)
+                                .permissions(user.getRole() != null ? user.getRole().getPermissions()
+                                                : new String[0])
+                                .build();
+
+                log.info("Login successful for user: {}", user.getUsername());
+                return ResponseEntity.ok(ApiResponse.success(authResponse, "Login successful"));
+        }
 
-                } catch (IllegalArgumentException e) {
-                        log.error("Login failed: {}", e.getMessage());
+        private ResponseEntity<ApiResponse<AuthResponse>> loginFailure(Throwable failure) {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause()
+                                : failure;
+                if (cause instanceof IllegalArgumentException) {
+                        log.warn("Login failed: {}", cause.getMessage());
                         return ResponseEntity.status(401)
-                                        .body(ApiResponse.error(e.getMessage()));
+                                        .body(ApiResponse.error(cause.getMessage()));
+                }
+                if (cause instanceof IllegalStateException || cause instanceof RejectedExecutionException) {
+                        // Login or I/O queue is full, or the login waited too long for a worker
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                        .header(HttpHeaders.RETRY_AFTER, "1")
+                                        .body(ApiResponse.error("Too many sign-ins in progress, please retry shortly"));
                 }
+                log.error("Login failed", cause);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Login failed"));
+        }
+
+        @PostMapping("/terminal/login")
+        @Operation(summary = "Terminal login", description = "Exchange a store access code and cashier PIN for a short-lived token scoped to the store")
+        @ApiResponses(value = {
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Terminal session opened", content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE, schema = @Schema(implementation = AuthResponse.class))),
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "401", description = "Invalid access code or PIN"),
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Bad request"),
+                        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "503", description = "Too many sign-ins in progress, retry shortly")
+        })
+        public CompletableFuture<ResponseEntity<ApiResponse<AuthResponse>>> terminalLogin(
+                        @Valid @RequestBody TerminalLoginRequest request) {
+
+                return terminalSessionService.openAsync(request.getStoreCode(), request.getAccessCode(),
+                                                request.getUsername(), request.getPin())
+                                .thenApplyAsync(this::terminalLoginResponse, authService.ioExecutor())
+                                .exceptionally(this::loginFailure);
+        }
+
+        private ResponseEntity<ApiResponse<AuthResponse>> terminalLoginResponse(TerminalSession session) {
+                User user = session.user();
+                Store store = session.store();
+                String roleName = user.getRole().getName();
+                String accessToken = jwtUtil.generateTerminalToken(user.getUsername(), roleName, user.getId(),
+                                store.getId(), session.sessionId(), session.permissions());
+                // Lets logout of the terminal reach every instance
+                refreshTokenService.registerSession(user.getId(), session.sessionId(), accessToken,
+                                jwtUtil.verify(accessToken).expiresAt());
+
+                AuthResponse authResponse = AuthResponse.builder()
+                                .accessToken(accessToken)
+                                .tokenType("Bearer")
+                                .expiresIn(jwtUtil.getTerminalExpiration())
+                                .userId(user.getId())
+                                .username(user.getUsername())
+                                .firstName(user.getFirstName())
+                                .lastName(user.getLastName())
+                                .roleId(user.getRole().getId())
+                                .role(roleName)
+                                .storeId(store.getId())
+                                .storeCode(store.getCode())
+                                .storeName(store.getName())
+                                .isActive(user.getActive())
+                                .lastLoginAt(user.getLastLoginAt().toString())
+                                .permissions(session.permissions().toArray(new String[0]))
+                                .build();
+
+                log.info("Terminal login for user: {} at store: {}", user.getUsername(), store.getCode());
+                return ResponseEntity.ok(ApiResponse.success(authResponse, "Terminal session opened"));
         }
 
         @GetMapping("/me")
@@ -121,14 +208,8 @@ public class AuthController {
                         // Extract token from Bearer header
                         String token = authHeader.startsWith("Bearer ") ? authHeader.substring(7) : authHeader;
 
-                        // Extract username from token
-                        String username = jwtUtil.extractUsername(token);
-
-                        // Validate token
-                        if (!jwtUtil.validateToken(token, username)) {
-                                return ResponseEntity.status(401)
-                                                .body(ApiResponse.error("Invalid or expired token"));
-                        }
+                        // Verify once: throws for forged or expired tokens
+                        String username = jwtUtil.verify(token).username();
 
                         // Get user from database
                         User user = authService.getUserByUsername(username);
@@ -192,24 +273,34 @@ public class AuthController {
                         // Remove "Bearer " prefix if present
                         String token = refreshToken.startsWith("Bearer ") ? refreshToken.substring(7) : refreshToken;
 
-                        // Extract username and validate token
-                        String username = jwtUtil.extractUsername(token);
-
-                        if (!jwtUtil.validateToken(token, username)) {
-                                return ResponseEntity.status(401)
-                                                .body(ApiResponse.error("Invalid or expired refresh token"));
+                        // Verify once: throws for forged or expired tokens
+                        VerifiedToken verified = jwtUtil.verify(token);
+                        if (verified.tokenId() == null || verified.sessionId() == null) {
+                                throw new IllegalArgumentException("Not a refresh token");
                         }
+                        String username = verified.username();
+
+                        // Single use: consume this token and hand out its successor
+                        String nextTokenId = UUID.randomUUID().toString();
+                        String nextRefreshToken = jwtUtil.generateRefreshToken(username, verified.sessionId(), nextTokenId);
+                        RefreshToken consumed = refreshTokenService.rotate(verified.tokenId(), token, nextTokenId,
+                                        nextRefreshToken, jwtUtil.verify(nextRefreshToken).expiresAt());
 
                         // Get user details to preserve role and userId
-                        User user = authService.getUserByUsername(username);
+                        User user = authService.getUserById(consumed.getUserId());
+                        if (!Boolean.TRUE.equals(user.getActive())) {
+                                refreshTokenService.revokeSession(verified.sessionId());
+                                throw new IllegalArgumentException("User account is inactive");
+                        }
                         String roleName = user.getRole() != null ? user.getRole().getName() : "VIEWER";
 
                         // Generate new access token with correct role and userId
-                        String newAccessToken = jwtUtil.generateToken(username, roleName, user.getId());
+                        String newAccessToken = jwtUtil.generateToken(username, roleName, user.getId(), user.getStoreId(),
+                                        verified.sessionId());
 
                         AuthResponse authResponse = AuthResponse.builder()
                                         .accessToken(newAccessToken)
-                                        .refreshToken(token)
+                                        .refreshToken(nextRefreshToken)
                                         .tokenType("Bearer")
                                         .expiresIn(jwtExpiration)
                                         .username(username)
@@ -239,12 +330,14 @@ public class AuthController {
                 try {
                         if (authHeader != null && authHeader.startsWith("Bearer ")) {
                                 String token = authHeader.substring(7);
-                                String username = jwtUtil.extractUsername(token);
+                                VerifiedToken verified = jwtUtil.verify(token);
 
-                                // TODO: Optionally invalidate refresh token from database
-                                // authService.invalidateRefreshToken(username);
+                                // Ends the session: its refresh tokens and outstanding access tokens stop working
+                                if (verified.sessionId() != null) {
+                                        refreshTokenService.revokeSession(verified.sessionId());
+                                }
 
-                                log.info("User logged out: {}", username);
+                                log.info("User logged out: {}", verified.username());
                         }
 
                         return ResponseEntity.ok(ApiResponse.success(null, "Logout successful"));
@@ -0,0 +1,69 @@
+package com.allocat.api.controller;
+
+import com.allocat.common.dto.ApiResponse;
+import com.allocat.pos.dto.CatalogDTO;
+import com.allocat.pos.service.CatalogSyncService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDate;
+
+/**
+ * REST Controller for the POS catalog feed
+ */
+@RestController
+@RequestMapping("/api/catalog")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Catalog Sync", description = "Versioned product and discount feed for POS terminals")
+public class CatalogController {
+
+    private final CatalogSyncService catalogSyncService;
+    private final ConditionalGet conditionalGet;
+
+    @GetMapping("/snapshot")
+    @Operation(summary = "Get catalog snapshot", description = "All sellable products and discounts with the catalog version they reflect. Load once, then follow /changes from that version")
+    public ResponseEntity<ApiResponse<CatalogDTO.Snapshot>> getSnapshot(WebRequest webRequest) {
+        // The snapshot leaves out discounts that expired before today
+        if (conditionalGet.notModified(webRequest, LocalDate.now().toString(), "products", "discounts")) {
+            return null;
+        }
+        try {
+            CatalogDTO.Snapshot snapshot = catalogSyncService.getSnapshot();
+            return ResponseEntity.ok(ApiResponse.success(snapshot,
+                    "Catalog version " + snapshot.getVersion() + ": " + snapshot.getProducts().size()
+                            + " products, " + snapshot.getDiscounts().size() + " discounts"));
+        } catch (Exception e) {
+            log.error("Error building catalog snapshot", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error building catalog snapshot: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get catalog changes", description = "Products and discounts changed or removed after the given version. Apply them, store toVersion, and repeat while hasMore is true")
+    public ResponseEntity<ApiResponse<CatalogDTO.Delta>> getChanges(
+            @Parameter(description = "Catalog version the terminal already holds") @RequestParam long since,
+            @Parameter(description = "Maximum changes per kind (max " + CatalogSyncService.MAX_DELTA_LIMIT + ")") @RequestParam(defaultValue = "1000") int limit) {
+        // Not conditional: the same request gets more once transactions now in progress end,
+        // even if no table changes meanwhile, and a caught-up poll is a few empty index scans
+        try {
+            CatalogDTO.Delta delta = catalogSyncService.getChangesSince(since, limit);
+            return ResponseEntity.ok(ApiResponse.success(delta,
+                    "Catalog changes " + delta.getFromVersion() + " to " + delta.getToVersion()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error retrieving catalog changes since {}", since, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error retrieving catalog changes: " + e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.allocat.api.controller;
+
+import com.allocat.common.util.ReferenceDataVersions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Conditional GET for reference data endpoints. Validators come from the
+ * database's table versions, so an unchanged poll is answered with 304 after
+ * a single key lookup, on whichever instance it lands.
+ */
+@Component
+@RequiredArgsConstructor
+class ConditionalGet {
+
+    private final ReferenceDataVersions referenceDataVersions;
+
+    /**
+     * Set ETag / Last-Modified on the response and check the request's
+     * If-None-Match / If-Modified-Since against them. When this returns true
+     * the 304 is already prepared and the handler should return null.
+     *
+     * @param qualifier extra state the response depends on (user, date), or null
+     */
+    boolean notModified(WebRequest request, String qualifier, String... tables) {
+        ReferenceDataVersions.Tag tag = referenceDataVersions.tag(qualifier, tables);
+        if (request instanceof ServletWebRequest servletRequest && servletRequest.getResponse() != null) {
+            // Cache, but always revalidate: the data changes without notice. Responses that
+            // depend on the caller or are restricted to some roles stay private; the rest may
+            // be shared by the gateway
+            servletRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL,
+                    qualifier != null || restricted(request) ? "private, no-cache" : "public, no-cache");
+        }
+        return request.checkNotModified(tag.etag(), tag.lastModified());
+    }
+
+    private static boolean restricted(WebRequest request) {
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE,
+                RequestAttributes.SCOPE_REQUEST);
+        if (!(handler instanceof HandlerMethod method)) {
+            // Unknown handler: do not let a shared cache keep it
+            return true;
+        }
+        return AnnotatedElementUtils.hasAnnotation(method.getMethod(), PreAuthorize.class)
+                || AnnotatedElementUtils.hasAnnotation(method.getBeanType(), PreAuthorize.class);
+    }
+}
@@ -1,8 +1,11 @@
 package com.allocat.api.controller;
 
 import com.allocat.api.dto.dashboard.ConsolidatedInventoryResponse;
+import com.allocat.api.dto.dashboard.DashboardSnapshot;
 import com.allocat.api.dto.dashboard.StoreInventorySummaryResponse;
+import com.allocat.api.dto.dashboard.WarehouseInventorySummaryResponse;
 import com.allocat.common.dto.ApiResponse;
+import com.allocat.inventory.service.InventorySummaryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -12,13 +15,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -28,60 +30,73 @@ import java.util.stream.Collectors;
 @SecurityRequirement(name = "Bearer Authentication")
 public class DashboardController {
 
+    // Aggregates in the materialized views are never null, so columns map straight to primitives
+    private static final RowMapper<ConsolidatedInventoryResponse> CONSOLIDATED_ROW = (rs, rowNum) ->
+            ConsolidatedInventoryResponse.builder()
+                    .productId(rs.getLong("product_id"))
+                    .productCode(rs.getString("product_code"))
+                    .productName(rs.getString("product_name"))
+                    .sku(rs.getString("sku"))
+                    .barcode(rs.getString("barcode"))
+                    .totalQuantity(rs.getInt("total_quantity"))
+                    .totalReserved(rs.getInt("total_reserved"))
+                    .totalAvailable(rs.getInt("total_available"))
+                    .storeCount(rs.getInt("store_count"))
+                    .warehouseCount(rs.getInt("warehouse_count"))
+                    .minAvailable(rs.getInt("min_available"))
+                    .maxAvailable(rs.getInt("max_available"))
+                    .avgUnitCost(rs.getBigDecimal("avg_unit_cost"))
+                    .totalValue(rs.getBigDecimal("total_value"))
+                    .build();
+
+    private static final RowMapper<StoreInventorySummaryResponse> STORE_ROW = (rs, rowNum) ->
+            StoreInventorySummaryResponse.builder()
+                    .storeId(rs.getLong("store_id"))
+                    .storeCode(rs.getString("store_code"))
+                    .storeName(rs.getString("store_name"))
+                    .productCount(rs.getInt("product_count"))
+                    .totalQuantity(rs.getInt("total_quantity"))
+                    .totalAvailable(rs.getInt("total_available"))
+                    .totalInventoryValue(rs.getBigDecimal("total_inventory_value"))
+                    .warehouseCount(rs.getInt("warehouse_count"))
+                    .build();
+
+    private static final RowMapper<WarehouseInventorySummaryResponse> WAREHOUSE_ROW = (rs, rowNum) ->
+            WarehouseInventorySummaryResponse.builder()
+                    .warehouseId(rs.getLong("warehouse_id"))
+                    .warehouseCode(rs.getString("warehouse_code"))
+                    .warehouseName(rs.getString("warehouse_name"))
+                    .storeId(rs.getObject("store_id", Long.class))
+                    .storeName(rs.getString("store_name"))
+                    .productCount(rs.getInt("product_count"))
+                    .totalQuantity(rs.getInt("total_quantity"))
+                    .totalAvailable(rs.getInt("total_available"))
+                    .totalInventoryValue(rs.getBigDecimal("total_inventory_value"))
+                    .build();
+
     private final JdbcTemplate jdbcTemplate;
+    private final InventorySummaryService inventorySummaryService;
 
     @GetMapping("/consolidated-inventory")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'ADMIN', 'MANAGER')")
-    @Operation(summary = "Get consolidated inventory", 
-               description = "Retrieve consolidated inventory across all stores and warehouses")
-    public ResponseEntity<ApiResponse<List<ConsolidatedInventoryResponse>>> getConsolidatedInventory(
+    @Operation(summary = "Get consolidated inventory",
+               description = "Retrieve consolidated inventory across all stores and warehouses from the periodically refreshed summary, with the time it is current as of")
+    public ResponseEntity<ApiResponse<DashboardSnapshot<ConsolidatedInventoryResponse>>> getConsolidatedInventory(
             @Parameter(description = "Filter by product code or name")
             @RequestParam(required = false) String search) {
         try {
-            String sql = "SELECT * FROM v_consolidated_inventory";
-            if (search != null && !search.trim().isEmpty()) {
-                sql += " WHERE product_code ILIKE ? OR product_name ILIKE ?";
-            }
-            sql += " ORDER BY product_name";
-
-            List<Map<String, Object>> results;
+            String sql = "SELECT * FROM mv_consolidated_inventory";
+            List<ConsolidatedInventoryResponse> responses;
             if (search != null && !search.trim().isEmpty()) {
                 String searchPattern = "%" + search + "%";
-                results = jdbcTemplate.queryForList(sql, searchPattern, searchPattern);
+                sql += " WHERE product_code ILIKE ? OR product_name ILIKE ? ORDER BY product_name";
+                responses = jdbcTemplate.query(sql, CONSOLIDATED_ROW, searchPattern, searchPattern);
             } else {
-                results = jdbcTemplate.queryForList(sql);
+                responses = jdbcTemplate.query(sql + " ORDER BY product_name", CONSOLIDATED_ROW);
             }
 
-            List<ConsolidatedInventoryResponse> responses = results.stream()
-                    .map(row -> ConsolidatedInventoryResponse.builder()
-                            .productId(((Number) row.get("product_id")).longValue())
-                            .productCode((String) row.get("product_code"))
-                            .productName((String) row.get("product_name"))
-                            .sku((String) row.get("sku"))
-                            .barcode((String) row.get("barcode"))
-                            .totalQuantity(row.get("total_quantity") != null ? 
-                                         ((Number) row.get("total_quantity")).intValue() : 0)
-                            .totalReserved(row.get("total_reserved") != null ? 
-                                         ((Number) row.get("total_reserved")).intValue() : 0)
-                            .totalAvailable(row.get("total_available") != null ? 
-                                          ((Number) row.get("total_available")).intValue() : 0)
-                            .storeCount(row.get("store_count") != null ? 
-                                      ((Number) row.get("store_count")).intValue() : 0)
-                            .warehouseCount(row.get("warehouse_count") != null ? 
-                                          ((Number) row.get("warehouse_count")).intValue() : 0)
-                            .minAvailable(row.get("min_available") != null ? 
-                                        ((Number) row.get("min_available")).intValue() : 0)
-                            .maxAvailable(row.get("max_available") != null ? 
-                                        ((Number) row.get("max_available")).intValue() : 0)
-                            .avgUnitCost(row.get("avg_unit_cost") != null ? 
-                                       (BigDecimal) row.get("avg_unit_cost") : BigDecimal.ZERO)
-                            .totalValue(row.get("total_value") != null ? 
-                                      (BigDecimal) row.get("total_value") : BigDecimal.ZERO)
-                            .build())
-                    .collect(Collectors.toList());
-
             return ResponseEntity.ok(ApiResponse.success(
-                    responses,
+                    snapshot(responses),
                     "Consolidated inventory retrieved successfully"
             ));
         } catch (Exception e) {
@@ -93,45 +108,23 @@ public class DashboardController {
 
     @GetMapping("/store-summary")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'ADMIN', 'MANAGER')")
-    @Operation(summary = "Get store inventory summary", 
-               description = "Retrieve inventory summary for all stores")
-    public ResponseEntity<ApiResponse<List<StoreInventorySummaryResponse>>> getStoreSummary(
+    @Operation(summary = "Get store inventory summary",
+               description = "Retrieve inventory summary for all stores from the periodically refreshed summary, with the time it is current as of")
+    public ResponseEntity<ApiResponse<DashboardSnapshot<StoreInventorySummaryResponse>>> getStoreSummary(
             @Parameter(description = "Filter by store ID")
             @RequestParam(required = false) Long storeId) {
         try {
-            String sql = "SELECT * FROM v_store_inventory_summary";
+            List<StoreInventorySummaryResponse> responses;
             if (storeId != null) {
-                sql += " WHERE store_id = ?";
-            }
-            sql += " ORDER BY store_name";
-
-            List<Map<String, Object>> results;
-            if (storeId != null) {
-                results = jdbcTemplate.queryForList(sql, storeId);
+                responses = jdbcTemplate.query(
+                        "SELECT * FROM mv_store_inventory_summary WHERE store_id = ?", STORE_ROW, storeId);
             } else {
-                results = jdbcTemplate.queryForList(sql);
+                responses = jdbcTemplate.query(
+                        "SELECT * FROM mv_store_inventory_summary ORDER BY store_name", STORE_ROW);
             }
 
-            List<StoreInventorySummaryResponse> responses = results.stream()
-                    .map(row -> StoreInventorySummaryResponse.builder()
-                            .storeId(((Number) row.get("store_id")).longValue())
-                            .storeCode((String) row.get("store_code"))
-                            .storeName((String) row.get("store_name"))
-                            .productCount(row.get("product_count") != null ? 
-                                        ((Number) row.get("product_count")).intValue() : 0)
-                            .totalQuantity(row.get("total_quantity") != null ? 
-                                         ((Number) row.get("total_quantity")).intValue() : 0)
-                            .totalAvailable(row.get("total_available") != null ? 
-                                          ((Number) row.get("total_available")).intValue() : 0)
-                            .totalInventoryValue(row.get("total_inventory_value") != null ? 
-                                               (BigDecimal) row.get("total_inventory_value") : BigDecimal.ZERO)
-                            .warehouseCount(row.get("warehouse_count") != null ? 
-                                          ((Number) row.get("warehouse_count")).intValue() : 0)
-                            .build())
-                    .collect(Collectors.toList());
-
             return ResponseEntity.ok(ApiResponse.success(
-                    responses,
+                    snapshot(responses),
                     "Store inventory summary retrieved successfully"
             ));
         } catch (Exception e) {
@@ -143,36 +136,31 @@ public class DashboardController {
 
     @GetMapping("/warehouse-summary")
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'ADMIN', 'MANAGER')")
-    @Operation(summary = "Get warehouse inventory summary", 
-               description = "Retrieve inventory summary for all warehouses")
-    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getWarehouseSummary(
+    @Operation(summary = "Get warehouse inventory summary",
+               description = "Retrieve inventory summary for all warehouses from the periodically refreshed summary, with the time it is current as of")
+    public ResponseEntity<ApiResponse<DashboardSnapshot<WarehouseInventorySummaryResponse>>> getWarehouseSummary(
             @Parameter(description = "Filter by warehouse ID")
             @RequestParam(required = false) Long warehouseId,
             @Parameter(description = "Filter by store ID")
             @RequestParam(required = false) Long storeId) {
         try {
-            String sql = "SELECT * FROM v_warehouse_inventory_summary WHERE 1=1";
+            StringBuilder sql = new StringBuilder("SELECT * FROM mv_warehouse_inventory_summary WHERE 1=1");
+            List<Object> args = new ArrayList<>();
             if (warehouseId != null) {
-                sql += " AND warehouse_id = ?";
+                sql.append(" AND warehouse_id = ?");
+                args.add(warehouseId);
             }
             if (storeId != null) {
-                sql += " AND store_id = ?";
+                sql.append(" AND store_id = ?");
+                args.add(storeId);
             }
-            sql += " ORDER BY warehouse_name";
+            sql.append(" ORDER BY warehouse_name");
 
-            List<Map<String, Object>> results;
-            if (warehouseId != null && storeId != null) {
-                results = jdbcTemplate.queryForList(sql, warehouseId, storeId);
-            } else if (warehouseId != null) {
-                results = jdbcTemplate.queryForList(sql, warehouseId);
-            } else if (storeId != null) {
-                results = jdbcTemplate.queryForList(sql, storeId);
-            } else {
-                results = jdbcTemplate.queryForList(sql);
-            }
+            List<WarehouseInventorySummaryResponse> responses =
+                    jdbcTemplate.query(sql.toString(), WAREHOUSE_ROW, args.toArray());
 
             return ResponseEntity.ok(ApiResponse.success(
-                    results,
+                    snapshot(responses),
                     "Warehouse inventory summary retrieved successfully"
             ));
         } catch (Exception e) {
@@ -181,4 +169,12 @@ public class DashboardController {
                     .body(ApiResponse.error("Error retrieving warehouse summary: " + e.getMessage()));
         }
     }
+
+    private <T> DashboardSnapshot<T> snapshot(List<T> rows) {
+        return DashboardSnapshot.<T>builder()
+                .asOf(inventorySummaryService.getCurrentAsOf())
+                .stalenessBoundSeconds(inventorySummaryService.getStalenessBoundSeconds())
+                .rows(rows)
+                .build();
+    }
 }
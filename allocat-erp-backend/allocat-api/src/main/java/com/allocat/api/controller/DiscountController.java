@@ -11,7 +11,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.LocalDate;
 import java.util.List;
 
 /**
@@ -25,11 +27,17 @@ import java.util.List;
 public class DiscountController {
 
     private final DiscountService discountService;
+    private final ConditionalGet conditionalGet;
 
     @GetMapping
     @Operation(summary = "Get all discounts", description = "Retrieve all discounts or only active ones")
     public ResponseEntity<ApiResponse<List<Discount>>> getDiscounts(
-            @Parameter(description = "Filter by active status") @RequestParam(required = false, defaultValue = "false") Boolean activeOnly) {
+            @Parameter(description = "Filter by active status") @RequestParam(required = false, defaultValue = "false") Boolean activeOnly,
+            WebRequest webRequest) {
+        // Active discounts depend on today's date as well
+        if (conditionalGet.notModified(webRequest, LocalDate.now().toString(), "discounts")) {
+            return null;
+        }
         try {
             List<Discount> discounts = activeOnly ? discountService.getActiveDiscounts()
                     : discountService.getAllDiscounts();
@@ -46,7 +54,11 @@ public class DiscountController {
     @GetMapping("/code/{code}")
     @Operation(summary = "Get discount by code", description = "Retrieve a discount by its code")
     public ResponseEntity<ApiResponse<Discount>> getDiscountByCode(
-            @Parameter(description = "Discount code") @PathVariable String code) {
+            @Parameter(description = "Discount code") @PathVariable String code,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "discounts")) {
+            return null;
+        }
         try {
             Discount discount = discountService.getDiscountByCode(code);
             return ResponseEntity.ok(ApiResponse.success(discount));
@@ -1,12 +1,26 @@
 package com.allocat.api.controller;
 
 import com.allocat.common.dto.ApiResponse;
+import com.allocat.common.dto.CursorPage;
+import com.allocat.common.util.KeysetCursor;
+import com.allocat.inventory.dto.BatchAllocation;
+import com.allocat.inventory.dto.BulkVerifyRequest;
+import com.allocat.inventory.dto.BulkVerifyResult;
+import com.allocat.inventory.dto.InventoryListItem;
+import com.allocat.inventory.dto.InventoryValuationSnapshot;
+import com.allocat.inventory.dto.NearExpiryItem;
+import com.allocat.inventory.dto.ReceivedStockImportJobStatus;
+import com.allocat.inventory.dto.ReceivedStockImportResult;
 import com.allocat.inventory.dto.ReceivedStockRequest;
+import com.allocat.inventory.dto.ReceivedStockSummary;
 import com.allocat.inventory.entity.Inventory;
-import com.allocat.inventory.entity.ReceivedStock;
+import com.allocat.inventory.entity.ReceivedStockImportJob;
 import com.allocat.inventory.repository.InventoryRepository;
+import com.allocat.inventory.service.ReceivedStockImportJobService;
+import com.allocat.inventory.service.ReceivedStockImportService;
 import com.allocat.inventory.service.ReceivedStockService;
 import com.allocat.inventory.service.InventoryService;
+import com.allocat.inventory.service.InventoryValuationService;
 import com.allocat.auth.service.AccessControlService;
 import com.allocat.auth.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
@@ -17,12 +31,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/inventory")
@@ -33,25 +57,31 @@ public class InventoryController {
 
     private final InventoryService inventoryService;
     private final ReceivedStockService receivedStockService;
+    private final ReceivedStockImportService receivedStockImportService;
+    private final ReceivedStockImportJobService receivedStockImportJobService;
     private final InventoryRepository inventoryRepository;
     private final AccessControlService accessControlService;
+    private final InventoryValuationService inventoryValuationService;
+
+    // Non-null columns the keyset listings can seek on
+    private static final Set<String> SCROLL_SORTABLE = Set.of("id", "availableQuantity", "currentQuantity");
 
     @PostMapping("/received-stock")
-    @Operation(summary = "Add received stock via JSON", description = "Add received stock records by sending a JSON array of product information")
-    public ResponseEntity<ApiResponse<List<ReceivedStock>>> addReceivedStock(
+    @Operation(summary = "Add received stock via JSON", description = "Add received stock records by sending a JSON array of product information. Use POST /received-stock/jobs for large uploads")
+    public ResponseEntity<ApiResponse<List<ReceivedStockSummary>>> addReceivedStock(
             @Parameter(description = "Array of received stock items") @RequestBody List<ReceivedStockRequest> receivedStockList) {
         try {
             if (receivedStockList == null || receivedStockList.isEmpty()) {
                 return ResponseEntity.badRequest()
-                        .body(ApiResponse.<List<ReceivedStock>>builder()
+                        .body(ApiResponse.<List<ReceivedStockSummary>>builder()
                                 .success(false)
                                 .message("Received stock list cannot be empty")
                                 .build());
             }
 
-            List<ReceivedStock> savedReceivedStocks = receivedStockService.processReceivedStockList(receivedStockList);
+            List<ReceivedStockSummary> savedReceivedStocks = receivedStockService.processReceivedStockList(receivedStockList);
 
-            return ResponseEntity.ok(ApiResponse.<List<ReceivedStock>>builder()
+            return ResponseEntity.ok(ApiResponse.<List<ReceivedStockSummary>>builder()
                     .success(true)
                     .message("Received stock processed successfully. " + savedReceivedStocks.size()
                             + " records created.")
@@ -61,19 +91,156 @@ public class InventoryController {
         } catch (Exception e) {
             log.error("Error processing received stock", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<List<ReceivedStock>>builder()
+                    .body(ApiResponse.<List<ReceivedStockSummary>>builder()
                             .success(false)
                             .message("Error processing received stock: " + e.getMessage())
                             .build());
         }
     }
 
+    @PostMapping(value = "/received-stock/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Import received stock file", description = "Stream a CSV (with header row) or JSON array file of received stock. Rows are written in batches and invalid rows are reported without aborting the upload")
+    public ResponseEntity<ApiResponse<ReceivedStockImportResult>> importReceivedStock(
+            @Parameter(description = "CSV or JSON file of received stock items") @RequestParam("file") MultipartFile file) {
+        try {
+            if (file == null || file.isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(ApiResponse.<ReceivedStockImportResult>builder()
+                                .success(false)
+                                .message("Upload file cannot be empty")
+                                .build());
+            }
+
+            String uploadId = UUID.randomUUID().toString();
+            String filename = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+            boolean json = filename.endsWith(".json")
+                    || MediaType.APPLICATION_JSON_VALUE.equals(file.getContentType());
+
+            ReceivedStockImportResult result;
+            try (InputStream inputStream = file.getInputStream()) {
+                result = json
+                        ? receivedStockImportService.importJson(inputStream, uploadId)
+                        : receivedStockImportService.importCsv(inputStream, uploadId);
+            }
+
+            return ResponseEntity.ok(ApiResponse.<ReceivedStockImportResult>builder()
+                    .success(result.getFailedRows() == 0)
+                    .message("Received stock import finished. " + result.getImportedRows() + " of "
+                            + result.getTotalRows() + " rows imported, " + result.getFailedRows() + " failed.")
+                    .data(result)
+                    .build());
+
+        } catch (Exception e) {
+            log.error("Error importing received stock", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<ReceivedStockImportResult>builder()
+                            .success(false)
+                            .message("Error importing received stock: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    @PostMapping(value = "/received-stock/jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Start background received stock import", description = "Queue a CSV or JSON array file for background import. Poll the job status endpoint with the returned upload ID")
+    public ResponseEntity<ApiResponse<ReceivedStockImportJobStatus>> startReceivedStockImportJob(
+            @Parameter(description = "CSV or JSON file of received stock items") @RequestParam("file") MultipartFile file) {
+        try {
+            if (file == null || file.isEmpty()) {
+                return ResponseEntity.badRequest()
+                        .body(ApiResponse.<ReceivedStockImportJobStatus>builder()
+                                .success(false)
+                                .message("Upload file cannot be empty")
+                                .build());
+            }
+
+            String filename = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase() : "";
+            ReceivedStockImportJob.ImportFormat format = filename.endsWith(".json")
+                    || MediaType.APPLICATION_JSON_VALUE.equals(file.getContentType())
+                    ? ReceivedStockImportJob.ImportFormat.JSON
+                    : ReceivedStockImportJob.ImportFormat.CSV;
+
+            ReceivedStockImportJob job;
+            try (InputStream inputStream = file.getInputStream()) {
+                job = receivedStockImportJobService.submit(inputStream, file.getOriginalFilename(), format);
+            }
+            return acceptedJob(job);
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ApiResponse.<ReceivedStockImportJobStatus>builder()
+                            .success(false)
+                            .message(e.getMessage())
+                            .build());
+        } catch (Exception e) {
+            log.error("Error starting received stock import job", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<ReceivedStockImportJobStatus>builder()
+                            .success(false)
+                            .message("Error starting received stock import job: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    @PostMapping(value = "/received-stock/jobs", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Start background received stock import from JSON", description = "Queue a JSON array of received stock items (same shape as POST /received-stock) for background import")
+    public ResponseEntity<ApiResponse<ReceivedStockImportJobStatus>> startReceivedStockImportJobFromJson(
+            @Parameter(description = "JSON array of received stock items") InputStream body) {
+        try {
+            ReceivedStockImportJob job = receivedStockImportJobService.submit(body, null,
+                    ReceivedStockImportJob.ImportFormat.JSON);
+            return acceptedJob(job);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(ApiResponse.<ReceivedStockImportJobStatus>builder()
+                            .success(false)
+                            .message(e.getMessage())
+                            .build());
+        } catch (Exception e) {
+            log.error("Error starting received stock import job", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<ReceivedStockImportJobStatus>builder()
+                            .success(false)
+                            .message("Error starting received stock import job: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    @GetMapping("/received-stock/jobs/{uploadId}")
+    @Operation(summary = "Get received stock import job status", description = "Progress, error counts and throughput of a background received stock import")
+    public ResponseEntity<ApiResponse<ReceivedStockImportJobStatus>> getReceivedStockImportJob(
+            @Parameter(description = "Upload ID returned when the job was started") @PathVariable String uploadId) {
+        try {
+            ReceivedStockImportJobStatus status = receivedStockImportJobService.getStatus(uploadId);
+            return ResponseEntity.ok(ApiResponse.<ReceivedStockImportJobStatus>builder()
+                    .success(true)
+                    .message("Import job status retrieved successfully")
+                    .data(status)
+                    .build());
+        } catch (Exception e) {
+            log.error("Error retrieving received stock import job {}", uploadId, e);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(ApiResponse.<ReceivedStockImportJobStatus>builder()
+                            .success(false)
+                            .message("Error retrieving import job: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    private ResponseEntity<ApiResponse<ReceivedStockImportJobStatus>> acceptedJob(ReceivedStockImportJob job) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.<ReceivedStockImportJobStatus>builder()
+                        .success(true)
+                        .message("Received stock import queued. Upload ID: " + job.getUploadId())
+                        .data(receivedStockImportJobService.getStatus(job.getUploadId()))
+                        .build());
+    }
+
     @GetMapping("/received-stock")
     @Operation(summary = "Get all received stock", description = "Retrieve all received stock records (all statuses)")
-    public ResponseEntity<ApiResponse<List<ReceivedStock>>> getAllReceivedStock() {
+    public ResponseEntity<ApiResponse<List<ReceivedStockSummary>>> getAllReceivedStock() {
         try {
-            List<ReceivedStock> allReceivedStocks = inventoryService.getAllReceivedStocks();
-            return ResponseEntity.ok(ApiResponse.<List<ReceivedStock>>builder()
+            List<ReceivedStockSummary> allReceivedStocks = inventoryService.getAllReceivedStocks();
+            return ResponseEntity.ok(ApiResponse.<List<ReceivedStockSummary>>builder()
                     .success(true)
                     .message("All received stock retrieved successfully")
                     .data(allReceivedStocks)
@@ -81,7 +248,7 @@ public class InventoryController {
         } catch (Exception e) {
             log.error("Error retrieving all received stock", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<List<ReceivedStock>>builder()
+                    .body(ApiResponse.<List<ReceivedStockSummary>>builder()
                             .success(false)
                             .message("Error retrieving all received stock: " + e.getMessage())
                             .build());
@@ -90,10 +257,10 @@ public class InventoryController {
 
     @GetMapping("/received-stock/pending")
     @Operation(summary = "Get all pending received stock", description = "Retrieve all unverified stock that needs to be verified")
-    public ResponseEntity<ApiResponse<List<ReceivedStock>>> getPendingReceivedStock() {
+    public ResponseEntity<ApiResponse<List<ReceivedStockSummary>>> getPendingReceivedStock() {
         try {
-            List<ReceivedStock> pendingStocks = inventoryService.getPendingReceivedStocks();
-            return ResponseEntity.ok(ApiResponse.<List<ReceivedStock>>builder()
+            List<ReceivedStockSummary> pendingStocks = inventoryService.getPendingReceivedStocks();
+            return ResponseEntity.ok(ApiResponse.<List<ReceivedStockSummary>>builder()
                     .success(true)
                     .message("Pending received stock retrieved successfully")
                     .data(pendingStocks)
@@ -101,7 +268,7 @@ public class InventoryController {
         } catch (Exception e) {
             log.error("Error retrieving pending received stock", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<List<ReceivedStock>>builder()
+                    .body(ApiResponse.<List<ReceivedStockSummary>>builder()
                             .success(false)
                             .message("Error retrieving pending received stock: " + e.getMessage())
                             .build());
@@ -132,9 +299,31 @@ public class InventoryController {
         }
     }
 
+    @PostMapping("/received-stock/verify")
+    @Operation(summary = "Bulk verify received stock", description = "Verify all pending rows of a csvUploadId, or an explicit list of received stock IDs with verified quantities, and add them to inventory in one transaction")
+    public ResponseEntity<ApiResponse<BulkVerifyResult>> bulkVerifyReceivedStock(
+            @Parameter(description = "Upload ID and/or items with verified quantities") @RequestBody BulkVerifyRequest request) {
+        try {
+            BulkVerifyResult result = inventoryService.bulkVerifyAndAddToInventory(request);
+            return ResponseEntity.ok(ApiResponse.<BulkVerifyResult>builder()
+                    .success(true)
+                    .message("Bulk verification completed. " + (result.getVerified() + result.getDiscrepancies())
+                            + " verified, " + result.getSkipped() + " skipped.")
+                    .data(result)
+                    .build());
+        } catch (Exception e) {
+            log.error("Error bulk verifying received stock", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.<BulkVerifyResult>builder()
+                            .success(false)
+                            .message("Error bulk verifying received stock: " + e.getMessage())
+                            .build());
+        }
+    }
+
     @GetMapping("/current")
     @Operation(summary = "Get current inventory", description = "Retrieve current inventory levels for all products with pagination and sorting")
-    public ResponseEntity<ApiResponse<Page<Inventory>>> getCurrentInventory(
+    public ResponseEntity<ApiResponse<Page<InventoryListItem>>> getCurrentInventory(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId,
@@ -170,9 +359,9 @@ public class InventoryController {
                     : Sort.by(sortBy).ascending();
 
             Pageable pageable = PageRequest.of(page, size, sort);
-            Page<Inventory> inventory = inventoryRepository.findAvailableItems(pageable);
+            Page<InventoryListItem> inventory = inventoryRepository.findAvailableListItems(pageable);
 
-            return ResponseEntity.ok(ApiResponse.<Page<Inventory>>builder()
+            return ResponseEntity.ok(ApiResponse.<Page<InventoryListItem>>builder()
                     .success(true)
                     .message("Current inventory retrieved successfully. Page " + (page + 1) + " of "
                             + inventory.getTotalPages())
@@ -181,7 +370,7 @@ public class InventoryController {
         } catch (Exception e) {
             log.error("Error retrieving current inventory", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<Page<Inventory>>builder()
+                    .body(ApiResponse.<Page<InventoryListItem>>builder()
                             .success(false)
                             .message("Error retrieving current inventory: " + e.getMessage())
                             .build());
@@ -189,21 +378,23 @@ public class InventoryController {
     }
 
     @GetMapping("/product/{productId}")
-    @Operation(summary = "Get inventory for specific product", description = "Retrieve inventory information for a specific product")
-    public ResponseEntity<ApiResponse<Inventory>> getInventoryByProductId(
+    @Operation(summary = "Get inventory for specific product", description = "Retrieve every inventory batch of a specific product, earliest expiry first")
+    public ResponseEntity<ApiResponse<List<InventoryListItem>>> getInventoryByProductId(
             @Parameter(description = "Product ID") @PathVariable Long productId) {
         try {
-            return inventoryService.getInventoryByProductId(productId)
-                    .map(inventory -> ResponseEntity.ok(ApiResponse.<Inventory>builder()
-                            .success(true)
-                            .message("Product inventory retrieved successfully")
-                            .data(inventory)
-                            .build()))
-                    .orElse(ResponseEntity.notFound().build());
+            List<InventoryListItem> batches = inventoryService.getInventoryListItemsByProductId(productId);
+            if (batches.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(ApiResponse.<List<InventoryListItem>>builder()
+                    .success(true)
+                    .message("Product inventory retrieved successfully")
+                    .data(batches)
+                    .build());
         } catch (Exception e) {
             log.error("Error retrieving product inventory", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<Inventory>builder()
+                    .body(ApiResponse.<List<InventoryListItem>>builder()
                             .success(false)
                             .message("Error retrieving product inventory: " + e.getMessage())
                             .build());
@@ -212,7 +403,7 @@ public class InventoryController {
 
     @GetMapping("/low-stock")
     @Operation(summary = "Get low stock items", description = "Retrieve products that are below minimum stock level with pagination")
-    public ResponseEntity<ApiResponse<Page<Inventory>>> getLowStockItems(
+    public ResponseEntity<ApiResponse<Page<InventoryListItem>>> getLowStockItems(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "Sort by field") @RequestParam(defaultValue = "availableQuantity") String sortBy,
@@ -222,9 +413,9 @@ public class InventoryController {
                     : Sort.by(sortBy).ascending();
 
             Pageable pageable = PageRequest.of(page, size, sort);
-            Page<Inventory> lowStockItems = inventoryRepository.findLowStockItems(pageable);
+            Page<InventoryListItem> lowStockItems = inventoryRepository.findLowStockListItems(pageable);
 
-            return ResponseEntity.ok(ApiResponse.<Page<Inventory>>builder()
+            return ResponseEntity.ok(ApiResponse.<Page<InventoryListItem>>builder()
                     .success(true)
                     .message("Low stock items retrieved successfully. Page " + (page + 1) + " of "
                             + lowStockItems.getTotalPages())
@@ -233,7 +424,7 @@ public class InventoryController {
         } catch (Exception e) {
             log.error("Error retrieving low stock items", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<Page<Inventory>>builder()
+                    .body(ApiResponse.<Page<InventoryListItem>>builder()
                             .success(false)
                             .message("Error retrieving low stock items: " + e.getMessage())
                             .build());
@@ -242,7 +433,7 @@ public class InventoryController {
 
     @GetMapping("/out-of-stock")
     @Operation(summary = "Get out of stock items", description = "Retrieve products that are completely out of stock with pagination")
-    public ResponseEntity<ApiResponse<Page<Inventory>>> getOutOfStockItems(
+    public ResponseEntity<ApiResponse<Page<InventoryListItem>>> getOutOfStockItems(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "Sort by field") @RequestParam(defaultValue = "id") String sortBy,
@@ -252,9 +443,9 @@ public class InventoryController {
                     : Sort.by(sortBy).ascending();
 
             Pageable pageable = PageRequest.of(page, size, sort);
-            Page<Inventory> outOfStockItems = inventoryRepository.findOutOfStockItems(pageable);
+            Page<InventoryListItem> outOfStockItems = inventoryRepository.findOutOfStockListItems(pageable);
 
-            return ResponseEntity.ok(ApiResponse.<Page<Inventory>>builder()
+            return ResponseEntity.ok(ApiResponse.<Page<InventoryListItem>>builder()
                     .success(true)
                     .message("Out of stock items retrieved successfully. Page " + (page + 1) + " of "
                             + outOfStockItems.getTotalPages())
@@ -263,30 +454,152 @@ public class InventoryController {
         } catch (Exception e) {
             log.error("Error retrieving out of stock items", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<Page<Inventory>>builder()
+                    .body(ApiResponse.<Page<InventoryListItem>>builder()
                             .success(false)
                             .message("Error retrieving out of stock items: " + e.getMessage())
                             .build());
         }
     }
 
+
+    @GetMapping("/current/scroll")
+    @Operation(summary = "Scroll current inventory", description = "Keyset-paginated alternative to /current: pass nextCursor back as cursor to get the next page. Deep pages cost the same as the first and the total is only counted on request")
+    public ResponseEntity<ApiResponse<CursorPage<InventoryListItem>>> scrollCurrentInventory(
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, at most 100") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId,
+            @Parameter(description = "Sort by field: 'id', 'availableQuantity' or 'currentQuantity'") @RequestParam(defaultValue = "id") String sortBy,
+            @Parameter(description = "Sort direction: 'asc' or 'desc'") @RequestParam(defaultValue = "asc") String sortDirection,
+            @Parameter(description = "Also count the total number of rows") @RequestParam(defaultValue = "false") boolean includeCount) {
+        return scrollInventory(InventoryRepository.available(), "Current inventory",
+                cursor, size, storeId, sortBy, sortDirection, includeCount);
+    }
+
+    @GetMapping("/low-stock/scroll")
+    @Operation(summary = "Scroll low stock items", description = "Keyset-paginated alternative to /low-stock")
+    public ResponseEntity<ApiResponse<CursorPage<InventoryListItem>>> scrollLowStockItems(
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, at most 100") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId,
+            @Parameter(description = "Sort by field: 'id', 'availableQuantity' or 'currentQuantity'") @RequestParam(defaultValue = "availableQuantity") String sortBy,
+            @Parameter(description = "Sort direction: 'asc' or 'desc'") @RequestParam(defaultValue = "asc") String sortDirection,
+            @Parameter(description = "Also count the total number of rows") @RequestParam(defaultValue = "false") boolean includeCount) {
+        return scrollInventory(InventoryRepository.lowStock(), "Low stock items",
+                cursor, size, storeId, sortBy, sortDirection, includeCount);
+    }
+
+    @GetMapping("/out-of-stock/scroll")
+    @Operation(summary = "Scroll out of stock items", description = "Keyset-paginated alternative to /out-of-stock")
+    public ResponseEntity<ApiResponse<CursorPage<InventoryListItem>>> scrollOutOfStockItems(
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, at most 100") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId,
+            @Parameter(description = "Sort by field: 'id', 'availableQuantity' or 'currentQuantity'") @RequestParam(defaultValue = "id") String sortBy,
+            @Parameter(description = "Sort direction: 'asc' or 'desc'") @RequestParam(defaultValue = "asc") String sortDirection,
+            @Parameter(description = "Also count the total number of rows") @RequestParam(defaultValue = "false") boolean includeCount) {
+        return scrollInventory(InventoryRepository.outOfStock(), "Out of stock items",
+                cursor, size, storeId, sortBy, sortDirection, includeCount);
+    }
+
+    @GetMapping("/valuation")
+    @Operation(summary = "Get inventory valuation", description = "Stock value at the end of a given day under weighted-average or FIFO costing, grouped by store, warehouse or category")
+    public ResponseEntity<ApiResponse<InventoryValuationSnapshot>> getInventoryValuation(
+            @Parameter(description = "Valuation date (defaults to today)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf,
+            @Parameter(description = "Costing method: WEIGHTED_AVERAGE or FIFO") @RequestParam(defaultValue = "WEIGHTED_AVERAGE") InventoryValuationSnapshot.CostingMethod method,
+            @Parameter(description = "Group by: STORE, WAREHOUSE or CATEGORY") @RequestParam(defaultValue = "STORE") InventoryValuationSnapshot.GroupBy groupBy,
+            @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId) {
+        try {
+            Long userId = SecurityUtils.getCurrentUserId();
+            if (userId != null && !SecurityUtils.hasRole("SUPER_ADMIN") && !SecurityUtils.hasRole("ADMIN")) {
+                if (storeId == null) {
+                    return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                            .body(ApiResponse.<InventoryValuationSnapshot>builder()
+                                    .success(false)
+                                    .message("Store ID is required")
+                                    .build());
+                }
+                accessControlService.verifyStoreAccess(
+                        userId,
+                        storeId,
+                        com.allocat.auth.entity.UserStoreAccess.AccessLevel.VIEW);
+            }
+
+            InventoryValuationSnapshot snapshot = inventoryValuationService.getSnapshot(
+                    asOf != null ? asOf : LocalDate.now(), method, groupBy, storeId);
+
+            return ResponseEntity.ok(ApiResponse.<InventoryValuationSnapshot>builder()
+                    .success(true)
+                    .message("Inventory valuation retrieved successfully")
+                    .data(snapshot)
+                    .build());
+        } catch (Exception e) {
+            log.error("Error retrieving inventory valuation", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<InventoryValuationSnapshot>builder()
+                            .success(false)
+                            .message("Error retrieving inventory valuation: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    @GetMapping("/near-expiry")
+    @Operation(summary = "Get near-expiry batches", description = "Batches with stock that expire within the given number of days (or already have), earliest first")
+    public ResponseEntity<ApiResponse<List<NearExpiryItem>>> getNearExpiryItems(
+            @Parameter(description = "Days ahead to look") @RequestParam(defaultValue = "30") int days,
+            @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId) {
+        try {
+            Long userId = SecurityUtils.getCurrentUserId();
+            List<Long> accessibleStoreIds = null;
+            if (userId != null && !SecurityUtils.hasRole("SUPER_ADMIN") && !SecurityUtils.hasRole("ADMIN")) {
+                if (storeId != null) {
+                    accessControlService.verifyStoreAccess(
+                            userId,
+                            storeId,
+                            com.allocat.auth.entity.UserStoreAccess.AccessLevel.VIEW);
+                } else {
+                    accessibleStoreIds = accessControlService.getAccessibleStoreIds(userId);
+                }
+            }
+
+            List<NearExpiryItem> items = inventoryService.getNearExpiryReport(storeId, days);
+            if (accessibleStoreIds != null) {
+                List<Long> visible = accessibleStoreIds;
+                items = items.stream().filter(item -> visible.contains(item.getStoreId())).toList();
+            }
+
+            return ResponseEntity.ok(ApiResponse.<List<NearExpiryItem>>builder()
+                    .success(true)
+                    .message("Near-expiry batches retrieved successfully")
+                    .data(items)
+                    .build());
+        } catch (Exception e) {
+            log.error("Error retrieving near-expiry batches", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<List<NearExpiryItem>>builder()
+                            .success(false)
+                            .message("Error retrieving near-expiry batches: " + e.getMessage())
+                            .build());
+        }
+    }
+
     @PostMapping("/reserve")
     @Operation(summary = "Reserve inventory", description = "Reserve a specific quantity of inventory for a product")
-    public ResponseEntity<ApiResponse<Inventory>> reserveInventory(
+    public ResponseEntity<ApiResponse<List<BatchAllocation>>> reserveInventory(
             @Parameter(description = "Product ID") @RequestParam Long productId,
+            @Parameter(description = "Store ID") @RequestParam Long storeId,
             @Parameter(description = "Quantity to reserve") @RequestParam Integer quantity,
             @Parameter(description = "Name of the person reserving") @RequestParam String reservedBy) {
         try {
-            Inventory inventory = inventoryService.reserveInventory(productId, quantity, reservedBy);
-            return ResponseEntity.ok(ApiResponse.<Inventory>builder()
+            List<BatchAllocation> batches = inventoryService.reserveInventory(productId, storeId, quantity, reservedBy);
+            return ResponseEntity.ok(ApiResponse.<List<BatchAllocation>>builder()
                     .success(true)
                     .message("Inventory reserved successfully")
-                    .data(inventory)
+                    .data(batches)
                     .build());
         } catch (Exception e) {
             log.error("Error reserving inventory", e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(ApiResponse.<Inventory>builder()
+                    .body(ApiResponse.<List<BatchAllocation>>builder()
                             .success(false)
                             .message("Error reserving inventory: " + e.getMessage())
                             .build());
@@ -295,21 +608,22 @@ public class InventoryController {
 
     @PostMapping("/release-reservation")
     @Operation(summary = "Release inventory reservation", description = "Release a previously reserved quantity of inventory")
-    public ResponseEntity<ApiResponse<Inventory>> releaseReservation(
+    public ResponseEntity<ApiResponse<List<BatchAllocation>>> releaseReservation(
             @Parameter(description = "Product ID") @RequestParam Long productId,
+            @Parameter(description = "Store ID") @RequestParam Long storeId,
             @Parameter(description = "Quantity to release") @RequestParam Integer quantity,
             @Parameter(description = "Name of the person releasing") @RequestParam String releasedBy) {
         try {
-            Inventory inventory = inventoryService.releaseReservation(productId, quantity, releasedBy);
-            return ResponseEntity.ok(ApiResponse.<Inventory>builder()
+            List<BatchAllocation> batches = inventoryService.releaseReservation(productId, storeId, quantity, releasedBy);
+            return ResponseEntity.ok(ApiResponse.<List<BatchAllocation>>builder()
                     .success(true)
                     .message("Inventory reservation released successfully")
-                    .data(inventory)
+                    .data(batches)
                     .build());
         } catch (Exception e) {
             log.error("Error releasing inventory reservation", e);
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(ApiResponse.<Inventory>builder()
+                    .body(ApiResponse.<List<BatchAllocation>>builder()
                             .success(false)
                             .message("Error releasing inventory reservation: " + e.getMessage())
                             .build());
@@ -318,10 +632,10 @@ public class InventoryController {
 
     @GetMapping("/discrepancies")
     @Operation(summary = "Get stock discrepancies", description = "Retrieve received stock with quantity discrepancies")
-    public ResponseEntity<ApiResponse<List<ReceivedStock>>> getDiscrepancies() {
+    public ResponseEntity<ApiResponse<List<ReceivedStockSummary>>> getDiscrepancies() {
         try {
-            List<ReceivedStock> discrepancies = inventoryService.getDiscrepancies();
-            return ResponseEntity.ok(ApiResponse.<List<ReceivedStock>>builder()
+            List<ReceivedStockSummary> discrepancies = inventoryService.getDiscrepancies();
+            return ResponseEntity.ok(ApiResponse.<List<ReceivedStockSummary>>builder()
                     .success(true)
                     .message("Stock discrepancies retrieved successfully")
                     .data(discrepancies)
@@ -329,10 +643,59 @@ public class InventoryController {
         } catch (Exception e) {
             log.error("Error retrieving stock discrepancies", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<List<ReceivedStock>>builder()
+                    .body(ApiResponse.<List<ReceivedStockSummary>>builder()
                             .success(false)
                             .message("Error retrieving stock discrepancies: " + e.getMessage())
                             .build());
         }
     }
+
+    private ResponseEntity<ApiResponse<CursorPage<InventoryListItem>>> scrollInventory(
+            Specification<Inventory> filter, String listing, String cursor, int size, Long storeId,
+            String sortBy, String sortDirection, boolean includeCount) {
+        try {
+            Sort sort = KeysetCursor.sort(sortBy, sortDirection, SCROLL_SORTABLE);
+            ScrollPosition position = KeysetCursor.decode(cursor, sort);
+            Specification<Inventory> spec = filter.and(InventoryRepository.inStores(visibleStoreIds(storeId)));
+
+            // Fetch the product with the page so mapping rows never lazy-loads it
+            Window<InventoryListItem> window = inventoryRepository.findBy(spec,
+                    query -> query.project("product").sortBy(sort).limit(KeysetCursor.limit(size)).scroll(position))
+                    .map(InventoryListItem::of);
+            CursorPage<InventoryListItem> result = CursorPage.of(window,
+                    includeCount ? inventoryRepository.count(spec) : null);
+
+            return ResponseEntity.ok(ApiResponse.success(result,
+                    listing + " retrieved successfully. " + result.getSize() + " rows"
+                            + (result.isHasNext() ? ", more available" : "")));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.<CursorPage<InventoryListItem>>builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build());
+        } catch (Exception e) {
+            log.error("Error scrolling {}", listing.toLowerCase(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<CursorPage<InventoryListItem>>builder()
+                            .success(false)
+                            .message("Error retrieving " + listing.toLowerCase() + ": " + e.getMessage())
+                            .build());
+        }
+    }
+
+    /**
+     * Stores the current user may list inventory for, or null for all stores.
+     */
+    private List<Long> visibleStoreIds(Long storeId) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        boolean admin = userId == null || SecurityUtils.hasRole("SUPER_ADMIN") || SecurityUtils.hasRole("ADMIN");
+        if (storeId != null) {
+            if (!admin) {
+                accessControlService.verifyStoreAccess(userId, storeId,
+                        com.allocat.auth.entity.UserStoreAccess.AccessLevel.VIEW);
+            }
+            return List.of(storeId);
+        }
+        return admin ? null : accessControlService.getAccessibleStoreIds(userId);
+    }
 }
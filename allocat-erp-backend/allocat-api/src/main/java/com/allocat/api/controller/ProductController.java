@@ -1,8 +1,17 @@
 package com.allocat.api.controller;
 
 import com.allocat.common.dto.ApiResponse;
+import com.allocat.common.dto.CursorPage;
+import com.allocat.common.util.KeysetCursor;
+import com.allocat.inventory.dto.ProductFacets;
+import com.allocat.inventory.dto.ProductSearchResult;
+import com.allocat.inventory.dto.ProductSummary;
+import com.allocat.inventory.dto.ProductUpsertResult;
 import com.allocat.inventory.entity.Product;
 import com.allocat.inventory.repository.ProductRepository;
+import com.allocat.inventory.service.ProductBulkUpsertService;
+import com.allocat.inventory.service.ProductFacetService;
+import com.allocat.inventory.service.ProductSearchService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -11,13 +20,18 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/products")
@@ -27,10 +41,17 @@ import java.util.Optional;
 public class ProductController {
 
     private final ProductRepository productRepository;
+    private final ProductSearchService productSearchService;
+    private final ProductFacetService productFacetService;
+    private final ProductBulkUpsertService productBulkUpsertService;
+    private final ConditionalGet conditionalGet;
+
+    // Non-null columns the keyset listing can seek on
+    private static final Set<String> SCROLL_SORTABLE = Set.of("id", "name", "productCode", "createdAt");
 
     @GetMapping
     @Operation(summary = "Get all products", description = "Retrieve all products with pagination, sorting, and filtering")
-    public ResponseEntity<ApiResponse<Page<Product>>> getAllProducts(
+    public ResponseEntity<ApiResponse<Page<ProductSummary>>> getAllProducts(
             @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Page size") @RequestParam(defaultValue = "20") int size,
             @Parameter(description = "Sort by field (e.g., 'name', 'productCode', 'unitPrice', 'category')") @RequestParam(defaultValue = "id") String sortBy,
@@ -38,28 +59,32 @@ public class ProductController {
             @Parameter(description = "Search term for product name, code, or barcode") @RequestParam(required = false) String search,
             @Parameter(description = "Filter by category") @RequestParam(required = false) String category,
             @Parameter(description = "Filter by supplier name") @RequestParam(required = false) String supplier,
-            @Parameter(description = "Filter by active status") @RequestParam(required = false) Boolean active) {
+            @Parameter(description = "Filter by active status") @RequestParam(required = false) Boolean active,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "products")) {
+            return null;
+        }
         try {
             // Create sort object
             Sort sort = sortDirection.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending()
                     : Sort.by(sortBy).ascending();
 
             Pageable pageable = PageRequest.of(page, size, sort);
-            Page<Product> products;
+            Page<ProductSummary> products;
 
             if (search != null && !search.trim().isEmpty()) {
-                products = productRepository.findByNameContainingIgnoreCase(search, pageable);
+                products = productRepository.findSummariesByNameContaining(search, pageable);
             } else if (category != null && !category.trim().isEmpty()) {
-                products = productRepository.findByCategory(category, pageable);
+                products = productRepository.findSummariesByCategory(category, pageable);
             } else if (supplier != null && !supplier.trim().isEmpty()) {
-                products = productRepository.findBySupplierName(supplier, pageable);
+                products = productRepository.findSummariesBySupplierName(supplier, pageable);
             } else if (active != null && active) {
-                products = productRepository.findByIsActiveTrue(pageable);
+                products = productRepository.findActiveSummaries(pageable);
             } else {
-                products = productRepository.findAll(pageable);
+                products = productRepository.findSummaries(pageable);
             }
 
-            return ResponseEntity.ok(ApiResponse.<Page<Product>>builder()
+            return ResponseEntity.ok(ApiResponse.<Page<ProductSummary>>builder()
                     .success(true)
                     .message("Products retrieved successfully. Page " + (page + 1) + " of " + products.getTotalPages())
                     .data(products)
@@ -67,7 +92,46 @@ public class ProductController {
         } catch (Exception e) {
             log.error("Error retrieving products", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<Page<Product>>builder()
+                    .body(ApiResponse.<Page<ProductSummary>>builder()
+                            .success(false)
+                            .message("Error retrieving products: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll products", description = "Keyset-paginated alternative to GET /api/products: pass nextCursor back as cursor to get the next page. Deep pages cost the same as the first and the total is only counted on request")
+    public ResponseEntity<ApiResponse<CursorPage<ProductSummary>>> scrollProducts(
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, at most 100") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sort by field: 'id', 'name', 'productCode' or 'createdAt'") @RequestParam(defaultValue = "id") String sortBy,
+            @Parameter(description = "Sort direction: 'asc' or 'desc'") @RequestParam(defaultValue = "asc") String sortDirection,
+            @Parameter(description = "Search term for product name") @RequestParam(required = false) String search,
+            @Parameter(description = "Filter by category") @RequestParam(required = false) String category,
+            @Parameter(description = "Filter by supplier name") @RequestParam(required = false) String supplier,
+            @Parameter(description = "Filter by active status") @RequestParam(required = false) Boolean active,
+            @Parameter(description = "Also count the total number of products") @RequestParam(defaultValue = "false") boolean includeCount) {
+        try {
+            Sort sort = KeysetCursor.sort(sortBy, sortDirection, SCROLL_SORTABLE);
+            ScrollPosition position = KeysetCursor.decode(cursor, sort);
+            Specification<Product> spec = ProductRepository.matching(search, category, supplier, active);
+
+            Window<ProductSummary> window = productRepository.findBy(spec,
+                    query -> query.sortBy(sort).limit(KeysetCursor.limit(size)).scroll(position)).map(ProductSummary::of);
+            CursorPage<ProductSummary> products = CursorPage.of(window,
+                    includeCount ? productRepository.count(spec) : null);
+
+            return ResponseEntity.ok(ApiResponse.success(products,
+                    "Retrieved " + products.getSize() + " products"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.<CursorPage<ProductSummary>>builder()
+                    .success(false)
+                    .message(e.getMessage())
+                    .build());
+        } catch (Exception e) {
+            log.error("Error scrolling products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<CursorPage<ProductSummary>>builder()
                             .success(false)
                             .message("Error retrieving products: " + e.getMessage())
                             .build());
@@ -77,7 +141,11 @@ public class ProductController {
     @GetMapping("/{id}")
     @Operation(summary = "Get product by ID", description = "Retrieve a specific product by its ID")
     public ResponseEntity<ApiResponse<Product>> getProductById(
-            @Parameter(description = "Product ID") @PathVariable long id) {
+            @Parameter(description = "Product ID") @PathVariable long id,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "products")) {
+            return null;
+        }
         try {
             return productRepository.findById(id)
                     .map(product -> ResponseEntity.ok(ApiResponse.<Product>builder()
@@ -99,7 +167,11 @@ public class ProductController {
     @GetMapping("/code/{productCode}")
     @Operation(summary = "Get product by product code", description = "Retrieve a specific product by its product code")
     public ResponseEntity<ApiResponse<Product>> getProductByCode(
-            @Parameter(description = "Product code") @PathVariable String productCode) {
+            @Parameter(description = "Product code") @PathVariable String productCode,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "products")) {
+            return null;
+        }
         try {
             return productRepository.findByProductCode(productCode)
                     .map(product -> ResponseEntity.ok(ApiResponse.<Product>builder()
@@ -207,6 +279,34 @@ public class ProductController {
         }
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Bulk upsert products", description = "Create or update products by product code in JDBC batches. Returns one outcome per product (CREATED, UPDATED, UNCHANGED or FAILED) in request order")
+    public ResponseEntity<ApiResponse<ProductUpsertResult>> bulkUpsertProducts(
+            @Parameter(description = "Products keyed by product code") @RequestBody List<Product> products) {
+        try {
+            ProductUpsertResult result = productBulkUpsertService.upsert(products);
+            return ResponseEntity.ok(ApiResponse.<ProductUpsertResult>builder()
+                    .success(result.getFailed() == 0)
+                    .message("Bulk upsert completed. " + result.getCreated() + " created, " + result.getUpdated()
+                            + " updated, " + result.getUnchanged() + " unchanged, " + result.getFailed() + " failed.")
+                    .data(result)
+                    .build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.<ProductUpsertResult>builder()
+                            .success(false)
+                            .message(e.getMessage())
+                            .build());
+        } catch (Exception e) {
+            log.error("Error bulk upserting products", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<ProductUpsertResult>builder()
+                            .success(false)
+                            .message("Error bulk upserting products: " + e.getMessage())
+                            .build());
+        }
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete product", description = "Delete a product (soft delete by setting isActive to false)")
     public ResponseEntity<ApiResponse<Void>> deleteProduct(
@@ -237,12 +337,16 @@ public class ProductController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search products", description = "Search products by name, code, or barcode")
-    public ResponseEntity<ApiResponse<List<Product>>> searchProducts(
-            @Parameter(description = "Search term") @RequestParam String searchTerm) {
+    @Operation(summary = "Search products", description = "Case-insensitive search of products by name, code, barcode, or brand")
+    public ResponseEntity<ApiResponse<List<ProductSummary>>> searchProducts(
+            @Parameter(description = "Search term") @RequestParam String searchTerm,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "products")) {
+            return null;
+        }
         try {
-            List<Product> products = productRepository.searchProducts(searchTerm);
-            return ResponseEntity.ok(ApiResponse.<List<Product>>builder()
+            List<ProductSummary> products = productRepository.searchSummaries(searchTerm);
+            return ResponseEntity.ok(ApiResponse.<List<ProductSummary>>builder()
                     .success(true)
                     .message("Search results retrieved successfully")
                     .data(products)
@@ -250,7 +354,32 @@ public class ProductController {
         } catch (Exception e) {
             log.error("Error searching products", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(ApiResponse.<List<Product>>builder()
+                    .body(ApiResponse.<List<ProductSummary>>builder()
+                            .success(false)
+                            .message("Error searching products: " + e.getMessage())
+                            .build());
+        }
+    }
+
+    @GetMapping("/typeahead")
+    @Operation(summary = "Product typeahead",
+            description = "Ranked suggestions for a partially typed name, code, barcode, or brand. "
+                    + "Exact code/barcode matches come first, then prefix matches, then similar names")
+    public ResponseEntity<ApiResponse<List<ProductSearchResult>>> typeahead(
+            @Parameter(description = "Partial name, code, barcode, or brand") @RequestParam String q,
+            @Parameter(description = "Maximum number of suggestions (max " + ProductSearchService.MAX_LIMIT + ")")
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<ProductSearchResult> results = productSearchService.typeahead(q, limit);
+            return ResponseEntity.ok(ApiResponse.<List<ProductSearchResult>>builder()
+                    .success(true)
+                    .message("Found " + results.size() + " matching products")
+                    .data(results)
+                    .build());
+        } catch (Exception e) {
+            log.error("Error searching products for typeahead", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<List<ProductSearchResult>>builder()
                             .success(false)
                             .message("Error searching products: " + e.getMessage())
                             .build());
@@ -259,9 +388,12 @@ public class ProductController {
 
     @GetMapping("/categories")
     @Operation(summary = "Get all product categories", description = "Retrieve all unique product categories")
-    public ResponseEntity<ApiResponse<List<String>>> getCategories() {
+    public ResponseEntity<ApiResponse<List<String>>> getCategories(WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "products")) {
+            return null;
+        }
         try {
-            List<String> categories = productRepository.findDistinctCategories();
+            List<String> categories = productFacetService.getCategories();
             return ResponseEntity.ok(ApiResponse.<List<String>>builder()
                     .success(true)
                     .message("Categories retrieved successfully")
@@ -276,4 +408,31 @@ public class ProductController {
                             .build());
         }
     }
+
+    @GetMapping("/facets")
+    @Operation(summary = "Get product facet counts", description = "Product counts per category, supplier and active status. Each facet is counted under the other filters so its alternatives stay visible")
+    public ResponseEntity<ApiResponse<ProductFacets>> getFacets(
+            @Parameter(description = "Filter by category") @RequestParam(required = false) String category,
+            @Parameter(description = "Filter by supplier name") @RequestParam(required = false) String supplier,
+            @Parameter(description = "Filter by active status") @RequestParam(required = false) Boolean active,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "products")) {
+            return null;
+        }
+        try {
+            ProductFacets facets = productFacetService.getFacets(category, supplier, active);
+            return ResponseEntity.ok(ApiResponse.<ProductFacets>builder()
+                    .success(true)
+                    .message("Facets retrieved successfully")
+                    .data(facets)
+                    .build());
+        } catch (Exception e) {
+            log.error("Error retrieving product facets", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.<ProductFacets>builder()
+                            .success(false)
+                            .message("Error retrieving facets: " + e.getMessage())
+                            .build());
+        }
+    }
 }
@@ -0,0 +1,84 @@
+package com.allocat.api.controller;
+
+import com.allocat.auth.entity.UserStoreAccess;
+import com.allocat.auth.service.AccessControlService;
+import com.allocat.auth.util.SecurityUtils;
+import com.allocat.common.dto.ApiResponse;
+import com.allocat.inventory.dto.ReplenishmentSuggestion;
+import com.allocat.inventory.service.ReplenishmentService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/inventory/replenishment")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Replenishment", description = "Demand-driven reorder points and order suggestions")
+public class ReplenishmentController {
+
+    private final ReplenishmentService replenishmentService;
+    private final AccessControlService accessControlService;
+
+    @GetMapping
+    @Operation(summary = "Get replenishment suggestions",
+            description = "Smoothed daily velocity, reorder point, suggested order quantity and days of cover per product and store")
+    public ResponseEntity<ApiResponse<Page<ReplenishmentSuggestion>>> getSuggestions(
+            @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId,
+            @Parameter(description = "Only products at or below their reorder point") @RequestParam(defaultValue = "false") boolean reorderOnly,
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "50") int size,
+            @Parameter(description = "Sort by field ('daysOfCover', 'suggestedOrderQuantity', 'dailyVelocity', 'availableQuantity', 'reorderPoint', 'productCode', 'productName')") @RequestParam(defaultValue = "daysOfCover") String sortBy,
+            @Parameter(description = "Sort direction: 'asc' or 'desc'") @RequestParam(defaultValue = "asc") String sortDirection) {
+        try {
+            Sort sort = sortDirection.equalsIgnoreCase("desc") ? Sort.by(sortBy).descending()
+                    : Sort.by(sortBy).ascending();
+            Page<ReplenishmentSuggestion> suggestions = replenishmentService.getSuggestions(
+                    visibleStores(storeId), reorderOnly, PageRequest.of(page, size, sort));
+
+            return ResponseEntity.ok(ApiResponse.<Page<ReplenishmentSuggestion>>builder()
+                    .success(true)
+                    .message("Replenishment suggestions retrieved successfully. Page " + (page + 1) + " of " + suggestions.getTotalPages())
+                    .data(suggestions)
+                    .build());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error retrieving replenishment suggestions", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error retrieving replenishment suggestions: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Stores the current user may plan for, or null when unrestricted.
+     */
+    private Set<Long> visibleStores(Long storeId) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        if (userId == null || SecurityUtils.hasRole("SUPER_ADMIN") || SecurityUtils.hasRole("ADMIN")) {
+            return storeId != null ? Set.of(storeId) : null;
+        }
+        if (storeId != null) {
+            accessControlService.verifyStoreAccess(userId, storeId, UserStoreAccess.AccessLevel.VIEW);
+            return Set.of(storeId);
+        }
+        List<Long> accessible = accessControlService.getAccessibleStoreIds(userId);
+        return new HashSet<>(accessible);
+    }
+}
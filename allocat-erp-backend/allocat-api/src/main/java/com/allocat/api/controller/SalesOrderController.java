@@ -1,6 +1,8 @@
 package com.allocat.api.controller;
 
 import com.allocat.common.dto.ApiResponse;
+import com.allocat.common.dto.CursorPage;
+import com.allocat.common.util.KeysetCursor;
 import com.allocat.pos.entity.SalesOrder;
 import com.allocat.pos.service.SalesOrderService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -21,6 +23,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * REST Controller for Sales Order management
@@ -34,6 +37,9 @@ public class SalesOrderController {
 
     private final SalesOrderService salesOrderService;
 
+    // Non-null columns the keyset listing can seek on
+    private static final Set<String> SCROLL_SORTABLE = Set.of("orderDate", "id", "orderNo");
+
     @GetMapping
     @Operation(summary = "Get sales orders", description = "Retrieve sales orders with pagination and filtering")
     public ResponseEntity<ApiResponse<Page<SalesOrder>>> getSalesOrders(
@@ -69,6 +75,40 @@ public class SalesOrderController {
         }
     }
 
+    @GetMapping("/scroll")
+    @Operation(summary = "Scroll sales orders", description = "Keyset-paginated alternative to GET /api/sales: pass nextCursor back as cursor to get the next page. Deep pages cost the same as the first and the total is only counted on request")
+    public ResponseEntity<ApiResponse<CursorPage<SalesOrder>>> scrollSalesOrders(
+            @Parameter(description = "Store ID") @RequestParam Long storeId,
+            @Parameter(description = "Start date") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @Parameter(description = "End date") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @Parameter(description = "Continuation token from the previous page; omit for the first page") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size, at most 100") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Sort by field: 'orderDate', 'id' or 'orderNo'") @RequestParam(defaultValue = "orderDate") String sortBy,
+            @Parameter(description = "Sort direction") @RequestParam(defaultValue = "desc") String sortDirection,
+            @Parameter(description = "Also count the total number of orders") @RequestParam(defaultValue = "false") boolean includeCount) {
+        try {
+            if (startDate == null) {
+                startDate = LocalDateTime.now().withHour(0).withMinute(0).withSecond(0);
+            }
+            if (endDate == null) {
+                endDate = LocalDateTime.now().withHour(23).withMinute(59).withSecond(59);
+            }
+
+            Sort sort = KeysetCursor.sort(sortBy, sortDirection, SCROLL_SORTABLE);
+            CursorPage<SalesOrder> orders = salesOrderService.scrollOrdersByStoreAndDateRange(
+                    storeId, startDate, endDate, KeysetCursor.decode(cursor, sort), sort, KeysetCursor.limit(size), includeCount);
+
+            return ResponseEntity.ok(ApiResponse.success(orders,
+                    "Retrieved " + orders.getSize() + " orders"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Error scrolling sales orders", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error retrieving orders: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get order by ID", description = "Retrieve a specific sales order by ID")
     public ResponseEntity<ApiResponse<SalesOrder>> getOrderById(
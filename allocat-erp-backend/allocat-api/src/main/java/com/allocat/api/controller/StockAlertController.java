@@ -0,0 +1,112 @@
+package com.allocat.api.controller;
+
+import com.allocat.auth.entity.UserStoreAccess;
+import com.allocat.auth.service.AccessControlService;
+import com.allocat.auth.util.SecurityUtils;
+import com.allocat.common.dto.ApiResponse;
+import com.allocat.inventory.dto.StockAlert;
+import com.allocat.inventory.service.StockAlertService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+@RestController
+@RequestMapping("/api/inventory/alerts")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Stock Alerts", description = "Low-stock and out-of-stock alerts pushed as quantities change")
+public class StockAlertController {
+
+    private static final long STREAM_TIMEOUT_MS = 30 * 60 * 1000L;
+
+    private final StockAlertService stockAlertService;
+    private final AccessControlService accessControlService;
+
+    @GetMapping
+    @Operation(summary = "Get active stock alerts", description = "Current low-stock and out-of-stock rows, served from memory without scanning inventory")
+    public ResponseEntity<ApiResponse<List<StockAlert>>> getActiveAlerts(
+            @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId) {
+        try {
+            Set<Long> visibleStores = visibleStores(storeId);
+            List<StockAlert> alerts = stockAlertService.getActiveAlerts(storeId).stream()
+                    .filter(alert -> visibleStores == null || visibleStores.contains(alert.getStoreId()))
+                    .toList();
+            return ResponseEntity.ok(ApiResponse.success(alerts, "Active stock alerts retrieved successfully"));
+        } catch (Exception e) {
+            log.error("Error retrieving stock alerts", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Error retrieving stock alerts: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream stock alerts", description = "Server-sent events for every low-stock / out-of-stock threshold crossing. Sends the active alerts first, then only changes")
+    public SseEmitter streamAlerts(
+            @Parameter(description = "Filter by store ID") @RequestParam(required = false) Long storeId) {
+        Set<Long> visibleStores = visibleStores(storeId);
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        Consumer<StockAlert> subscriber = alert -> {
+            if ((storeId != null && !storeId.equals(alert.getStoreId()))
+                    || (visibleStores != null && !visibleStores.contains(alert.getStoreId()))) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name("stock-alert").data(alert));
+            } catch (IOException e) {
+                // Client went away; the service drops subscribers that throw
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        emitter.onCompletion(() -> stockAlertService.unsubscribe(subscriber));
+        emitter.onTimeout(() -> stockAlertService.unsubscribe(subscriber));
+        emitter.onError(error -> stockAlertService.unsubscribe(subscriber));
+
+        try {
+            for (StockAlert alert : stockAlertService.getActiveAlerts(storeId)) {
+                if (visibleStores != null && !visibleStores.contains(alert.getStoreId())) {
+                    continue;
+                }
+                emitter.send(SseEmitter.event().name("stock-alert").data(alert));
+            }
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        stockAlertService.subscribe(subscriber);
+        return emitter;
+    }
+
+    /**
+     * Stores whose alerts the current user may see, or null when unrestricted.
+     */
+    private Set<Long> visibleStores(Long storeId) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        if (userId == null || SecurityUtils.hasRole("SUPER_ADMIN") || SecurityUtils.hasRole("ADMIN")) {
+            return null;
+        }
+        if (storeId != null) {
+            accessControlService.verifyStoreAccess(userId, storeId, UserStoreAccess.AccessLevel.VIEW);
+            return Set.of(storeId);
+        }
+        return new HashSet<>(accessControlService.getAccessibleStoreIds(userId));
+    }
+}
@@ -66,13 +66,8 @@ public class StockTransferController {
             serviceRequest.setEstimatedDeliveryDate(request.getEstimatedDeliveryDate());
             serviceRequest.setShippingMethod(request.getShippingMethod());
 
-            // Get current user ID from security context
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            if (auth != null
-                    && auth.getPrincipal() instanceof org.springframework.security.core.userdetails.UserDetails) {
-                // Extract user ID from principal - adjust based on your implementation
-                // For now, setting to null - you'll need to implement user ID extraction
-            }
+            // Current user ID from the JWT principal
+            serviceRequest.setRequestedBy(SecurityUtils.getCurrentUserId());
 
             List<StockTransferService.TransferItemRequest> items = request.getItems().stream()
                     .map(item -> {
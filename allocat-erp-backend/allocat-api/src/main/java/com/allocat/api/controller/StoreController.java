@@ -18,6 +18,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -31,6 +32,7 @@ import java.util.stream.Collectors;
 public class StoreController {
 
     private final StoreService storeService;
+    private final ConditionalGet conditionalGet;
 
     @PostMapping
     @PreAuthorize("hasRole('SUPER_ADMIN')")
@@ -77,7 +79,11 @@ public class StoreController {
     @Operation(summary = "Get all stores", description = "Retrieve all stores (SUPER_ADMIN only)")
     public ResponseEntity<ApiResponse<List<StoreResponse>>> getAllStores(
             @Parameter(description = "Filter by active status")
-            @RequestParam(required = false) Boolean active) {
+            @RequestParam(required = false) Boolean active,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "stores")) {
+            return null;
+        }
         try {
             List<Store> stores = active != null && active 
                     ? storeService.getAllActiveStores()
@@ -103,7 +109,11 @@ public class StoreController {
     @Operation(summary = "Get store by ID", description = "Retrieve store details by ID (SUPER_ADMIN only)")
     public ResponseEntity<ApiResponse<StoreResponse>> getStoreById(
             @Parameter(description = "Store ID") 
-            @PathVariable Long storeId) {
+            @PathVariable Long storeId,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "stores")) {
+            return null;
+        }
         try {
             Store store = storeService.getStoreById(storeId);
             return ResponseEntity.ok(ApiResponse.success(
@@ -126,7 +136,11 @@ public class StoreController {
     @Operation(summary = "Get store by code", description = "Retrieve store details by code (SUPER_ADMIN only)")
     public ResponseEntity<ApiResponse<StoreResponse>> getStoreByCode(
             @Parameter(description = "Store code") 
-            @PathVariable String storeCode) {
+            @PathVariable String storeCode,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "stores")) {
+            return null;
+        }
         try {
             Store store = storeService.getStoreByCode(storeCode);
             return ResponseEntity.ok(ApiResponse.success(
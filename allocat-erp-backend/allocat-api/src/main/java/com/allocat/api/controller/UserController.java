@@ -6,7 +6,9 @@ import com.allocat.auth.entity.Store;
 import com.allocat.auth.entity.User;
 import com.allocat.auth.service.StoreService;
 import com.allocat.auth.service.UserService;
+import com.allocat.auth.util.SecurityUtils;
 import com.allocat.common.dto.ApiResponse;
+import com.allocat.common.security.AuthenticatedUser;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -16,14 +18,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
@@ -54,14 +56,13 @@ public class UserController {
     })
     public ResponseEntity<ApiResponse<List<UserResponse>>> getAllUsers() {
         try {
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            String currentUsername = auth.getName();
-            User currentUser = userService.getUserByUsername(currentUsername);
-            
+            AuthenticatedUser currentUser = SecurityUtils.getCurrentUser();
+            Long currentStoreId = currentUser.hasRole("ADMIN") ? homeStoreId(currentUser) : null;
+
             List<User> users;
             // If ADMIN, only show users from the same store
-            if (currentUser.getRole().getName().equals("ADMIN") && currentUser.getStoreId() != null) {
-                users = userService.getUsersByStoreId(currentUser.getStoreId());
+            if (currentStoreId != null) {
+                users = userService.getUsersByStoreId(currentStoreId);
             } else {
                 // SUPER_ADMIN sees all users
                 users = userService.getAllUsers();
@@ -149,10 +150,9 @@ public class UserController {
             @Valid @RequestBody CreateUserRequest req) {
         try {
             // Get current user
-            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
-            String currentUsername = auth.getName();
-            User currentUser = userService.getUserByUsername(currentUsername);
-            String currentUserRole = currentUser.getRole().getName();
+            AuthenticatedUser currentUser = SecurityUtils.getCurrentUser();
+            String currentUsername = currentUser.username();
+            String currentUserRole = currentUser.role();
             
             // Set role (default to VIEWER if not specified)
             String roleName = (req.roleName() == null || req.roleName().isBlank()) ? "VIEWER" : req.roleName();
@@ -219,12 +219,13 @@ public class UserController {
             // If current user is ADMIN, enforce store restriction
             if ("ADMIN".equals(currentUserRole)) {
                 // ADMIN can only create users for their own store
-                if (assignedStoreId == null || !assignedStoreId.equals(currentUser.getStoreId())) {
+                Long currentStoreId = homeStoreId(currentUser);
+                if (assignedStoreId == null || !assignedStoreId.equals(currentStoreId)) {
                     log.warn("ADMIN {} attempted to create user for different store", currentUsername);
                     return ResponseEntity.status(HttpStatus.FORBIDDEN)
                             .body(ApiResponse.error("ADMIN can only create users for their assigned store"));
                 }
-                assignedStoreId = currentUser.getStoreId();
+                assignedStoreId = currentStoreId;
             }
             
             String rawPassword = (req.password() == null || req.password().isBlank()) ? generateTempPassword() : req.password();
@@ -258,6 +259,57 @@ public class UserController {
         }
     }
     
+    public record SetPinRequest(
+            @Schema(example = "4821", description = "4 to 8 digits")
+            @NotBlank @Pattern(regexp = "\\d{4,8}", message = "PIN must be 4 to 8 digits") String pin
+    ) {}
+    
+    @PutMapping("/{userId}/pin")
+    @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'ADMIN', 'STORE_MANAGER')")
+    @Operation(summary = "Set terminal PIN", description = "Set the PIN a user signs in with at the POS terminals of their store")
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "PIN updated"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid PIN or user"),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Forbidden - user belongs to another store")
+    })
+    public ResponseEntity<ApiResponse<Object>> setPin(
+            @Parameter(description = "User ID", required = true) @PathVariable Long userId,
+            @Valid @RequestBody SetPinRequest req) {
+        try {
+            AuthenticatedUser currentUser = SecurityUtils.getCurrentUser();
+            if (currentUser.terminal()) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(ApiResponse.error("PINs cannot be changed from a terminal session"));
+            }
+            
+            User target = userService.getUserById(userId);
+            if (!currentUser.hasRole("SUPER_ADMIN")) {
+                // ADMIN and STORE_MANAGER manage PINs of their own store
+                Long currentStoreId = homeStoreId(currentUser);
+                if (currentStoreId == null || !currentStoreId.equals(target.getStoreId())) {
+                    log.warn("{} attempted to set the PIN of user {} in another store", currentUser.username(), userId);
+                    return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                            .body(ApiResponse.error("Can only set PINs for users of your store"));
+                }
+            }
+            
+            userService.updatePin(userId, passwordEncoder.encode(req.pin()));
+            return ResponseEntity.ok(ApiResponse.success(null, "PIN updated successfully"));
+            
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    private Long homeStoreId(AuthenticatedUser user) {
+        if (user.storeId() != null) {
+            return user.storeId();
+        }
+        // Tokens issued before the storeId claim existed
+        return userService.getUserByUsername(user.username()).getStoreId();
+    }
+
     private String generateTempPassword() {
         byte[] bytes = new byte[12];
         new SecureRandom().nextBytes(bytes);
@@ -16,6 +16,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import com.allocat.auth.entity.UserStoreAccess;
 import com.allocat.auth.service.AccessControlService;
 import com.allocat.auth.util.SecurityUtils;
@@ -33,6 +34,7 @@ public class WarehouseController {
 
     private final WarehouseService warehouseService;
     private final AccessControlService accessControlService;
+    private final ConditionalGet conditionalGet;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('SUPER_ADMIN', 'ADMIN', 'MANAGER')")
@@ -92,7 +94,14 @@ public class WarehouseController {
             @Parameter(description = "Filter by store ID")
             @RequestParam(required = false) Long storeId,
             @Parameter(description = "Filter by active status")
-            @RequestParam(required = false) Boolean active) {
+            @RequestParam(required = false) Boolean active,
+            WebRequest webRequest) {
+        // The list depends on who is asking, their role and which stores they can see
+        String qualifier = SecurityUtils.getCurrentUserId() + ":" + storeId + ":" + active;
+        if (conditionalGet.notModified(webRequest, qualifier, "warehouses", "stores", "user_store_access",
+                "users", "roles")) {
+            return null;
+        }
         try {
             Long userId = SecurityUtils.getCurrentUserId();
             List<Warehouse> warehouses;
@@ -149,7 +158,11 @@ public class WarehouseController {
     @Operation(summary = "Get warehouse by ID", description = "Retrieve warehouse details by ID")
     public ResponseEntity<ApiResponse<WarehouseResponse>> getWarehouseById(
             @Parameter(description = "Warehouse ID")
-            @PathVariable Long warehouseId) {
+            @PathVariable Long warehouseId,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "warehouses", "stores")) {
+            return null;
+        }
         try {
             Warehouse warehouse = warehouseService.getWarehouseById(warehouseId);
             return ResponseEntity.ok(ApiResponse.success(
@@ -172,7 +185,11 @@ public class WarehouseController {
     @Operation(summary = "Get warehouse by code", description = "Retrieve warehouse details by code")
     public ResponseEntity<ApiResponse<WarehouseResponse>> getWarehouseByCode(
             @Parameter(description = "Warehouse code")
-            @PathVariable String code) {
+            @PathVariable String code,
+            WebRequest webRequest) {
+        if (conditionalGet.notModified(webRequest, null, "warehouses", "stores")) {
+            return null;
+        }
         try {
             Warehouse warehouse = warehouseService.getWarehouseByCode(code);
             return ResponseEntity.ok(ApiResponse.success(
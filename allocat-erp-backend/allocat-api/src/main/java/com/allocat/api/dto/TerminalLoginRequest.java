@@ -0,0 +1,25 @@
+package com.allocat.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+@Data
+public class TerminalLoginRequest {
+    
+    @Schema(example = "STR001", description = "Code of the store the terminal belongs to")
+    @NotBlank(message = "Store code is required")
+    private String storeCode;
+    
+    @Schema(example = "store_access_code", description = "The store's access code")
+    @NotBlank(message = "Access code is required")
+    private String accessCode;
+    
+    @Schema(example = "cashier01", description = "Cashier username")
+    @NotBlank(message = "Username is required")
+    private String username;
+    
+    @Schema(example = "4821", description = "Cashier PIN")
+    @NotBlank(message = "PIN is required")
+    private String pin;
+}
@@ -0,0 +1,25 @@
+package com.allocat.api.dto.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Dashboard rows read from the periodically refreshed summaries, with how
+ * current they are.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardSnapshot<T> {
+    // All writes committed before this time are included; null until the first refresh
+    private LocalDateTime asOf;
+    // Maximum expected lag behind live inventory between refreshes
+    private long stalenessBoundSeconds;
+    private List<T> rows;
+}
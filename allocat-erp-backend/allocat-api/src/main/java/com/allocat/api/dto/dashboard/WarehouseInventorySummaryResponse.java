@@ -0,0 +1,24 @@
+package com.allocat.api.dto.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarehouseInventorySummaryResponse {
+    private Long warehouseId;
+    private String warehouseCode;
+    private String warehouseName;
+    private Long storeId;
+    private String storeName;
+    private Integer productCount;
+    private Integer totalQuantity;
+    private Integer totalAvailable;
+    private BigDecimal totalInventoryValue;
+}
@@ -0,0 +1,104 @@
+package com.allocat.api.filter;
+
+import com.allocat.common.security.AuthenticatedUser;
+import com.allocat.security.jwt.JwtAuthenticationFilter;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One compact line per request on the request-telemetry logger: method,
+ * route pattern, status, duration and caller. Only a sample of ordinary
+ * requests is written; server errors and slow requests always are. Request
+ * counts and latencies for every request are in the http.server.requests
+ * metric, so the sample only has to carry the detail.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j(topic = "request-telemetry")
+public class RequestTelemetryFilter extends OncePerRequestFilter {
+
+    @Value("${app.telemetry.sample-rate:0.05}")
+    private double sampleRate;
+
+    @Value("${app.telemetry.slow-request-ms:1000}")
+    private long slowRequestMs;
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain) throws ServletException, IOException {
+
+        if (!log.isInfoEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+        try {
+            filterChain.doFilter(request, response);
+            status = response.getStatus();
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Async handlers (login) finish on another thread; record when the response completes
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        sample(request, response.getStatus(), start);
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                sample(request, status, start);
+            }
+        }
+    }
+
+    private void sample(HttpServletRequest request, int status, long start) {
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        if (status >= 500 || elapsedMs >= slowRequestMs || ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            record(request, status, elapsedMs);
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, long elapsedMs) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Object principal = request.getAttribute(JwtAuthenticationFilter.PRINCIPAL_ATTRIBUTE);
+        AuthenticatedUser user = principal instanceof AuthenticatedUser authenticated ? authenticated : null;
+
+        log.info("method={} route={} status={} ms={} user={} store={}",
+                request.getMethod(),
+                pattern != null ? pattern : "unmatched",
+                status,
+                elapsedMs,
+                user != null ? user.userId() : "-",
+                user != null && user.storeId() != null ? user.storeId() : "-");
+    }
+}
@@ -0,0 +1,138 @@
+package com.allocat.api.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * What logging costs the calling thread with the async appender settings of
+ * logback-spring.xml, against a sink that stalls (a congested disk or stdout
+ * pipe). The wall-clock cost is measured by a benchmark outside the regular build.
+ */
+class AsyncLoggingOverheadTest {
+
+    private static final int QUEUE_SIZE = 8192;
+    private static final int DISCARDING_THRESHOLD = 1638;
+    private static final long SINK_MILLIS = 5;
+
+    private final LoggerContext context = new LoggerContext();
+    private final AtomicInteger written = new AtomicInteger();
+    private final Set<Thread> writers = ConcurrentHashMap.newKeySet();
+    // Holds the sink until released; counted down up front for a sink that only sleeps
+    private final CountDownLatch sinkReleased = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        sinkReleased.countDown();
+        context.stop();
+    }
+
+    @Test
+    void requestThreadDoesNotWaitForAStalledSink() throws Exception {
+        Logger logger = logger(true);
+        int events = 20_000;
+        Thread[] caller = new Thread[1];
+
+        // The sink never returns while this runs, so a blocking appender would never finish
+        CompletableFuture.runAsync(() -> {
+            caller[0] = Thread.currentThread();
+            for (int i = 0; i < events; i++) {
+                logger.info("GET /api/products/{} 200 {}ms", i, 3);
+            }
+        }).get(30, TimeUnit.SECONDS);
+        sinkReleased.countDown();
+
+        // Past the discarding threshold INFO events are dropped rather than queued
+        assertThat(written.get()).isLessThan(events);
+        assertThat(writers).doesNotContain(caller[0]);
+    }
+
+    @Test
+    void synchronousSinkIsPaidOnTheRequestThread() {
+        sinkReleased.countDown();
+        Logger logger = logger(false);
+        int events = 20;
+
+        for (int i = 0; i < events; i++) {
+            logger.info("GET /api/products/{} 200 {}ms", i, 3);
+        }
+
+        // The baseline the async queue removes
+        assertThat(written).hasValue(events);
+        assertThat(writers).containsExactly(Thread.currentThread());
+    }
+
+    @Test
+    @Tag("benchmark")
+    void callerCostPerEventWithASlowSink() {
+        sinkReleased.countDown();
+        Logger logger = logger(true);
+        int events = 20_000;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            logger.info("GET /api/products/{} 200 {}ms", i, 3);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        // Written synchronously the same events would take 100 s
+        assertThat(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).isLessThan(2_000);
+        assertThat(elapsedNanos / events).as("ns per event").isLessThan(100_000);
+    }
+
+    private Logger logger(boolean async) {
+        AppenderBase<ILoggingEvent> sink = new AppenderBase<>() {
+            @Override
+            protected void append(ILoggingEvent event) {
+                try {
+                    sinkReleased.await();
+                    Thread.sleep(SINK_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                writers.add(Thread.currentThread());
+                written.incrementAndGet();
+            }
+        };
+        sink.setContext(context);
+        sink.setName("SLOW");
+        sink.start();
+
+        Logger logger = context.getLogger("request-telemetry");
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        if (!async) {
+            logger.addAppender(sink);
+            return logger;
+        }
+
+        AsyncAppender appender = new AsyncAppender();
+        appender.setContext(context);
+        appender.setName("ASYNC_SLOW");
+        appender.setQueueSize(QUEUE_SIZE);
+        appender.setDiscardingThreshold(DISCARDING_THRESHOLD);
+        appender.setNeverBlock(true);
+        appender.setIncludeCallerData(false);
+        // Do not wait for the backlog on shutdown
+        appender.setMaxFlushTime(1);
+        appender.addAppender(sink);
+        appender.start();
+        logger.addAppender(appender);
+        return logger;
+    }
+}
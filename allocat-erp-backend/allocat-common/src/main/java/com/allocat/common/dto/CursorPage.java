@@ -0,0 +1,40 @@
+package com.allocat.common.dto;
+
+import com.allocat.common.util.KeysetCursor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Window;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) listing. The next page is requested with
+ * {@code nextCursor}; the total is only counted when asked for.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    // Opaque continuation token, null on the last page
+    private String nextCursor;
+    // Null unless the caller asked for a count
+    private Long totalElements;
+
+    public static <T> CursorPage<T> of(Window<T> window, Long totalElements) {
+        boolean hasNext = window.hasNext() && !window.isEmpty();
+        return CursorPage.<T>builder()
+                .content(window.getContent())
+                .size(window.size())
+                .hasNext(hasNext)
+                .nextCursor(hasNext ? KeysetCursor.encode(window.positionAt(window.size() - 1)) : null)
+                .totalElements(totalElements)
+                .build();
+    }
+}
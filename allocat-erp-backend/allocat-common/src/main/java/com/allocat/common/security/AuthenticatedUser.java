@@ -0,0 +1,37 @@
+package com.allocat.common.security;
+
+import java.security.Principal;
+import java.util.List;
+
+/**
+ * Principal of a request authenticated by JWT, built from the token's claims
+ * so callers never have to load the user to know who is calling.
+ *
+ * @param userId      id of the user, null for tokens issued before the claim existed
+ * @param username    subject of the token
+ * @param role        role name without the ROLE_ prefix
+ * @param storeId     the user's home store when the token carries one; for
+ *                    terminal sessions the only store the caller may act on
+ * @param terminal    whether the token is a store-scoped POS terminal session
+ * @param permissions the role's permissions embedded in a terminal token, empty otherwise
+ */
+public record AuthenticatedUser(Long userId, String username, String role, Long storeId,
+                                boolean terminal, List<String> permissions) implements Principal {
+
+    public AuthenticatedUser {
+        permissions = permissions != null ? List.copyOf(permissions) : List.of();
+    }
+
+    public AuthenticatedUser(Long userId, String username, String role, Long storeId) {
+        this(userId, username, role, storeId, false, List.of());
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean hasRole(String roleName) {
+        return roleName.equals(role);
+    }
+}
@@ -0,0 +1,11 @@
+package com.allocat.common.security;
+
+/**
+ * Sessions ended by logout or by refresh-token reuse. Tokens carrying a
+ * revoked session id are rejected even while their signature and expiry are
+ * still valid. Implementations answer from memory.
+ */
+public interface SessionRevocations {
+
+    boolean isRevoked(String sessionId);
+}
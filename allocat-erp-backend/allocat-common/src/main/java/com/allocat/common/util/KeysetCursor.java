@@ -0,0 +1,131 @@
+package com.allocat.common.util;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes keyset scroll positions as opaque, URL-safe continuation tokens.
+ * A token holds the sort key values of the last row of a page, each tagged
+ * with its type so it decodes back to the exact value the query compares
+ * against.
+ */
+public final class KeysetCursor {
+
+    /** Largest page a keyset listing returns, whatever size the caller asks for */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Sort for a keyset listing, with the id appended as tie-breaker so every
+     * row has a unique position.
+     *
+     * @param sortable properties whose columns are non-null and indexed
+     * @throws IllegalArgumentException if the property is not sortable
+     */
+    public static Sort sort(String sortBy, String sortDirection, Set<String> sortable) {
+        if (!sortable.contains(sortBy)) {
+            throw new IllegalArgumentException("Cannot page by '" + sortBy + "', expected one of " + sortable);
+        }
+        Sort.Direction direction = "desc".equalsIgnoreCase(sortDirection) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(direction, sortBy);
+        return "id".equals(sortBy) ? sort : sort.and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * Requested page size bounded to 1..{@link #MAX_PAGE_SIZE}, so one request
+     * can never ask the database for an unbounded window.
+     */
+    public static int limit(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset)) {
+            throw new IllegalArgumentException("Only keyset positions can be encoded as a cursor");
+        }
+        String token = keyset.getKeys().entrySet().stream()
+                .map(key -> key.getKey() + ":" + typeOf(key.getValue()) + ":" + encodeText(String.valueOf(key.getValue())))
+                .collect(Collectors.joining(","));
+        return encodeText(token);
+    }
+
+    /**
+     * Position to continue from, or the start of the listing for a blank cursor.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or was issued for a different sort
+     */
+    public static ScrollPosition decode(String cursor, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            for (String entry : decodeText(cursor).split(",")) {
+                String[] parts = entry.split(":", 3);
+                keys.put(parts[0], parse(parts[1].charAt(0), decodeText(parts[2])));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid pagination cursor");
+        }
+
+        Set<String> sorted = sort.stream().map(Sort.Order::getProperty).collect(Collectors.toSet());
+        if (!keys.keySet().equals(sorted)) {
+            throw new IllegalArgumentException("Pagination cursor does not match the requested sort");
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    private static char typeOf(Object value) {
+        if (value instanceof Long) {
+            return 'L';
+        } else if (value instanceof Integer) {
+            return 'I';
+        } else if (value instanceof String) {
+            return 'S';
+        } else if (value instanceof BigDecimal) {
+            return 'D';
+        } else if (value instanceof LocalDateTime) {
+            return 'T';
+        } else if (value instanceof LocalDate) {
+            return 'd';
+        }
+        throw new IllegalArgumentException("Cannot page by a value of type "
+                + (value != null ? value.getClass().getSimpleName() : "null"));
+    }
+
+    private static Object parse(char type, String text) {
+        return switch (type) {
+            case 'L' -> Long.valueOf(text);
+            case 'I' -> Integer.valueOf(text);
+            case 'S' -> text;
+            case 'D' -> new BigDecimal(text);
+            case 'T' -> LocalDateTime.parse(text);
+            case 'd' -> LocalDate.parse(text);
+            default -> throw new IllegalArgumentException("Unknown cursor value type " + type);
+        };
+    }
+
+    private static String encodeText(String text) {
+        return ENCODER.encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeText(String text) {
+        return new String(DECODER.decode(text), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,50 @@
+package com.allocat.common.util;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Validators for responses built from rarely changing reference data
+ * (products, stores, warehouses, discounts). They come from the
+ * {@link TableVersions} rows the database bumps on every committed write,
+ * so every instance computes the same ETag and writes from any instance or
+ * from bulk SQL move it. One primary-key lookup replaces the listing query
+ * of an unchanged poll.
+ */
+@Component
+@RequiredArgsConstructor
+public class ReferenceDataVersions {
+
+    private final TableVersions tableVersions;
+
+    /**
+     * Validator pair for a response built from the given tables.
+     *
+     * @param etag         strong entity tag, quoted
+     * @param lastModified epoch millis of the latest change
+     */
+    public record Tag(String etag, long lastModified) {
+    }
+
+    /**
+     * @param qualifier extra state the response depends on (user, date), or null
+     */
+    public Tag tag(String qualifier, String... tables) {
+        Map<String, TableVersions.Version> versions = tableVersions.read(tables);
+        StringBuilder etag = new StringBuilder("\"v");
+        long lastModified = -1;
+        for (String table : tables) {
+            TableVersions.Version version = versions.get(table);
+            etag.append('-').append(version != null ? version.version() : 0);
+            if (version != null) {
+                lastModified = Math.max(lastModified, version.changedAt().toEpochMilli());
+            }
+        }
+        if (qualifier != null) {
+            etag.append('-').append(Integer.toHexString(qualifier.hashCode()));
+        }
+        return new Tag(etag.append('"').toString(), lastModified);
+    }
+}
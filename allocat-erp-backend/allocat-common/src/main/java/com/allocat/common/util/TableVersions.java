@@ -0,0 +1,82 @@
+package com.allocat.common.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Reads the versions that triggers move on every committed write to a
+ * tracked table. Unlike events raised by this process, they also move for
+ * writes made by other instances and by bulk SQL, so in-memory state derived
+ * from a table can be checked against them.
+ * <p>
+ * Writers only insert a row of their own into table_changes; a table's
+ * version is its folded count in table_versions plus those rows, read in one
+ * statement. Committed changes are folded in the background so the change
+ * rows stay few.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TableVersions {
+
+    private static final String READ = """
+            SELECT table_name, SUM(version), MAX(changed_at)
+            FROM (
+                SELECT table_name, version, changed_at FROM table_versions WHERE table_name IN (%1$s)
+                UNION ALL
+                SELECT table_name, 1, changed_at FROM table_changes WHERE table_name IN (%1$s)
+            ) v
+            GROUP BY table_name
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @param version   increases with every committed write to the table
+     * @param changedAt when the latest write happened
+     */
+    public record Version(long version, Instant changedAt) {
+    }
+
+    /**
+     * Current versions of the given tables; untracked tables are absent.
+     */
+    public Map<String, Version> read(String... tables) {
+        if (tables.length == 0) {
+            return Map.of();
+        }
+        String placeholders = String.join(",", Collections.nCopies(tables.length, "?"));
+        Map<String, Version> versions = new HashMap<>();
+        jdbcTemplate.query(
+                READ.formatted(placeholders),
+                rs -> {
+                    versions.put(rs.getString(1), new Version(rs.getLong(2), rs.getTimestamp(3).toInstant()));
+                },
+                Stream.concat(Stream.of(tables), Stream.of(tables)).toArray());
+        return versions;
+    }
+
+    /**
+     * Fold committed changes into the per-table counts. Versions read the
+     * same before and after.
+     */
+    @Scheduled(fixedDelayString = "${app.table-versions.compact-seconds:5}", timeUnit = TimeUnit.SECONDS)
+    void compact() {
+        try {
+            jdbcTemplate.execute("SELECT compact_table_versions()");
+        } catch (DataAccessException e) {
+            log.warn("Could not compact table versions: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+}
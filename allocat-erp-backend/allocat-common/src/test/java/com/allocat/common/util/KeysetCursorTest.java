@@ -0,0 +1,109 @@
+package com.allocat.common.util;
+
+import com.allocat.common.dto.CursorPage;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    private static final Set<String> SORTABLE = Set.of("id", "name", "orderDate");
+
+    @Test
+    void idIsAppendedAsTieBreakerInTheSameDirection() {
+        Sort sort = KeysetCursor.sort("orderDate", "desc", SORTABLE);
+
+        assertThat(sort.toList()).containsExactly(Sort.Order.desc("orderDate"), Sort.Order.desc("id"));
+        assertThat(KeysetCursor.sort("id", "asc", SORTABLE).toList()).containsExactly(Sort.Order.asc("id"));
+    }
+
+    @Test
+    void unsortablePropertyIsRejected() {
+        assertThatThrownBy(() -> KeysetCursor.sort("notes", "asc", SORTABLE))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("notes");
+    }
+
+    @Test
+    void cursorDecodesToTheSameTypedKeys() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("orderDate", LocalDateTime.of(2026, 3, 1, 9, 30, 15));
+        keys.put("name", "Tea, green: 250g");
+        keys.put("amount", new BigDecimal("12.50"));
+        keys.put("day", LocalDate.of(2026, 3, 1));
+        keys.put("quantity", 7);
+        keys.put("id", 42L);
+        Sort sort = Sort.by(keys.keySet().toArray(String[]::new));
+
+        ScrollPosition decoded = KeysetCursor.decode(KeysetCursor.encode(ScrollPosition.forward(keys)), sort);
+
+        assertThat(decoded).isInstanceOf(KeysetScrollPosition.class);
+        assertThat(((KeysetScrollPosition) decoded).getKeys()).isEqualTo(keys);
+    }
+
+    @Test
+    void blankCursorStartsFromTheBeginning() {
+        Sort sort = KeysetCursor.sort("id", "asc", SORTABLE);
+
+        assertThat(KeysetCursor.decode(null, sort)).isEqualTo(ScrollPosition.keyset());
+        assertThat(KeysetCursor.decode(" ", sort)).isEqualTo(ScrollPosition.keyset());
+    }
+
+    @Test
+    void cursorIssuedForAnotherSortIsRejected() {
+        String cursor = KeysetCursor.encode(ScrollPosition.forward(Map.of("name", "Tea", "id", 3L)));
+
+        assertThatThrownBy(() -> KeysetCursor.decode(cursor, KeysetCursor.sort("orderDate", "asc", SORTABLE)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("does not match");
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        Sort sort = KeysetCursor.sort("id", "asc", SORTABLE);
+
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor!", sort))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid pagination cursor");
+    }
+
+    @Test
+    void pageSizeIsBounded() {
+        assertThat(KeysetCursor.limit(20)).isEqualTo(20);
+        assertThat(KeysetCursor.limit(100_000)).isEqualTo(KeysetCursor.MAX_PAGE_SIZE);
+        assertThat(KeysetCursor.limit(0)).isEqualTo(1);
+        assertThat(KeysetCursor.limit(-5)).isEqualTo(1);
+    }
+
+    @Test
+    void pageCarriesTheCursorOfItsLastRowUntilTheEnd() {
+        List<Long> ids = List.of(10L, 11L, 12L);
+        Sort sort = KeysetCursor.sort("id", "asc", SORTABLE);
+
+        CursorPage<Long> page = CursorPage.of(
+                Window.from(ids, i -> ScrollPosition.forward(Map.of("id", ids.get(i))), true), null);
+
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(((KeysetScrollPosition) KeysetCursor.decode(page.getNextCursor(), sort)).getKeys())
+                .containsExactly(Map.entry("id", 12L));
+
+        CursorPage<Long> last = CursorPage.of(
+                Window.from(ids, i -> ScrollPosition.forward(Map.of("id", ids.get(i))), false), 3L);
+        assertThat(last.isHasNext()).isFalse();
+        assertThat(last.getNextCursor()).isNull();
+        assertThat(last.getTotalElements()).isEqualTo(3L);
+    }
+}
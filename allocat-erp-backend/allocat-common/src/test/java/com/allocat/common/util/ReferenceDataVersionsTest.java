@@ -0,0 +1,50 @@
+package com.allocat.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReferenceDataVersionsTest {
+
+    private static final Instant CHANGED_AT = Instant.parse("2026-01-05T10:15:30Z");
+
+    @Test
+    void instancesReadingTheSameVersionsAgreeOnTheTag() {
+        TableVersions database = tableVersions(5);
+
+        ReferenceDataVersions.Tag first = new ReferenceDataVersions(database).tag(null, "products", "discounts");
+        ReferenceDataVersions.Tag second = new ReferenceDataVersions(database).tag(null, "products", "discounts");
+
+        assertThat(first).isEqualTo(second);
+        assertThat(first.lastModified()).isEqualTo(CHANGED_AT.toEpochMilli());
+    }
+
+    @Test
+    void tagMovesWhenAnyTableVersionMoves() {
+        ReferenceDataVersions.Tag before = new ReferenceDataVersions(tableVersions(5)).tag(null, "products", "discounts");
+        ReferenceDataVersions.Tag after = new ReferenceDataVersions(tableVersions(6)).tag(null, "products", "discounts");
+
+        assertThat(after.etag()).isNotEqualTo(before.etag());
+    }
+
+    @Test
+    void qualifierIsPartOfTheTag() {
+        ReferenceDataVersions versions = new ReferenceDataVersions(tableVersions(5));
+
+        assertThat(versions.tag("2026-01-05", "products", "discounts").etag())
+                .isNotEqualTo(versions.tag("2026-01-06", "products", "discounts").etag());
+    }
+
+    private static TableVersions tableVersions(long products) {
+        TableVersions tableVersions = mock(TableVersions.class);
+        when(tableVersions.read("products", "discounts")).thenReturn(Map.of(
+                "products", new TableVersions.Version(products, CHANGED_AT),
+                "discounts", new TableVersions.Version(2, CHANGED_AT.minusSeconds(60))));
+        return tableVersions;
+    }
+}
@@ -0,0 +1,52 @@
+package com.allocat.auth.entity;
+
+import com.allocat.auth.event.AccessChangedEvent;
+import com.allocat.auth.event.AccessChangedEvent.Scope;
+import com.allocat.inventory.entity.Warehouse;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Publishes an {@link AccessChangedEvent} for writes to the entities access
+ * control decisions are compiled from. Created by Hibernate through the
+ * Spring bean container.
+ */
+@RequiredArgsConstructor
+public class AccessChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Object entity) {
+        publish(entity, false);
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        publish(entity, true);
+    }
+
+    private void publish(Object entity, boolean removed) {
+        AccessChangedEvent.AccessChangedEventBuilder event = AccessChangedEvent.builder().removed(removed);
+        if (entity instanceof User user) {
+            event.scope(Scope.USER)
+                    .userId(user.getId())
+                    .roleName(user.getRole() != null ? user.getRole().getName() : null);
+        } else if (entity instanceof UserStoreAccess access) {
+            event.scope(Scope.GRANT).userId(access.getUser() != null ? access.getUser().getId() : null);
+        } else if (entity instanceof Role) {
+            event.scope(Scope.ROLE);
+        } else if (entity instanceof Store) {
+            event.scope(Scope.STORE);
+        } else if (entity instanceof Warehouse warehouse) {
+            event.scope(Scope.WAREHOUSE).warehouseId(warehouse.getId());
+        } else {
+            return;
+        }
+        eventPublisher.publishEvent(event.build());
+    }
+}
@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "roles")
+@EntityListeners(AccessChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "stores")
+@EntityListeners(AccessChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "users")
+@EntityListeners(AccessChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -32,6 +33,10 @@ public class User extends BaseEntity {
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String passwordHash;
     
+    @Column(name = "pin_hash")
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
+    private String pinHash;
+    
     @Column(name = "first_name", length = 50)
     private String firstName;
     
@@ -15,6 +15,7 @@ import java.time.LocalDateTime;
 @Entity
 @Table(name = "user_store_access", 
        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "store_id", "warehouse_id"}))
+@EntityListeners(AccessChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
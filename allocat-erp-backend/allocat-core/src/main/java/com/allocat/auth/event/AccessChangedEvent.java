@@ -0,0 +1,35 @@
+package com.allocat.auth.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Published when something an access decision depends on is written: a
+ * user's grants or role, a role, or the store / warehouse catalog.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccessChangedEvent {
+
+    public enum Scope {
+        // A user row; roleName carries the role after the write
+        USER,
+        // A user_store_access row of userId
+        GRANT,
+        // A role definition, affecting every user holding it
+        ROLE,
+        STORE,
+        // A warehouse row; its store may have changed
+        WAREHOUSE
+    }
+
+    private Scope scope;
+    private Long userId;
+    private String roleName;
+    private Long warehouseId;
+    private boolean removed;
+}
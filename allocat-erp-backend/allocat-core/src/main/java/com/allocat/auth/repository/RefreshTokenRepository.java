@@ -0,0 +1,45 @@
+package com.allocat.auth.repository;
+
+import com.allocat.auth.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+
+    Optional<RefreshToken> findByTokenId(String tokenId);
+
+    /**
+     * Mark a token used, unless it already was. Returns 0 when another
+     * request got there first.
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.usedAt = :now " +
+           "WHERE t.id = :id AND t.usedAt IS NULL AND t.revokedAt IS NULL")
+    int markUsed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now " +
+           "WHERE t.sessionId = :sessionId AND t.revokedAt IS NULL")
+    int revokeSession(@Param("sessionId") String sessionId, @Param("now") LocalDateTime now);
+
+    /**
+     * Revoked sessions whose tokens can still be presented, with their latest expiry.
+     */
+    @Query("SELECT t.sessionId, MAX(t.expiryDate) FROM RefreshToken t " +
+           "WHERE t.revokedAt >= :since AND t.expiryDate > :now GROUP BY t.sessionId")
+    List<Object[]> findRevokedSessions(@Param("since") LocalDateTime since, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RefreshToken t WHERE t.expiryDate < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -2,6 +2,8 @@ package com.allocat.auth.repository;
 
 import com.allocat.auth.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,6 +15,12 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     
     Optional<User> findByEmail(String email);
+
+    /**
+     * Users whose username or email is the given login, in one query.
+     */
+    @Query("SELECT u FROM User u WHERE u.username = :login OR u.email = :login")
+    List<User> findByUsernameOrEmail(@Param("login") String login);
     
     List<User> findByStoreId(Long storeId);
     
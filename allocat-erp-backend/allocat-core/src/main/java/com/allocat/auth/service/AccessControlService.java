@@ -2,165 +2,282 @@ package com.allocat.auth.service;
 
 import com.allocat.auth.entity.User;
 import com.allocat.auth.entity.UserStoreAccess;
+import com.allocat.auth.event.AccessChangedEvent;
 import com.allocat.auth.repository.StoreRepository;
 import com.allocat.auth.repository.UserRepository;
 import com.allocat.auth.repository.UserStoreAccessRepository;
+import com.allocat.auth.util.SecurityUtils;
+import com.allocat.common.security.AuthenticatedUser;
+import com.allocat.common.util.TableVersions;
 import com.allocat.inventory.entity.Warehouse;
 import com.allocat.inventory.repository.WarehouseRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * Store and warehouse access decisions. Each user's role and active grants are
+ * compiled once into an immutable {@link CompiledAccess} and kept until a
+ * write to that user's grants or role (or to the store / warehouse catalog)
+ * invalidates it, so checks are memory lookups. Grant expiry is evaluated at
+ * lookup time.
+ * <p>
+ * Local writes invalidate immediately. Writes made by other instances (or by
+ * bulk SQL) are picked up from the table versions every sync interval, which
+ * bounds how long a revoked grant or a downgraded role keeps working.
+ * <p>
+ * A caller signed in through a POS terminal is further confined to the
+ * terminal's store, whatever their grants elsewhere.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class AccessControlService {
 
+    private static final String ACTIVE_STORES = "stores";
+    private static final String ACTIVE_WAREHOUSES = "warehouses";
+    private static final String[] SYNCED_TABLES = {"users", "roles", "user_store_access", "stores", "warehouses"};
+
     private final UserStoreAccessRepository userStoreAccessRepository;
     private final UserRepository userRepository;
     private final WarehouseRepository warehouseRepository;
     private final StoreRepository storeRepository;
+    private final TableVersions tableVersions;
+
+    // userId -> compiled grants
+    private final Map<Long, CompiledAccess> compiled = new ConcurrentHashMap<>();
+    // warehouseId -> storeId
+    private final Map<Long, Long> warehouseStores = new ConcurrentHashMap<>();
+    // Active store / warehouse ids, for admins
+    private final Map<String, List<Long>> activeIds = new ConcurrentHashMap<>();
+    // Bumped on every invalidation; a load that overlapped one is not kept
+    private final AtomicLong invalidations = new AtomicLong();
+    // Table versions the caches were last checked against
+    private final Map<String, Long> seenVersions = new ConcurrentHashMap<>();
 
     /**
-     * Check if user has access to a store
+     * One grant, as the bitset of the access levels it allows.
      */
-    public boolean hasStoreAccess(Long userId, Long storeId, UserStoreAccess.AccessLevel requiredLevel) {
-        // SUPER_ADMIN and ADMIN have access to all stores
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-        
-        if (isSuperAdminOrAdmin(user)) {
-            return true;
+    private record Grant(Long storeId, int levels, LocalDateTime expiresAt) {
+        boolean activeAt(LocalDateTime now) {
+            return expiresAt == null || expiresAt.isAfter(now);
         }
+    }
+
+    /**
+     * A user's effective permissions. Grants are grouped by store (every grant
+     * of the store, warehouse-specific ones included) and by warehouse.
+     */
+    private record CompiledAccess(boolean admin, String roleName, Long primaryStoreId,
+                                  Map<Long, List<Grant>> byStore, Map<Long, List<Grant>> byWarehouse) {
 
-        List<UserStoreAccess> accesses = userStoreAccessRepository.findActiveAccessByUserAndStore(
-                userId, storeId, LocalDateTime.now());
+        int storeLevels(Long storeId, LocalDateTime now) {
+            return levels(byStore.get(storeId), null, now);
+        }
 
-        if (accesses.isEmpty()) {
-            return false;
+        static int levels(List<Grant> grants, Long storeId, LocalDateTime now) {
+            int levels = 0;
+            if (grants != null) {
+                for (Grant grant : grants) {
+                    if (grant.activeAt(now) && (storeId == null || storeId.equals(grant.storeId()))) {
+                        levels |= grant.levels();
+                    }
+                }
+            }
+            return levels;
         }
 
-        // Check if any access meets the required level
-        return accesses.stream()
-                .anyMatch(access -> hasRequiredLevel(access.getAccessLevel(), requiredLevel));
+        List<Long> activeKeys(Map<Long, List<Grant>> grants, LocalDateTime now) {
+            List<Long> ids = new ArrayList<>();
+            grants.forEach((id, list) -> {
+                if (list.stream().anyMatch(grant -> grant.activeAt(now))) {
+                    ids.add(id);
+                }
+            });
+            return ids;
+        }
+    }
+
+    /**
+     * Drop whatever was compiled from a table that changed since the last
+     * check, wherever the write came from.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.access-sync-seconds:5}", timeUnit = TimeUnit.SECONDS)
+    void syncVersions() {
+        try {
+            tableVersions.read(SYNCED_TABLES).forEach((table, version) -> {
+                Long seen = seenVersions.put(table, version.version());
+                if (seen != null && seen != version.version()) {
+                    log.debug("{} changed, dropping access compiled from it", table);
+                    invalidate(evictionFor(table));
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Could not sync access versions: {}", e.getMessage());
+        }
+    }
+
+    private Runnable evictionFor(String table) {
+        return switch (table) {
+            case "stores" -> () -> activeIds.remove(ACTIVE_STORES);
+            case "warehouses" -> () -> {
+                warehouseStores.clear();
+                activeIds.remove(ACTIVE_WAREHOUSES);
+            };
+            default -> compiled::clear;
+        };
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAccessChanged(AccessChangedEvent event) {
+        switch (event.getScope()) {
+            case USER -> {
+                CompiledAccess current = compiled.get(event.getUserId());
+                // Logins and profile edits touch the user row without changing access
+                if (event.isRemoved() || current == null || !Objects.equals(current.roleName(), event.getRoleName())) {
+                    invalidate(() -> compiled.remove(event.getUserId()));
+                }
+            }
+            case GRANT -> invalidate(() -> {
+                if (event.getUserId() != null) {
+                    compiled.remove(event.getUserId());
+                } else {
+                    compiled.clear();
+                }
+            });
+            case ROLE -> invalidate(compiled::clear);
+            case STORE -> invalidate(() -> activeIds.remove(ACTIVE_STORES));
+            case WAREHOUSE -> invalidate(() -> {
+                warehouseStores.remove(event.getWarehouseId());
+                activeIds.remove(ACTIVE_WAREHOUSES);
+            });
+        }
+    }
+
+    /**
+     * Check if user has access to a store
+     */
+    public boolean hasStoreAccess(Long userId, Long storeId, UserStoreAccess.AccessLevel requiredLevel) {
+        if (outsideTerminalStore(userId, storeId)) {
+            return false;
+        }
+        // SUPER_ADMIN and ADMIN have access to all stores
+        CompiledAccess access = accessOf(userId);
+        if (access.admin()) {
+            return true;
+        }
+        return allows(access.storeLevels(storeId, LocalDateTime.now()), requiredLevel);
     }
 
     /**
      * Check if user has access to a warehouse
      */
     public boolean hasWarehouseAccess(Long userId, Long warehouseId, UserStoreAccess.AccessLevel requiredLevel) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-        
-        if (isSuperAdminOrAdmin(user)) {
+        CompiledAccess access = accessOf(userId);
+        if (access.admin()) {
             return true;
         }
 
-        Warehouse warehouse = warehouseRepository.findById(warehouseId)
-                .orElseThrow(() -> new RuntimeException("Warehouse not found: " + warehouseId));
-
-        // Check warehouse-specific access
-        Optional<UserStoreAccess> warehouseAccess = userStoreAccessRepository
-                .findByUserIdAndStoreIdAndWarehouseId(userId, warehouse.getStore().getId(), warehouseId);
+        Long storeId = cached(warehouseStores, warehouseId, id -> {
+            Warehouse warehouse = warehouseRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Warehouse not found: " + id));
+            return warehouse.getStore().getId();
+        });
+        if (outsideTerminalStore(userId, storeId)) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
 
-        if (warehouseAccess.isPresent() && warehouseAccess.get().getIsActive() &&
-            (warehouseAccess.get().getExpiresAt() == null || 
-             warehouseAccess.get().getExpiresAt().isAfter(LocalDateTime.now()))) {
-            return hasRequiredLevel(warehouseAccess.get().getAccessLevel(), requiredLevel);
+        // Warehouse-specific access decides when present
+        int warehouseLevels = CompiledAccess.levels(access.byWarehouse().get(warehouseId), storeId, now);
+        if (warehouseLevels != 0) {
+            return allows(warehouseLevels, requiredLevel);
         }
 
         // Check store-level access (warehouse access implies store access)
-        return hasStoreAccess(userId, warehouse.getStore().getId(), requiredLevel);
+        return allows(access.storeLevels(storeId, now), requiredLevel);
     }
 
     /**
      * Get all store IDs the user has access to
      */
     public List<Long> getAccessibleStoreIds(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-        
-        if (isSuperAdminOrAdmin(user)) {
-            // Return all active store IDs
-            return storeRepository.findByIsActive(true).stream()
+        Long terminalStoreId = terminalStoreId(userId);
+        if (terminalStoreId != null) {
+            return hasStoreAccess(userId, terminalStoreId, UserStoreAccess.AccessLevel.VIEW)
+                    ? List.of(terminalStoreId)
+                    : List.of();
+        }
+        CompiledAccess access = accessOf(userId);
+        if (access.admin()) {
+            // All active store IDs
+            return new ArrayList<>(cached(activeIds, ACTIVE_STORES, key -> storeRepository.findByIsActive(true).stream()
                     .map(store -> store.getId())
-                    .collect(Collectors.toList());
+                    .toList()));
         }
-
-        List<UserStoreAccess> accesses = userStoreAccessRepository.findActiveAccessByUser(
-                userId, LocalDateTime.now());
-
-        return accesses.stream()
-                .map(access -> access.getStore().getId())
-                .distinct()
-                .collect(Collectors.toList());
+        return access.activeKeys(access.byStore(), LocalDateTime.now());
     }
 
     /**
      * Get all warehouse IDs the user has access to
      */
     public List<Long> getAccessibleWarehouseIds(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-        
-        if (isSuperAdminOrAdmin(user)) {
-            // Return all active warehouse IDs
-            return warehouseRepository.findByIsActive(true).stream()
+        CompiledAccess access = accessOf(userId);
+        List<Long> warehouseIds;
+        if (access.admin()) {
+            // All active warehouse IDs
+            warehouseIds = new ArrayList<>(cached(activeIds, ACTIVE_WAREHOUSES, key -> warehouseRepository.findByIsActive(true).stream()
                     .map(warehouse -> warehouse.getId())
-                    .collect(Collectors.toList());
+                    .toList()));
+        } else {
+            warehouseIds = access.activeKeys(access.byWarehouse(), LocalDateTime.now());
         }
-
-        List<UserStoreAccess> accesses = userStoreAccessRepository.findActiveAccessByUser(
-                userId, LocalDateTime.now());
-
-        return accesses.stream()
-                .filter(access -> access.getWarehouse() != null)
-                .map(access -> access.getWarehouse().getId())
-                .distinct()
-                .collect(Collectors.toList());
+        if (terminalStoreId(userId) != null) {
+            warehouseIds.removeIf(warehouseId -> !hasWarehouseAccess(userId, warehouseId, UserStoreAccess.AccessLevel.VIEW));
+        }
+        return warehouseIds;
     }
 
     /**
      * Get user's primary store ID
      */
     public Long getPrimaryStoreId(Long userId) {
-        return userStoreAccessRepository.findPrimaryStoreAccess(userId)
-                .map(access -> access.getStore().getId())
-                .orElse(null);
+        return accessOf(userId).primaryStoreId();
     }
 
     /**
      * Get user's access level for a store
      */
     public UserStoreAccess.AccessLevel getStoreAccessLevel(Long userId, Long storeId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
-        
-        if (isSuperAdminOrAdmin(user)) {
+        if (outsideTerminalStore(userId, storeId)) {
+            return null;
+        }
+        CompiledAccess access = accessOf(userId);
+        if (access.admin()) {
             return UserStoreAccess.AccessLevel.ADMIN;
         }
 
-        List<UserStoreAccess> accesses = userStoreAccessRepository.findActiveAccessByUserAndStore(
-                userId, storeId, LocalDateTime.now());
-
-        if (accesses.isEmpty()) {
+        int levels = access.storeLevels(storeId, LocalDateTime.now());
+        if (levels == 0) {
             return null;
         }
-
         // Return the highest access level
-        return accesses.stream()
-                .map(UserStoreAccess::getAccessLevel)
-                .max((a1, a2) -> {
-                    int level1 = getAccessLevelValue(a1);
-                    int level2 = getAccessLevelValue(a2);
-                    return Integer.compare(level1, level2);
-                })
-                .orElse(UserStoreAccess.AccessLevel.VIEW);
+        return UserStoreAccess.AccessLevel.values()[31 - Integer.numberOfLeadingZeros(levels)];
     }
 
     /**
@@ -168,7 +285,7 @@ public class AccessControlService {
      */
     public void verifyStoreAccess(Long userId, Long storeId, UserStoreAccess.AccessLevel requiredLevel) {
         if (!hasStoreAccess(userId, storeId, requiredLevel)) {
-            throw new RuntimeException("User does not have " + requiredLevel.name() + 
+            throw new RuntimeException("User does not have " + requiredLevel.name() +
                                      " access to store: " + storeId);
         }
     }
@@ -178,33 +295,95 @@ public class AccessControlService {
      */
     public void verifyWarehouseAccess(Long userId, Long warehouseId, UserStoreAccess.AccessLevel requiredLevel) {
         if (!hasWarehouseAccess(userId, warehouseId, requiredLevel)) {
-            throw new RuntimeException("User does not have " + requiredLevel.name() + 
+            throw new RuntimeException("User does not have " + requiredLevel.name() +
                                      " access to warehouse: " + warehouseId);
         }
     }
 
     // Helper methods
-    private boolean isSuperAdminOrAdmin(User user) {
-        if (user.getRole() == null) {
-            return false;
+
+    /**
+     * The store the current request's terminal session is confined to, when
+     * the request is signed in through a terminal as this user.
+     */
+    private static Long terminalStoreId(Long userId) {
+        AuthenticatedUser caller = SecurityUtils.getCurrentUser();
+        return caller != null && caller.terminal() && Objects.equals(caller.userId(), userId) ? caller.storeId() : null;
+    }
+
+    private static boolean outsideTerminalStore(Long userId, Long storeId) {
+        Long terminalStoreId = terminalStoreId(userId);
+        return terminalStoreId != null && !terminalStoreId.equals(storeId);
+    }
+
+    private CompiledAccess accessOf(Long userId) {
+        return cached(compiled, userId, this::compile);
+    }
+
+    private CompiledAccess compile(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("User not found: " + userId));
+        String roleName = user.getRole() != null ? user.getRole().getName() : null;
+
+        Long primaryStoreId = null;
+        Map<Long, List<Grant>> byStore = new LinkedHashMap<>();
+        Map<Long, List<Grant>> byWarehouse = new LinkedHashMap<>();
+        for (UserStoreAccess access : userStoreAccessRepository.findByUserIdAndIsActive(userId, true)) {
+            Long storeId = access.getStore().getId();
+            Grant grant = new Grant(storeId, levelsOf(access.getAccessLevel()), access.getExpiresAt());
+            byStore.computeIfAbsent(storeId, id -> new ArrayList<>()).add(grant);
+            if (access.getWarehouse() != null) {
+                byWarehouse.computeIfAbsent(access.getWarehouse().getId(), id -> new ArrayList<>()).add(grant);
+            }
+            if (Boolean.TRUE.equals(access.getIsPrimary())) {
+                primaryStoreId = storeId;
+            }
+        }
+        return new CompiledAccess(isSuperAdminOrAdmin(roleName), roleName, primaryStoreId,
+                freeze(byStore), freeze(byWarehouse));
+    }
+
+    /**
+     * Read through a cache, dropping the loaded value again if an
+     * invalidation ran while it was being loaded.
+     */
+    private <K, V> V cached(Map<K, V> cache, K key, Function<K, V> loader) {
+        V value = cache.get(key);
+        if (value != null) {
+            return value;
         }
-        String roleName = user.getRole().getName();
+        long generation = invalidations.get();
+        value = loader.apply(key);
+        cache.put(key, value);
+        if (invalidations.get() != generation) {
+            cache.remove(key, value);
+        }
+        return value;
+    }
+
+    private void invalidate(Runnable eviction) {
+        invalidations.incrementAndGet();
+        eviction.run();
+    }
+
+    private static Map<Long, List<Grant>> freeze(Map<Long, List<Grant>> grants) {
+        return Collections.unmodifiableMap(grants.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> List.copyOf(entry.getValue()),
+                        (a, b) -> a, LinkedHashMap::new)));
+    }
+
+    private boolean isSuperAdminOrAdmin(String roleName) {
         return "SUPER_ADMIN".equals(roleName) || "ADMIN".equals(roleName);
     }
 
-    private boolean hasRequiredLevel(UserStoreAccess.AccessLevel userLevel, 
-                                    UserStoreAccess.AccessLevel requiredLevel) {
-        int userLevelValue = getAccessLevelValue(userLevel);
-        int requiredLevelValue = getAccessLevelValue(requiredLevel);
-        return userLevelValue >= requiredLevelValue;
+    private static boolean allows(int levels, UserStoreAccess.AccessLevel requiredLevel) {
+        return (levels & (1 << requiredLevel.ordinal())) != 0;
     }
 
-    private int getAccessLevelValue(UserStoreAccess.AccessLevel level) {
-        return switch (level) {
-            case VIEW -> 1;
-            case OPERATE -> 2;
-            case MANAGE -> 3;
-            case ADMIN -> 4;
-        };
+    /**
+     * Bitset of the levels an access level allows: itself and every level below it.
+     */
+    private static int levelsOf(UserStoreAccess.AccessLevel level) {
+        return (1 << (level.ordinal() + 1)) - 1;
     }
 }
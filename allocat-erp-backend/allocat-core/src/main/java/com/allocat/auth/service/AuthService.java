@@ -2,13 +2,34 @@ package com.allocat.auth.service;
 
 import com.allocat.auth.entity.User;
 import com.allocat.auth.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+/**
+ * Sign-in. Password checks run on a dedicated, bounded executor: BCrypt is
+ * deliberately slow, and a burst of logins at shift change would otherwise
+ * tie up request threads. The queue holds only as many logins as the workers
+ * can check within the configured wait, and a login that still waited longer
+ * fails without hashing, so callers get a 503 to retry rather than a timeout.
+ * Token and session writes after the check run on a separate I/O executor,
+ * keeping the hashing workers for hashing.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -16,14 +37,117 @@ public class AuthService {
     
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    
+    private final LastLoginRecorder lastLoginRecorder;
+
+    // 0 means one worker per CPU
+    @Value("${app.auth.login.hash-workers:0}")
+    private int hashWorkers;
+
+    // 0 means as many as the workers can check within max-wait-millis
+    @Value("${app.auth.login.queue-capacity:0}")
+    private int queueCapacity;
+
+    @Value("${app.auth.login.max-wait-millis:5000}")
+    private long maxWaitMillis;
+
+    @Value("${app.auth.login.io-workers:8}")
+    private int ioWorkers;
+
+    private ThreadPoolTaskExecutor executor;
+    private ThreadPoolTaskExecutor ioExecutor;
+    // Checked when the login is unknown so that case takes as long as a wrong password
+    private String unknownUserHash;
+
+    @PostConstruct
+    void startExecutor() {
+        int workers = hashWorkers > 0 ? hashWorkers : Runtime.getRuntime().availableProcessors();
+        unknownUserHash = passwordEncoder.encode(UUID.randomUUID().toString());
+        // One check on this hardware with the configured BCrypt strength
+        long start = System.nanoTime();
+        passwordEncoder.matches(UUID.randomUUID().toString(), unknownUserHash);
+        long checkMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        int capacity = queueCapacity > 0 ? queueCapacity : (int) Math.max(workers, workers * maxWaitMillis / checkMillis);
+
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(capacity);
+        executor.setThreadNamePrefix("login-");
+        executor.initialize();
+
+        ioExecutor = new ThreadPoolTaskExecutor();
+        ioExecutor.setCorePoolSize(ioWorkers);
+        ioExecutor.setMaxPoolSize(ioWorkers);
+        ioExecutor.setQueueCapacity(capacity);
+        ioExecutor.setThreadNamePrefix("login-io-");
+        // A rejected async stage would otherwise throw on the completing thread and never complete
+        ioExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        ioExecutor.initialize();
+        log.info("Login executor: {} workers, {} queued, {} ms per password check", workers, capacity, checkMillis);
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdown();
+        ioExecutor.shutdown();
+    }
+
+    /**
+     * Executor for the database and token work that follows a successful
+     * check, e.g. {@code authenticateAsync(...).thenApplyAsync(this::issueTokens, authService.ioExecutor())}.
+     * When its queue is full the stage runs on the thread that completed the
+     * previous one, so the returned future always completes.
+     */
+    public Executor ioExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * Authenticate on the login executor.
+     *
+     * @return a future failing with IllegalArgumentException for bad credentials,
+     *         or with IllegalStateException when too many logins are already queued
+     */
+    public CompletableFuture<User> authenticateAsync(String username, String password) {
+        return onLoginExecutor(() -> authenticate(username, password));
+    }
+
+    /**
+     * Run a credential check on the login executor, failing with
+     * IllegalStateException when the queue is full or the check waited
+     * longer than max-wait-millis for a worker.
+     */
+    <T> CompletableFuture<T> onLoginExecutor(Supplier<T> check) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt) > maxWaitMillis) {
+                    throw tooManySignIns();
+                }
+                return check.get();
+            }, executor);
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.failedFuture(tooManySignIns());
+        }
+    }
+
+    private static IllegalStateException tooManySignIns() {
+        return new IllegalStateException("Too many sign-ins in progress, please retry shortly");
+    }
+
     public User authenticate(String username, String password) {
-        log.info("Authenticating user: {}", username);
+        log.debug("Authenticating user: {}", username);
         
-        // Find user by username or email
-        User user = userRepository.findByUsername(username)
-                .or(() -> userRepository.findByEmail(username))
-                .orElseThrow(() -> new IllegalArgumentException("Invalid username or password"));
+        // Find user by username or email; a username match wins over another user's email
+        List<User> candidates = userRepository.findByUsernameOrEmail(username);
+        User user = candidates.stream()
+                .filter(candidate -> username.equals(candidate.getUsername()))
+                .findFirst()
+                .orElse(candidates.isEmpty() ? null : candidates.get(0));
+        if (user == null) {
+            passwordEncoder.matches(password, unknownUserHash);
+            throw new IllegalArgumentException("Invalid username or password");
+        }
         
         // Check if user is active
         if (!user.getActive()) {
@@ -35,11 +159,12 @@ public class AuthService {
             throw new IllegalArgumentException("Invalid username or password");
         }
         
-        // Update last login time
-        user.setLastLoginAt(LocalDateTime.now());
-        userRepository.save(user);
+        // Last-login times are written in batches; the returned user already shows this one
+        LocalDateTime now = LocalDateTime.now();
+        lastLoginRecorder.record(user.getId(), now);
+        user.setLastLoginAt(now);
         
-        log.info("User authenticated successfully: {}", username);
+        log.debug("User authenticated successfully: {}", username);
         return user;
     }
     
@@ -48,5 +173,9 @@ public class AuthService {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new IllegalArgumentException("User not found: " + username));
     }
+    
+    public User getUserById(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
+    }
 }
-
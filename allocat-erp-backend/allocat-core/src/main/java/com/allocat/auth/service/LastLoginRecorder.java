@@ -0,0 +1,71 @@
+package com.allocat.auth.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects last-login times in memory and writes them in one batch every
+ * flush interval, so a burst of sign-ins at shift change costs a handful of
+ * batched updates instead of one user save per login. Repeated logins of a
+ * user within an interval collapse into one write.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LastLoginRecorder {
+
+    // Never moves the column backwards if an older flush lands late
+    private static final String UPDATE_LAST_LOGIN =
+            "UPDATE users SET last_login_at = ? WHERE id = ? AND (last_login_at IS NULL OR last_login_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // userId -> latest login not yet written
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    public void record(Long userId, LocalDateTime loginAt) {
+        pending.merge(userId, loginAt, (a, b) -> a.isAfter(b) ? a : b);
+    }
+
+    @Scheduled(fixedDelayString = "${app.auth.login.last-login-flush-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>();
+        for (Long userId : List.copyOf(pending.keySet())) {
+            LocalDateTime loginAt = pending.remove(userId);
+            if (loginAt != null) {
+                Timestamp timestamp = Timestamp.valueOf(loginAt);
+                batch.add(new Object[]{timestamp, userId, timestamp});
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_LAST_LOGIN, batch);
+            log.debug("Wrote last-login time for {} users", batch.size());
+        } catch (Exception e) {
+            // Keep the times for the next attempt unless newer ones arrived meanwhile
+            for (Object[] row : batch) {
+                record((Long) row[1], ((Timestamp) row[0]).toLocalDateTime());
+            }
+            log.warn("Could not write last-login times: {}", e.getMessage());
+        }
+    }
+}
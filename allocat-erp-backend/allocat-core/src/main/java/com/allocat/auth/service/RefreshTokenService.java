@@ -0,0 +1,158 @@
+package com.allocat.auth.service;
+
+import com.allocat.auth.entity.RefreshToken;
+import com.allocat.auth.repository.RefreshTokenRepository;
+import com.allocat.common.security.SessionRevocations;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refresh-token store with rotation and reuse detection. Every refresh
+ * consumes the presented token and registers its successor in the same
+ * session; presenting a consumed token again means it leaked, so the whole
+ * session is revoked.
+ * <p>
+ * Revoked sessions are kept in memory until their last token expires, and
+ * revocations made by other instances are picked up from the table every
+ * sync interval, so revocation checks never touch the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenService implements SessionRevocations {
+
+    // Revocations committed late by another instance are still picked up
+    private static final Duration SYNC_OVERLAP = Duration.ofMinutes(1);
+    private static final Duration CLEANUP_INTERVAL = Duration.ofHours(1);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${jwt.refresh-expiration}")
+    private long refreshExpirationMillis;
+
+    // sessionId -> when its last refresh token expires
+    private final Map<String, LocalDateTime> revokedSessions = new ConcurrentHashMap<>();
+    private volatile LocalDateTime lastSync;
+    private LocalDateTime lastCleanup = LocalDateTime.now();
+
+    @Override
+    public boolean isRevoked(String sessionId) {
+        return sessionId != null && revokedSessions.containsKey(sessionId);
+    }
+
+    /**
+     * Record a newly issued refresh token.
+     */
+    @Transactional
+    public RefreshToken register(Long userId, String sessionId, String tokenId, String token, Instant expiresAt) {
+        return refreshTokenRepository.save(RefreshToken.builder()
+                .tokenId(tokenId)
+                .tokenHash(hash(token))
+                .sessionId(sessionId)
+                .userId(userId)
+                .expiryDate(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()))
+                .build());
+    }
+
+    /**
+     * Record a session that has no refresh token, such as a terminal session,
+     * so that ending it reaches other instances like any logout. The row
+     * cannot be rotated: no refresh token carries its id.
+     */
+    @Transactional
+    public RefreshToken registerSession(Long userId, String sessionId, String accessToken, Instant expiresAt) {
+        return register(userId, sessionId, sessionId, accessToken, expiresAt);
+    }
+
+    /**
+     * Consume the presented refresh token and register its successor.
+     *
+     * @return the consumed token, for its user and session
+     * @throws IllegalArgumentException if the token is unknown, revoked or was already used
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public RefreshToken rotate(String tokenId, String token, String nextTokenId, String nextToken, Instant nextExpiresAt) {
+        RefreshToken current = refreshTokenRepository.findByTokenId(tokenId)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown refresh token"));
+        if (!MessageDigest.isEqual(current.getTokenHash().getBytes(StandardCharsets.US_ASCII),
+                hash(token).getBytes(StandardCharsets.US_ASCII))) {
+            throw new IllegalArgumentException("Unknown refresh token");
+        }
+        if (isRevoked(current.getSessionId()) || current.getRevokedAt() != null) {
+            throw new IllegalArgumentException("Session has been revoked");
+        }
+
+        if (refreshTokenRepository.markUsed(current.getId(), LocalDateTime.now()) == 0) {
+            // Already consumed: the token was copied, so nothing issued from it can be trusted
+            log.warn("Refresh token reuse detected for user {}, revoking session {}",
+                    current.getUserId(), current.getSessionId());
+            revokeSession(current.getSessionId());
+            throw new IllegalArgumentException("Refresh token has already been used");
+        }
+
+        register(current.getUserId(), current.getSessionId(), nextTokenId, nextToken, nextExpiresAt);
+        return current;
+    }
+
+    /**
+     * End a session: its refresh tokens stop working and its access tokens
+     * are rejected from now on.
+     */
+    @Transactional
+    public void revokeSession(String sessionId) {
+        LocalDateTime now = LocalDateTime.now();
+        refreshTokenRepository.revokeSession(sessionId, now);
+        // No token of the session outlives a refresh token issued now
+        revokedSessions.merge(sessionId, now.plus(Duration.ofMillis(refreshExpirationMillis)), (a, b) -> a);
+    }
+
+    /**
+     * Pull revocations made by any instance since the previous sync and drop
+     * sessions whose tokens have all expired.
+     */
+    @Scheduled(fixedDelayString = "${app.auth.revocation-sync-seconds:15}", timeUnit = TimeUnit.SECONDS)
+    void syncRevocations() {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            LocalDateTime since = lastSync != null ? lastSync.minus(SYNC_OVERLAP) : LocalDateTime.of(1970, 1, 1, 0, 0);
+            for (Object[] row : refreshTokenRepository.findRevokedSessions(since, now)) {
+                revokedSessions.put((String) row[0], (LocalDateTime) row[1]);
+            }
+            revokedSessions.values().removeIf(expiry -> expiry.isBefore(now));
+            lastSync = now;
+
+            if (now.isAfter(lastCleanup.plus(CLEANUP_INTERVAL))) {
+                int deleted = refreshTokenRepository.deleteExpired(now);
+                lastCleanup = now;
+                log.debug("Deleted {} expired refresh tokens", deleted);
+            }
+        } catch (Exception e) {
+            log.warn("Could not sync revoked sessions: {}", e.getMessage());
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
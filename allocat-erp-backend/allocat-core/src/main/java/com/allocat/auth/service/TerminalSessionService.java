@@ -0,0 +1,188 @@
+package com.allocat.auth.service;
+
+import com.allocat.auth.entity.Store;
+import com.allocat.auth.entity.User;
+import com.allocat.auth.entity.UserStoreAccess;
+import com.allocat.auth.repository.StoreRepository;
+import com.allocat.auth.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sign-in for POS terminals: the store's access code plus a cashier's
+ * username and PIN open a session scoped to that store, whose token carries
+ * the cashier's permissions so requests need no further lookups.
+ * <p>
+ * A register re-sends the same access code at every sign-in, so once its
+ * BCrypt hash has matched, a SHA-256 of the code is kept per store together
+ * with that hash. The store row is read on every sign-in anyway; once its
+ * hash differs (the code was rotated, on any instance) the entry no longer
+ * counts. Repeated wrong PINs lock the cashier out of terminals for a while;
+ * the count and the lockout live on the user row, so they hold across
+ * instances and restarts. Every attempt is counted before its PIN is
+ * compared, so concurrent guesses cannot get past the limit.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TerminalSessionService {
+
+    // Admins sign in with their password; terminals are for store staff
+    private static final List<String> EXCLUDED_ROLES = List.of("SUPER_ADMIN", "ADMIN");
+
+    private final StoreRepository storeRepository;
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final AccessControlService accessControlService;
+    private final AuthService authService;
+    private final LastLoginRecorder lastLoginRecorder;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.auth.terminal.max-pin-attempts:5}")
+    private int maxPinAttempts;
+
+    @Value("${app.auth.terminal.pin-lockout-seconds:300}")
+    private long pinLockoutSeconds;
+
+    // Counts the attempt before the PIN is compared, row-locked by the UPDATE so concurrent
+    // attempts on any instance count one by one; returns no row while a lockout runs. The
+    // attempt that reaches the limit starts the lockout, and an expired one starts a new count.
+    private static final String CLAIM_PIN_ATTEMPT = """
+            UPDATE users SET
+                pin_failed_attempts = CASE WHEN pin_locked_until IS NULL THEN pin_failed_attempts + 1 ELSE 1 END,
+                pin_locked_until = CASE
+                    WHEN (CASE WHEN pin_locked_until IS NULL THEN pin_failed_attempts + 1 ELSE 1 END) >= ?
+                        THEN CURRENT_TIMESTAMP + ? * INTERVAL '1 second'
+                    ELSE NULL END
+            WHERE id = ? AND (pin_locked_until IS NULL OR pin_locked_until <= CURRENT_TIMESTAMP)
+            RETURNING pin_failed_attempts
+            """;
+
+    // A correct PIN clears the attempts, including a lockout its own attempt started
+    private static final String CLEAR_PIN_FAILURES =
+            "UPDATE users SET pin_failed_attempts = 0, pin_locked_until = NULL "
+                    + "WHERE id = ? AND (pin_failed_attempts <> 0 OR pin_locked_until IS NOT NULL)";
+
+    // Store code -> access code that matched the store's hash
+    private final Map<String, VerifiedCode> verifiedCodes = new ConcurrentHashMap<>();
+
+    /**
+     * @param accessCodeHash the store's hash the code matched; the entry is void once it changes
+     */
+    private record VerifiedCode(Long storeId, String accessCodeHash, byte[] digest) {
+    }
+
+    /**
+     * An opened terminal session.
+     *
+     * @param user        the cashier
+     * @param store       the store the session is scoped to
+     * @param permissions the cashier's role permissions
+     * @param sessionId   id of the session, for its token and for logging out
+     */
+    public record TerminalSession(User user, Store store, List<String> permissions, String sessionId) {
+    }
+
+    /**
+     * Open a session on the login executor.
+     *
+     * @return a future failing with IllegalArgumentException for bad credentials,
+     *         or with IllegalStateException when too many logins are already queued
+     */
+    public CompletableFuture<TerminalSession> openAsync(String storeCode, String accessCode, String username, String pin) {
+        return authService.onLoginExecutor(() -> open(storeCode, accessCode, username, pin));
+    }
+
+    public TerminalSession open(String storeCode, String accessCode, String username, String pin) {
+        Store store = verifyStore(storeCode, accessCode);
+
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new IllegalArgumentException("Invalid username or PIN"));
+        if (!user.getActive() || user.getPinHash() == null) {
+            throw new IllegalArgumentException("Invalid username or PIN");
+        }
+        String roleName = user.getRole() != null ? user.getRole().getName() : null;
+        if (roleName == null || EXCLUDED_ROLES.contains(roleName)) {
+            throw new IllegalArgumentException("User cannot sign in at a terminal");
+        }
+        if (!store.getId().equals(user.getStoreId())
+                && !accessControlService.hasStoreAccess(user.getId(), store.getId(), UserStoreAccess.AccessLevel.OPERATE)) {
+            throw new IllegalArgumentException("User is not assigned to this store");
+        }
+        verifyPin(user, pin);
+
+        LocalDateTime now = LocalDateTime.now();
+        lastLoginRecorder.record(user.getId(), now);
+        user.setLastLoginAt(now);
+
+        String[] permissions = user.getRole().getPermissions();
+        log.debug("Terminal session opened for {} at store {}", username, store.getCode());
+        return new TerminalSession(user, store,
+                permissions != null ? Arrays.asList(permissions) : List.of(),
+                UUID.randomUUID().toString());
+    }
+
+    private Store verifyStore(String storeCode, String accessCode) {
+        byte[] digest = digest(accessCode);
+        VerifiedCode verified = verifiedCodes.get(storeCode);
+        if (verified != null && MessageDigest.isEqual(verified.digest(), digest)) {
+            Store store = storeRepository.findById(verified.storeId()).orElse(null);
+            if (store != null && Boolean.TRUE.equals(store.getIsActive())
+                    && storeCode.equals(store.getCode())
+                    && verified.accessCodeHash().equals(store.getAccessCode())) {
+                return store;
+            }
+            verifiedCodes.remove(storeCode, verified);
+        }
+
+        Store store = storeRepository.findByCode(storeCode)
+                .filter(candidate -> Boolean.TRUE.equals(candidate.getIsActive()))
+                .orElseThrow(() -> new IllegalArgumentException("Invalid store code or access code"));
+        if (!passwordEncoder.matches(accessCode, store.getAccessCode())) {
+            throw new IllegalArgumentException("Invalid store code or access code");
+        }
+        verifiedCodes.put(storeCode, new VerifiedCode(store.getId(), store.getAccessCode(), digest));
+        return store;
+    }
+
+    private void verifyPin(User user, String pin) {
+        List<Integer> attempts = jdbcTemplate.queryForList(CLAIM_PIN_ATTEMPT, Integer.class,
+                maxPinAttempts, pinLockoutSeconds, user.getId());
+        if (attempts.isEmpty()) {
+            throw new IllegalArgumentException("Too many wrong PINs, try again later");
+        }
+
+        if (passwordEncoder.matches(pin, user.getPinHash())) {
+            jdbcTemplate.update(CLEAR_PIN_FAILURES, user.getId());
+            return;
+        }
+
+        if (attempts.get(0) >= maxPinAttempts) {
+            log.warn("Terminal sign-in locked for user {} after {} wrong PINs", user.getUsername(), attempts.get(0));
+        }
+        throw new IllegalArgumentException("Invalid username or PIN");
+    }
+
+    private static byte[] digest(String accessCode) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(accessCode.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
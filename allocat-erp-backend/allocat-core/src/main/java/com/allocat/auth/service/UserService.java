@@ -39,6 +39,21 @@ public class UserService {
         return userRepository.save(user);
     }
     
+    public User getUserById(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
+    }
+    
+    /**
+     * Set the hashed PIN the user signs in with at POS terminals.
+     */
+    public void updatePin(Long userId, String pinHash) {
+        User user = getUserById(userId);
+        user.setPinHash(pinHash);
+        userRepository.save(user);
+        log.info("Terminal PIN updated for user: {}", user.getUsername());
+    }
+    
     public Role findRoleByName(String roleName) {
         return roleRepository.findByName(roleName)
                 .orElseThrow(() -> new IllegalArgumentException("Role not found: " + roleName));
@@ -1,5 +1,6 @@
 package com.allocat.auth.util;
 
+import com.allocat.common.security.AuthenticatedUser;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -7,15 +8,29 @@ import org.springframework.stereotype.Component;
 
 /**
  * Utility class for extracting user information from security context.
- * This version does not depend on JwtUtil to avoid circular dependencies.
+ * This version does not depend on JwtUtil to avoid circular dependencies:
+ * the JWT filter puts an {@link AuthenticatedUser} built from the token's
+ * claims in the context.
  */
 @Component
 @Slf4j
 public class SecurityUtils {
 
+    /**
+     * Get the authenticated caller, or null for anonymous requests.
+     */
+    public static AuthenticatedUser getCurrentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && auth.getPrincipal() instanceof AuthenticatedUser user) {
+            return user;
+        }
+        return null;
+    }
+
     /**
      * Get current user ID from security context.
-     * The user ID is expected to be stored in the authentication details or credentials.
+     * The user ID comes from the JWT principal; other authentication types may
+     * carry it in the details, principal or credentials.
      */
     public static Long getCurrentUserId() {
         try {
@@ -24,7 +39,11 @@ public class SecurityUtils {
                 return null;
             }
 
-            // Try to get from authentication details (set by JWT filter)
+            if (auth.getPrincipal() instanceof AuthenticatedUser user) {
+                return user.userId();
+            }
+
+            // Try to get from authentication details
             Object details = auth.getDetails();
             if (details instanceof Long) {
                 return (Long) details;
@@ -54,6 +73,14 @@ public class SecurityUtils {
         }
     }
 
+    /**
+     * Get the current user's home store ID, or null if the user has none
+     */
+    public static Long getCurrentUserStoreId() {
+        AuthenticatedUser user = getCurrentUser();
+        return user != null ? user.storeId() : null;
+    }
+
     /**
      * Get current username from security context
      */
@@ -0,0 +1,14 @@
+package com.allocat.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Background tasks run as {@code @Scheduled} methods on the one task
+ * scheduler Boot configures (spring.task.scheduling), which is shut down with
+ * the context.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,28 @@
+package com.allocat.inventory.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Units taken from one inventory batch by a first-expiry-first-out allocation.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchAllocation {
+    private Long inventoryId;
+    private String batchNumber;
+    private LocalDateTime expiryDate;
+    private int quantity;
+    private BigDecimal unitCost;
+    // Valuation cost of the units when they were issued; null for reservations
+    @JsonIgnore
+    private IssuedCost issuedCost;
+}
@@ -0,0 +1,36 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bulk verification of received stock. Either a csvUploadId (all pending rows
+ * of that upload) or an explicit list of items must be given. In upload mode,
+ * items override the verified quantity of individual rows and rows without an
+ * item are verified at their expected quantity.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkVerifyRequest {
+    private String csvUploadId;
+    private String verifiedBy;
+
+    @Builder.Default
+    private List<Item> items = new ArrayList<>();
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+        private Long receivedStockId;
+        private Integer verifiedQuantity;
+    }
+}
@@ -0,0 +1,30 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk received stock verification.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkVerifyResult {
+    private String csvUploadId;
+    private int requested;
+    private int verified;
+    private int discrepancies;
+    private int skipped;
+    private int inventoryRowsUpdated;
+    private int inventoryRowsCreated;
+
+    // Ids that were not PENDING (or not found) and were left untouched
+    @Builder.Default
+    private List<Long> skippedIds = new ArrayList<>();
+}
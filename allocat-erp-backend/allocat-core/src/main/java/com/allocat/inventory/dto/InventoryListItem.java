@@ -0,0 +1,51 @@
+package com.allocat.inventory.dto;
+
+import com.allocat.inventory.entity.Inventory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Inventory row of the list endpoints with the product fields flattened in,
+ * so serializing a page never touches a lazy association.
+ * Field order is the constructor order used by the repository queries.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryListItem {
+    private Long id;
+    private Long productId;
+    private String productCode;
+    private String productName;
+    private Long storeId;
+    private String warehouse;
+    private String location;
+    private String batchNumber;
+    private LocalDateTime expiryDate;
+    private Integer currentQuantity;
+    private Integer reservedQuantity;
+    private Integer availableQuantity;
+    private Integer minimumStockLevel;
+    private BigDecimal unitCost;
+    private BigDecimal totalValue;
+    private LocalDateTime lastUpdated;
+
+    /**
+     * For rows loaded as entities; the product must already be fetched.
+     */
+    public static InventoryListItem of(Inventory inventory) {
+        return new InventoryListItem(inventory.getId(), inventory.getProduct().getId(),
+                inventory.getProduct().getProductCode(), inventory.getProduct().getName(),
+                inventory.getStore() != null ? inventory.getStore().getId() : null,
+                inventory.getWarehouse(), inventory.getLocation(), inventory.getBatchNumber(),
+                inventory.getExpiryDate(), inventory.getCurrentQuantity(), inventory.getReservedQuantity(),
+                inventory.getAvailableQuantity(), inventory.getProduct().getMinimumStockLevel(),
+                inventory.getUnitCost(), inventory.getTotalValue(), inventory.getLastUpdated());
+    }
+}
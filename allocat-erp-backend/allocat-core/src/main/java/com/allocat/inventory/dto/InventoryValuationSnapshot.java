@@ -0,0 +1,53 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stock value at the end of a given day, grouped by store, warehouse or category.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InventoryValuationSnapshot {
+
+    public enum CostingMethod {
+        WEIGHTED_AVERAGE,
+        FIFO
+    }
+
+    public enum GroupBy {
+        STORE,
+        WAREHOUSE,
+        CATEGORY
+    }
+
+    private LocalDate asOf;
+    private CostingMethod method;
+    private GroupBy groupBy;
+    private long totalQuantity;
+    private BigDecimal totalValue;
+
+    @Builder.Default
+    private List<Line> lines = new ArrayList<>();
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private String key;
+        private String label;
+        private int positions;
+        private long quantity;
+        private BigDecimal value;
+    }
+}
@@ -0,0 +1,14 @@
+package com.allocat.inventory.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Cost taken out of a valuation position by an issue: its weighted-average
+ * value, its FIFO value, and the FIFO layers it consumed, oldest first.
+ */
+public record IssuedCost(BigDecimal wacValue, BigDecimal fifoValue, List<Layer> layers) {
+
+    public record Layer(BigDecimal unitCost, int quantity) {
+    }
+}
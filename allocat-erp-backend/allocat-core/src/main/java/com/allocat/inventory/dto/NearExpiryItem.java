@@ -0,0 +1,31 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One batch in the near-expiry report.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearExpiryItem {
+    private Long inventoryId;
+    private Long productId;
+    private String productCode;
+    private String productName;
+    private Long storeId;
+    private String batchNumber;
+    private LocalDateTime expiryDate;
+    // Negative once the batch has expired
+    private long daysToExpiry;
+    private int currentQuantity;
+    private int availableQuantity;
+    private BigDecimal valueAtRisk;
+}
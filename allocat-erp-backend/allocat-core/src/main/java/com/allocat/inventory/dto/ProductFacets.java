@@ -0,0 +1,35 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Product counts per category, supplier and active flag. Each facet is
+ * counted under the other facets' filters, so picking a value in one facet
+ * never hides the alternatives in that facet.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacets {
+    // Products matching every filter
+    private long total;
+    private List<FacetCount> categories;
+    private List<FacetCount> suppliers;
+    private List<FacetCount> active;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FacetCount {
+        // Null for products without a value
+        private String value;
+        private long count;
+    }
+}
@@ -0,0 +1,27 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * One ranked typeahead match.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSearchResult {
+    private Long id;
+    private String productCode;
+    private String name;
+    private String barcode;
+    private String brand;
+    private String category;
+    private BigDecimal unitPrice;
+    // Higher is better: exact code/barcode, then prefix, then trigram similarity
+    private double score;
+}
@@ -0,0 +1,40 @@
+package com.allocat.inventory.dto;
+
+import com.allocat.inventory.entity.Product;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Product row of the list endpoints, read straight from a projection query.
+ * Field order is the constructor order used by the repository queries.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSummary {
+    private Long id;
+    private String productCode;
+    private String name;
+    private String category;
+    private BigDecimal unitPrice;
+    private String unitOfMeasure;
+    private String barcode;
+    private String sku;
+    private String brand;
+    private Integer minimumStockLevel;
+    private Integer maximumStockLevel;
+    private Boolean isActive;
+    private String supplierName;
+
+    public static ProductSummary of(Product product) {
+        return new ProductSummary(product.getId(), product.getProductCode(), product.getName(),
+                product.getCategory(), product.getUnitPrice(), product.getUnitOfMeasure(), product.getBarcode(),
+                product.getSku(), product.getBrand(), product.getMinimumStockLevel(),
+                product.getMaximumStockLevel(), product.getIsActive(), product.getSupplierName());
+    }
+}
@@ -0,0 +1,50 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk product upsert, with one entry per submitted product in
+ * request order.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductUpsertResult {
+    private int requested;
+    private int created;
+    private int updated;
+    private int unchanged;
+    private int failed;
+    private long durationMs;
+
+    @Builder.Default
+    private List<Row> rows = new ArrayList<>();
+
+    public enum Outcome {
+        CREATED,
+        UPDATED,
+        // Every column already matched, nothing was written
+        UNCHANGED,
+        FAILED
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Row {
+        // Position in the request, 0-based
+        private int index;
+        private String productCode;
+        private Long productId;
+        private Outcome outcome;
+        private String error;
+    }
+}
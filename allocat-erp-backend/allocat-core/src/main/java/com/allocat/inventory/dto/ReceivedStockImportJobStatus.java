@@ -0,0 +1,40 @@
+package com.allocat.inventory.dto;
+
+import com.allocat.inventory.entity.ReceivedStockImportJob;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Progress view of a background received stock import job.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceivedStockImportJobStatus {
+    private String uploadId;
+    private String fileName;
+    private ReceivedStockImportJob.ImportFormat format;
+    private ReceivedStockImportJob.ImportJobStatus status;
+    private Integer totalRows;
+    private int processedRows;
+    private double progressPercent;
+    private int importedRows;
+    private int failedRows;
+    private int productsCreated;
+    private int productsUpdated;
+    private double rowsPerSecond;
+    private LocalDateTime startedAt;
+    private LocalDateTime lastCheckpointAt;
+    private LocalDateTime completedAt;
+    private String failureReason;
+
+    @Builder.Default
+    private List<ReceivedStockImportResult.RowError> errors = new ArrayList<>();
+}
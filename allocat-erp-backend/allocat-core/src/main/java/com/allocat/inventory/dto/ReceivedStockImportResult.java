@@ -0,0 +1,44 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a received stock import: row counts, product changes,
+ * throughput and the rows that could not be imported.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceivedStockImportResult {
+    private String uploadId;
+    private int totalRows;
+    private int importedRows;
+    private int failedRows;
+    private int productsCreated;
+    private int productsUpdated;
+    // Highest source row number already accounted for (written or reported as failed)
+    private int lastRowNumber;
+    private long durationMs;
+    private double rowsPerSecond;
+
+    // Only the first errors are kept; failedRows always holds the full count
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private int rowNumber;
+        private String productCode;
+        private String message;
+    }
+}
@@ -45,6 +45,7 @@ public class ReceivedStockRequest {
     
     // Batch and Tracking
     private String batchNumber;
+    private LocalDateTime expiryDate;
     
     // Dates
     private LocalDateTime expectedDeliveryDate;
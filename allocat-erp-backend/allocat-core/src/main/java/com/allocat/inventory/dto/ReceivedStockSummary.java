@@ -0,0 +1,40 @@
+package com.allocat.inventory.dto;
+
+import com.allocat.inventory.entity.ReceivedStock.ReceivedStockStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Received stock row of the list endpoints, read straight from a projection query.
+ * Field order is the constructor order used by the repository queries.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceivedStockSummary {
+    private Long id;
+    private Long productId;
+    private String productCode;
+    private String productName;
+    private Integer expectedQuantity;
+    private Integer receivedQuantity;
+    private Integer verifiedQuantity;
+    private BigDecimal unitPrice;
+    private BigDecimal totalValue;
+    private ReceivedStockStatus status;
+    private String batchNumber;
+    private LocalDateTime expiryDate;
+    private String supplierName;
+    private String supplierInvoiceNumber;
+    private LocalDateTime receivedDate;
+    private LocalDateTime verifiedDate;
+    private String receivedBy;
+    private String verifiedBy;
+    private String csvUploadId;
+}
@@ -0,0 +1,31 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Replenishment view of one product in one store: smoothed demand, the
+ * reorder point derived from it and how much to order now.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplenishmentSuggestion {
+    private Long productId;
+    private String productCode;
+    private String productName;
+    private Long storeId;
+    private int currentQuantity;
+    private int availableQuantity;
+    private double dailyVelocity;
+    private double dailyStdDev;
+    private int reorderPoint;
+    private int targetStockLevel;
+    private int suggestedOrderQuantity;
+    // Null when the product is not selling, i.e. cover is unlimited
+    private Double daysOfCover;
+    private boolean needsReorder;
+}
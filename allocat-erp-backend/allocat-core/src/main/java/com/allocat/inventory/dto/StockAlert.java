@@ -0,0 +1,35 @@
+package com.allocat.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stock level threshold crossing for one product in one store, with the
+ * quantities summed over its batches.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockAlert {
+    private Long productId;
+    private String productCode;
+    private String productName;
+    private Long storeId;
+    private Level level;
+    private Level previousLevel;
+    private Integer currentQuantity;
+    private Integer availableQuantity;
+    private Integer reorderLevel;
+    private LocalDateTime occurredAt;
+
+    public enum Level {
+        OK,             // Back above the reorder level
+        LOW_STOCK,      // At or below the reorder level
+        OUT_OF_STOCK    // Nothing available
+    }
+}
@@ -59,6 +59,9 @@ public class ReceivedStock extends BaseEntity {
     @Column(name = "batch_number")
     private String batchNumber;
 
+    @Column(name = "expiry_date")
+    private LocalDateTime expiryDate;
+
     @Column(name = "supplier_name")
     private String supplierName;
 
@@ -0,0 +1,111 @@
+package com.allocat.inventory.entity;
+
+import com.allocat.common.entity.BaseEntity;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Background import of a received stock file. The job is keyed by the
+ * csvUploadId stamped on every received_stock row it creates, and
+ * lastRowNumber is the checkpoint a restarted job resumes from. The instance
+ * running the job holds it through ownerId and a lease it keeps renewing;
+ * both are written only by lease statements, never by entity saves.
+ */
+@Entity
+@Table(name = "received_stock_import_jobs")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode(callSuper = true)
+public class ReceivedStockImportJob extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "upload_id", nullable = false, unique = true)
+    private String uploadId;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format", nullable = false)
+    private ImportFormat format;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    @Builder.Default
+    private ImportJobStatus status = ImportJobStatus.QUEUED;
+
+    @Column(name = "total_rows")
+    private Integer totalRows;
+
+    @Column(name = "last_row_number", nullable = false)
+    @Builder.Default
+    private Integer lastRowNumber = 0;
+
+    @Column(name = "processed_rows", nullable = false)
+    @Builder.Default
+    private Integer processedRows = 0;
+
+    @Column(name = "imported_rows", nullable = false)
+    @Builder.Default
+    private Integer importedRows = 0;
+
+    @Column(name = "failed_rows", nullable = false)
+    @Builder.Default
+    private Integer failedRows = 0;
+
+    @Column(name = "products_created", nullable = false)
+    @Builder.Default
+    private Integer productsCreated = 0;
+
+    @Column(name = "products_updated", nullable = false)
+    @Builder.Default
+    private Integer productsUpdated = 0;
+
+    @JsonIgnore
+    @Column(name = "errors")
+    private String errors;
+
+    @Column(name = "failure_reason")
+    private String failureReason;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "last_checkpoint_at")
+    private LocalDateTime lastCheckpointAt;
+
+    @JsonIgnore
+    @Column(name = "owner_id", updatable = false)
+    private String ownerId;
+
+    @JsonIgnore
+    @Column(name = "lease_expires_at", updatable = false)
+    private LocalDateTime leaseExpiresAt;
+
+    public enum ImportFormat {
+        CSV,
+        JSON
+    }
+
+    public enum ImportJobStatus {
+        QUEUED,     // Waiting for an executor thread
+        RUNNING,    // Chunks are being written
+        COMPLETED,  // Whole file processed (individual rows may have failed)
+        FAILED      // Job stopped on an unrecoverable error
+    }
+}
@@ -1,5 +1,6 @@
 package com.allocat.inventory.entity;
 
+import com.allocat.auth.entity.AccessChangeListener;
 import com.allocat.auth.entity.Store;
 import com.allocat.auth.entity.User;
 import com.allocat.common.entity.BaseEntity;
@@ -13,6 +14,7 @@ import lombok.NoArgsConstructor;
 
 @Entity
 @Table(name = "warehouses")
+@EntityListeners(AccessChangeListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
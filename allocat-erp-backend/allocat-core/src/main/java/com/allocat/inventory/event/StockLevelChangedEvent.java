@@ -0,0 +1,50 @@
+package com.allocat.inventory.event;
+
+import com.allocat.inventory.entity.Inventory;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published whenever the quantity of an inventory row changes. Carries a
+ * snapshot of the row so listeners never have to reload it.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelChangedEvent {
+    private Long inventoryId;
+    private Long productId;
+    private String productCode;
+    private String productName;
+    private Long storeId;
+    private Integer currentQuantity;
+    private Integer availableQuantity;
+    private Integer minimumStockLevel;
+    private Integer maximumStockLevel;
+    private String batchNumber;
+    private LocalDateTime expiryDate;
+
+    public static StockLevelChangedEvent of(Inventory inventory) {
+        int current = inventory.getCurrentQuantity() != null ? inventory.getCurrentQuantity() : 0;
+        int reserved = inventory.getReservedQuantity() != null ? inventory.getReservedQuantity() : 0;
+        return StockLevelChangedEvent.builder()
+                .inventoryId(inventory.getId())
+                .productId(inventory.getProduct().getId())
+                .productCode(inventory.getProduct().getProductCode())
+                .productName(inventory.getProduct().getName())
+                .storeId(inventory.getStore() != null ? inventory.getStore().getId() : null)
+                .currentQuantity(inventory.getCurrentQuantity())
+                // availableQuantity is only recalculated on flush, so derive it here
+                .availableQuantity(current - reserved)
+                .minimumStockLevel(inventory.getProduct().getMinimumStockLevel())
+                .maximumStockLevel(inventory.getProduct().getMaximumStockLevel())
+                .batchNumber(inventory.getBatchNumber())
+                .expiryDate(inventory.getExpiryDate())
+                .build();
+    }
+}
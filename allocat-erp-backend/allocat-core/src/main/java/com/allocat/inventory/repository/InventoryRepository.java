@@ -1,26 +1,45 @@
 package com.allocat.inventory.repository;
 
+import com.allocat.inventory.dto.InventoryListItem;
 import com.allocat.inventory.entity.Inventory;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+public interface InventoryRepository extends JpaRepository<Inventory, Long>, JpaSpecificationExecutor<Inventory> {
 
     Optional<Inventory> findByProductId(Long productId);
 
-    Optional<Inventory> findByProductIdAndLocation(Long productId, String location);
+    // A product can hold several batch rows; these pick a deterministic one
+    Optional<Inventory> findFirstByProductIdOrderByIdAsc(Long productId);
 
-    List<Inventory> findByLocation(String location);
+    /**
+     * The row of one batch in a store. Batch number and expiry date together identify the batch
+     * and either may be absent; rows with no warehouse or location are the only ones written here.
+     */
+    @Query("SELECT i FROM Inventory i WHERE i.product.id = :productId AND i.store.id = :storeId " +
+           "AND (i.batchNumber = :batchNumber OR (i.batchNumber IS NULL AND :batchNumber IS NULL)) " +
+           "AND (i.expiryDate = :expiryDate OR (i.expiryDate IS NULL AND :expiryDate IS NULL))")
+    Optional<Inventory> findBatch(@Param("productId") Long productId,
+                                  @Param("storeId") Long storeId,
+                                  @Param("batchNumber") String batchNumber,
+                                  @Param("expiryDate") java.time.LocalDateTime expiryDate);
 
-    List<Inventory> findByWarehouse(String warehouse);
+    boolean existsByProductIdAndStoreId(Long productId, Long storeId);
+
+    Optional<Inventory> findByProductIdAndLocation(Long productId, String location);
 
     List<Inventory> findByCurrentQuantityGreaterThan(Integer quantity);
 
@@ -33,24 +52,12 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     @Query("SELECT i FROM Inventory i WHERE i.product.productCode = :productCode")
     Optional<Inventory> findByProductCode(@Param("productCode") String productCode);
 
-    @Query("SELECT i FROM Inventory i WHERE i.product.name LIKE %:productName%")
+    @Query("SELECT i FROM Inventory i WHERE LOWER(i.product.name) LIKE LOWER(CONCAT('%', :productName, '%'))")
     List<Inventory> findByProductNameContaining(@Param("productName") String productName);
 
-    @Query("SELECT i FROM Inventory i WHERE i.currentQuantity <= i.product.minimumStockLevel")
-    List<Inventory> findLowStockItems();
-
-    @Query("SELECT i FROM Inventory i WHERE i.currentQuantity >= i.product.maximumStockLevel")
-    List<Inventory> findOverstockItems();
-
-    @Query("SELECT i FROM Inventory i WHERE i.availableQuantity > 0")
-    List<Inventory> findAvailableItems();
-
     @Query("SELECT i FROM Inventory i WHERE i.availableQuantity > 0")
     Page<Inventory> findAvailableItems(Pageable pageable);
 
-    @Query("SELECT i FROM Inventory i WHERE i.availableQuantity = 0")
-    List<Inventory> findOutOfStockItems();
-
     @Query("SELECT i FROM Inventory i WHERE i.availableQuantity = 0")
     Page<Inventory> findOutOfStockItems(Pageable pageable);
 
@@ -60,15 +67,66 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     @Query("SELECT i FROM Inventory i WHERE i.currentQuantity >= i.product.maximumStockLevel")
     Page<Inventory> findOverstockItems(Pageable pageable);
 
+    // Read-only projections for the list endpoints: product fields come from the join,
+    // so a page is one query plus its count instead of a lazy load per row
+
+    String INVENTORY_LIST_ITEM = "SELECT new com.allocat.inventory.dto.InventoryListItem(i.id, p.id, p.productCode, " +
+            "p.name, i.store.id, i.warehouse, i.location, i.batchNumber, i.expiryDate, i.currentQuantity, " +
+            "i.reservedQuantity, i.availableQuantity, p.minimumStockLevel, i.unitCost, i.totalValue, i.lastUpdated) " +
+            "FROM Inventory i JOIN i.product p ";
+
+    @Query(value = INVENTORY_LIST_ITEM + "WHERE i.availableQuantity > 0",
+           countQuery = "SELECT COUNT(i) FROM Inventory i WHERE i.availableQuantity > 0")
+    Page<InventoryListItem> findAvailableListItems(Pageable pageable);
+
+    @Query(value = INVENTORY_LIST_ITEM + "WHERE i.availableQuantity = 0",
+           countQuery = "SELECT COUNT(i) FROM Inventory i WHERE i.availableQuantity = 0")
+    Page<InventoryListItem> findOutOfStockListItems(Pageable pageable);
+
+    @Query(value = INVENTORY_LIST_ITEM + "WHERE i.currentQuantity <= p.minimumStockLevel",
+           countQuery = "SELECT COUNT(i) FROM Inventory i WHERE i.currentQuantity <= i.product.minimumStockLevel")
+    Page<InventoryListItem> findLowStockListItems(Pageable pageable);
+
+    @Query(INVENTORY_LIST_ITEM + "WHERE p.id = :productId ORDER BY i.expiryDate ASC NULLS LAST, i.id")
+    List<InventoryListItem> findListItemsByProductId(@Param("productId") Long productId);
+
     @Query("SELECT i FROM Inventory i WHERE i.batchNumber = :batchNumber")
     List<Inventory> findByBatchNumber(@Param("batchNumber") String batchNumber);
 
     @Query("SELECT i FROM Inventory i WHERE i.supplierName = :supplierName")
     List<Inventory> findBySupplierName(@Param("supplierName") String supplierName);
 
-    @Query("SELECT i FROM Inventory i WHERE i.expiryDate <= :expiryDate")
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.product WHERE i.expiryDate IS NOT NULL " +
+           "AND i.expiryDate <= :expiryDate AND i.currentQuantity > 0 ORDER BY i.expiryDate, i.id")
     List<Inventory> findExpiringItems(@Param("expiryDate") java.time.LocalDateTime expiryDate);
 
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.product WHERE i.expiryDate IS NOT NULL " +
+           "AND i.expiryDate <= :expiryDate AND i.currentQuantity > 0 AND i.store.id = :storeId " +
+           "ORDER BY i.expiryDate, i.id")
+    List<Inventory> findExpiringItemsByStoreId(@Param("expiryDate") java.time.LocalDateTime expiryDate,
+                                               @Param("storeId") Long storeId);
+
+    /**
+     * Unexpired batches of a product in a store that still have stock, earliest expiry first,
+     * locked for update in that order
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.product.id = :productId AND i.store.id = :storeId " +
+           "AND i.availableQuantity > 0 AND (i.expiryDate IS NULL OR i.expiryDate >= :now) " +
+           "ORDER BY i.expiryDate ASC NULLS LAST, i.id ASC")
+    List<Inventory> findFefoCandidates(@Param("productId") Long productId,
+                                       @Param("storeId") Long storeId,
+                                       @Param("now") java.time.LocalDateTime now);
+
+    /**
+     * Every batch of a product in a store, earliest expiry first, locked for update in that order.
+     * Same order as findFefoCandidates, so the two never lock a product's rows against each other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Inventory i WHERE i.product.id = :productId AND i.store.id = :storeId " +
+           "ORDER BY i.expiryDate ASC NULLS LAST, i.id ASC")
+    List<Inventory> findBatchesForUpdate(@Param("productId") Long productId, @Param("storeId") Long storeId);
+
     @Query("SELECT SUM(i.currentQuantity) FROM Inventory i WHERE i.product.id = :productId")
     Integer getTotalQuantityByProductId(@Param("productId") Long productId);
 
@@ -78,10 +136,35 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     @Query("SELECT SUM(i.reservedQuantity) FROM Inventory i WHERE i.product.id = :productId")
     Integer getTotalReservedQuantityByProductId(@Param("productId") Long productId);
 
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.product WHERE i.product.id IN :productIds")
+    List<Inventory> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
     /**
      * Find inventory items by store with quantity less than threshold
      */
     @Query("SELECT i FROM Inventory i WHERE i.store.id = :storeId AND i.currentQuantity < :threshold")
     List<Inventory> findByStoreIdAndQuantityLessThan(@Param("storeId") Long storeId,
             @Param("threshold") Integer threshold);
+
+    // Specifications for the keyset listings; same conditions as the paged queries above
+
+    static Specification<Inventory> available() {
+        return (root, query, cb) -> cb.greaterThan(root.get("availableQuantity"), 0);
+    }
+
+    static Specification<Inventory> outOfStock() {
+        return (root, query, cb) -> cb.equal(root.get("availableQuantity"), 0);
+    }
+
+    static Specification<Inventory> lowStock() {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("currentQuantity"),
+                root.get("product").get("minimumStockLevel"));
+    }
+
+    /**
+     * Rows of the given stores, or every store when null.
+     */
+    static Specification<Inventory> inStores(Collection<Long> storeIds) {
+        return (root, query, cb) -> storeIds == null ? cb.conjunction() : root.get("store").get("id").in(storeIds);
+    }
 }
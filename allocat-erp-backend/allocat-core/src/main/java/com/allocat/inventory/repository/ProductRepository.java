@@ -1,18 +1,23 @@
 package com.allocat.inventory.repository;
 
+import com.allocat.inventory.dto.ProductSummary;
 import com.allocat.inventory.entity.Product;
+import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpecificationExecutor<Product> {
 
     Optional<Product> findByProductCode(String productCode);
 
@@ -28,17 +33,54 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Page<Product> findBySupplierName(String supplierName, Pageable pageable);
 
-    Page<Product> findByNameContainingIgnoreCase(String name, Pageable pageable);
+    // LOWER rather than the derived UPPER so the trigram index on LOWER(name) applies
+    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    Page<Product> findByNameContainingIgnoreCase(@Param("name") String name, Pageable pageable);
 
     List<Product> findByCategory(String category);
 
     List<Product> findBySupplierName(String supplierName);
 
-    List<Product> findByNameContainingIgnoreCase(String name);
+    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    List<Product> findByNameContainingIgnoreCase(@Param("name") String name);
 
-    @Query("SELECT p FROM Product p WHERE p.name LIKE %:searchTerm% OR p.productCode LIKE %:searchTerm% OR p.barcode LIKE %:searchTerm%")
+    @Query("SELECT p FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+           "OR LOWER(p.productCode) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+           "OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+           "OR LOWER(p.brand) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
     List<Product> searchProducts(@Param("searchTerm") String searchTerm);
 
+    // Read-only projections for the list endpoints: one query per page, no audit fields
+
+    String PRODUCT_SUMMARY = "SELECT new com.allocat.inventory.dto.ProductSummary(p.id, p.productCode, p.name, " +
+            "p.category, p.unitPrice, p.unitOfMeasure, p.barcode, p.sku, p.brand, p.minimumStockLevel, " +
+            "p.maximumStockLevel, p.isActive, p.supplierName) FROM Product p ";
+
+    @Query(value = PRODUCT_SUMMARY, countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductSummary> findSummaries(Pageable pageable);
+
+    @Query(value = PRODUCT_SUMMARY + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    Page<ProductSummary> findSummariesByNameContaining(@Param("name") String name, Pageable pageable);
+
+    @Query(value = PRODUCT_SUMMARY + "WHERE p.category = :category",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.category = :category")
+    Page<ProductSummary> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+
+    @Query(value = PRODUCT_SUMMARY + "WHERE p.supplierName = :supplierName",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.supplierName = :supplierName")
+    Page<ProductSummary> findSummariesBySupplierName(@Param("supplierName") String supplierName, Pageable pageable);
+
+    @Query(value = PRODUCT_SUMMARY + "WHERE p.isActive = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.isActive = true")
+    Page<ProductSummary> findActiveSummaries(Pageable pageable);
+
+    @Query(PRODUCT_SUMMARY + "WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+           "OR LOWER(p.productCode) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+           "OR LOWER(p.barcode) LIKE LOWER(CONCAT('%', :searchTerm, '%')) " +
+           "OR LOWER(p.brand) LIKE LOWER(CONCAT('%', :searchTerm, '%'))")
+    List<ProductSummary> searchSummaries(@Param("searchTerm") String searchTerm);
+
     @Query("SELECT p FROM Product p WHERE p.minimumStockLevel IS NOT NULL AND p.minimumStockLevel > 0")
     List<Product> findProductsWithMinimumStockLevel();
 
@@ -50,4 +92,26 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
 
     @Query("SELECT DISTINCT p.category FROM Product p WHERE p.category IS NOT NULL ORDER BY p.category")
     List<String> findDistinctCategories();
+
+    /**
+     * Filters of the product listing; null or blank filters are ignored.
+     */
+    static Specification<Product> matching(String search, String category, String supplier, Boolean active) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (search != null && !search.isBlank()) {
+                predicates.add(cb.like(cb.lower(root.get("name")), "%" + search.trim().toLowerCase() + "%"));
+            }
+            if (category != null && !category.isBlank()) {
+                predicates.add(cb.equal(root.get("category"), category));
+            }
+            if (supplier != null && !supplier.isBlank()) {
+                predicates.add(cb.equal(root.get("supplierName"), supplier));
+            }
+            if (active != null) {
+                predicates.add(cb.equal(root.get("isActive"), active));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
 }
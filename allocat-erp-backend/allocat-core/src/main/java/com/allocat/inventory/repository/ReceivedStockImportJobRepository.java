@@ -0,0 +1,37 @@
+package com.allocat.inventory.repository;
+
+import com.allocat.inventory.entity.ReceivedStockImportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ReceivedStockImportJobRepository extends JpaRepository<ReceivedStockImportJob, Long> {
+
+    Optional<ReceivedStockImportJob> findByUploadId(String uploadId);
+
+    /**
+     * Record a chunk checkpoint. Runs in the chunk's own transaction so the
+     * checkpoint and the rows it covers commit together.
+     */
+    @Modifying
+    @Query("UPDATE ReceivedStockImportJob j SET j.lastRowNumber = :lastRowNumber, " +
+           "j.processedRows = :processedRows, j.importedRows = :importedRows, j.failedRows = :failedRows, " +
+           "j.productsCreated = :productsCreated, j.productsUpdated = :productsUpdated, " +
+           "j.errors = :errors, j.lastCheckpointAt = :now " +
+           "WHERE j.uploadId = :uploadId")
+    int updateCheckpoint(@Param("uploadId") String uploadId,
+                         @Param("lastRowNumber") Integer lastRowNumber,
+                         @Param("processedRows") Integer processedRows,
+                         @Param("importedRows") Integer importedRows,
+                         @Param("failedRows") Integer failedRows,
+                         @Param("productsCreated") Integer productsCreated,
+                         @Param("productsUpdated") Integer productsUpdated,
+                         @Param("errors") String errors,
+                         @Param("now") LocalDateTime now);
+}
@@ -1,8 +1,10 @@
 package com.allocat.inventory.repository;
 
+import com.allocat.inventory.dto.ReceivedStockSummary;
 import com.allocat.inventory.entity.ReceivedStock;
 import com.allocat.inventory.entity.ReceivedStock.ReceivedStockStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -49,5 +51,31 @@ public interface ReceivedStockRepository extends JpaRepository<ReceivedStock, Lo
     List<ReceivedStock> findDiscrepancies();
 
     Optional<ReceivedStock> findByProductIdAndBatchNumber(Long productId, String batchNumber);
-}
 
+    @Modifying
+    @Query("DELETE FROM ReceivedStock rs WHERE rs.csvUploadId = :csvUploadId AND rs.rowNumber > :rowNumber")
+    int deleteByCsvUploadIdAfterRow(@Param("csvUploadId") String csvUploadId, @Param("rowNumber") Integer rowNumber);
+
+    // Read-only projections for the list endpoints; product code and name are already on the row
+
+    String RECEIVED_STOCK_SUMMARY = "SELECT new com.allocat.inventory.dto.ReceivedStockSummary(rs.id, p.id, " +
+            "rs.productCode, rs.productName, rs.expectedQuantity, rs.receivedQuantity, rs.verifiedQuantity, " +
+            "rs.unitPrice, rs.totalValue, rs.status, rs.batchNumber, rs.expiryDate, rs.supplierName, " +
+            "rs.supplierInvoiceNumber, rs.receivedDate, rs.verifiedDate, rs.receivedBy, rs.verifiedBy, rs.csvUploadId) " +
+            "FROM ReceivedStock rs LEFT JOIN rs.product p ";
+
+    @Query(RECEIVED_STOCK_SUMMARY + "ORDER BY rs.id")
+    List<ReceivedStockSummary> findAllSummaries();
+
+    @Query(RECEIVED_STOCK_SUMMARY + "WHERE rs.status = :status ORDER BY rs.id")
+    List<ReceivedStockSummary> findSummariesByStatus(@Param("status") ReceivedStockStatus status);
+
+    @Query(RECEIVED_STOCK_SUMMARY + "WHERE rs.status = 'PENDING' ORDER BY rs.receivedDate ASC")
+    List<ReceivedStockSummary> findPendingSummaries();
+
+    @Query(RECEIVED_STOCK_SUMMARY + "WHERE rs.status = 'PENDING' AND rs.expectedQuantity != rs.receivedQuantity")
+    List<ReceivedStockSummary> findDiscrepancySummaries();
+
+    @Query(RECEIVED_STOCK_SUMMARY + "WHERE rs.csvUploadId = :csvUploadId ORDER BY rs.id")
+    List<ReceivedStockSummary> findSummariesByCsvUploadId(@Param("csvUploadId") String csvUploadId);
+}
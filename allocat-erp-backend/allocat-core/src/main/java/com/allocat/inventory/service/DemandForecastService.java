@@ -0,0 +1,298 @@
+package com.allocat.inventory.service;
+
+import com.allocat.pos.event.SalesRecordedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps an exponentially smoothed daily demand (mean and variance) per product
+ * and store in the demand_forecasts table. Every checkout, return and
+ * cancellation locks the affected rows, folds the quantities in and writes
+ * them back in one transaction, so instances never overwrite each other's
+ * updates. Reads compute the forecast from the stored rows; nothing is kept
+ * in memory and nothing is recomputed from sales history except once, when
+ * the table is still empty.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DemandForecastService {
+
+    // Idle stretches longer than this have decayed the forecast to nothing anyway
+    private static final int MAX_FOLDED_DAYS = 365;
+
+    // Serializes the first-start seeding between instances
+    private static final long SEED_LOCK = 0x616c6c6f63617402L;
+
+    private static final String FORECAST_COLUMNS =
+            "product_id, store_id, bucket_date, bucket_quantity, mean_daily, variance_daily, observed_days";
+
+    private static final String SELECT_FORECAST =
+            "SELECT " + FORECAST_COLUMNS + " FROM demand_forecasts WHERE product_id = :productId AND store_id = :storeId";
+
+    private static final String SELECT_ALL_FORECASTS =
+            "SELECT " + FORECAST_COLUMNS + " FROM demand_forecasts";
+
+    private static final String SELECT_STORE_FORECASTS =
+            "SELECT " + FORECAST_COLUMNS + " FROM demand_forecasts WHERE store_id IN (:storeIds)";
+
+    // Product order is the lock order, so concurrent checkouts cannot deadlock
+    private static final String LOCK_FORECASTS =
+            "SELECT " + FORECAST_COLUMNS + " FROM demand_forecasts " +
+            "WHERE store_id = :storeId AND product_id IN (:productIds) ORDER BY product_id FOR UPDATE";
+
+    private static final String INSERT_EMPTY_FORECAST =
+            "INSERT INTO demand_forecasts (product_id, store_id, bucket_date, updated_at) " +
+            "VALUES (:productId, :storeId, :bucketDate, :now) ON CONFLICT (product_id, store_id) DO NOTHING";
+
+    private static final String UPDATE_FORECAST =
+            "UPDATE demand_forecasts SET bucket_date = :bucketDate, bucket_quantity = :bucketQuantity, " +
+            "mean_daily = :mean, variance_daily = :variance, observed_days = :observedDays, " +
+            "version = version + 1, updated_at = :now " +
+            "WHERE product_id = :productId AND store_id = :storeId";
+
+    private static final String SEED_FORECAST =
+            "INSERT INTO demand_forecasts (product_id, store_id, bucket_date, bucket_quantity, mean_daily, " +
+            "variance_daily, observed_days, updated_at) " +
+            "VALUES (:productId, :storeId, :bucketDate, :bucketQuantity, :mean, :variance, :observedDays, :now) " +
+            "ON CONFLICT (product_id, store_id) DO NOTHING";
+
+    private static final String SELECT_DAILY_SALES =
+            "SELECT i.product_id, o.store_id, CAST(o.order_date AS DATE) AS sale_date, SUM(i.quantity) AS quantity " +
+            "FROM sales_order_items i JOIN sales_orders o ON o.id = i.sales_order_id " +
+            "WHERE o.order_date >= :since AND o.status IN ('COMPLETED', 'RETURNED') " +
+            "GROUP BY i.product_id, o.store_id, CAST(o.order_date AS DATE) " +
+            "ORDER BY sale_date";
+
+    private static final RowMapper<Map.Entry<SkuKey, DemandState>> FORECAST_ROW = (rs, rowNum) -> Map.entry(
+            new SkuKey(rs.getLong("product_id"), rs.getLong("store_id")),
+            new DemandState(
+                    rs.getDate("bucket_date").toLocalDate(),
+                    rs.getInt("bucket_quantity"),
+                    rs.getDouble("mean_daily"),
+                    rs.getDouble("variance_daily"),
+                    rs.getInt("observed_days")));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    @Value("${app.inventory.forecast.smoothing-factor:0.2}")
+    private double smoothingFactor;
+
+    @Value("${app.inventory.forecast.seed-history-days:90}")
+    private int seedHistoryDays;
+
+    /**
+     * Smoothed daily demand as of a given day.
+     *
+     * @param meanDaily   expected units sold per day
+     * @param stdDevDaily standard deviation of daily units sold
+     */
+    public record Forecast(double meanDaily, double stdDevDaily) {
+        public static final Forecast NONE = new Forecast(0, 0);
+    }
+
+    /**
+     * First start only: fold the recent daily sales into fresh forecasts.
+     * Instances starting together wait for each other, so one of them seeds.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void seedForecasts() {
+        jdbcTemplate.query("SELECT pg_advisory_xact_lock(:key)", new MapSqlParameterSource("key", SEED_LOCK), rs -> { });
+        Boolean seeded = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM demand_forecasts)",
+                new MapSqlParameterSource(), Boolean.class);
+        if (Boolean.TRUE.equals(seeded)) {
+            return;
+        }
+
+        Map<SkuKey, DemandState> forecasts = new HashMap<>();
+        MapSqlParameterSource params = new MapSqlParameterSource("since",
+                Timestamp.valueOf(LocalDate.now().minusDays(seedHistoryDays).atStartOfDay()));
+        jdbcTemplate.query(SELECT_DAILY_SALES, params, rs -> {
+            LocalDate day = rs.getDate("sale_date").toLocalDate();
+            int quantity = rs.getInt("quantity");
+            forecasts.compute(new SkuKey(rs.getLong("product_id"), rs.getLong("store_id")),
+                    (k, state) -> (state != null ? state : DemandState.empty(day))
+                            .advanceTo(day, smoothingFactor)
+                            .add(quantity));
+        });
+        if (!forecasts.isEmpty()) {
+            jdbcTemplate.batchUpdate(SEED_FORECAST, parameters(forecasts));
+            log.info("Seeded {} demand forecasts from the last {} days of sales", forecasts.size(), seedHistoryDays);
+        }
+    }
+
+    /**
+     * Runs after the order commits so rolled back checkouts never count as
+     * demand, in a transaction of its own that holds the forecast rows.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onSalesRecorded(SalesRecordedEvent event) {
+        if (event.getStoreId() == null || event.getQuantities() == null || event.getQuantities().isEmpty()) {
+            return;
+        }
+        LocalDate day = event.getSaleDate() != null ? event.getSaleDate() : LocalDate.now();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> productIds = new ArrayList<>(new TreeMap<>(event.getQuantities()).keySet());
+
+        SqlParameterSource[] missing = productIds.stream()
+                .map(productId -> new MapSqlParameterSource()
+                        .addValue("productId", productId)
+                        .addValue("storeId", event.getStoreId())
+                        .addValue("bucketDate", Date.valueOf(day))
+                        .addValue("now", now))
+                .toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(INSERT_EMPTY_FORECAST, missing);
+
+        Map<SkuKey, DemandState> changed = new LinkedHashMap<>();
+        MapSqlParameterSource locked = new MapSqlParameterSource()
+                .addValue("storeId", event.getStoreId())
+                .addValue("productIds", productIds);
+        for (Map.Entry<SkuKey, DemandState> row : jdbcTemplate.query(LOCK_FORECASTS, locked, FORECAST_ROW)) {
+            Integer quantity = event.getQuantities().get(row.getKey().productId());
+            changed.put(row.getKey(), row.getValue().advanceTo(day, smoothingFactor).add(quantity));
+        }
+        jdbcTemplate.batchUpdate(UPDATE_FORECAST, parameters(changed));
+    }
+
+    public Forecast getForecast(Long productId, Long storeId, LocalDate asOf) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("productId", productId)
+                .addValue("storeId", storeId);
+        List<Map.Entry<SkuKey, DemandState>> rows = jdbcTemplate.query(SELECT_FORECAST, params, FORECAST_ROW);
+        return rows.isEmpty() ? Forecast.NONE : rows.get(0).getValue().forecastAt(asOf, smoothingFactor);
+    }
+
+    /**
+     * Forecasts for every product with sales in the given stores, keyed by
+     * [productId, storeId]. Products without a row have no forecast.
+     *
+     * @param storeIds stores to include, or null for all
+     */
+    public Map<List<Long>, Forecast> getForecasts(Collection<Long> storeIds, LocalDate asOf) {
+        if (storeIds != null && storeIds.isEmpty()) {
+            return Map.of();
+        }
+        List<Map.Entry<SkuKey, DemandState>> rows = storeIds == null
+                ? jdbcTemplate.query(SELECT_ALL_FORECASTS, FORECAST_ROW)
+                : jdbcTemplate.query(SELECT_STORE_FORECASTS, new MapSqlParameterSource("storeIds", storeIds), FORECAST_ROW);
+        Map<List<Long>, Forecast> forecasts = new HashMap<>();
+        for (Map.Entry<SkuKey, DemandState> row : rows) {
+            forecasts.put(List.of(row.getKey().productId(), row.getKey().storeId()),
+                    row.getValue().forecastAt(asOf, smoothingFactor));
+        }
+        return forecasts;
+    }
+
+    private static SqlParameterSource[] parameters(Map<SkuKey, DemandState> forecasts) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return forecasts.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("productId", entry.getKey().productId())
+                        .addValue("storeId", entry.getKey().storeId())
+                        .addValue("bucketDate", Date.valueOf(entry.getValue().bucketDate))
+                        .addValue("bucketQuantity", entry.getValue().bucketQuantity)
+                        .addValue("mean", entry.getValue().mean)
+                        .addValue("variance", entry.getValue().variance)
+                        .addValue("observedDays", entry.getValue().observedDays)
+                        .addValue("now", now))
+                .toArray(SqlParameterSource[]::new);
+    }
+
+    private record SkuKey(long productId, long storeId) {
+    }
+
+    /**
+     * Immutable forecast state. Units sold are accumulated into the open day
+     * (bucketDate) and folded into the smoothed mean/variance once the day is over.
+     */
+    private static final class DemandState {
+        private final LocalDate bucketDate;
+        private final int bucketQuantity;
+        private final double mean;
+        private final double variance;
+        private final int observedDays;
+
+        private DemandState(LocalDate bucketDate, int bucketQuantity, double mean, double variance,
+                            int observedDays) {
+            this.bucketDate = bucketDate;
+            this.bucketQuantity = bucketQuantity;
+            this.mean = mean;
+            this.variance = variance;
+            this.observedDays = observedDays;
+        }
+
+        static DemandState empty(LocalDate day) {
+            return new DemandState(day, 0, 0, 0, 0);
+        }
+
+        DemandState add(int quantity) {
+            return new DemandState(bucketDate, bucketQuantity + quantity, mean, variance, observedDays);
+        }
+
+        /**
+         * Close the open day and every idle day up to (not including) the given day.
+         */
+        DemandState advanceTo(LocalDate day, double alpha) {
+            if (!day.isAfter(bucketDate)) {
+                return this;
+            }
+            // Returns and cancellations can push a day below zero; demand never is
+            double closed = Math.max(0, bucketQuantity);
+            double m;
+            double v;
+            if (observedDays == 0) {
+                m = closed;
+                v = 0;
+            } else {
+                double delta = closed - mean;
+                m = mean + alpha * delta;
+                v = (1 - alpha) * (variance + alpha * delta * delta);
+            }
+            int n = observedDays + 1;
+
+            long idleDays = Math.min(ChronoUnit.DAYS.between(bucketDate, day) - 1, MAX_FOLDED_DAYS);
+            for (long i = 0; i < idleDays; i++) {
+                double delta = -m;
+                m += alpha * delta;
+                v = (1 - alpha) * (v + alpha * delta * delta);
+                n++;
+            }
+            return new DemandState(day, 0, m, v, n);
+        }
+
+        Forecast forecastAt(LocalDate day, double alpha) {
+            DemandState state = advanceTo(day, alpha);
+            if (state.observedDays == 0) {
+                // Nothing closed yet: today's sales are the only signal
+                return new Forecast(Math.max(0, state.bucketQuantity), 0);
+            }
+            return new Forecast(state.mean, Math.sqrt(state.variance));
+        }
+    }
+}
@@ -2,29 +2,149 @@ package com.allocat.inventory.service;
 
 import com.allocat.auth.entity.Store;
 import com.allocat.auth.repository.StoreRepository;
+import com.allocat.inventory.dto.BatchAllocation;
+import com.allocat.inventory.dto.BulkVerifyRequest;
+import com.allocat.inventory.dto.BulkVerifyResult;
+import com.allocat.inventory.dto.InventoryListItem;
+import com.allocat.inventory.dto.IssuedCost;
+import com.allocat.inventory.dto.NearExpiryItem;
+import com.allocat.inventory.dto.ReceivedStockSummary;
 import com.allocat.inventory.entity.Inventory;
 import com.allocat.inventory.entity.Product;
 import com.allocat.inventory.entity.ReceivedStock;
+import com.allocat.inventory.event.StockLevelChangedEvent;
 import com.allocat.inventory.repository.InventoryRepository;
 import com.allocat.inventory.repository.ReceivedStockRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Array;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class InventoryService {
 
+    private static final String SELECT_PENDING_BY_UPLOAD =
+            "SELECT id, expected_quantity FROM received_stock WHERE csv_upload_id = :csvUploadId AND status = 'PENDING'";
+
+    private static final String BULK_VERIFY_RECEIVED_STOCK = """
+            UPDATE received_stock rs SET
+                verified_quantity = v.qty,
+                verified_by = :verifiedBy,
+                verified_date = :now,
+                status = CASE WHEN v.qty = rs.expected_quantity THEN 'VERIFIED' ELSE 'DISCREPANCY' END,
+                shortage_quantity = CASE WHEN v.qty < rs.expected_quantity
+                                         THEN rs.expected_quantity - v.qty ELSE rs.shortage_quantity END,
+                excess_quantity = CASE WHEN v.qty > rs.expected_quantity
+                                       THEN v.qty - rs.expected_quantity ELSE rs.excess_quantity END
+            FROM unnest(:ids, :quantities) AS v(id, qty)
+            WHERE rs.id = v.id AND rs.status = 'PENDING'
+            RETURNING rs.id, rs.product_id, rs.status
+            """;
+
+    // Adds verified quantities to the matching batch row in the receiving store, like addToInventory
+    private static final String BULK_ADD_TO_EXISTING_INVENTORY = """
+            WITH verified AS (
+                SELECT rs.product_id, rs.batch_number, rs.expiry_date,
+                       SUM(rs.verified_quantity) AS quantity,
+                       SUM(COALESCE(rs.unit_price, 0) * rs.verified_quantity) AS value
+                FROM received_stock rs
+                WHERE rs.id = ANY(:ids)
+                GROUP BY rs.product_id, rs.batch_number, rs.expiry_date
+            ), target AS (
+                SELECT DISTINCT ON (i.product_id, i.batch_number, i.expiry_date)
+                       i.id, i.product_id, i.batch_number, i.expiry_date
+                FROM inventory i
+                JOIN verified v ON v.product_id = i.product_id
+                               AND i.batch_number IS NOT DISTINCT FROM v.batch_number
+                               AND i.expiry_date IS NOT DISTINCT FROM v.expiry_date
+                WHERE i.store_id = :storeId
+                ORDER BY i.product_id, i.batch_number, i.expiry_date, i.id
+            )
+            UPDATE inventory i SET
+                current_quantity = i.current_quantity + v.quantity,
+                available_quantity = i.current_quantity + v.quantity - COALESCE(i.reserved_quantity, 0),
+                total_value = COALESCE(i.total_value, 0) + v.value,
+                unit_cost = CASE WHEN i.current_quantity + v.quantity > 0
+                                 THEN (COALESCE(i.total_value, 0) + v.value) / (i.current_quantity + v.quantity)
+                                 ELSE i.unit_cost END,
+                last_updated = :now,
+                last_updated_by = :verifiedBy
+            FROM target t
+            JOIN verified v ON v.product_id = t.product_id
+                           AND v.batch_number IS NOT DISTINCT FROM t.batch_number
+                           AND v.expiry_date IS NOT DISTINCT FROM t.expiry_date
+            WHERE i.id = t.id
+            """;
+
+    private static final String BULK_CREATE_INVENTORY = """
+            INSERT INTO inventory (product_id, store_id, current_quantity, reserved_quantity, available_quantity,
+                                   unit_cost, total_value, last_updated, last_updated_by, location, warehouse,
+                                   batch_number, expiry_date, supplier_name, received_stock_id, notes,
+                                   created_at, updated_at)
+            SELECT rs.product_id, :storeId, SUM(rs.verified_quantity), 0, SUM(rs.verified_quantity),
+                   (ARRAY_AGG(rs.unit_price ORDER BY rs.id))[1],
+                   SUM(COALESCE(rs.unit_price, 0) * rs.verified_quantity),
+                   :now, :verifiedBy, 'Main Warehouse', 'Main Warehouse',
+                   rs.batch_number,
+                   rs.expiry_date,
+                   (ARRAY_AGG(rs.supplier_name ORDER BY rs.id))[1],
+                   MIN(rs.id),
+                   (ARRAY_AGG(rs.notes ORDER BY rs.id))[1],
+                   CURRENT_TIMESTAMP, CURRENT_TIMESTAMP
+            FROM received_stock rs
+            WHERE rs.id = ANY(:ids)
+              AND NOT EXISTS (SELECT 1 FROM inventory i WHERE i.product_id = rs.product_id
+                                                          AND i.store_id = :storeId
+                                                          AND i.batch_number IS NOT DISTINCT FROM rs.batch_number
+                                                          AND i.expiry_date IS NOT DISTINCT FROM rs.expiry_date)
+            GROUP BY rs.product_id, rs.batch_number, rs.expiry_date
+            """;
+
+    // Verified quantities and cost per inventory position, for the valuation ledger
+    private static final String SELECT_VERIFIED_RECEIPTS = """
+            SELECT rs.product_id, t.store_id, t.warehouse,
+                   SUM(rs.verified_quantity) AS quantity,
+                   SUM(COALESCE(rs.unit_price, 0) * rs.verified_quantity) AS value
+            FROM received_stock rs
+            CROSS JOIN LATERAL (
+                SELECT i.store_id, i.warehouse
+                FROM inventory i
+                WHERE i.product_id = rs.product_id AND i.store_id = :storeId
+                  AND i.batch_number IS NOT DISTINCT FROM rs.batch_number
+                  AND i.expiry_date IS NOT DISTINCT FROM rs.expiry_date
+                ORDER BY i.id
+                LIMIT 1
+            ) t
+            WHERE rs.id = ANY(:ids) AND rs.verified_quantity > 0
+            GROUP BY rs.product_id, t.store_id, t.warehouse
+            """;
+
     private final InventoryRepository inventoryRepository;
     private final ReceivedStockRepository receivedStockRepository;
     private final StoreRepository storeRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryValuationService valuationService;
 
     @Transactional
     public Inventory verifyAndAddToInventory(long receivedStockId, Integer verifiedQuantity, String verifiedBy) {
@@ -57,12 +177,117 @@ public class InventoryService {
         return addToInventory(receivedStock, verifiedQuantity);
     }
 
+    /**
+     * Verify many received stock rows at once. Status and discrepancy updates
+     * and the inventory upserts each run as a single set-based statement, and
+     * the valuation postings as one batch per statement.
+     */
+    @Transactional
+    public BulkVerifyResult bulkVerifyAndAddToInventory(BulkVerifyRequest request) {
+        boolean uploadMode = request.getCsvUploadId() != null && !request.getCsvUploadId().isBlank();
+        List<BulkVerifyRequest.Item> items = request.getItems() != null ? request.getItems() : List.of();
+        if (!uploadMode && items.isEmpty()) {
+            throw new RuntimeException("Either csvUploadId or items must be provided");
+        }
+
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        if (uploadMode) {
+            jdbcTemplate.query(SELECT_PENDING_BY_UPLOAD,
+                    new MapSqlParameterSource("csvUploadId", request.getCsvUploadId()),
+                    rs -> {
+                        quantities.put(rs.getLong("id"), rs.getInt("expected_quantity"));
+                    });
+        }
+        for (BulkVerifyRequest.Item item : items) {
+            if (item.getReceivedStockId() == null) {
+                continue;
+            }
+            if (item.getVerifiedQuantity() == null || item.getVerifiedQuantity() < 0) {
+                throw new RuntimeException("Invalid verified quantity for received stock " + item.getReceivedStockId());
+            }
+            // In upload mode only rows of that upload are considered
+            if (!uploadMode || quantities.containsKey(item.getReceivedStockId())) {
+                quantities.put(item.getReceivedStockId(), item.getVerifiedQuantity());
+            }
+        }
+
+        BulkVerifyResult result = BulkVerifyResult.builder()
+                .csvUploadId(request.getCsvUploadId())
+                .requested(quantities.size())
+                .build();
+        if (quantities.isEmpty()) {
+            return result;
+        }
+
+        Long[] ids = quantities.keySet().toArray(new Long[0]);
+        Integer[] verifiedQuantities = quantities.values().toArray(new Integer[0]);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        Set<Long> verifiedIds = new HashSet<>();
+        Set<Long> productIds = new HashSet<>();
+        jdbcTemplate.query(BULK_VERIFY_RECEIVED_STOCK, new MapSqlParameterSource()
+                        .addValue("ids", createArray("bigint", ids))
+                        .addValue("quantities", createArray("integer", verifiedQuantities))
+                        .addValue("verifiedBy", request.getVerifiedBy())
+                        .addValue("now", now),
+                rs -> {
+                    verifiedIds.add(rs.getLong("id"));
+                    productIds.add(rs.getLong("product_id"));
+                    if (ReceivedStock.ReceivedStockStatus.VERIFIED.name().equals(rs.getString("status"))) {
+                        result.setVerified(result.getVerified() + 1);
+                    } else {
+                        result.setDiscrepancies(result.getDiscrepancies() + 1);
+                    }
+                });
+
+        List<Long> skippedIds = new ArrayList<>();
+        for (Long id : ids) {
+            if (!verifiedIds.contains(id)) {
+                skippedIds.add(id);
+            }
+        }
+        result.setSkipped(skippedIds.size());
+        result.setSkippedIds(skippedIds);
+
+        if (!verifiedIds.isEmpty()) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("ids", createArray("bigint", verifiedIds.toArray(new Long[0])))
+                    .addValue("verifiedBy", request.getVerifiedBy())
+                    .addValue("now", now)
+                    .addValue("storeId", getDefaultStore().getId());
+            result.setInventoryRowsUpdated(jdbcTemplate.update(BULK_ADD_TO_EXISTING_INVENTORY, params));
+            result.setInventoryRowsCreated(jdbcTemplate.update(BULK_CREATE_INVENTORY, params));
+            List<InventoryValuationService.Receipt> receipts = jdbcTemplate.query(SELECT_VERIFIED_RECEIPTS, params,
+                    (rs, rowNum) -> {
+                        int quantity = rs.getInt("quantity");
+                        return new InventoryValuationService.Receipt(rs.getLong("product_id"),
+                                rs.getLong("store_id"), rs.getString("warehouse"), quantity,
+                                rs.getBigDecimal("value").divide(BigDecimal.valueOf(quantity), 4, RoundingMode.HALF_UP));
+                    });
+            valuationService.recordReceipts(receipts, "Bulk verification by " + request.getVerifiedBy());
+            inventoryRepository.findByProductIdIn(productIds).forEach(this::publishStockLevel);
+        }
+
+        log.info("Bulk verified {} received stock rows ({} discrepancies, {} skipped), inventory {} updated / {} created",
+                verifiedIds.size(), result.getDiscrepancies(), result.getSkipped(),
+                result.getInventoryRowsUpdated(), result.getInventoryRowsCreated());
+        return result;
+    }
+
+    private Array createArray(String type, Object[] values) {
+        return jdbcTemplate.getJdbcTemplate().execute(
+                (ConnectionCallback<Array>) connection -> connection.createArrayOf(type, values));
+    }
+
     @Transactional
     public Inventory addToInventory(ReceivedStock receivedStock, Integer quantity) {
         Product product = receivedStock.getProduct();
+        Store defaultStore = getDefaultStore();
 
-        // Find existing inventory record for this product
-        Optional<Inventory> existingInventory = inventoryRepository.findByProductId(product.getId());
+        // Find the existing inventory record for this batch in the receiving store; a different
+        // expiry date is a different batch even under the same batch number
+        Optional<Inventory> existingInventory = inventoryRepository.findBatch(product.getId(),
+                defaultStore.getId(), receivedStock.getBatchNumber(), receivedStock.getExpiryDate());
 
         Inventory inventory;
         if (existingInventory.isPresent()) {
@@ -71,11 +296,15 @@ public class InventoryService {
             inventory.setCurrentQuantity(inventory.getCurrentQuantity() + quantity);
             inventory.setTotalValue(inventory.getTotalValue().add(
                     receivedStock.getUnitPrice().multiply(BigDecimal.valueOf(quantity))));
+            // Keep unit cost as the moving average so later unitCost x quantity updates keep the same basis
+            if (inventory.getCurrentQuantity() > 0) {
+                inventory.setUnitCost(inventory.getTotalValue()
+                        .divide(BigDecimal.valueOf(inventory.getCurrentQuantity()), 2, RoundingMode.HALF_UP));
+            }
             inventory.setLastUpdated(LocalDateTime.now());
             inventory.setLastUpdatedBy(receivedStock.getVerifiedBy());
         } else {
             // Create new inventory record
-            Store defaultStore = getDefaultStore();
             inventory = Inventory.builder()
                     .product(product)
                     .store(defaultStore)
@@ -89,6 +318,7 @@ public class InventoryService {
                     .location("Main Warehouse") // Default location
                     .warehouse("Main Warehouse")
                     .batchNumber(receivedStock.getBatchNumber())
+                    .expiryDate(receivedStock.getExpiryDate())
                     .supplierName(receivedStock.getSupplierName())
                     .receivedStockId(receivedStock.getId())
                     .notes(receivedStock.getNotes())
@@ -97,127 +327,302 @@ public class InventoryService {
 
         @SuppressWarnings("null") // Spring Data JPA save() never returns null
         Inventory savedInventory = inventoryRepository.save(inventory);
+        valuationService.recordMovement(savedInventory, quantity, receivedStock.getUnitPrice(),
+                InventoryValuationService.MovementType.RECEIPT, "Received stock " + receivedStock.getId());
+        publishStockLevel(savedInventory);
         return savedInventory;
     }
 
+    /**
+     * Change a product's on-hand quantity across its batches in a store. Issues
+     * take from the unexpired batches earliest expiry first; returns go back to
+     * the latest-expiring batch so they are not sold ahead of older stock. The
+     * product's batch rows in the store are locked for the rest of the transaction.
+     */
     @Transactional
-    public Inventory updateInventoryQuantity(long productId, Integer quantityChange, String updatedBy, String reason) {
-        Optional<Inventory> inventoryOpt = inventoryRepository.findByProductId(productId);
-
-        if (inventoryOpt.isEmpty()) {
-            throw new RuntimeException("Inventory record not found for product ID: " + productId);
+    public List<BatchAllocation> updateInventoryQuantity(long productId, long storeId, Integer quantityChange,
+                                                         String updatedBy, String reason) {
+        List<Inventory> batches = lockBatches(productId, storeId);
+        LocalDateTime now = LocalDateTime.now();
+        List<BatchAllocation> changes = new ArrayList<>();
+
+        if (quantityChange >= 0) {
+            Inventory batch = batches.get(batches.size() - 1);
+            adjustQuantity(batch, quantityChange, now, updatedBy, reason);
+            changes.add(allocationOf(batch, quantityChange));
+            return changes;
         }
 
-        Inventory inventory = inventoryOpt.get();
-        int newQuantity = inventory.getCurrentQuantity() + quantityChange;
-
-        if (newQuantity < 0) {
-            throw new RuntimeException("Insufficient inventory. Current: " + inventory.getCurrentQuantity() +
+        List<Inventory> unexpired = batches.stream().filter(batch -> !isExpired(batch, now)).toList();
+        int current = unexpired.stream().mapToInt(Inventory::getCurrentQuantity).sum();
+        if (current + quantityChange < 0) {
+            throw new RuntimeException("Insufficient inventory. Current: " + current +
                     ", Requested change: " + quantityChange);
         }
+        int remaining = -quantityChange;
+        for (Inventory batch : unexpired) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = Math.min(remaining, batch.getCurrentQuantity());
+            if (taken > 0) {
+                adjustQuantity(batch, -taken, now, updatedBy, reason);
+                changes.add(allocationOf(batch, taken));
+                remaining -= taken;
+            }
+        }
+        return changes;
+    }
 
-        inventory.setCurrentQuantity(newQuantity);
-        inventory.setLastUpdated(LocalDateTime.now());
-        inventory.setLastUpdatedBy(updatedBy);
+    /**
+     * Reserve units of a product from its unexpired batches in a store, earliest expiry first.
+     */
+    @Transactional
+    public List<BatchAllocation> reserveInventory(long productId, long storeId, Integer quantity, String reservedBy) {
+        List<Inventory> batches = lockBatches(productId, storeId);
+        LocalDateTime now = LocalDateTime.now();
 
-        // Update total value based on unit cost
-        if (inventory.getUnitCost() != null) {
-            inventory.setTotalValue(inventory.getUnitCost().multiply(BigDecimal.valueOf(newQuantity)));
+        List<Inventory> unexpired = batches.stream().filter(batch -> !isExpired(batch, now)).toList();
+        int available = unexpired.stream().mapToInt(InventoryService::availableOf).sum();
+        if (available < quantity) {
+            throw new RuntimeException("Insufficient available inventory. Available: " +
+                    available + ", Requested: " + quantity);
         }
 
-        return inventoryRepository.save(inventory);
+        List<BatchAllocation> reservations = new ArrayList<>();
+        int remaining = quantity;
+        for (Inventory batch : unexpired) {
+            if (remaining == 0) {
+                break;
+            }
+            int reserved = Math.min(remaining, availableOf(batch));
+            if (reserved > 0) {
+                adjustReservation(batch, reserved, now, reservedBy);
+                reservations.add(allocationOf(batch, reserved));
+                remaining -= reserved;
+            }
+        }
+        return reservations;
     }
 
+    /**
+     * Release reserved units of a product in a store, undoing reservations in
+     * reverse order: latest expiry first, so the earliest-expiring stock stays
+     * promised.
+     */
     @Transactional
-    public Inventory reserveInventory(long productId, Integer quantity, String reservedBy) {
-        Optional<Inventory> inventoryOpt = inventoryRepository.findByProductId(productId);
+    public List<BatchAllocation> releaseReservation(long productId, long storeId, Integer quantity,
+                                                    String releasedBy) {
+        List<Inventory> batches = lockBatches(productId, storeId);
+        LocalDateTime now = LocalDateTime.now();
 
-        if (inventoryOpt.isEmpty()) {
-            throw new RuntimeException("Inventory record not found for product ID: " + productId);
+        int reserved = batches.stream().mapToInt(InventoryService::reservedOf).sum();
+        if (reserved < quantity) {
+            throw new RuntimeException("Insufficient reserved inventory. Reserved: " +
+                    reserved + ", Requested release: " + quantity);
         }
 
-        Inventory inventory = inventoryOpt.get();
-
-        if (inventory.getAvailableQuantity() < quantity) {
-            throw new RuntimeException("Insufficient available inventory. Available: " +
-                    inventory.getAvailableQuantity() + ", Requested: " + quantity);
+        List<BatchAllocation> releases = new ArrayList<>();
+        int remaining = quantity;
+        for (int i = batches.size() - 1; i >= 0 && remaining > 0; i--) {
+            Inventory batch = batches.get(i);
+            int released = Math.min(remaining, reservedOf(batch));
+            if (released > 0) {
+                adjustReservation(batch, -released, now, releasedBy);
+                releases.add(allocationOf(batch, released));
+                remaining -= released;
+            }
         }
+        return releases;
+    }
 
-        inventory.setReservedQuantity(inventory.getReservedQuantity() + quantity);
-        inventory.setLastUpdated(LocalDateTime.now());
-        inventory.setLastUpdatedBy(reservedBy);
-
-        return inventoryRepository.save(inventory);
+    /**
+     * Every batch row of a product in a store, earliest expiry first, locked so
+     * concurrent changes to the product there wait for this transaction.
+     */
+    private List<Inventory> lockBatches(long productId, long storeId) {
+        List<Inventory> batches = inventoryRepository.findBatchesForUpdate(productId, storeId);
+        if (batches.isEmpty()) {
+            throw new RuntimeException("Inventory record not found for product ID: " + productId +
+                    " in store " + storeId);
+        }
+        return batches;
     }
 
-    @Transactional
-    public Inventory releaseReservation(long productId, Integer quantity, String releasedBy) {
-        Optional<Inventory> inventoryOpt = inventoryRepository.findByProductId(productId);
+    private void adjustQuantity(Inventory batch, int quantityChange, LocalDateTime now, String updatedBy,
+                                String reason) {
+        batch.setCurrentQuantity(batch.getCurrentQuantity() + quantityChange);
+        batch.setLastUpdated(now);
+        batch.setLastUpdatedBy(updatedBy);
 
-        if (inventoryOpt.isEmpty()) {
-            throw new RuntimeException("Inventory record not found for product ID: " + productId);
+        // Update total value based on unit cost
+        if (batch.getUnitCost() != null) {
+            batch.setTotalValue(batch.getUnitCost().multiply(BigDecimal.valueOf(batch.getCurrentQuantity())));
         }
 
-        Inventory inventory = inventoryOpt.get();
+        Inventory saved = inventoryRepository.save(batch);
+        valuationService.recordMovement(saved, quantityChange, null,
+                quantityChange < 0 ? InventoryValuationService.MovementType.ISSUE
+                        : InventoryValuationService.MovementType.RETURN,
+                reason);
+        publishStockLevel(saved);
+    }
 
-        if (inventory.getReservedQuantity() < quantity) {
-            throw new RuntimeException("Insufficient reserved inventory. Reserved: " +
-                    inventory.getReservedQuantity() + ", Requested release: " + quantity);
-        }
+    private void adjustReservation(Inventory batch, int reservedChange, LocalDateTime now, String updatedBy) {
+        batch.setReservedQuantity(reservedOf(batch) + reservedChange);
+        batch.setLastUpdated(now);
+        batch.setLastUpdatedBy(updatedBy);
+        publishStockLevel(inventoryRepository.save(batch));
+    }
 
-        inventory.setReservedQuantity(inventory.getReservedQuantity() - quantity);
-        inventory.setLastUpdated(LocalDateTime.now());
-        inventory.setLastUpdatedBy(releasedBy);
+    private static boolean isExpired(Inventory batch, LocalDateTime now) {
+        return batch.getExpiryDate() != null && batch.getExpiryDate().isBefore(now);
+    }
 
-        return inventoryRepository.save(inventory);
+    private static int reservedOf(Inventory batch) {
+        return batch.getReservedQuantity() != null ? batch.getReservedQuantity() : 0;
     }
 
-    public List<Inventory> getLowStockItems() {
-        return inventoryRepository.findLowStockItems();
+    private static int availableOf(Inventory batch) {
+        return batch.getCurrentQuantity() - reservedOf(batch);
+    }
+
+    private static BatchAllocation allocationOf(Inventory batch, int quantity) {
+        return BatchAllocation.builder()
+                .inventoryId(batch.getId())
+                .batchNumber(batch.getBatchNumber())
+                .expiryDate(batch.getExpiryDate())
+                .quantity(quantity)
+                .unitCost(batch.getUnitCost())
+                .build();
+    }
+
+    /**
+     * Take units from a product's batches in a store, earliest expiry first.
+     * Expired batches are never picked. The candidates come from one ordered
+     * query that locks them in expiry order, so concurrent checkouts of the
+     * same batch queue on its row instead of both taking the same units.
+     *
+     * @throws RuntimeException if the unexpired batches cannot cover the quantity
+     */
+    @Transactional
+    public List<BatchAllocation> allocateFefo(long productId, long storeId, int quantity, String updatedBy, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        List<BatchAllocation> allocations = new ArrayList<>();
+        int remaining = quantity;
+
+        for (Inventory batch : inventoryRepository.findFefoCandidates(productId, storeId, now)) {
+            if (remaining == 0) {
+                break;
+            }
+            remaining -= takeFromBatch(batch, remaining, now, updatedBy, reason, allocations);
+        }
+        if (remaining > 0) {
+            throw new RuntimeException("Insufficient unexpired inventory for product ID " + productId +
+                    " in store " + storeId + ". Requested: " + quantity + ", short by: " + remaining);
+        }
+
+        log.debug("FEFO allocated {} units of product {} in store {} from {} batches ({})",
+                quantity, productId, storeId, allocations.size(), reason);
+        return allocations;
     }
 
-    public List<Inventory> getOverstockItems() {
-        return inventoryRepository.findOverstockItems();
+    /**
+     * Whether a store holds any inventory rows for a product, i.e. whether it is stocked batch by batch
+     */
+    public boolean isStockedInStore(long productId, long storeId) {
+        return inventoryRepository.existsByProductIdAndStoreId(productId, storeId);
     }
 
-    public List<Inventory> getAvailableItems() {
-        return inventoryRepository.findAvailableItems();
+    private int takeFromBatch(Inventory batch, int wanted, LocalDateTime now, String updatedBy, String reason,
+                              List<BatchAllocation> allocations) {
+        int taken = Math.min(wanted, availableOf(batch));
+        if (taken <= 0) {
+            return 0;
+        }
+
+        batch.setCurrentQuantity(batch.getCurrentQuantity() - taken);
+        batch.setLastUpdated(now);
+        batch.setLastUpdatedBy(updatedBy);
+        if (batch.getUnitCost() != null) {
+            batch.setTotalValue(batch.getUnitCost().multiply(BigDecimal.valueOf(batch.getCurrentQuantity())));
+        }
+        Inventory saved = inventoryRepository.save(batch);
+        IssuedCost issuedCost = valuationService.recordMovement(saved, -taken, null,
+                InventoryValuationService.MovementType.ISSUE, reason);
+        publishStockLevel(saved);
+
+        BatchAllocation allocation = allocationOf(batch, taken);
+        allocation.setIssuedCost(issuedCost);
+        allocations.add(allocation);
+        return taken;
     }
 
-    public List<Inventory> getOutOfStockItems() {
-        return inventoryRepository.findOutOfStockItems();
+    /**
+     * Batches that expire within the given number of days (or already have) and still hold stock
+     */
+    public List<NearExpiryItem> getNearExpiryReport(Long storeId, int days) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime until = now.plusDays(days);
+        List<Inventory> batches = storeId != null
+                ? inventoryRepository.findExpiringItemsByStoreId(until, storeId)
+                : inventoryRepository.findExpiringItems(until);
+
+        return batches.stream()
+                .map(batch -> NearExpiryItem.builder()
+                        .inventoryId(batch.getId())
+                        .productId(batch.getProduct().getId())
+                        .productCode(batch.getProduct().getProductCode())
+                        .productName(batch.getProduct().getName())
+                        .storeId(batch.getStore() != null ? batch.getStore().getId() : null)
+                        .batchNumber(batch.getBatchNumber())
+                        .expiryDate(batch.getExpiryDate())
+                        .daysToExpiry(ChronoUnit.DAYS.between(now.toLocalDate(), batch.getExpiryDate().toLocalDate()))
+                        .currentQuantity(batch.getCurrentQuantity())
+                        .availableQuantity(batch.getAvailableQuantity() != null ? batch.getAvailableQuantity() : 0)
+                        .valueAtRisk(batch.getUnitCost() != null
+                                ? batch.getUnitCost().multiply(BigDecimal.valueOf(batch.getCurrentQuantity()))
+                                : BigDecimal.ZERO)
+                        .build())
+                .toList();
     }
 
     public Optional<Inventory> getInventoryByProductId(long productId) {
-        return inventoryRepository.findByProductId(productId);
+        return inventoryRepository.findFirstByProductIdOrderByIdAsc(productId);
     }
 
-    public Optional<Inventory> getInventoryByProductCode(String productCode) {
-        return inventoryRepository.findByProductCode(productCode);
+    /**
+     * Every batch of a product, earliest expiry first, as list rows.
+     */
+    public List<InventoryListItem> getInventoryListItemsByProductId(long productId) {
+        return inventoryRepository.findListItemsByProductId(productId);
     }
 
-    public List<Inventory> getInventoryByLocation(String location) {
-        return inventoryRepository.findByLocation(location);
+    public Optional<Inventory> getInventoryByProductCode(String productCode) {
+        return inventoryRepository.findByProductCode(productCode);
     }
 
-    public List<Inventory> getInventoryByWarehouse(String warehouse) {
-        return inventoryRepository.findByWarehouse(warehouse);
+    public List<ReceivedStockSummary> getAllReceivedStocks() {
+        return receivedStockRepository.findAllSummaries();
     }
 
-    public List<ReceivedStock> getAllReceivedStocks() {
-        return receivedStockRepository.findAll();
+    public List<ReceivedStockSummary> getPendingReceivedStocks() {
+        return receivedStockRepository.findPendingSummaries();
     }
 
-    public List<ReceivedStock> getPendingReceivedStocks() {
-        return receivedStockRepository.findPendingReceivedStock();
+    public List<ReceivedStockSummary> getReceivedStocksByStatus(ReceivedStock.ReceivedStockStatus status) {
+        return receivedStockRepository.findSummariesByStatus(status);
     }
 
-    public List<ReceivedStock> getReceivedStocksByStatus(ReceivedStock.ReceivedStockStatus status) {
-        return receivedStockRepository.findByStatus(status);
+    public List<ReceivedStockSummary> getDiscrepancies() {
+        return receivedStockRepository.findDiscrepancySummaries();
     }
 
-    public List<ReceivedStock> getDiscrepancies() {
-        return receivedStockRepository.findDiscrepancies();
+    /**
+     * Announce a quantity change; StockAlertService evaluates thresholds once the transaction commits.
+     */
+    private void publishStockLevel(Inventory inventory) {
+        eventPublisher.publishEvent(StockLevelChangedEvent.of(inventory));
     }
 
     /**
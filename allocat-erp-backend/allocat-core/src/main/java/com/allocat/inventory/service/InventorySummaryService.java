@@ -0,0 +1,121 @@
+package com.allocat.inventory.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the dashboard inventory summaries (materialized views) fresh. A
+ * background task refreshes them concurrently, so readers are never blocked.
+ * <p>
+ * Every instance runs the task, but an advisory lock elects one runner per
+ * round, and the refresh is skipped unless a source table's version moved
+ * since the previous one. Versions are bumped inside the writing
+ * transaction, so the check sees every committed write. The refresh and the
+ * as-of time readers get are committed together in one row, which only moves
+ * when a refresh actually ran.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventorySummaryService {
+
+    private static final List<String> VIEWS = List.of(
+            "mv_consolidated_inventory",
+            "mv_store_inventory_summary",
+            "mv_warehouse_inventory_summary");
+
+    // Arbitrary key shared by all instances; held until the refreshing transaction ends
+    private static final long REFRESH_LOCK = 0x616c6c6f63617401L;
+
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_xact_lock(?)";
+
+    // Increases with every committed write to a table the summaries are built from
+    // (folded counts in table_versions plus changes not yet folded, see TableVersions)
+    private static final String SOURCE_VERSION = """
+            SELECT COALESCE(SUM(version), 0)
+            FROM (
+                SELECT version FROM table_versions
+                WHERE table_name IN ('inventory', 'products', 'stores', 'warehouses')
+                UNION ALL
+                SELECT 1 FROM table_changes
+                WHERE table_name IN ('inventory', 'products', 'stores', 'warehouses')
+            ) v
+            """;
+
+    private static final String REFRESHED_VERSION =
+            "SELECT source_version FROM inventory_summary_refresh WHERE id = 1";
+
+    // CURRENT_TIMESTAMP is the transaction start, before any of the refreshes took its snapshot
+    private static final String RECORD_REFRESH =
+            "UPDATE inventory_summary_refresh SET source_version = ?, as_of = CURRENT_TIMESTAMP WHERE id = 1";
+
+    private static final String SELECT_AS_OF = "SELECT as_of FROM inventory_summary_refresh WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.inventory.summaries.refresh-interval-seconds:60}")
+    private long refreshIntervalSeconds;
+
+    /**
+     * Time the summaries reflect all committed writes up to, or null before the first refresh.
+     */
+    public LocalDateTime getCurrentAsOf() {
+        List<Timestamp> asOf = jdbcTemplate.queryForList(SELECT_AS_OF, Timestamp.class);
+        return asOf.isEmpty() || asOf.get(0) == null ? null : asOf.get(0).toLocalDateTime();
+    }
+
+    /**
+     * How far behind the summaries can fall between two refreshes.
+     */
+    public long getStalenessBoundSeconds() {
+        return refreshIntervalSeconds;
+    }
+
+    /**
+     * Refresh the summaries if this instance wins the round and the source
+     * tables changed since the last refresh.
+     *
+     * @return whether a refresh ran
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.summaries.refresh-interval-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    boolean refreshIfChanged() {
+        try {
+            Boolean refreshed = transactionTemplate.execute(status -> {
+                if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_LOCK, Boolean.class, REFRESH_LOCK))) {
+                    // Another instance is refreshing
+                    return false;
+                }
+                Long source = jdbcTemplate.queryForObject(SOURCE_VERSION, Long.class);
+                long sourceVersion = source != null ? source : 0;
+                Long previous = jdbcTemplate.queryForObject(REFRESHED_VERSION, Long.class);
+                if (previous != null && previous == sourceVersion) {
+                    return false;
+                }
+                long startNanos = System.nanoTime();
+                for (String view : VIEWS) {
+                    jdbcTemplate.execute("REFRESH MATERIALIZED VIEW CONCURRENTLY " + view);
+                }
+                jdbcTemplate.update(RECORD_REFRESH, sourceVersion);
+                log.debug("Refreshed inventory summaries in {} ms", (System.nanoTime() - startNanos) / 1_000_000);
+                return true;
+            });
+            return Boolean.TRUE.equals(refreshed);
+        } catch (DataAccessException e) {
+            // Readers keep the previous data and see its age grow
+            log.warn("Could not refresh inventory summaries: {}", e.getMostSpecificCause().getMessage());
+            return false;
+        }
+    }
+}
@@ -1,14 +1,23 @@
 package com.allocat.inventory.service;
 
+import com.allocat.auth.entity.Store;
+import com.allocat.auth.repository.StoreRepository;
+import com.allocat.inventory.dto.BatchAllocation;
 import com.allocat.inventory.entity.Inventory;
+import com.allocat.inventory.event.StockLevelChangedEvent;
 import com.allocat.inventory.repository.InventoryRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 /**
@@ -20,6 +29,11 @@ import java.util.stream.Collectors;
 public class InventorySyncService {
 
     private final InventoryRepository inventoryRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final InventoryService inventoryService;
+    private final StoreRepository storeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryValuationService valuationService;
 
     /**
      * Get inventory levels across all stores for a product
@@ -32,57 +46,37 @@ public class InventorySyncService {
         Map<Long, Integer> storeInventory = new HashMap<>();
 
         for (Inventory inventory : inventories) {
-            storeInventory.put(
+            // A store can hold several batches of the product
+            storeInventory.merge(
                     inventory.getStore().getId(),
-                    inventory.getAvailableQuantity());
+                    inventory.getAvailableQuantity(),
+                    Integer::sum);
         }
 
         return storeInventory;
     }
 
     /**
-     * Transfer stock between stores
+     * Transfer stock between stores. Units leave the source batch by batch,
+     * earliest expiry first, and land in the matching batch at the destination,
+     * which is created when the destination does not hold that batch yet.
      */
     public boolean transferStock(Long productId, Long fromStoreId, Long toStoreId, Integer quantity) {
         try {
-            // Get source inventory
-            List<Inventory> fromInventories = inventoryRepository.findAll().stream()
-                    .filter(inv -> inv.getProduct().getId().equals(productId)
-                            && inv.getStore().getId().equals(fromStoreId))
-                    .collect(Collectors.toList());
-
-            if (fromInventories.isEmpty()) {
-                log.error("Source inventory not found");
+            Store toStore = storeRepository.findById(toStoreId).orElse(null);
+            if (toStore == null) {
+                log.error("Destination store not found");
                 return false;
             }
 
-            Inventory fromInventory = fromInventories.get(0);
-
-            if (fromInventory.getAvailableQuantity() < quantity) {
-                log.error("Insufficient stock in source store");
-                return false;
-            }
-
-            // Get destination inventory
-            List<Inventory> toInventories = inventoryRepository.findAll().stream()
-                    .filter(inv -> inv.getProduct().getId().equals(productId)
-                            && inv.getStore().getId().equals(toStoreId))
-                    .collect(Collectors.toList());
-
-            if (toInventories.isEmpty()) {
-                log.error("Destination inventory not found");
-                return false;
-            }
-
-            Inventory toInventory = toInventories.get(0);
-
-            // Update quantities
-            fromInventory.setCurrentQuantity(fromInventory.getCurrentQuantity() - quantity);
-            toInventory.setCurrentQuantity(toInventory.getCurrentQuantity() + quantity);
-
-            // Save
-            inventoryRepository.save(fromInventory);
-            inventoryRepository.save(toInventory);
+            transactionTemplate.executeWithoutResult(status -> {
+                String reason = "Transfer to store " + toStoreId;
+                List<BatchAllocation> allocations =
+                        inventoryService.allocateFefo(productId, fromStoreId, quantity, "TRANSFER", reason);
+                for (BatchAllocation allocation : allocations) {
+                    receiveBatch(allocation, toStore);
+                }
+            });
 
             log.info("Transferred {} units of product {} from store {} to store {}",
                     quantity, productId, fromStoreId, toStoreId);
@@ -93,4 +87,45 @@ public class InventorySyncService {
             return false;
         }
     }
+
+    private void receiveBatch(BatchAllocation allocation, Store toStore) {
+        Inventory source = inventoryRepository.findById(allocation.getInventoryId())
+                .orElseThrow(() -> new RuntimeException("Source batch not found: " + allocation.getInventoryId()));
+        Long productId = source.getProduct().getId();
+
+        Optional<Inventory> existing = inventoryRepository.findBatch(
+                productId, toStore.getId(), source.getBatchNumber(), source.getExpiryDate());
+
+        Inventory destination = existing.orElseGet(() -> Inventory.builder()
+                .product(source.getProduct())
+                .store(toStore)
+                .currentQuantity(0)
+                .reservedQuantity(0)
+                .unitCost(source.getUnitCost())
+                .totalValue(BigDecimal.ZERO)
+                .batchNumber(source.getBatchNumber())
+                .expiryDate(source.getExpiryDate())
+                .supplierName(source.getSupplierName())
+                .receivedStockId(source.getReceivedStockId())
+                .build());
+
+        destination.setCurrentQuantity(destination.getCurrentQuantity() + allocation.getQuantity());
+        destination.setLastUpdated(LocalDateTime.now());
+        destination.setLastUpdatedBy("TRANSFER");
+        if (destination.getUnitCost() != null) {
+            destination.setTotalValue(destination.getUnitCost()
+                    .multiply(BigDecimal.valueOf(destination.getCurrentQuantity())));
+        }
+
+        Inventory saved = inventoryRepository.save(destination);
+        String reference = "Transfer from store " + source.getStore().getId();
+        if (allocation.getIssuedCost() != null) {
+            // The cost the units left the source with, so the transfer itself neither adds nor loses value
+            valuationService.recordTransferIn(saved, allocation.getIssuedCost(), reference);
+        } else {
+            valuationService.recordMovement(saved, allocation.getQuantity(), allocation.getUnitCost(),
+                    InventoryValuationService.MovementType.TRANSFER_IN, reference);
+        }
+        eventPublisher.publishEvent(StockLevelChangedEvent.of(saved));
+    }
 }
@@ -0,0 +1,350 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.dto.InventoryValuationSnapshot;
+import com.allocat.inventory.dto.IssuedCost;
+import com.allocat.inventory.dto.InventoryValuationSnapshot.CostingMethod;
+import com.allocat.inventory.dto.InventoryValuationSnapshot.GroupBy;
+import com.allocat.inventory.entity.Inventory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Perpetual inventory valuation. Every receipt, sale, return and transfer is
+ * written to a cost ledger with the position's running quantity and value
+ * under both weighted-average and FIFO costing, so month-end values are read
+ * back rather than replayed: a snapshot at any date is one index seek per
+ * position.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryValuationService {
+
+    private static final int VALUE_SCALE = 4;
+
+    public enum MovementType {
+        RECEIPT,
+        ISSUE,
+        RETURN,
+        TRANSFER_IN,
+        ADJUSTMENT
+    }
+
+    private static final String ENSURE_POSITION =
+            "INSERT INTO inventory_valuation_positions (product_id, store_id, warehouse) " +
+            "VALUES (:productId, :storeId, :warehouse) ON CONFLICT DO NOTHING";
+
+    private static final String LOCK_POSITION =
+            "SELECT quantity, wac_value, fifo_value FROM inventory_valuation_positions " +
+            "WHERE product_id = :productId AND store_id = :storeId AND warehouse = :warehouse FOR UPDATE";
+
+    private static final String UPDATE_POSITION =
+            "UPDATE inventory_valuation_positions SET quantity = :quantity, wac_value = :wacValue, " +
+            "fifo_value = :fifoValue, updated_at = :now " +
+            "WHERE product_id = :productId AND store_id = :storeId AND warehouse = :warehouse";
+
+    private static final String INSERT_ENTRY =
+            "INSERT INTO inventory_valuation_entries (product_id, store_id, warehouse, movement_type, movement_at, " +
+            "quantity, wac_value, fifo_value, quantity_after, wac_value_after, fifo_value_after, reference) " +
+            "VALUES (:productId, :storeId, :warehouse, :movementType, :now, :quantity, :wacDelta, :fifoDelta, " +
+            ":quantityAfter, :wacAfter, :fifoAfter, :reference)";
+
+    // Receipts of many positions, applied with one batch per statement
+    private static final String ADD_TO_POSITION =
+            "UPDATE inventory_valuation_positions SET quantity = quantity + :quantity, " +
+            "wac_value = wac_value + :value, fifo_value = fifo_value + :value, updated_at = :now " +
+            "WHERE product_id = :productId AND store_id = :storeId AND warehouse = :warehouse";
+
+    private static final String INSERT_ENTRY_FROM_POSITION =
+            "INSERT INTO inventory_valuation_entries (product_id, store_id, warehouse, movement_type, movement_at, " +
+            "quantity, wac_value, fifo_value, quantity_after, wac_value_after, fifo_value_after, reference) " +
+            "SELECT product_id, store_id, warehouse, :movementType, :now, :quantity, :value, :value, " +
+            "quantity, wac_value, fifo_value, :reference FROM inventory_valuation_positions " +
+            "WHERE product_id = :productId AND store_id = :storeId AND warehouse = :warehouse";
+
+    private static final String INSERT_LAYER =
+            "INSERT INTO inventory_cost_layers (product_id, store_id, warehouse, received_at, unit_cost, " +
+            "original_quantity, remaining_quantity) " +
+            "VALUES (:productId, :storeId, :warehouse, :now, :unitCost, :quantity, :quantity)";
+
+    private static final String LOCK_OPEN_LAYERS =
+            "SELECT id, unit_cost, remaining_quantity FROM inventory_cost_layers " +
+            "WHERE product_id = :productId AND store_id = :storeId AND warehouse = :warehouse " +
+            "AND remaining_quantity > 0 ORDER BY received_at, id FOR UPDATE";
+
+    private static final String CONSUME_LAYER =
+            "UPDATE inventory_cost_layers SET remaining_quantity = :remaining WHERE id = :id";
+
+    // Latest ledger entry of every position at the cut-off, via the position/time index
+    private static final String SNAPSHOT = """
+            SELECT %s AS group_key, %s AS group_label,
+                   COUNT(*) AS positions,
+                   SUM(e.quantity_after) AS quantity,
+                   SUM(%s) AS value
+            FROM inventory_valuation_positions p
+            JOIN products pr ON pr.id = p.product_id
+            JOIN stores s ON s.id = p.store_id
+            CROSS JOIN LATERAL (
+                SELECT quantity_after, wac_value_after, fifo_value_after
+                FROM inventory_valuation_entries e
+                WHERE e.product_id = p.product_id AND e.store_id = p.store_id AND e.warehouse = p.warehouse
+                  AND e.movement_at < :cutoff
+                ORDER BY e.movement_at DESC, e.id DESC
+                LIMIT 1
+            ) e
+            WHERE (CAST(:storeId AS BIGINT) IS NULL OR p.store_id = :storeId)
+            GROUP BY 1, 2
+            ORDER BY 2
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Units received into one position at a known unit cost.
+     */
+    public record Receipt(Long productId, Long storeId, String warehouse, int quantity, BigDecimal unitCost) {
+    }
+
+    /**
+     * Record a stock movement against the row's product / store / warehouse position.
+     *
+     * @param quantity signed change in units
+     * @param unitCost cost of incoming units; null values them at the current average cost
+     * @return for an issue, the cost taken out of the position; null otherwise
+     */
+    @Transactional
+    public IssuedCost recordMovement(Inventory row, int quantity, BigDecimal unitCost, MovementType type,
+                                     String reference) {
+        if (row.getStore() == null) {
+            return null;
+        }
+        return recordMovement(row.getProduct().getId(), row.getStore().getId(), row.getWarehouse(),
+                quantity, unitCost, type, reference);
+    }
+
+    @Transactional
+    public IssuedCost recordMovement(Long productId, Long storeId, String warehouse, int quantity,
+                                     BigDecimal unitCost, MovementType type, String reference) {
+        if (quantity == 0) {
+            return null;
+        }
+        MapSqlParameterSource position = positionOf(productId, storeId, warehouse);
+        Map<String, Object> balance = lockPosition(position);
+        int quantityBefore = ((Number) balance.get("quantity")).intValue();
+        BigDecimal wacBefore = (BigDecimal) balance.get("wac_value");
+        BigDecimal fifoBefore = (BigDecimal) balance.get("fifo_value");
+        BigDecimal averageCost = averageCost(balance);
+
+        if (quantity > 0) {
+            BigDecimal cost = unitCost != null ? unitCost : averageCost;
+            BigDecimal value = cost.multiply(BigDecimal.valueOf(quantity)).setScale(VALUE_SCALE, RoundingMode.HALF_UP);
+            insertLayer(position, cost, quantity);
+            post(position, balance, quantity, value, value, type, reference);
+            return null;
+        }
+
+        int issued = -quantity;
+        List<IssuedCost.Layer> layers = consumeLayers(position, issued, averageCost);
+        // Emptying the position releases its whole value so rounding never leaves residue
+        BigDecimal wacValue = quantityBefore <= issued
+                ? wacBefore
+                : averageCost.multiply(BigDecimal.valueOf(issued));
+        BigDecimal fifoValue = quantityBefore <= issued
+                ? fifoBefore
+                : layers.stream()
+                        .map(layer -> layer.unitCost().multiply(BigDecimal.valueOf(layer.quantity())))
+                        .reduce(BigDecimal.ZERO, BigDecimal::add)
+                        .setScale(VALUE_SCALE, RoundingMode.HALF_UP);
+        post(position, balance, quantity, wacValue.negate(), fifoValue.negate(), type, reference);
+        return new IssuedCost(wacValue, fifoValue, layers);
+    }
+
+    /**
+     * Record receipts into many positions, one per position, with a fixed
+     * number of batched statements however many there are. Positions are
+     * updated in key order so concurrent postings lock them in the same order.
+     */
+    @Transactional
+    public void recordReceipts(List<Receipt> receipts, String reference) {
+        List<SqlParameterSource> postings = receipts.stream()
+                .filter(receipt -> receipt.quantity() > 0)
+                .sorted(Comparator.comparing(Receipt::productId)
+                        .thenComparing(Receipt::storeId)
+                        .thenComparing(receipt -> receipt.warehouse() != null ? receipt.warehouse() : ""))
+                .map(receipt -> (SqlParameterSource) positionOf(receipt.productId(), receipt.storeId(),
+                        receipt.warehouse())
+                        .addValue("quantity", receipt.quantity())
+                        .addValue("unitCost", receipt.unitCost())
+                        .addValue("value", receipt.unitCost().multiply(BigDecimal.valueOf(receipt.quantity()))
+                                .setScale(VALUE_SCALE, RoundingMode.HALF_UP))
+                        .addValue("movementType", MovementType.RECEIPT.name())
+                        .addValue("reference", reference))
+                .toList();
+        if (postings.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] batch = postings.toArray(SqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(ENSURE_POSITION, batch);
+        jdbcTemplate.batchUpdate(ADD_TO_POSITION, batch);
+        jdbcTemplate.batchUpdate(INSERT_ENTRY_FROM_POSITION, batch);
+        jdbcTemplate.batchUpdate(INSERT_LAYER, batch);
+    }
+
+    /**
+     * Receive transferred units at the cost they left the source position
+     * with: the same average value, and the consumed FIFO layers re-opened at
+     * their original unit costs, so a transfer moves value without changing it.
+     */
+    @Transactional
+    public void recordTransferIn(Inventory row, IssuedCost cost, String reference) {
+        if (row.getStore() == null) {
+            return;
+        }
+        int quantity = cost.layers().stream().mapToInt(IssuedCost.Layer::quantity).sum();
+        if (quantity == 0) {
+            return;
+        }
+        MapSqlParameterSource position = positionOf(row.getProduct().getId(), row.getStore().getId(),
+                row.getWarehouse());
+        Map<String, Object> balance = lockPosition(position);
+        for (IssuedCost.Layer layer : cost.layers()) {
+            insertLayer(position, layer.unitCost(), layer.quantity());
+        }
+        post(position, balance, quantity, cost.wacValue(), cost.fifoValue(), MovementType.TRANSFER_IN, reference);
+    }
+
+    /**
+     * Value of stock at the end of the given day.
+     */
+    public InventoryValuationSnapshot getSnapshot(LocalDate asOf, CostingMethod method, GroupBy groupBy, Long storeId) {
+        String valueColumn = method == CostingMethod.FIFO ? "e.fifo_value_after" : "e.wac_value_after";
+        String sql = switch (groupBy) {
+            case STORE -> SNAPSHOT.formatted("CAST(p.store_id AS VARCHAR)", "s.name", valueColumn);
+            case WAREHOUSE -> SNAPSHOT.formatted("CAST(p.store_id AS VARCHAR) || ':' || p.warehouse",
+                    "s.name || ' / ' || CASE WHEN p.warehouse = '' THEN '(none)' ELSE p.warehouse END", valueColumn);
+            case CATEGORY -> SNAPSHOT.formatted("COALESCE(pr.category, '')",
+                    "COALESCE(pr.category, 'Uncategorized')", valueColumn);
+        };
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cutoff", Timestamp.valueOf(asOf.plusDays(1).atStartOfDay()))
+                .addValue("storeId", storeId);
+
+        List<InventoryValuationSnapshot.Line> lines = jdbcTemplate.query(sql, params, (rs, rowNum) ->
+                InventoryValuationSnapshot.Line.builder()
+                        .key(rs.getString("group_key"))
+                        .label(rs.getString("group_label"))
+                        .positions(rs.getInt("positions"))
+                        .quantity(rs.getLong("quantity"))
+                        .value(rs.getBigDecimal("value").setScale(2, RoundingMode.HALF_UP))
+                        .build());
+
+        return InventoryValuationSnapshot.builder()
+                .asOf(asOf)
+                .method(method)
+                .groupBy(groupBy)
+                .totalQuantity(lines.stream().mapToLong(InventoryValuationSnapshot.Line::getQuantity).sum())
+                .totalValue(lines.stream().map(InventoryValuationSnapshot.Line::getValue)
+                        .reduce(BigDecimal.ZERO, BigDecimal::add))
+                .lines(lines)
+                .build();
+    }
+
+    private MapSqlParameterSource positionOf(Long productId, Long storeId, String warehouse) {
+        return new MapSqlParameterSource()
+                .addValue("productId", productId)
+                .addValue("storeId", storeId)
+                .addValue("warehouse", warehouse != null ? warehouse : "")
+                .addValue("now", Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    private Map<String, Object> lockPosition(MapSqlParameterSource position) {
+        jdbcTemplate.update(ENSURE_POSITION, position);
+        return jdbcTemplate.queryForMap(LOCK_POSITION, position);
+    }
+
+    private static BigDecimal averageCost(Map<String, Object> balance) {
+        int quantity = ((Number) balance.get("quantity")).intValue();
+        return quantity > 0
+                ? ((BigDecimal) balance.get("wac_value")).divide(BigDecimal.valueOf(quantity), VALUE_SCALE,
+                        RoundingMode.HALF_UP)
+                : BigDecimal.ZERO;
+    }
+
+    private void insertLayer(MapSqlParameterSource position, BigDecimal unitCost, int quantity) {
+        jdbcTemplate.update(INSERT_LAYER, new MapSqlParameterSource(position.getValues())
+                .addValue("unitCost", unitCost)
+                .addValue("quantity", quantity));
+    }
+
+    /**
+     * Apply value deltas to the locked position and append the ledger entry.
+     */
+    private void post(MapSqlParameterSource position, Map<String, Object> balance, int quantity,
+                      BigDecimal wacDelta, BigDecimal fifoDelta, MovementType type, String reference) {
+        int quantityAfter = ((Number) balance.get("quantity")).intValue() + quantity;
+        BigDecimal wacAfter = ((BigDecimal) balance.get("wac_value")).add(wacDelta);
+        BigDecimal fifoAfter = ((BigDecimal) balance.get("fifo_value")).add(fifoDelta);
+
+        jdbcTemplate.update(UPDATE_POSITION, new MapSqlParameterSource(position.getValues())
+                .addValue("quantity", quantityAfter)
+                .addValue("wacValue", wacAfter)
+                .addValue("fifoValue", fifoAfter));
+        jdbcTemplate.update(INSERT_ENTRY, new MapSqlParameterSource(position.getValues())
+                .addValue("movementType", type.name())
+                .addValue("quantity", quantity)
+                .addValue("wacDelta", wacDelta)
+                .addValue("fifoDelta", fifoDelta)
+                .addValue("quantityAfter", quantityAfter)
+                .addValue("wacAfter", wacAfter)
+                .addValue("fifoAfter", fifoAfter)
+                .addValue("reference", reference));
+    }
+
+    /**
+     * Consume open FIFO layers oldest first and return what was taken from
+     * each. Units beyond the open layers (stock that predates the ledger) are
+     * costed at the current average.
+     */
+    private List<IssuedCost.Layer> consumeLayers(MapSqlParameterSource position, int quantity,
+                                                 BigDecimal averageCost) {
+        List<SqlParameterSource> updates = new ArrayList<>();
+        List<IssuedCost.Layer> consumed = new ArrayList<>();
+        int remaining = quantity;
+
+        for (Map<String, Object> layer : jdbcTemplate.queryForList(LOCK_OPEN_LAYERS, position)) {
+            if (remaining == 0) {
+                break;
+            }
+            int available = ((Number) layer.get("remaining_quantity")).intValue();
+            int taken = Math.min(available, remaining);
+            consumed.add(new IssuedCost.Layer((BigDecimal) layer.get("unit_cost"), taken));
+            remaining -= taken;
+            updates.add(new MapSqlParameterSource()
+                    .addValue("id", layer.get("id"))
+                    .addValue("remaining", available - taken));
+        }
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate(CONSUME_LAYER, updates.toArray(SqlParameterSource[]::new));
+        }
+        if (remaining > 0) {
+            consumed.add(new IssuedCost.Layer(averageCost, remaining));
+        }
+        return consumed;
+    }
+}
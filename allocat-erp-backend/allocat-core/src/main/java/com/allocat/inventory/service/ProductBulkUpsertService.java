@@ -0,0 +1,257 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.dto.ProductUpsertResult;
+import com.allocat.inventory.dto.ProductUpsertResult.Outcome;
+import com.allocat.inventory.entity.Product;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk create-or-update of products keyed by product code, for supplier
+ * catalog feeds. Each batch is one lookup of the existing codes plus one JDBC
+ * batch of INSERT ... ON CONFLICT statements; rows whose columns all match
+ * are left untouched by the database, so no field is compared in Java.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductBulkUpsertService {
+
+    private static final String SELECT_PRODUCT_IDS_BY_CODE =
+            "SELECT product_code, id FROM products WHERE product_code IN (:codes)";
+
+    private static final String UPSERT_PRODUCT = """
+            INSERT INTO products (product_code, name, sku, description, category, unit_price, unit_of_measure,
+                                  minimum_stock_level, maximum_stock_level, is_active, supplier_name,
+                                  supplier_contact, barcode, brand, model, color, size, weight, dimensions,
+                                  notes, created_at, updated_at)
+            VALUES (:productCode, :name, :sku, :description, :category, :unitPrice, :unitOfMeasure,
+                    :minimumStockLevel, :maximumStockLevel, :isActive, :supplierName,
+                    :supplierContact, :barcode, :brand, :model, :color, :size, :weight, :dimensions,
+                    :notes, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            ON CONFLICT (product_code) DO UPDATE SET
+                name = EXCLUDED.name,
+                sku = EXCLUDED.sku,
+                description = EXCLUDED.description,
+                category = EXCLUDED.category,
+                unit_price = EXCLUDED.unit_price,
+                unit_of_measure = EXCLUDED.unit_of_measure,
+                minimum_stock_level = EXCLUDED.minimum_stock_level,
+                maximum_stock_level = EXCLUDED.maximum_stock_level,
+                is_active = EXCLUDED.is_active,
+                supplier_name = EXCLUDED.supplier_name,
+                supplier_contact = EXCLUDED.supplier_contact,
+                barcode = EXCLUDED.barcode,
+                brand = EXCLUDED.brand,
+                model = EXCLUDED.model,
+                color = EXCLUDED.color,
+                size = EXCLUDED.size,
+                weight = EXCLUDED.weight,
+                dimensions = EXCLUDED.dimensions,
+                notes = EXCLUDED.notes,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE (products.name, products.sku, products.description, products.category, products.unit_price,
+                   products.unit_of_measure, products.minimum_stock_level, products.maximum_stock_level,
+                   products.is_active, products.supplier_name, products.supplier_contact, products.barcode,
+                   products.brand, products.model, products.color, products.size, products.weight,
+                   products.dimensions, products.notes)
+               IS DISTINCT FROM
+                  (EXCLUDED.name, EXCLUDED.sku, EXCLUDED.description, EXCLUDED.category, EXCLUDED.unit_price,
+                   EXCLUDED.unit_of_measure, EXCLUDED.minimum_stock_level, EXCLUDED.maximum_stock_level,
+                   EXCLUDED.is_active, EXCLUDED.supplier_name, EXCLUDED.supplier_contact, EXCLUDED.barcode,
+                   EXCLUDED.brand, EXCLUDED.model, EXCLUDED.color, EXCLUDED.size, EXCLUDED.weight,
+                   EXCLUDED.dimensions, EXCLUDED.notes)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.inventory.product-upsert.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.inventory.product-upsert.max-products:50000}")
+    private int maxProducts;
+
+    /**
+     * Create or fully replace the given products by product code. A missing
+     * SKU defaults to the product code and a missing active flag to true.
+     * Invalid rows and rows rejected by the database are reported as FAILED
+     * without affecting the rest.
+     *
+     * @throws IllegalArgumentException when no products, or more than the configured maximum, are given
+     */
+    public ProductUpsertResult upsert(List<Product> products) {
+        if (products == null || products.isEmpty()) {
+            throw new IllegalArgumentException("At least one product is required");
+        }
+        if (products.size() > maxProducts) {
+            throw new IllegalArgumentException("At most " + maxProducts + " products can be upserted per request");
+        }
+        long startNanos = System.nanoTime();
+        ProductUpsertResult result = ProductUpsertResult.builder().requested(products.size()).build();
+        ProductUpsertResult.Row[] rows = new ProductUpsertResult.Row[products.size()];
+
+        Map<String, Integer> firstIndexByCode = new HashMap<>();
+        List<Pending> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < products.size(); i++) {
+            Product product = products.get(i);
+            String code = product != null && product.getProductCode() != null ? product.getProductCode().trim() : null;
+            rows[i] = ProductUpsertResult.Row.builder().index(i).productCode(code).build();
+
+            String error = validate(product, code);
+            Integer firstIndex = error == null ? firstIndexByCode.putIfAbsent(code, i) : null;
+            if (firstIndex != null) {
+                error = "Duplicate product code, first given at index " + firstIndex;
+            }
+            if (error != null) {
+                fail(rows[i], error);
+                continue;
+            }
+
+            batch.add(new Pending(rows[i], normalize(product, code)));
+            if (batch.size() >= batchSize) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch);
+        }
+
+        for (ProductUpsertResult.Row row : rows) {
+            result.getRows().add(row);
+            switch (row.getOutcome()) {
+                case CREATED -> result.setCreated(result.getCreated() + 1);
+                case UPDATED -> result.setUpdated(result.getUpdated() + 1);
+                case UNCHANGED -> result.setUnchanged(result.getUnchanged() + 1);
+                case FAILED -> result.setFailed(result.getFailed() + 1);
+            }
+        }
+        result.setDurationMs((System.nanoTime() - startNanos) / 1_000_000);
+
+        log.info("Upserted {} products in {} ms: {} created, {} updated, {} unchanged, {} failed",
+                result.getRequested(), result.getDurationMs(), result.getCreated(), result.getUpdated(),
+                result.getUnchanged(), result.getFailed());
+        return result;
+    }
+
+    /**
+     * Write a batch in one transaction. If the batch is rejected (e.g. a
+     * duplicate barcode) it is replayed row by row so only the offending rows fail.
+     */
+    private void writeBatch(List<Pending> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> persistBatch(batch));
+        } catch (DataAccessException e) {
+            log.warn("Product upsert batch failed, retrying {} rows individually: {}",
+                    batch.size(), e.getMostSpecificCause().getMessage());
+            for (Pending pending : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persistBatch(List.of(pending)));
+                } catch (DataAccessException rowError) {
+                    fail(pending.row, rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private void persistBatch(List<Pending> batch) {
+        // Sorted so concurrent upserts lock product rows in the same order
+        List<Pending> ordered = batch.stream()
+                .sorted(Comparator.comparing(pending -> pending.product.getProductCode()))
+                .toList();
+        Map<String, Long> existingIds = findIds(ordered.stream().map(p -> p.product.getProductCode()).toList());
+
+        int[] counts = jdbcTemplate.batchUpdate(UPSERT_PRODUCT, ordered.stream()
+                .map(pending -> new BeanPropertySqlParameterSource(pending.product))
+                .toArray(SqlParameterSource[]::new));
+
+        List<String> createdCodes = new ArrayList<>();
+        List<Pending> changed = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            Pending pending = ordered.get(i);
+            Long existingId = existingIds.get(pending.product.getProductCode());
+            boolean written = counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO;
+            pending.row.setError(null);
+            if (existingId == null) {
+                pending.row.setOutcome(Outcome.CREATED);
+                createdCodes.add(pending.product.getProductCode());
+            } else {
+                pending.row.setProductId(existingId);
+                pending.row.setOutcome(written ? Outcome.UPDATED : Outcome.UNCHANGED);
+            }
+            if (existingId == null || written) {
+                changed.add(pending);
+            }
+        }
+
+        if (!createdCodes.isEmpty()) {
+            Map<String, Long> createdIds = findIds(createdCodes);
+            for (Pending pending : changed) {
+                if (pending.row.getProductId() == null) {
+                    pending.row.setProductId(createdIds.get(pending.product.getProductCode()));
+                }
+            }
+        }
+    }
+
+    private Map<String, Long> findIds(List<String> codes) {
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query(SELECT_PRODUCT_IDS_BY_CODE, new MapSqlParameterSource("codes", codes), rs -> {
+            ids.put(rs.getString("product_code"), rs.getLong("id"));
+        });
+        return ids;
+    }
+
+    private String validate(Product product, String code) {
+        if (product == null) {
+            return "Empty product";
+        }
+        if (code == null || code.isEmpty()) {
+            return "Product code is required";
+        }
+        if (product.getName() == null || product.getName().isBlank()) {
+            return "Product name is required";
+        }
+        if (product.getUnitPrice() != null && product.getUnitPrice().signum() < 0) {
+            return "Unit price cannot be negative";
+        }
+        return null;
+    }
+
+    private Product normalize(Product product, String code) {
+        product.setId(null);
+        product.setProductCode(code);
+        if (product.getSku() == null || product.getSku().isBlank()) {
+            product.setSku(code);
+        }
+        if (product.getIsActive() == null) {
+            product.setIsActive(true);
+        }
+        return product;
+    }
+
+    private static void fail(ProductUpsertResult.Row row, String error) {
+        row.setOutcome(Outcome.FAILED);
+        row.setProductId(null);
+        row.setError(error);
+    }
+
+    private record Pending(ProductUpsertResult.Row row, Product product) {
+    }
+}
@@ -0,0 +1,164 @@
+package com.allocat.inventory.service;
+
+import com.allocat.common.util.TableVersions;
+import com.allocat.inventory.dto.ProductFacets;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Product counts per category, supplier and active flag for the browse
+ * filters. Counts are kept per (category, supplier, active) combination, so
+ * a facet request aggregates a few hundred combinations instead of grouping
+ * the products table.
+ * <p>
+ * The counts are tied to the products table version they were loaded at.
+ * Every read checks that version (one primary-key lookup) and re-counts once
+ * it has moved, whichever instance or bulk statement wrote. The body is
+ * therefore never older than the ETag the controller derives from the same
+ * version. The first request waits for the initial load.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacetService {
+
+    private static final String PRODUCTS = "products";
+
+    private static final String SELECT_FACET_COUNTS = "SELECT category, supplier_name, " +
+            "COALESCE(is_active, TRUE) AS active, COUNT(*) AS products FROM products " +
+            "GROUP BY category, supplier_name, COALESCE(is_active, TRUE)";
+
+    private static final Comparator<ProductFacets.FacetCount> BY_COUNT = Comparator
+            .comparingLong(ProductFacets.FacetCount::getCount).reversed()
+            .thenComparing(ProductFacets.FacetCount::getValue, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TableVersions tableVersions;
+
+    private volatile Snapshot snapshot;
+
+    private record FacetKey(String category, String supplier, boolean active) {
+    }
+
+    /**
+     * Counts per combination as of a products table version.
+     */
+    private record Snapshot(long version, Map<FacetKey, Long> counts) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadFacets() {
+        try {
+            Snapshot loaded = current();
+            log.info("Loaded facets for {} product combinations", loaded.counts().size());
+        } catch (Exception e) {
+            log.warn("Could not preload product facets, loading on first use: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Facet counts under the given filters; a null filter matches everything.
+     * Each facet ignores its own filter so the alternatives stay visible.
+     */
+    public ProductFacets getFacets(String category, String supplier, Boolean active) {
+        Map<String, Long> categories = new HashMap<>();
+        Map<String, Long> suppliers = new HashMap<>();
+        Map<String, Long> activeFlags = new HashMap<>();
+        long total = 0;
+
+        for (Map.Entry<FacetKey, Long> entry : current().counts().entrySet()) {
+            FacetKey key = entry.getKey();
+            long count = entry.getValue();
+            boolean categoryMatches = category == null || category.equals(key.category());
+            boolean supplierMatches = supplier == null || supplier.equals(key.supplier());
+            boolean activeMatches = active == null || active == key.active();
+
+            if (supplierMatches && activeMatches) {
+                categories.merge(key.category(), count, Long::sum);
+            }
+            if (categoryMatches && activeMatches) {
+                suppliers.merge(key.supplier(), count, Long::sum);
+            }
+            if (categoryMatches && supplierMatches) {
+                activeFlags.merge(String.valueOf(key.active()), count, Long::sum);
+                if (activeMatches) {
+                    total += count;
+                }
+            }
+        }
+
+        return ProductFacets.builder()
+                .total(total)
+                .categories(toCounts(categories))
+                .suppliers(toCounts(suppliers))
+                .active(toCounts(activeFlags))
+                .build();
+    }
+
+    /**
+     * Distinct non-null categories in alphabetical order.
+     */
+    public List<String> getCategories() {
+        TreeSet<String> categories = new TreeSet<>();
+        for (FacetKey key : current().counts().keySet()) {
+            if (key.category() != null) {
+                categories.add(key.category());
+            }
+        }
+        return new ArrayList<>(categories);
+    }
+
+    /**
+     * The counts for the current products version, re-counted when the
+     * table has changed since they were loaded. Concurrent readers of a new
+     * version wait for one load.
+     */
+    private Snapshot current() {
+        long version = productsVersion();
+        Snapshot loaded = snapshot;
+        if (loaded != null && loaded.version() >= version) {
+            return loaded;
+        }
+        synchronized (this) {
+            loaded = snapshot;
+            if (loaded != null && loaded.version() >= version) {
+                return loaded;
+            }
+            // Version read before counting: a write committing meanwhile triggers another re-count
+            Map<FacetKey, Long> counts = new HashMap<>();
+            jdbcTemplate.query(SELECT_FACET_COUNTS, rs -> {
+                counts.put(new FacetKey(rs.getString("category"), rs.getString("supplier_name"),
+                        rs.getBoolean("active")), rs.getLong("products"));
+            });
+            snapshot = new Snapshot(version, Map.copyOf(counts));
+            log.debug("Counted product facets at version {}: {} combinations", version, counts.size());
+            return snapshot;
+        }
+    }
+
+    private long productsVersion() {
+        TableVersions.Version version = tableVersions.read(PRODUCTS).get(PRODUCTS);
+        return version != null ? version.version() : 0;
+    }
+
+    private static List<ProductFacets.FacetCount> toCounts(Map<String, Long> values) {
+        return values.entrySet().stream()
+                .map(entry -> ProductFacets.FacetCount.builder()
+                        .value(entry.getKey())
+                        .count(entry.getValue())
+                        .build())
+                .sorted(BY_COUNT)
+                .toList();
+    }
+}
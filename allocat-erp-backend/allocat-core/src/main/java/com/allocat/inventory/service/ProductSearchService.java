@@ -0,0 +1,117 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.dto.ProductSearchResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ranked, case-insensitive product typeahead. Candidates come from bounded
+ * index scans (exact code/barcode, name and code prefix, and for terms of
+ * three or more characters the trigram indexes), so the cost of a keystroke
+ * depends on the result limit rather than on the size of the catalog.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSearchService {
+
+    public static final int MAX_LIMIT = 50;
+
+    // Trigram matching needs at least one full trigram in the term
+    private static final int MIN_TRIGRAM_LENGTH = 3;
+
+    // Rows taken from each candidate branch before ranking
+    private static final int CANDIDATES_PER_BRANCH = 200;
+
+    // Every branch filters on the predicate of the partial search indexes, so
+    // inactive products are skipped inside the index scan rather than after the limit
+    private static final String CANDIDATES = """
+            (SELECT id FROM products
+             WHERE (LOWER(product_code) = :term OR barcode = :raw) AND COALESCE(is_active, TRUE))
+            UNION
+            (SELECT id FROM products
+             WHERE LOWER(product_code) LIKE :prefix ESCAPE '\\' AND COALESCE(is_active, TRUE)
+             ORDER BY LOWER(product_code) USING ~<~ LIMIT :candidates)
+            UNION
+            (SELECT id FROM products
+             WHERE LOWER(name) LIKE :prefix ESCAPE '\\' AND COALESCE(is_active, TRUE)
+             ORDER BY LOWER(name) USING ~<~ LIMIT :candidates)
+            """;
+
+    // Nearest names first by trigram distance, the same similarity the ranking adds,
+    // so the limit keeps the best substring matches rather than arbitrary ones. Names
+    // are read in that order from the GiST index; code, barcode and brand matches are
+    // a top-N sort over the trigram bitmap
+    private static final String CONTAINS_CANDIDATES = """
+            UNION
+            (SELECT id FROM products
+             WHERE LOWER(name) LIKE :contains ESCAPE '\\' AND COALESCE(is_active, TRUE)
+             ORDER BY LOWER(name) <-> :term LIMIT :candidates)
+            UNION
+            (SELECT id FROM products
+             WHERE (LOWER(product_code) LIKE :contains ESCAPE '\\'
+                OR LOWER(barcode) LIKE :contains ESCAPE '\\'
+                OR LOWER(brand) LIKE :contains ESCAPE '\\')
+               AND COALESCE(is_active, TRUE)
+             ORDER BY LOWER(name) <-> :term, id LIMIT :candidates)
+            """;
+
+    private static final String RANKED = """
+            SELECT p.id, p.product_code, p.name, p.barcode, p.brand, p.category, p.unit_price,
+                   CASE
+                       WHEN LOWER(p.product_code) = :term OR p.barcode = :raw THEN 3
+                       WHEN LOWER(p.product_code) LIKE :prefix ESCAPE '\\' THEN 2
+                       WHEN LOWER(p.name) LIKE :prefix ESCAPE '\\' THEN 1
+                       ELSE 0
+                   END + similarity(LOWER(p.name), :term) AS score
+            FROM products p
+            JOIN (%s) c ON c.id = p.id
+            ORDER BY score DESC, LOWER(p.name), p.id
+            LIMIT :limit
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Best matching active products for a partially typed name, code, barcode or brand.
+     *
+     * @param limit maximum results, capped at {@link #MAX_LIMIT}
+     */
+    public List<ProductSearchResult> typeahead(String query, int limit) {
+        String term = query != null ? query.trim().toLowerCase(Locale.ROOT) : "";
+        if (term.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String escaped = escapeLike(term);
+        String candidates = term.length() >= MIN_TRIGRAM_LENGTH ? CANDIDATES + CONTAINS_CANDIDATES : CANDIDATES;
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("term", term)
+                .addValue("raw", query.trim())
+                .addValue("prefix", escaped + "%")
+                .addValue("contains", "%" + escaped + "%")
+                .addValue("candidates", CANDIDATES_PER_BRANCH)
+                .addValue("limit", Math.min(limit, MAX_LIMIT));
+
+        return jdbcTemplate.query(RANKED.formatted(candidates), params, (rs, rowNum) -> ProductSearchResult.builder()
+                .id(rs.getLong("id"))
+                .productCode(rs.getString("product_code"))
+                .name(rs.getString("name"))
+                .barcode(rs.getString("barcode"))
+                .brand(rs.getString("brand"))
+                .category(rs.getString("category"))
+                .unitPrice(rs.getBigDecimal("unit_price"))
+                .score(rs.getDouble("score"))
+                .build());
+    }
+
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,443 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.dto.ReceivedStockImportJobStatus;
+import com.allocat.inventory.dto.ReceivedStockImportResult;
+import com.allocat.inventory.entity.ReceivedStockImportJob;
+import com.allocat.inventory.entity.ReceivedStockImportJob.ImportFormat;
+import com.allocat.inventory.entity.ReceivedStockImportJob.ImportJobStatus;
+import com.allocat.inventory.repository.ReceivedStockImportJobRepository;
+import com.allocat.inventory.repository.ReceivedStockRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs received stock uploads as background jobs. Uploads are staged in the
+ * database, processed in chunks on a bounded executor, and checkpointed after
+ * every chunk so an interrupted job resumes where it stopped.
+ * <p>
+ * A job is run by one instance at a time: the instance claims it with a
+ * lease, renews the lease while it works, and every checkpoint and final
+ * write only lands while it still holds it. Each instance takes over jobs
+ * whose lease has expired (their owner stopped or died), on start and then
+ * every lease period.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReceivedStockImportJobService {
+
+    private final ReceivedStockImportJobRepository jobRepository;
+    private final ReceivedStockRepository receivedStockRepository;
+    private final ReceivedStockImportService importService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String STAGE_FILE =
+            "INSERT INTO received_stock_import_files (upload_id, content) VALUES (?, ?)";
+    private static final String READ_FILE =
+            "SELECT content FROM received_stock_import_files WHERE upload_id = ?";
+    private static final String DELETE_FILE =
+            "DELETE FROM received_stock_import_files WHERE upload_id = ?";
+
+    // Takes a waiting job, or one whose owner let the lease expire
+    private static final String CLAIM = "UPDATE received_stock_import_jobs "
+            + "SET owner_id = ?, lease_expires_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 second', status = 'RUNNING' "
+            + "WHERE upload_id = ? AND status IN ('QUEUED', 'RUNNING') "
+            + "AND (owner_id = ? OR lease_expires_at IS NULL OR lease_expires_at < CURRENT_TIMESTAMP)";
+    // Also the ownership check: no row means another instance has taken the job over
+    private static final String RENEW = "UPDATE received_stock_import_jobs "
+            + "SET lease_expires_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 second' "
+            + "WHERE upload_id = ? AND owner_id = ? AND status IN ('QUEUED', 'RUNNING')";
+    private static final String RENEW_ALL = "UPDATE received_stock_import_jobs "
+            + "SET lease_expires_at = CURRENT_TIMESTAMP + ? * INTERVAL '1 second' "
+            + "WHERE owner_id = ? AND status IN ('QUEUED', 'RUNNING')";
+    private static final String EXPIRED = "SELECT upload_id FROM received_stock_import_jobs "
+            + "WHERE status IN ('QUEUED', 'RUNNING') "
+            + "AND (lease_expires_at IS NULL OR lease_expires_at < CURRENT_TIMESTAMP) ORDER BY created_at";
+
+    // Lease owner id of this instance
+    private final String instanceId = UUID.randomUUID().toString();
+    // Jobs queued or running on this instance
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    @Value("${app.inventory.import.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${app.inventory.import.workers:2}")
+    private int workers;
+
+    @Value("${app.inventory.import.queue-capacity:20}")
+    private int queueCapacity;
+
+    private ThreadPoolTaskExecutor executor;
+
+    /**
+     * The job was taken over by another instance after this one's lease expired.
+     */
+    private static class LeaseLostException extends RuntimeException {
+        LeaseLostException(String uploadId) {
+            super("Lease on import " + uploadId + " was lost");
+        }
+    }
+
+    @PostConstruct
+    void startExecutor() {
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("stock-import-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        // Running jobs stay RUNNING; once their lease expires another instance resumes them from the last checkpoint
+        executor.shutdown();
+    }
+
+    /**
+     * Stage an upload and queue it for background processing.
+     *
+     * @throws IllegalStateException if the import queue is full
+     */
+    public ReceivedStockImportJob submit(InputStream content, String fileName, ImportFormat format) {
+        String uploadId = UUID.randomUUID().toString();
+
+        // Owned from the start, so no other instance picks it up while it waits in this queue
+        ReceivedStockImportJob job = transactionTemplate.execute(status -> {
+            ReceivedStockImportJob saved = jobRepository.save(ReceivedStockImportJob.builder()
+                    .uploadId(uploadId)
+                    .fileName(fileName)
+                    .format(format)
+                    .status(ImportJobStatus.QUEUED)
+                    .ownerId(instanceId)
+                    .leaseExpiresAt(LocalDateTime.now().plusSeconds(leaseSeconds))
+                    .build());
+            jobRepository.flush();
+            jdbcTemplate.update(STAGE_FILE, ps -> {
+                ps.setString(1, uploadId);
+                ps.setBinaryStream(2, content);
+            });
+            return saved;
+        });
+
+        active.add(uploadId);
+        try {
+            executor.execute(() -> run(uploadId));
+        } catch (TaskRejectedException e) {
+            active.remove(uploadId);
+            job.setStatus(ImportJobStatus.FAILED);
+            job.setFailureReason("Import queue is full");
+            job.setCompletedAt(LocalDateTime.now());
+            jobRepository.save(job);
+            jdbcTemplate.update(DELETE_FILE, uploadId);
+            throw new IllegalStateException("Import queue is full, please retry later");
+        }
+
+        log.info("Queued received stock import {} ({}, {})", uploadId, fileName, format);
+        return job;
+    }
+
+    public ReceivedStockImportJobStatus getStatus(String uploadId) {
+        ReceivedStockImportJob job = jobRepository.findByUploadId(uploadId)
+                .orElseThrow(() -> new RuntimeException("Import job not found with upload ID: " + uploadId));
+        return toStatus(job);
+    }
+
+    /**
+     * Keep this instance's leases alive, well within the lease period.
+     */
+    @Scheduled(fixedDelayString = "#{T(java.lang.Math).max(1, ${app.inventory.import.lease-seconds:60} / 3)}",
+            timeUnit = TimeUnit.SECONDS)
+    void renewLeases() {
+        try {
+            jdbcTemplate.update(RENEW_ALL, leaseSeconds, instanceId);
+        } catch (Exception e) {
+            log.warn("Could not renew import job leases: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Queue the jobs whose lease has expired, on start and then every lease
+     * period: waiting or running when their instance shut down or died. Each
+     * is claimed when it starts.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.import.lease-seconds:60}", timeUnit = TimeUnit.SECONDS)
+    void resumeInterruptedJobs() {
+        try {
+            for (String uploadId : jdbcTemplate.queryForList(EXPIRED, String.class)) {
+                if (!active.add(uploadId)) {
+                    continue;
+                }
+                try {
+                    executor.execute(() -> run(uploadId));
+                    log.info("Queued interrupted received stock import {} for resumption", uploadId);
+                } catch (TaskRejectedException e) {
+                    active.remove(uploadId);
+                    log.warn("Import queue full, job {} will be resumed later", uploadId);
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not look for interrupted import jobs: {}", e.getMessage());
+        }
+    }
+
+    private void run(String uploadId) {
+        try {
+            if (jdbcTemplate.update(CLAIM, instanceId, leaseSeconds, uploadId, instanceId) == 0) {
+                log.debug("Import {} is finished or owned by another instance", uploadId);
+                return;
+            }
+            execute(uploadId);
+        } catch (LeaseLostException e) {
+            log.warn("Stopped received stock import {}: another instance took it over", uploadId);
+        } catch (Exception e) {
+            log.error("Received stock import {} failed", uploadId, e);
+            try {
+                whileOwned(uploadId, () -> jobRepository.findByUploadId(uploadId).ifPresent(failed -> {
+                    failed.setStatus(ImportJobStatus.FAILED);
+                    failed.setFailureReason(e.getMessage());
+                    failed.setCompletedAt(LocalDateTime.now());
+                    jobRepository.save(failed);
+                    jdbcTemplate.update(DELETE_FILE, uploadId);
+                }));
+            } catch (LeaseLostException lost) {
+                log.warn("Not marking import {} failed: another instance took it over", uploadId);
+            } catch (Exception recordError) {
+                log.warn("Could not mark import {} failed, it resumes once its lease expires: {}",
+                        uploadId, recordError.getMessage());
+            }
+        } finally {
+            active.remove(uploadId);
+        }
+    }
+
+    private void execute(String uploadId) throws IOException {
+        ReceivedStockImportJob job = jobRepository.findByUploadId(uploadId).orElseThrow();
+        Path file = download(job);
+        try {
+            if (job.getTotalRows() == null) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    job.setTotalRows(job.getFormat() == ImportFormat.JSON
+                            ? importService.countJsonRows(in)
+                            : importService.countCsvRows(in));
+                }
+            }
+            if (job.getStartedAt() == null) {
+                job.setStartedAt(LocalDateTime.now());
+            }
+            whileOwned(uploadId, () -> jobRepository.save(job));
+
+            // Rows written after the last checkpoint belong to an interrupted chunk; drop them before resuming.
+            // The previous owner's lease has expired, and any chunk it still commits fails its checkpoint.
+            int checkpoint = job.getLastRowNumber();
+            Integer orphaned = transactionTemplate.execute(status -> {
+                renew(uploadId);
+                return receivedStockRepository.deleteByCsvUploadIdAfterRow(uploadId, checkpoint);
+            });
+            if (orphaned != null && orphaned > 0) {
+                log.info("Removed {} uncheckpointed rows of import {} before resuming", orphaned, uploadId);
+            }
+
+            ReceivedStockImportResult resumeFrom = ReceivedStockImportResult.builder()
+                    .uploadId(uploadId)
+                    .totalRows(job.getProcessedRows())
+                    .importedRows(job.getImportedRows())
+                    .failedRows(job.getFailedRows())
+                    .productsCreated(job.getProductsCreated())
+                    .productsUpdated(job.getProductsUpdated())
+                    .lastRowNumber(checkpoint)
+                    .errors(readErrors(job.getErrors()))
+                    .build();
+
+            ReceivedStockImportResult result;
+            try (InputStream in = Files.newInputStream(file)) {
+                ReceivedStockImportService.ChunkListener checkpointer = progress -> checkpoint(uploadId, progress);
+                result = job.getFormat() == ImportFormat.JSON
+                        ? importService.importJson(in, uploadId, resumeFrom, checkpointer)
+                        : importService.importCsv(in, uploadId, resumeFrom, checkpointer);
+            }
+
+            whileOwned(uploadId, () -> {
+                ReceivedStockImportJob completed = jobRepository.findByUploadId(uploadId).orElseThrow();
+                completed.setStatus(ImportJobStatus.COMPLETED);
+                completed.setLastRowNumber(result.getLastRowNumber());
+                completed.setProcessedRows(result.getTotalRows());
+                completed.setImportedRows(result.getImportedRows());
+                completed.setFailedRows(result.getFailedRows());
+                completed.setProductsCreated(result.getProductsCreated());
+                completed.setProductsUpdated(result.getProductsUpdated());
+                completed.setErrors(writeErrors(result.getErrors()));
+                completed.setCompletedAt(LocalDateTime.now());
+                jobRepository.save(completed);
+                jdbcTemplate.update(DELETE_FILE, uploadId);
+            });
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    /**
+     * Run a write in one transaction with a lease renewal, so it only
+     * commits while this instance still owns the job.
+     */
+    private void whileOwned(String uploadId, Runnable write) {
+        transactionTemplate.executeWithoutResult(status -> {
+            renew(uploadId);
+            write.run();
+        });
+    }
+
+    private void renew(String uploadId) {
+        if (jdbcTemplate.update(RENEW, leaseSeconds, uploadId, instanceId) == 0) {
+            throw new LeaseLostException(uploadId);
+        }
+    }
+
+    /**
+     * Runs inside the chunk's transaction, so a chunk written after the job
+     * was taken over rolls back with its checkpoint.
+     */
+    private void checkpoint(String uploadId, ReceivedStockImportResult progress) {
+        renew(uploadId);
+        jobRepository.updateCheckpoint(uploadId,
+                progress.getLastRowNumber(),
+                progress.getTotalRows(),
+                progress.getImportedRows(),
+                progress.getFailedRows(),
+                progress.getProductsCreated(),
+                progress.getProductsUpdated(),
+                writeErrors(progress.getErrors()),
+                LocalDateTime.now());
+    }
+
+    private ReceivedStockImportJobStatus toStatus(ReceivedStockImportJob job) {
+        double progressPercent = 0;
+        if (job.getStatus() == ImportJobStatus.COMPLETED) {
+            progressPercent = 100;
+        } else if (job.getTotalRows() != null && job.getTotalRows() > 0) {
+            progressPercent = Math.min(100.0, job.getProcessedRows() * 100.0 / job.getTotalRows());
+        }
+
+        double rowsPerSecond = 0;
+        if (job.getStartedAt() != null) {
+            LocalDateTime end = job.getCompletedAt() != null ? job.getCompletedAt()
+                    : job.getLastCheckpointAt() != null ? job.getLastCheckpointAt() : LocalDateTime.now();
+            long millis = Duration.between(job.getStartedAt(), end).toMillis();
+            rowsPerSecond = millis > 0 ? job.getProcessedRows() * 1000.0 / millis : 0;
+        }
+
+        return ReceivedStockImportJobStatus.builder()
+                .uploadId(job.getUploadId())
+                .fileName(job.getFileName())
+                .format(job.getFormat())
+                .status(job.getStatus())
+                .totalRows(job.getTotalRows())
+                .processedRows(job.getProcessedRows())
+                .progressPercent(progressPercent)
+                .importedRows(job.getImportedRows())
+                .failedRows(job.getFailedRows())
+                .productsCreated(job.getProductsCreated())
+                .productsUpdated(job.getProductsUpdated())
+                .rowsPerSecond(rowsPerSecond)
+                .startedAt(job.getStartedAt())
+                .lastCheckpointAt(job.getLastCheckpointAt())
+                .completedAt(job.getCompletedAt())
+                .failureReason(job.getFailureReason())
+                .errors(readErrors(job.getErrors()))
+                .build();
+    }
+
+    /**
+     * Copy the staged upload to a local temporary file; it is read twice, to
+     * count rows and to import them.
+     */
+    private Path download(ReceivedStockImportJob job) throws IOException {
+        Path target = Files.createTempFile("stock-import-" + job.getUploadId(),
+                job.getFormat() == ImportFormat.JSON ? ".json" : ".csv");
+        try {
+            Boolean found = jdbcTemplate.query(READ_FILE, rs -> {
+                if (!rs.next()) {
+                    return false;
+                }
+                try (InputStream in = rs.getBinaryStream(1)) {
+                    Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            }, job.getUploadId());
+            if (!Boolean.TRUE.equals(found)) {
+                throw new IllegalStateException("Staged upload not found for import " + job.getUploadId());
+            }
+            return target;
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(target);
+            throw e;
+        }
+    }
+
+    private String writeErrors(List<ReceivedStockImportResult.RowError> errors) {
+        if (errors == null || errors.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(errors);
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize import errors: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private List<ReceivedStockImportResult.RowError> readErrors(String errors) {
+        if (errors == null || errors.isBlank()) {
+            return new ArrayList<>();
+        }
+        try {
+            return objectMapper.readValue(errors, new TypeReference<List<ReceivedStockImportResult.RowError>>() {
+            });
+        } catch (JsonProcessingException e) {
+            log.warn("Could not read stored import errors: {}", e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete staged upload {}: {}", file, e.getMessage());
+        }
+    }
+}
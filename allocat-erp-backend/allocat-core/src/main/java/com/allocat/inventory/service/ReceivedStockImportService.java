@@ -0,0 +1,769 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.dto.ReceivedStockImportResult;
+import com.allocat.inventory.dto.ReceivedStockRequest;
+import com.allocat.inventory.entity.Product;
+import com.allocat.inventory.entity.ReceivedStock;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Streaming import of received stock. Rows are read one at a time from CSV or
+ * JSON, grouped into chunks, and each chunk resolves its product codes with a
+ * single query and writes products and received stock with JDBC batches.
+ * Bad rows are reported in the result instead of failing the whole upload.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReceivedStockImportService {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setIgnoreEmptyLines(true)
+            .setTrim(true)
+            .build();
+
+    private static final String SELECT_PRODUCTS_BY_CODE = """
+            SELECT id, product_code, name, description, category, unit_price, unit_of_measure,
+                   minimum_stock_level, maximum_stock_level, is_active, supplier_name, supplier_contact,
+                   barcode, sku, brand, model, color, size, weight, dimensions, notes
+            FROM products
+            WHERE product_code IN (:codes)
+            """;
+
+    private static final String SELECT_PRODUCT_IDS_BY_CODE =
+            "SELECT product_code, id FROM products WHERE product_code IN (:codes)";
+
+    private static final String UPSERT_PRODUCT = """
+            INSERT INTO products (product_code, name, sku, description, category, unit_price, unit_of_measure,
+                                  minimum_stock_level, maximum_stock_level, is_active, supplier_name,
+                                  supplier_contact, barcode, brand, model, color, size, weight, dimensions,
+                                  notes, created_at, updated_at)
+            VALUES (:productCode, :name, :sku, :description, :category, :unitPrice, :unitOfMeasure,
+                    :minimumStockLevel, :maximumStockLevel, :isActive, :supplierName,
+                    :supplierContact, :barcode, :brand, :model, :color, :size, :weight, :dimensions,
+                    :notes, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            ON CONFLICT (product_code) DO UPDATE SET
+                name = EXCLUDED.name,
+                description = EXCLUDED.description,
+                category = EXCLUDED.category,
+                unit_price = EXCLUDED.unit_price,
+                unit_of_measure = EXCLUDED.unit_of_measure,
+                minimum_stock_level = EXCLUDED.minimum_stock_level,
+                maximum_stock_level = EXCLUDED.maximum_stock_level,
+                supplier_name = EXCLUDED.supplier_name,
+                supplier_contact = EXCLUDED.supplier_contact,
+                barcode = EXCLUDED.barcode,
+                brand = EXCLUDED.brand,
+                model = EXCLUDED.model,
+                color = EXCLUDED.color,
+                size = EXCLUDED.size,
+                weight = EXCLUDED.weight,
+                dimensions = EXCLUDED.dimensions,
+                notes = EXCLUDED.notes,
+                updated_at = CURRENT_TIMESTAMP
+            """;
+
+    private static final String INSERT_RECEIVED_STOCK = """
+            INSERT INTO received_stock (product_id, product_code, product_name, expected_quantity,
+                                        received_quantity, verified_quantity, unit_price, total_value, status,
+                                        batch_number, expiry_date, supplier_name, supplier_invoice_number, delivery_date,
+                                        expected_delivery_date, received_date, received_by, verified_by, notes,
+                                        quality_issues, damage_quantity, shortage_quantity, excess_quantity,
+                                        csv_upload_id, row_number, created_at, updated_at)
+            VALUES (:productId, :productCode, :productName, :expectedQuantity,
+                    :receivedQuantity, :verifiedQuantity, :unitPrice, :totalValue, :status,
+                    :batchNumber, :expiryDate, :supplierName, :supplierInvoiceNumber, :deliveryDate,
+                    :expectedDeliveryDate, :receivedDate, :receivedBy, :verifiedBy, :notes,
+                    :qualityIssues, :damageQuantity, :shortageQuantity, :excessQuantity,
+                    :csvUploadId, :rowNumber, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.inventory.import.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Callback run inside each chunk's transaction, after its rows are written,
+     * so progress recorded by the listener commits atomically with the rows.
+     */
+    @FunctionalInterface
+    public interface ChunkListener {
+        void onChunkWritten(ReceivedStockImportResult progress);
+    }
+
+    /**
+     * Import received stock from a CSV stream with a header row. Header names
+     * follow the ReceivedStockRequest fields, case and separators ignored
+     * (e.g. "productCode", "product_code" and "Product Code" are equivalent).
+     */
+    public ReceivedStockImportResult importCsv(InputStream inputStream, String uploadId) {
+        return importCsv(inputStream, uploadId, null, progress -> {
+        });
+    }
+
+    /**
+     * Import received stock from a CSV stream, resuming after the rows already
+     * covered by {@code resumeFrom} (null for a fresh import).
+     */
+    public ReceivedStockImportResult importCsv(InputStream inputStream, String uploadId,
+                                               ReceivedStockImportResult resumeFrom, ChunkListener listener) {
+        Reader reader = new InputStreamReader(inputStream, StandardCharsets.UTF_8);
+        try (CSVParser parser = CSV_FORMAT.parse(reader)) {
+            Iterator<CSVRecord> records = parser.iterator();
+            return importRows(new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return records.hasNext();
+                }
+
+                @Override
+                public ImportRow next() {
+                    CSVRecord record = records.next();
+                    int rowNumber = (int) record.getRecordNumber();
+                    Map<String, String> columns = record.toMap();
+                    try {
+                        return ImportRow.of(rowNumber, toRequest(columns));
+                    } catch (RuntimeException e) {
+                        return ImportRow.failed(rowNumber, productCodeOf(columns), e.getMessage());
+                    }
+                }
+            }, uploadId, resumeFrom, listener);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read CSV upload", e);
+        }
+    }
+
+    /**
+     * Import received stock from a JSON array stream. Elements are read one at
+     * a time so the full payload is never held in memory.
+     */
+    public ReceivedStockImportResult importJson(InputStream inputStream, String uploadId) {
+        return importJson(inputStream, uploadId, null, progress -> {
+        });
+    }
+
+    /**
+     * Import received stock from a JSON array stream, resuming after the rows
+     * already covered by {@code resumeFrom} (null for a fresh import).
+     */
+    public ReceivedStockImportResult importJson(InputStream inputStream, String uploadId,
+                                                ReceivedStockImportResult resumeFrom, ChunkListener listener) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of received stock items");
+            }
+            return importRows(new Iterator<>() {
+                private int rowNumber = 0;
+                private JsonToken current;
+
+                @Override
+                public boolean hasNext() {
+                    if (current == null) {
+                        try {
+                            current = parser.nextToken();
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    return current == JsonToken.START_OBJECT;
+                }
+
+                @Override
+                public ImportRow next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    current = null;
+                    rowNumber++;
+                    JsonNode node;
+                    try {
+                        node = objectMapper.readTree(parser);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    try {
+                        return ImportRow.of(rowNumber, objectMapper.treeToValue(node, ReceivedStockRequest.class));
+                    } catch (JsonProcessingException | IllegalArgumentException e) {
+                        return ImportRow.failed(rowNumber, node.path("productCode").asText(null),
+                                e.getMessage());
+                    }
+                }
+            }, uploadId, resumeFrom, listener);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JSON upload", e);
+        }
+    }
+
+    /**
+     * Count the data rows of a CSV stream without importing them.
+     */
+    public int countCsvRows(InputStream inputStream) {
+        try (CSVParser parser = CSV_FORMAT.parse(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            int count = 0;
+            for (CSVRecord ignored : parser) {
+                count++;
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read CSV upload", e);
+        }
+    }
+
+    /**
+     * Count the elements of a JSON array stream without binding them.
+     */
+    public int countJsonRows(InputStream inputStream) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(inputStream)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of received stock items");
+            }
+            int count = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                count++;
+            }
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read JSON upload", e);
+        }
+    }
+
+    /**
+     * Import an already materialised list of requests through the same chunked pipeline.
+     */
+    public ReceivedStockImportResult importRequests(List<ReceivedStockRequest> requests, String uploadId) {
+        Iterator<ReceivedStockRequest> source = requests.iterator();
+        return importRows(new Iterator<>() {
+            private int rowNumber = 0;
+
+            @Override
+            public boolean hasNext() {
+                return source.hasNext();
+            }
+
+            @Override
+            public ImportRow next() {
+                return ImportRow.of(++rowNumber, source.next());
+            }
+        }, uploadId, null, progress -> {
+        });
+    }
+
+    private ReceivedStockImportResult importRows(Iterator<ImportRow> rows, String uploadId,
+                                                 ReceivedStockImportResult resumeFrom, ChunkListener listener) {
+        long startNanos = System.nanoTime();
+        ReceivedStockImportResult result = resumeFrom != null
+                ? resumeFrom
+                : ReceivedStockImportResult.builder().uploadId(uploadId).build();
+        int checkpoint = result.getLastRowNumber();
+        int rowsThisRun = 0;
+        int lastRowRead = checkpoint;
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+
+        try {
+            while (rows.hasNext()) {
+                ImportRow row = rows.next();
+                if (row.rowNumber <= checkpoint) {
+                    continue; // already written before the restart
+                }
+                lastRowRead = row.rowNumber;
+                rowsThisRun++;
+                result.setTotalRows(result.getTotalRows() + 1);
+
+                String validationError = row.error != null ? row.error : validate(row.request);
+                if (validationError != null) {
+                    recordError(result, row.rowNumber,
+                            row.request != null ? row.request.getProductCode() : row.productCode, validationError);
+                    continue;
+                }
+
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    writeChunk(chunk, uploadId, result, lastRowRead, listener);
+                    chunk.clear();
+                }
+            }
+        } catch (UncheckedIOException e) {
+            // Malformed input: keep what was read so far and report where parsing stopped
+            log.warn("Stopped reading upload {} after {} rows: {}", uploadId, result.getTotalRows(), e.getMessage());
+            recordError(result, lastRowRead + 1, null, "Malformed input: " + e.getCause().getMessage());
+        }
+
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, uploadId, result, lastRowRead, listener);
+        }
+        result.setLastRowNumber(lastRowRead);
+
+        long durationMs = (System.nanoTime() - startNanos) / 1_000_000;
+        result.setDurationMs(result.getDurationMs() + durationMs);
+        result.setRowsPerSecond(durationMs > 0 ? rowsThisRun * 1000.0 / durationMs : rowsThisRun);
+
+        log.info("Imported upload {}: {} of {} rows in {} ms ({} rows/s), {} products created, {} updated, {} failed",
+                uploadId, result.getImportedRows(), result.getTotalRows(), durationMs,
+                String.format("%.1f", result.getRowsPerSecond()), result.getProductsCreated(),
+                result.getProductsUpdated(), result.getFailedRows());
+        return result;
+    }
+
+    private String validate(ReceivedStockRequest request) {
+        if (request == null) {
+            return "Empty row";
+        }
+        if (isBlank(request.getProductCode())) {
+            return "Product code is required";
+        }
+        if (isBlank(request.getProductName())) {
+            return "Product name is required";
+        }
+        if (request.getExpectedQuantity() == null) {
+            return "Expected quantity is required";
+        }
+        if (request.getExpectedQuantity() < 0) {
+            return "Expected quantity cannot be negative";
+        }
+        return null;
+    }
+
+    /**
+     * Write a chunk in one transaction. If the batch is rejected the chunk is
+     * replayed row by row so only the offending rows are reported as failed.
+     */
+    private void writeChunk(List<ImportRow> chunk, String uploadId, ReceivedStockImportResult result,
+                            int lastRowRead, ChunkListener listener) {
+        try {
+            ChunkOutcome outcome = transactionTemplate.execute(status -> {
+                ChunkOutcome written = persistChunk(chunk, uploadId);
+                listener.onChunkWritten(progress(result, written, lastRowRead));
+                return written;
+            });
+            apply(result, outcome);
+        } catch (DataAccessException e) {
+            log.warn("Batch write failed for upload {}, retrying {} rows individually: {}",
+                    uploadId, chunk.size(), e.getMostSpecificCause().getMessage());
+            for (ImportRow row : chunk) {
+                try {
+                    ChunkOutcome outcome = transactionTemplate.execute(status -> persistChunk(List.of(row), uploadId));
+                    apply(result, outcome);
+                } catch (DataAccessException rowError) {
+                    recordError(result, row.rowNumber, row.request.getProductCode(),
+                            rowError.getMostSpecificCause().getMessage());
+                }
+            }
+            transactionTemplate.executeWithoutResult(
+                    status -> listener.onChunkWritten(progress(result, null, lastRowRead)));
+        }
+    }
+
+    private ChunkOutcome persistChunk(List<ImportRow> chunk, String uploadId) {
+        ChunkOutcome outcome = new ChunkOutcome();
+
+        // Merge every row of the chunk into one target state per product code
+        Map<String, Product> existing = loadProducts(chunk);
+        Map<String, Product> targets = new LinkedHashMap<>();
+        // Sorted so concurrent imports lock product rows in the same order
+        Set<String> dirty = new TreeSet<>();
+        for (ImportRow row : chunk) {
+            String code = row.request.getProductCode().trim();
+            Product target = targets.computeIfAbsent(code, c -> {
+                Product current = existing.get(c);
+                if (current != null) {
+                    return current;
+                }
+                dirty.add(c);
+                return Product.builder()
+                        .productCode(c)
+                        .name(row.request.getProductName())
+                        .sku(c) // Set sku to productCode to avoid null constraint violation
+                        .isActive(true)
+                        .build();
+            });
+            if (mergeInto(target, row.request)) {
+                dirty.add(code);
+            }
+        }
+
+        List<SqlParameterSource> upserts = new ArrayList<>();
+        List<String> newCodes = new ArrayList<>();
+        for (String code : dirty) {
+            Product target = targets.get(code);
+            upserts.add(new BeanPropertySqlParameterSource(target));
+            if (target.getId() == null) {
+                newCodes.add(code);
+                outcome.productsCreated++;
+            } else {
+                outcome.productsUpdated++;
+            }
+        }
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT_PRODUCT, upserts.toArray(new SqlParameterSource[0]));
+        }
+
+        Map<String, Long> productIds = new HashMap<>();
+        targets.forEach((code, product) -> {
+            if (product.getId() != null) {
+                productIds.put(code, product.getId());
+            }
+        });
+        if (!newCodes.isEmpty()) {
+            jdbcTemplate.query(SELECT_PRODUCT_IDS_BY_CODE, new MapSqlParameterSource("codes", newCodes),
+                    rs -> {
+                        productIds.put(rs.getString("product_code"), rs.getLong("id"));
+                    });
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        SqlParameterSource[] inserts = new SqlParameterSource[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            ImportRow row = chunk.get(i);
+            inserts[i] = toReceivedStockParams(row, productIds.get(row.request.getProductCode().trim()),
+                    uploadId, now);
+        }
+        jdbcTemplate.batchUpdate(INSERT_RECEIVED_STOCK, inserts);
+        outcome.importedRows = chunk.size();
+        return outcome;
+    }
+
+    private Map<String, Product> loadProducts(List<ImportRow> chunk) {
+        List<String> codes = chunk.stream()
+                .map(row -> row.request.getProductCode().trim())
+                .distinct()
+                .toList();
+        Map<String, Product> products = new HashMap<>();
+        for (Product product : jdbcTemplate.query(SELECT_PRODUCTS_BY_CODE, new MapSqlParameterSource("codes", codes),
+                new BeanPropertyRowMapper<>(Product.class))) {
+            products.put(product.getProductCode(), product);
+        }
+        return products;
+    }
+
+    private SqlParameterSource toReceivedStockParams(ImportRow row, Long productId, String uploadId, Timestamp now) {
+        ReceivedStockRequest request = row.request;
+        BigDecimal totalValue = request.getUnitPrice() != null && request.getExpectedQuantity() != null
+                ? request.getUnitPrice().multiply(BigDecimal.valueOf(request.getExpectedQuantity()))
+                : null;
+
+        return new MapSqlParameterSource()
+                .addValue("productId", productId, Types.BIGINT)
+                .addValue("productCode", request.getProductCode().trim(), Types.VARCHAR)
+                .addValue("productName", request.getProductName(), Types.VARCHAR)
+                .addValue("expectedQuantity", request.getExpectedQuantity(), Types.INTEGER)
+                .addValue("receivedQuantity", request.getReceivedQuantity() != null ? request.getReceivedQuantity() : 0,
+                        Types.INTEGER)
+                .addValue("verifiedQuantity", request.getVerifiedQuantity() != null ? request.getVerifiedQuantity() : 0,
+                        Types.INTEGER)
+                .addValue("unitPrice", request.getUnitPrice(), Types.NUMERIC)
+                .addValue("totalValue", totalValue, Types.NUMERIC)
+                .addValue("status", ReceivedStock.ReceivedStockStatus.PENDING.name(), Types.VARCHAR)
+                .addValue("batchNumber", request.getBatchNumber(), Types.VARCHAR)
+                .addValue("expiryDate", request.getExpiryDate() != null
+                        ? Timestamp.valueOf(request.getExpiryDate()) : null, Types.TIMESTAMP)
+                .addValue("supplierName", request.getSupplierName(), Types.VARCHAR)
+                .addValue("supplierInvoiceNumber", request.getSupplierInvoice(), Types.VARCHAR)
+                .addValue("deliveryDate", request.getDeliveryDate() != null
+                        ? Timestamp.valueOf(request.getDeliveryDate()) : now, Types.TIMESTAMP)
+                .addValue("expectedDeliveryDate", request.getExpectedDeliveryDate() != null
+                        ? Timestamp.valueOf(request.getExpectedDeliveryDate()) : null, Types.TIMESTAMP)
+                .addValue("receivedDate", now, Types.TIMESTAMP)
+                .addValue("receivedBy", blankToNull(request.getReceivedBy()), Types.VARCHAR)
+                .addValue("verifiedBy", blankToNull(request.getVerifiedBy()), Types.VARCHAR)
+                .addValue("notes", request.getNotes(), Types.VARCHAR)
+                .addValue("qualityIssues", blankToNull(request.getQualityIssues()), Types.VARCHAR)
+                .addValue("damageQuantity", request.getDamageQuantity(), Types.INTEGER)
+                .addValue("shortageQuantity", request.getShortageQuantity(), Types.INTEGER)
+                .addValue("excessQuantity", request.getExcessQuantity(), Types.INTEGER)
+                .addValue("csvUploadId", uploadId, Types.VARCHAR)
+                .addValue("rowNumber", row.rowNumber, Types.INTEGER);
+    }
+
+    /**
+     * Copy the non-empty product attributes of a row onto the product.
+     *
+     * @return true if any attribute changed
+     */
+    private boolean mergeInto(Product product, ReceivedStockRequest request) {
+        boolean changed = false;
+
+        if (!isBlank(request.getProductName()) && !request.getProductName().equals(product.getName())) {
+            product.setName(request.getProductName());
+            changed = true;
+        }
+        if (!isBlank(request.getDescription()) && !request.getDescription().equals(product.getDescription())) {
+            product.setDescription(request.getDescription());
+            changed = true;
+        }
+        if (!isBlank(request.getCategory()) && !request.getCategory().equals(product.getCategory())) {
+            product.setCategory(request.getCategory());
+            changed = true;
+        }
+        if (request.getUnitPrice() != null && (product.getUnitPrice() == null
+                || request.getUnitPrice().compareTo(product.getUnitPrice()) != 0)) {
+            product.setUnitPrice(request.getUnitPrice());
+            changed = true;
+        }
+        if (!isBlank(request.getUnitOfMeasure()) && !request.getUnitOfMeasure().equals(product.getUnitOfMeasure())) {
+            product.setUnitOfMeasure(request.getUnitOfMeasure());
+            changed = true;
+        }
+        if (!isBlank(request.getSupplierName()) && !request.getSupplierName().equals(product.getSupplierName())) {
+            product.setSupplierName(request.getSupplierName());
+            changed = true;
+        }
+        if (!isBlank(request.getSupplierContact())
+                && !request.getSupplierContact().equals(product.getSupplierContact())) {
+            product.setSupplierContact(request.getSupplierContact());
+            changed = true;
+        }
+        if (!isBlank(request.getBarcode()) && !request.getBarcode().equals(product.getBarcode())) {
+            product.setBarcode(request.getBarcode());
+            changed = true;
+        }
+        if (!isBlank(request.getBrand()) && !request.getBrand().equals(product.getBrand())) {
+            product.setBrand(request.getBrand());
+            changed = true;
+        }
+        if (!isBlank(request.getModel()) && !request.getModel().equals(product.getModel())) {
+            product.setModel(request.getModel());
+            changed = true;
+        }
+        if (!isBlank(request.getColor()) && !request.getColor().equals(product.getColor())) {
+            product.setColor(request.getColor());
+            changed = true;
+        }
+        if (!isBlank(request.getSize()) && !request.getSize().equals(product.getSize())) {
+            product.setSize(request.getSize());
+            changed = true;
+        }
+        if (request.getWeight() != null && (product.getWeight() == null
+                || request.getWeight().compareTo(product.getWeight()) != 0)) {
+            product.setWeight(request.getWeight());
+            changed = true;
+        }
+        if (!isBlank(request.getDimensions()) && !request.getDimensions().equals(product.getDimensions())) {
+            product.setDimensions(request.getDimensions());
+            changed = true;
+        }
+        if (request.getMinimumStockLevel() != null
+                && !request.getMinimumStockLevel().equals(product.getMinimumStockLevel())) {
+            product.setMinimumStockLevel(request.getMinimumStockLevel());
+            changed = true;
+        }
+        if (request.getMaximumStockLevel() != null
+                && !request.getMaximumStockLevel().equals(product.getMaximumStockLevel())) {
+            product.setMaximumStockLevel(request.getMaximumStockLevel());
+            changed = true;
+        }
+        if (!isBlank(request.getNotes()) && !request.getNotes().equals(product.getNotes())) {
+            product.setNotes(request.getNotes());
+            changed = true;
+        }
+
+        return changed;
+    }
+
+    private ReceivedStockRequest toRequest(Map<String, String> record) {
+        ReceivedStockRequest request = new ReceivedStockRequest();
+        for (Map.Entry<String, String> column : record.entrySet()) {
+            String value = blankToNull(column.getValue());
+            if (value == null || column.getKey() == null) {
+                continue;
+            }
+            String key = columnKey(column.getKey());
+            switch (key) {
+                case "productcode" -> request.setProductCode(value);
+                case "productname", "name" -> request.setProductName(value);
+                case "description" -> request.setDescription(value);
+                case "category" -> request.setCategory(value);
+                case "barcode" -> request.setBarcode(value);
+                case "brand" -> request.setBrand(value);
+                case "model" -> request.setModel(value);
+                case "color" -> request.setColor(value);
+                case "size" -> request.setSize(value);
+                case "weight" -> request.setWeight(parseDecimal(key, value));
+                case "dimensions" -> request.setDimensions(value);
+                case "unitofmeasure" -> request.setUnitOfMeasure(value);
+                case "expectedquantity" -> request.setExpectedQuantity(parseInteger(key, value));
+                case "receivedquantity" -> request.setReceivedQuantity(parseInteger(key, value));
+                case "verifiedquantity" -> request.setVerifiedQuantity(parseInteger(key, value));
+                case "damagequantity" -> request.setDamageQuantity(parseInteger(key, value));
+                case "shortagequantity" -> request.setShortageQuantity(parseInteger(key, value));
+                case "excessquantity" -> request.setExcessQuantity(parseInteger(key, value));
+                case "unitprice" -> request.setUnitPrice(parseDecimal(key, value));
+                case "suppliername" -> request.setSupplierName(value);
+                case "suppliercontact" -> request.setSupplierContact(value);
+                case "supplierinvoice", "supplierinvoicenumber" -> request.setSupplierInvoice(value);
+                case "batchnumber" -> request.setBatchNumber(value);
+                case "expecteddeliverydate" -> request.setExpectedDeliveryDate(parseDateTime(key, value));
+                case "deliverydate" -> request.setDeliveryDate(parseDateTime(key, value));
+                case "expirydate" -> request.setExpiryDate(parseDateTime(key, value));
+                case "receivedby" -> request.setReceivedBy(value);
+                case "verifiedby" -> request.setVerifiedBy(value);
+                case "notes" -> request.setNotes(value);
+                case "qualityissues" -> request.setQualityIssues(value);
+                case "minimumstocklevel" -> request.setMinimumStockLevel(parseInteger(key, value));
+                case "maximumstocklevel" -> request.setMaximumStockLevel(parseInteger(key, value));
+                default -> {
+                    // Unknown columns are ignored
+                }
+            }
+        }
+        return request;
+    }
+
+    /**
+     * Product code of a CSV row that failed to convert, read under any of its header spellings
+     */
+    private static String productCodeOf(Map<String, String> record) {
+        for (Map.Entry<String, String> column : record.entrySet()) {
+            if (column.getKey() != null && "productcode".equals(columnKey(column.getKey()))) {
+                return blankToNull(column.getValue());
+            }
+        }
+        return null;
+    }
+
+    // Header name with case and separators ignored
+    private static String columnKey(String header) {
+        return header.replaceAll("[^A-Za-z0-9]", "").toLowerCase();
+    }
+
+    private Integer parseInteger(String column, String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + column + ": " + value);
+        }
+    }
+
+    private BigDecimal parseDecimal(String column, String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid decimal for " + column + ": " + value);
+        }
+    }
+
+    private LocalDateTime parseDateTime(String column, String value) {
+        try {
+            return value.length() == 10 ? LocalDate.parse(value).atStartOfDay() : LocalDateTime.parse(value);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid date for " + column + ": " + value);
+        }
+    }
+
+    private void recordError(ReceivedStockImportResult result, int rowNumber, String productCode, String message) {
+        result.setFailedRows(result.getFailedRows() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(ReceivedStockImportResult.RowError.builder()
+                    .rowNumber(rowNumber)
+                    .productCode(productCode)
+                    .message(message)
+                    .build());
+        }
+    }
+
+    private ReceivedStockImportResult progress(ReceivedStockImportResult result, ChunkOutcome outcome,
+                                               int lastRowNumber) {
+        ReceivedStockImportResult progress = ReceivedStockImportResult.builder()
+                .uploadId(result.getUploadId())
+                .totalRows(result.getTotalRows())
+                .importedRows(result.getImportedRows())
+                .failedRows(result.getFailedRows())
+                .productsCreated(result.getProductsCreated())
+                .productsUpdated(result.getProductsUpdated())
+                .lastRowNumber(lastRowNumber)
+                .errors(result.getErrors())
+                .build();
+        apply(progress, outcome);
+        return progress;
+    }
+
+    private void apply(ReceivedStockImportResult result, ChunkOutcome outcome) {
+        if (outcome == null) {
+            return;
+        }
+        result.setImportedRows(result.getImportedRows() + outcome.importedRows);
+        result.setProductsCreated(result.getProductsCreated() + outcome.productsCreated);
+        result.setProductsUpdated(result.getProductsUpdated() + outcome.productsUpdated);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    private static String blankToNull(String value) {
+        return isBlank(value) ? null : value;
+    }
+
+    private static final class ImportRow {
+        private final int rowNumber;
+        private final ReceivedStockRequest request;
+        private final String productCode;
+        private final String error;
+
+        private ImportRow(int rowNumber, ReceivedStockRequest request, String productCode, String error) {
+            this.rowNumber = rowNumber;
+            this.request = request;
+            this.productCode = productCode;
+            this.error = error;
+        }
+
+        static ImportRow of(int rowNumber, ReceivedStockRequest request) {
+            return new ImportRow(rowNumber, request, null, null);
+        }
+
+        static ImportRow failed(int rowNumber, String productCode, String error) {
+            return new ImportRow(rowNumber, null, productCode, error);
+        }
+    }
+
+    private static final class ChunkOutcome {
+        private int importedRows;
+        private int productsCreated;
+        private int productsUpdated;
+    }
+}
@@ -0,0 +1,167 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.dto.ReplenishmentSuggestion;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Derives reorder points, order quantities and days of cover from the demand
+ * forecasts and current stock. Each list is built from two grouped queries,
+ * stock per product and store plus the stored forecasts, so every instance
+ * answers from committed data whichever one recorded the writes.
+ */
+@Service
+@RequiredArgsConstructor
+public class ReplenishmentService {
+
+    private static final Map<String, Comparator<ReplenishmentSuggestion>> SORTABLE = Map.of(
+            "daysOfCover", Comparator.comparing(ReplenishmentSuggestion::getDaysOfCover,
+                    Comparator.nullsLast(Comparator.naturalOrder())),
+            "suggestedOrderQuantity", Comparator.comparingInt(ReplenishmentSuggestion::getSuggestedOrderQuantity),
+            "dailyVelocity", Comparator.comparingDouble(ReplenishmentSuggestion::getDailyVelocity),
+            "availableQuantity", Comparator.comparingInt(ReplenishmentSuggestion::getAvailableQuantity),
+            "reorderPoint", Comparator.comparingInt(ReplenishmentSuggestion::getReorderPoint),
+            "productCode", Comparator.comparing(ReplenishmentSuggestion::getProductCode,
+                    Comparator.nullsLast(Comparator.naturalOrder())),
+            "productName", Comparator.comparing(ReplenishmentSuggestion::getProductName,
+                    Comparator.nullsLast(Comparator.naturalOrder())));
+
+    // Batches of the same product in a store are one stock position
+    private static final String SELECT_POSITIONS =
+            "SELECT i.product_id, i.store_id, p.product_code, p.name, p.minimum_stock_level, p.maximum_stock_level, " +
+            "SUM(i.current_quantity) AS current_quantity, " +
+            "SUM(i.current_quantity - COALESCE(i.reserved_quantity, 0)) AS available_quantity " +
+            "FROM inventory i JOIN products p ON p.id = i.product_id " +
+            "WHERE i.store_id IS NOT NULL %s " +
+            "GROUP BY i.product_id, i.store_id, p.product_code, p.name, p.minimum_stock_level, p.maximum_stock_level";
+
+    private static final RowMapper<Position> POSITION_ROW = (rs, rowNum) -> new Position(
+            rs.getLong("product_id"),
+            rs.getString("product_code"),
+            rs.getString("name"),
+            rs.getLong("store_id"),
+            rs.getInt("current_quantity"),
+            rs.getInt("available_quantity"),
+            rs.getObject("minimum_stock_level", Integer.class),
+            rs.getObject("maximum_stock_level", Integer.class));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final DemandForecastService demandForecastService;
+    private final StockAlertService stockAlertService;
+
+    @Value("${app.inventory.forecast.lead-time-days:7}")
+    private int leadTimeDays;
+
+    @Value("${app.inventory.forecast.review-period-days:7}")
+    private int reviewPeriodDays;
+
+    @Value("${app.inventory.forecast.service-level-z:1.65}")
+    private double serviceLevelZ;
+
+    private record Position(Long productId, String productCode, String productName, Long storeId,
+                            int currentQuantity, int availableQuantity,
+                            Integer minimumStockLevel, Integer maximumStockLevel) {
+    }
+
+    /**
+     * One suggestion per product and store, sorted and paged in memory.
+     *
+     * @param storeIds    stores to include, or null for all
+     * @param reorderOnly only products at or below their reorder point
+     * @throws IllegalArgumentException for an unknown sort property
+     */
+    public Page<ReplenishmentSuggestion> getSuggestions(Collection<Long> storeIds, boolean reorderOnly,
+                                                        Pageable pageable) {
+        Comparator<ReplenishmentSuggestion> comparator = comparatorFor(pageable.getSort());
+
+        if (storeIds != null && storeIds.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+        List<Position> positions = storeIds == null
+                ? jdbcTemplate.query(SELECT_POSITIONS.formatted(""), POSITION_ROW)
+                : jdbcTemplate.query(SELECT_POSITIONS.formatted("AND i.store_id IN (:storeIds)"),
+                        new MapSqlParameterSource("storeIds", storeIds), POSITION_ROW);
+
+        LocalDate today = LocalDate.now();
+        Map<List<Long>, DemandForecastService.Forecast> forecasts = demandForecastService.getForecasts(storeIds, today);
+        List<ReplenishmentSuggestion> suggestions = new ArrayList<>(positions.size());
+        for (Position position : positions) {
+            ReplenishmentSuggestion suggestion = suggest(position, forecasts.getOrDefault(
+                    List.of(position.productId(), position.storeId()), DemandForecastService.Forecast.NONE));
+            if (!reorderOnly || suggestion.isNeedsReorder()) {
+                suggestions.add(suggestion);
+            }
+        }
+        suggestions.sort(comparator);
+
+        int from = (int) Math.min(pageable.getOffset(), suggestions.size());
+        int to = Math.min(from + pageable.getPageSize(), suggestions.size());
+        return new PageImpl<>(new ArrayList<>(suggestions.subList(from, to)), pageable, suggestions.size());
+    }
+
+    private ReplenishmentSuggestion suggest(Position position, DemandForecastService.Forecast forecast) {
+        double velocity = forecast.meanDaily();
+        int available = position.availableQuantity();
+
+        // Lead-time demand plus safety stock, never below the product's own minimum
+        double leadTimeDemand = velocity * leadTimeDays;
+        double safetyStock = serviceLevelZ * forecast.stdDevDaily() * Math.sqrt(leadTimeDays);
+        int reorderPoint = Math.max((int) Math.ceil(leadTimeDemand + safetyStock),
+                stockAlertService.reorderLevelOf(position.minimumStockLevel()));
+
+        int targetStockLevel = (int) Math.ceil(reorderPoint + velocity * reviewPeriodDays);
+        if (position.maximumStockLevel() != null && position.maximumStockLevel() >= reorderPoint) {
+            targetStockLevel = position.maximumStockLevel();
+        }
+
+        boolean needsReorder = available <= reorderPoint;
+        return ReplenishmentSuggestion.builder()
+                .productId(position.productId())
+                .productCode(position.productCode())
+                .productName(position.productName())
+                .storeId(position.storeId())
+                .currentQuantity(position.currentQuantity())
+                .availableQuantity(available)
+                .dailyVelocity(velocity)
+                .dailyStdDev(forecast.stdDevDaily())
+                .reorderPoint(reorderPoint)
+                .targetStockLevel(targetStockLevel)
+                .suggestedOrderQuantity(needsReorder ? Math.max(0, targetStockLevel - available) : 0)
+                .daysOfCover(velocity > 0 ? Math.max(0, available) / velocity : null)
+                .needsReorder(needsReorder)
+                .build();
+    }
+
+    private Comparator<ReplenishmentSuggestion> comparatorFor(Sort sort) {
+        Comparator<ReplenishmentSuggestion> comparator = null;
+        for (Sort.Order order : sort.isSorted() ? sort : Sort.by("daysOfCover")) {
+            Comparator<ReplenishmentSuggestion> next = SORTABLE.get(order.getProperty());
+            if (next == null) {
+                throw new IllegalArgumentException("Cannot sort replenishment by '" + order.getProperty()
+                        + "', expected one of " + SORTABLE.keySet());
+            }
+            next = order.isDescending() ? next.reversed() : next;
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        // Stable order between equal rows so pages never overlap
+        return Objects.requireNonNull(comparator)
+                .thenComparing(ReplenishmentSuggestion::getProductId)
+                .thenComparing(ReplenishmentSuggestion::getStoreId);
+    }
+}
@@ -0,0 +1,241 @@
+package com.allocat.inventory.service;
+
+import com.allocat.common.util.TableVersions;
+import com.allocat.inventory.dto.StockAlert;
+import com.allocat.inventory.event.StockLevelChangedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Evaluates low-stock and out-of-stock thresholds per product and store,
+ * with quantities summed over all of its batches.
+ * <p>
+ * Levels live in the database. After a quantity change commits, the writing
+ * instance recomputes the position and records a crossing in
+ * stock_alert_levels only when the level differs from the stored one (a
+ * product that is already low and drops further does not alert again). Every
+ * instance polls that table and forwards new crossings to its own
+ * subscribers, so a terminal sees the alert whichever instance sold the last
+ * unit. The active alert list is derived from inventory and cached until the
+ * inventory or products table version moves.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockAlertService {
+
+    private static final List<String> SOURCES = List.of("inventory", "products");
+
+    // Crossings recorded this long ago are still picked up, covering commit delay and missed polls
+    private static final int POLL_WINDOW_SECONDS = 30;
+
+    private static final String POSITIONS =
+            "SELECT i.product_id, i.store_id, p.product_code, p.name, p.minimum_stock_level, " +
+            "SUM(i.current_quantity) AS current_quantity, " +
+            "SUM(i.current_quantity - COALESCE(i.reserved_quantity, 0)) AS available_quantity, " +
+            "a.level, a.previous_level, a.change_seq, a.changed_at " +
+            "FROM inventory i JOIN products p ON p.id = i.product_id " +
+            "LEFT JOIN stock_alert_levels a ON a.product_id = i.product_id AND a.store_id = i.store_id " +
+            "WHERE i.store_id IS NOT NULL %s " +
+            "GROUP BY i.product_id, i.store_id, p.product_code, p.name, p.minimum_stock_level, " +
+            "a.level, a.previous_level, a.change_seq, a.changed_at ";
+
+    private static final String SELECT_ACTIVE = POSITIONS.formatted("") +
+            "HAVING SUM(i.current_quantity - COALESCE(i.reserved_quantity, 0)) <= 0 " +
+            "OR SUM(i.current_quantity) <= COALESCE(p.minimum_stock_level, :defaultReorderLevel)";
+
+    private static final String SELECT_POSITION =
+            POSITIONS.formatted("AND i.product_id = :productId AND i.store_id = :storeId");
+
+    private static final String SELECT_CROSSED = POSITIONS.formatted(
+            "AND a.changed_at > LOCALTIMESTAMP - INTERVAL '" + POLL_WINDOW_SECONDS + " seconds'");
+
+    private static final String RECORD_CROSSING =
+            "UPDATE stock_alert_levels SET previous_level = level, level = :level, " +
+            "change_seq = nextval('stock_alert_change_seq'), changed_at = LOCALTIMESTAMP " +
+            "WHERE product_id = :productId AND store_id = :storeId AND level <> :level";
+
+    private static final String INSERT_LEVEL =
+            "INSERT INTO stock_alert_levels (product_id, store_id, level, previous_level, change_seq, changed_at) " +
+            "VALUES (:productId, :storeId, :level, 'OK', nextval('stock_alert_change_seq'), LOCALTIMESTAMP) " +
+            "ON CONFLICT (product_id, store_id) DO NOTHING";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TableVersions tableVersions;
+
+    @Value("${app.inventory.alerts.default-reorder-level:10}")
+    private int defaultReorderLevel;
+
+    private final List<Consumer<StockAlert>> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot;
+    // Crossings inside the poll window that were already forwarded; null until the first poll
+    private Set<Long> forwarded;
+
+    /**
+     * Active alerts as of a sum of the source tables' versions.
+     */
+    private record Snapshot(long version, List<StockAlert> alerts) {
+    }
+
+    /**
+     * Runs after the quantity change commits, so rolled back changes never
+     * alert, in a transaction of its own.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        if (event.getProductId() == null || event.getStoreId() == null) {
+            return;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("productId", event.getProductId())
+                .addValue("storeId", event.getStoreId());
+        // The committed total over every batch, including writes this event does not describe
+        List<StockAlert> position = jdbcTemplate.query(SELECT_POSITION, params, currentLevel());
+        StockAlert.Level level = position.isEmpty() ? StockAlert.Level.OUT_OF_STOCK : position.get(0).getLevel();
+
+        params.addValue("level", level.name());
+        if (jdbcTemplate.update(RECORD_CROSSING, params) == 0 && level != StockAlert.Level.OK) {
+            jdbcTemplate.update(INSERT_LEVEL, params);
+        }
+    }
+
+    public List<StockAlert> getActiveAlerts(Long storeId) {
+        return current().alerts().stream()
+                .filter(alert -> storeId == null || storeId.equals(alert.getStoreId()))
+                .sorted(Comparator.comparing(StockAlert::getLevel).reversed()
+                        .thenComparing(StockAlert::getAvailableQuantity, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    public void subscribe(Consumer<StockAlert> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<StockAlert> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Reorder level for a product: its minimumStockLevel, or the configured default.
+     */
+    public int reorderLevelOf(Integer minimumStockLevel) {
+        return minimumStockLevel != null ? minimumStockLevel : defaultReorderLevel;
+    }
+
+    /**
+     * Forward crossings recorded by any instance since the last poll. The
+     * first poll only notes what is already there, so a restart does not
+     * replay old crossings.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.alerts.poll-interval-seconds:2}", timeUnit = TimeUnit.SECONDS)
+    void forwardCrossings() {
+        try {
+            Set<Long> seen = new HashSet<>();
+            jdbcTemplate.query(SELECT_CROSSED, rs -> {
+                long changeSeq = rs.getLong("change_seq");
+                seen.add(changeSeq);
+                if (forwarded != null && !forwarded.contains(changeSeq)) {
+                    // The level that was recorded, not whatever the quantities say by now
+                    StockAlert alert = toAlert(rs, StockAlert.Level.valueOf(rs.getString("level")));
+                    log.debug("Stock level of product {} in store {} changed {} -> {}",
+                            alert.getProductCode(), alert.getStoreId(), alert.getPreviousLevel(), alert.getLevel());
+                    notifySubscribers(alert);
+                }
+            });
+            forwarded = seen;
+        } catch (DataAccessException e) {
+            log.warn("Could not poll stock alert crossings: {}", e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * The active alerts for the current inventory and products versions,
+     * re-derived once either table has changed.
+     */
+    private Snapshot current() {
+        long version = tableVersions.read(SOURCES.toArray(String[]::new)).values().stream()
+                .mapToLong(TableVersions.Version::version)
+                .sum();
+        Snapshot loaded = snapshot;
+        if (loaded != null && loaded.version() >= version) {
+            return loaded;
+        }
+        synchronized (this) {
+            loaded = snapshot;
+            if (loaded != null && loaded.version() >= version) {
+                return loaded;
+            }
+            List<StockAlert> alerts = jdbcTemplate.query(SELECT_ACTIVE,
+                    new MapSqlParameterSource("defaultReorderLevel", defaultReorderLevel), currentLevel());
+            snapshot = new Snapshot(version, alerts);
+            return snapshot;
+        }
+    }
+
+    private StockAlert.Level levelOf(int current, int available, Integer minimumStockLevel) {
+        if (available <= 0) {
+            return StockAlert.Level.OUT_OF_STOCK;
+        }
+        if (current <= reorderLevelOf(minimumStockLevel)) {
+            return StockAlert.Level.LOW_STOCK;
+        }
+        return StockAlert.Level.OK;
+    }
+
+    private RowMapper<StockAlert> currentLevel() {
+        return (rs, rowNum) -> toAlert(rs, levelOf(rs.getInt("current_quantity"), rs.getInt("available_quantity"),
+                rs.getObject("minimum_stock_level", Integer.class)));
+    }
+
+    private StockAlert toAlert(ResultSet rs, StockAlert.Level level) throws SQLException {
+        Integer minimum = rs.getObject("minimum_stock_level", Integer.class);
+        String previous = rs.getString("previous_level");
+        Timestamp changedAt = rs.getTimestamp("changed_at");
+        return StockAlert.builder()
+                .productId(rs.getLong("product_id"))
+                .productCode(rs.getString("product_code"))
+                .productName(rs.getString("name"))
+                .storeId(rs.getLong("store_id"))
+                .level(level)
+                .previousLevel(previous != null ? StockAlert.Level.valueOf(previous) : StockAlert.Level.OK)
+                .currentQuantity(rs.getInt("current_quantity"))
+                .availableQuantity(rs.getInt("available_quantity"))
+                .reorderLevel(reorderLevelOf(minimum))
+                .occurredAt(changedAt != null ? changedAt.toLocalDateTime() : null)
+                .build();
+    }
+
+    private void notifySubscribers(StockAlert alert) {
+        for (Consumer<StockAlert> subscriber : subscribers) {
+            try {
+                subscriber.accept(alert);
+            } catch (RuntimeException e) {
+                log.debug("Dropping stock alert subscriber: {}", e.getMessage());
+                subscribers.remove(subscriber);
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.allocat.pos.dto;
+
+import com.allocat.pos.enums.DiscountType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTOs for the versioned POS catalog feed
+ */
+public class CatalogDTO {
+
+    /**
+     * Everything a terminal sells, as of at least {@code version}. Rows
+     * changed after it may already be included; they come again in the next
+     * delta.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Snapshot {
+        private long version;
+        private List<ProductEntry> products;
+        private List<DiscountEntry> discounts;
+    }
+
+    /**
+     * Changes after {@code fromVersion} up to and including {@code toVersion}.
+     * Entries that are no longer sellable come back with {@code active = false}.
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Delta {
+        private long fromVersion;
+        private long toVersion;
+        // More changes follow; request again from toVersion
+        private boolean hasMore;
+        private List<ProductEntry> products;
+        private List<DiscountEntry> discounts;
+        private List<Long> removedProductIds;
+        private List<Long> removedDiscountIds;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ProductEntry {
+        private Long id;
+        private String productCode;
+        private String name;
+        private String barcode;
+        private String sku;
+        private String category;
+        private String brand;
+        private String unitOfMeasure;
+        private BigDecimal unitPrice;
+        private boolean active;
+        private long version;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DiscountEntry {
+        private Long id;
+        private String code;
+        private String name;
+        private DiscountType type;
+        private BigDecimal value;
+        private BigDecimal minPurchaseAmount;
+        private BigDecimal maxDiscountAmount;
+        private LocalDate validFrom;
+        private LocalDate validTo;
+        private boolean active;
+        private long version;
+    }
+}
@@ -0,0 +1,52 @@
+package com.allocat.pos.event;
+
+import com.allocat.pos.entity.SalesOrder;
+import com.allocat.pos.entity.SalesOrderItem;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Published when units leave or come back through the till: checkouts carry
+ * positive quantities, returns and cancellations negative ones.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesRecordedEvent {
+    private Long storeId;
+    private LocalDate saleDate;
+    // productId -> units sold (negative when given back)
+    private Map<Long, Integer> quantities;
+
+    public static SalesRecordedEvent of(SalesOrder order) {
+        return of(order, 1);
+    }
+
+    /**
+     * Event reversing a previously recorded order, e.g. on cancellation.
+     */
+    public static SalesRecordedEvent reversalOf(SalesOrder order) {
+        return of(order, -1);
+    }
+
+    private static SalesRecordedEvent of(SalesOrder order, int sign) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (SalesOrderItem item : order.getItems()) {
+            if (item.getProduct() != null && item.getQuantity() != null) {
+                quantities.merge(item.getProduct().getId(), sign * item.getQuantity(), Integer::sum);
+            }
+        }
+        return SalesRecordedEvent.builder()
+                .storeId(order.getStore() != null ? order.getStore().getId() : null)
+                .saleDate(LocalDate.now())
+                .quantities(quantities)
+                .build();
+    }
+}
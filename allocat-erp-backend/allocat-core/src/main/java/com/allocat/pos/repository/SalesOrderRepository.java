@@ -4,7 +4,9 @@ import com.allocat.pos.entity.SalesOrder;
 import com.allocat.pos.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,7 +21,7 @@ import java.util.Optional;
  * Repository for SalesOrder entity
  */
 @Repository
-public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long> {
+public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long>, JpaSpecificationExecutor<SalesOrder> {
 
         /**
          * Find a sales order by its order number
@@ -119,4 +121,13 @@ public interface SalesOrderRepository extends JpaRepository<SalesOrder, Long> {
                         @Param("storeId") Long storeId,
                         @Param("date") LocalDate date,
                         @Param("status") OrderStatus status);
+
+        /**
+         * Same condition as {@link #findByStoreAndDateRange}, for keyset listings
+         */
+        static Specification<SalesOrder> inStoreBetween(Long storeId, LocalDateTime startDate, LocalDateTime endDate) {
+                return (root, query, cb) -> cb.and(
+                                cb.equal(root.get("store").get("id"), storeId),
+                                cb.between(root.get("orderDate"), startDate, endDate));
+        }
 }
@@ -1,7 +1,10 @@
 package com.allocat.pos.service;
 
+import com.allocat.auth.entity.Store;
+import com.allocat.auth.repository.StoreRepository;
 import com.allocat.inventory.entity.Inventory;
 import com.allocat.inventory.repository.InventoryRepository;
+import com.allocat.inventory.service.StockAlertService;
 import com.allocat.pos.dto.AnalyticsDTO;
 import com.allocat.pos.entity.SalesOrder;
 import com.allocat.pos.entity.SalesOrderItem;
@@ -29,6 +32,8 @@ public class AnalyticsService {
 
         private final SalesOrderRepository salesOrderRepository;
         private final InventoryRepository inventoryRepository;
+        private final StoreRepository storeRepository;
+        private final StockAlertService stockAlertService;
 
         /**
          * Get sales summary for a specific date range
@@ -256,8 +261,23 @@ public class AnalyticsService {
          * Get low stock alerts
          */
         public List<AnalyticsDTO.LowStockAlert> getLowStockAlerts(Long storeId, Integer threshold) {
+                if (threshold == null) {
+                        // Per-product minimum stock levels, served from the in-memory alert state
+                        String storeName = storeRepository.findById(storeId).map(Store::getName).orElse(null);
+                        return stockAlertService.getActiveAlerts(storeId).stream()
+                                        .map(alert -> AnalyticsDTO.LowStockAlert.builder()
+                                                        .productId(alert.getProductId())
+                                                        .productName(alert.getProductName())
+                                                        .sku(alert.getProductCode())
+                                                        .currentStock(alert.getCurrentQuantity())
+                                                        .reorderLevel(alert.getReorderLevel())
+                                                        .storeName(storeName)
+                                                        .build())
+                                        .collect(Collectors.toList());
+                }
+
                 List<Inventory> lowStockItems = inventoryRepository.findByStoreIdAndQuantityLessThan(
-                                storeId, threshold != null ? threshold : 10);
+                                storeId, threshold);
 
                 return lowStockItems.stream()
                                 .map(inventory -> AnalyticsDTO.LowStockAlert.builder()
@@ -265,7 +285,7 @@ public class AnalyticsService {
                                                 .productName(inventory.getProduct().getName())
                                                 .sku(inventory.getProduct().getSku())
                                                 .currentStock(inventory.getCurrentQuantity())
-                                                .reorderLevel(10) // Default reorder level, can be enhanced later
+                                                .reorderLevel(threshold)
                                                 .storeName(inventory.getStore().getName())
                                                 .build())
                                 .collect(Collectors.toList());
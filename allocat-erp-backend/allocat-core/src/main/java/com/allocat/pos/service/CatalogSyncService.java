@@ -0,0 +1,250 @@
+package com.allocat.pos.service;
+
+import com.allocat.pos.dto.CatalogDTO;
+import com.allocat.pos.enums.DiscountType;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Versioned catalog feed for POS terminals. Products and discounts carry a
+ * catalog version from one global sequence (stamped by database triggers), so
+ * a terminal loads one snapshot and from then on only asks for the rows
+ * changed since the version it holds.
+ * <p>
+ * Writers do not serialize on the sequence, so a transaction can commit a
+ * lower version after a higher one is already visible. The feed therefore
+ * only hands out versions up to a watermark no transaction still in progress
+ * can fall below. Each read notes the highest version its snapshot sees
+ * together with the snapshot's xmax; once a later snapshot's xmin has passed
+ * that xmax, every transaction that could hold a lower version has ended.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogSyncService {
+
+    public static final int MAX_DELTA_LIMIT = 5000;
+
+    private static final int MAX_SAMPLES = 64;
+
+    private static final String PRODUCT_COLUMNS =
+            "SELECT id, product_code, name, barcode, sku, category, brand, unit_of_measure, unit_price, " +
+            "COALESCE(is_active, TRUE) AND deleted_at IS NULL AS active, catalog_version FROM products ";
+
+    private static final String DISCOUNT_COLUMNS =
+            "SELECT id, code, name, type, value, min_purchase_amount, max_discount_amount, valid_from, valid_to, " +
+            "COALESCE(is_active, TRUE) AND deleted_at IS NULL AS active, catalog_version FROM discounts ";
+
+    private static final String SNAPSHOT_PRODUCTS =
+            PRODUCT_COLUMNS + "WHERE COALESCE(is_active, TRUE) AND deleted_at IS NULL ORDER BY id";
+
+    private static final String SNAPSHOT_DISCOUNTS =
+            DISCOUNT_COLUMNS + "WHERE COALESCE(is_active, TRUE) AND deleted_at IS NULL " +
+            "AND (valid_to IS NULL OR valid_to >= CURRENT_DATE) ORDER BY id";
+
+    // Highest version visible to this transaction; writers still in progress may hold lower ones
+    private static final String CURRENT_VERSION =
+            "SELECT GREATEST(" +
+            "(SELECT COALESCE(MAX(catalog_version), 0) FROM products), " +
+            "(SELECT COALESCE(MAX(catalog_version), 0) FROM discounts), " +
+            "(SELECT COALESCE(MAX(catalog_version), 0) FROM catalog_tombstones))";
+
+    // Every transaction id below xmin has ended; every one from xmax on started after the snapshot
+    private static final String SNAPSHOT_HORIZON =
+            "SELECT pg_snapshot_xmin(s)::text::bigint AS xmin, pg_snapshot_xmax(s)::text::bigint AS xmax " +
+            "FROM pg_current_snapshot() s";
+
+    private static final String CHANGED_PRODUCTS = PRODUCT_COLUMNS +
+            "WHERE catalog_version > :since AND catalog_version <= :upTo ORDER BY catalog_version LIMIT :limit";
+
+    private static final String CHANGED_DISCOUNTS = DISCOUNT_COLUMNS +
+            "WHERE catalog_version > :since AND catalog_version <= :upTo ORDER BY catalog_version LIMIT :limit";
+
+    private static final String REMOVED =
+            "SELECT entity_type, entity_id, catalog_version FROM catalog_tombstones " +
+            "WHERE catalog_version > :since AND catalog_version <= :upTo ORDER BY catalog_version LIMIT :limit";
+
+    private static final RowMapper<CatalogDTO.ProductEntry> PRODUCT_MAPPER = (rs, rowNum) ->
+            CatalogDTO.ProductEntry.builder()
+                    .id(rs.getLong("id"))
+                    .productCode(rs.getString("product_code"))
+                    .name(rs.getString("name"))
+                    .barcode(rs.getString("barcode"))
+                    .sku(rs.getString("sku"))
+                    .category(rs.getString("category"))
+                    .brand(rs.getString("brand"))
+                    .unitOfMeasure(rs.getString("unit_of_measure"))
+                    .unitPrice(rs.getBigDecimal("unit_price"))
+                    .active(rs.getBoolean("active"))
+                    .version(rs.getLong("catalog_version"))
+                    .build();
+
+    private static final RowMapper<CatalogDTO.DiscountEntry> DISCOUNT_MAPPER = (rs, rowNum) ->
+            CatalogDTO.DiscountEntry.builder()
+                    .id(rs.getLong("id"))
+                    .code(rs.getString("code"))
+                    .name(rs.getString("name"))
+                    .type(DiscountType.valueOf(rs.getString("type")))
+                    .value(rs.getBigDecimal("value"))
+                    .minPurchaseAmount(rs.getBigDecimal("min_purchase_amount"))
+                    .maxDiscountAmount(rs.getBigDecimal("max_discount_amount"))
+                    .validFrom(rs.getObject("valid_from", LocalDate.class))
+                    .validTo(rs.getObject("valid_to", LocalDate.class))
+                    .active(rs.getBoolean("active"))
+                    .version(rs.getLong("catalog_version"))
+                    .build();
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    // Ascending xmax and version; guarded by this
+    private final List<Sample> samples = new ArrayList<>();
+
+    /**
+     * Highest version a snapshot saw, and that snapshot's xmax. Every version
+     * up to it was drawn by a transaction whose id is below xmax.
+     */
+    private record Sample(long xmax, long version) {
+    }
+
+    /**
+     * Full sellable catalog. Repeatable read keeps the rows and the version
+     * from one snapshot. Rows changed after the returned version come again
+     * in the next delta.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public CatalogDTO.Snapshot getSnapshot() {
+        long version = stableVersion();
+        return CatalogDTO.Snapshot.builder()
+                .version(version)
+                .products(jdbcTemplate.query(SNAPSHOT_PRODUCTS, PRODUCT_MAPPER))
+                .discounts(jdbcTemplate.query(SNAPSHOT_DISCOUNTS, DISCOUNT_MAPPER))
+                .build();
+    }
+
+    /**
+     * Changes after the given version, oldest first and at most {@code limit}
+     * per kind. When a kind is cut off, the delta stops at its last version so
+     * nothing is skipped; the caller continues from {@code toVersion}.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public CatalogDTO.Delta getChangesSince(long since, int limit) {
+        if (since < 0) {
+            throw new IllegalArgumentException("Version must not be negative");
+        }
+        int pageLimit = Math.max(1, Math.min(limit, MAX_DELTA_LIMIT));
+        long stable = stableVersion();
+        if (stable <= since) {
+            // Nothing final beyond what the caller holds yet
+            return CatalogDTO.Delta.builder()
+                    .fromVersion(since)
+                    .toVersion(since)
+                    .hasMore(false)
+                    .products(List.of())
+                    .discounts(List.of())
+                    .removedProductIds(List.of())
+                    .removedDiscountIds(List.of())
+                    .build();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("since", since)
+                .addValue("upTo", stable)
+                .addValue("limit", pageLimit);
+
+        List<CatalogDTO.ProductEntry> products = jdbcTemplate.query(CHANGED_PRODUCTS, params, PRODUCT_MAPPER);
+        List<CatalogDTO.DiscountEntry> discounts = jdbcTemplate.query(CHANGED_DISCOUNTS, params, DISCOUNT_MAPPER);
+        List<Map<String, Object>> removed = jdbcTemplate.queryForList(REMOVED, params);
+
+        long upTo = Math.min(
+                Math.min(cutOff(products, pageLimit, CatalogDTO.ProductEntry::getVersion),
+                        cutOff(discounts, pageLimit, CatalogDTO.DiscountEntry::getVersion)),
+                cutOff(removed, pageLimit, row -> ((Number) row.get("catalog_version")).longValue()));
+        boolean hasMore = upTo != Long.MAX_VALUE;
+        long last = hasMore ? upTo : stable;
+
+        return CatalogDTO.Delta.builder()
+                .fromVersion(since)
+                .toVersion(last)
+                .hasMore(hasMore)
+                .products(products.stream().filter(p -> p.getVersion() <= last).toList())
+                .discounts(discounts.stream().filter(d -> d.getVersion() <= last).toList())
+                .removedProductIds(removedIds(removed, "PRODUCT", last))
+                .removedDiscountIds(removedIds(removed, "DISCOUNT", last))
+                .build();
+    }
+
+    /**
+     * Highest version below which nothing can still appear, as seen from this
+     * transaction's snapshot.
+     */
+    private long stableVersion() {
+        Long visible = jdbcTemplate.queryForObject(CURRENT_VERSION, new MapSqlParameterSource(), Long.class);
+        Map<String, Object> horizon = jdbcTemplate.queryForMap(SNAPSHOT_HORIZON, new MapSqlParameterSource());
+        return stableVersion(visible != null ? visible : 0,
+                ((Number) horizon.get("xmin")).longValue(), ((Number) horizon.get("xmax")).longValue());
+    }
+
+    /**
+     * @param visible highest version the snapshot sees
+     * @param xmin    oldest transaction still in progress for the snapshot
+     * @param xmax    first transaction id not yet assigned when it was taken
+     */
+    synchronized long stableVersion(long visible, long xmin, long xmax) {
+        // With nothing in progress, every version drawn so far is committed or rolled back
+        long stable = xmin == xmax ? visible : 0;
+        for (Sample sample : samples) {
+            if (sample.xmax() <= xmin) {
+                stable = Math.max(stable, sample.version());
+            }
+        }
+        addSample(new Sample(xmax, visible));
+        return stable;
+    }
+
+    /**
+     * Keep only samples that are not outdone by one that becomes final no later.
+     */
+    private void addSample(Sample sample) {
+        for (Sample kept : samples) {
+            if (kept.xmax() <= sample.xmax() && kept.version() >= sample.version()) {
+                return;
+            }
+        }
+        samples.removeIf(kept -> kept.xmax() >= sample.xmax() && kept.version() <= sample.version());
+        int at = 0;
+        while (at < samples.size() && samples.get(at).xmax() < sample.xmax()) {
+            at++;
+        }
+        samples.add(at, sample);
+        if (samples.size() > MAX_SAMPLES) {
+            // Drop the second oldest; the oldest is the first to become final
+            samples.remove(1);
+        }
+    }
+
+    /**
+     * Last version of a truncated result, or Long.MAX_VALUE when the result is complete.
+     */
+    private static <T> long cutOff(List<T> rows, int limit, ToLongFunction<T> version) {
+        return rows.size() < limit ? Long.MAX_VALUE : version.applyAsLong(rows.get(rows.size() - 1));
+    }
+
+    private static List<Long> removedIds(List<Map<String, Object>> removed, String entityType, long upTo) {
+        return removed.stream()
+                .filter(row -> entityType.equals(row.get("entity_type"))
+                        && ((Number) row.get("catalog_version")).longValue() <= upTo)
+                .map(row -> ((Number) row.get("entity_id")).longValue())
+                .toList();
+    }
+}
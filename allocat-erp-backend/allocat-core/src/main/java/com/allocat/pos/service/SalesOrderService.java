@@ -6,6 +6,8 @@ import com.allocat.auth.entity.User;
 import com.allocat.auth.repository.CustomerRepository;
 import com.allocat.auth.repository.StoreRepository;
 import com.allocat.auth.repository.UserRepository;
+import com.allocat.common.dto.CursorPage;
+import com.allocat.inventory.dto.BatchAllocation;
 import com.allocat.inventory.entity.Product;
 import com.allocat.inventory.repository.ProductRepository;
 import com.allocat.inventory.service.InventoryService;
@@ -15,16 +17,22 @@ import com.allocat.pos.entity.Discount;
 import com.allocat.pos.entity.SalesOrder;
 import com.allocat.pos.entity.SalesOrderItem;
 import com.allocat.pos.enums.OrderStatus;
+import com.allocat.pos.event.SalesRecordedEvent;
 import com.allocat.pos.repository.DiscountRepository;
 import com.allocat.pos.repository.SalesOrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -44,6 +52,7 @@ public class SalesOrderService {
     private final CustomerRepository customerRepository;
     private final DiscountRepository discountRepository;
     private final InventoryService inventoryService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Create a sales order from a cart
@@ -96,15 +105,14 @@ public class SalesOrderService {
                     .findById(java.util.Objects.requireNonNull(cartItem.getProductId(), "Product ID must not be null"))
                     .orElseThrow(() -> new RuntimeException("Product not found: " + cartItem.getProductId()));
 
-            // Get cost price from inventory for profit calculation
-            BigDecimal costPrice = BigDecimal.ZERO;
+            // Deduct inventory; the batches it comes from give the cost price for profit calculation
+            BigDecimal costPrice;
             try {
-                var inventory = inventoryService.getInventoryByProductId(product.getId());
-                if (inventory.isPresent() && inventory.get().getUnitCost() != null) {
-                    costPrice = inventory.get().getUnitCost();
-                }
+                costPrice = deductInventory(product, store, cartItem.getQuantity(),
+                        "POS-" + cashier.getId(), "Sale: " + orderNo);
             } catch (Exception e) {
-                log.warn("Could not get cost price for product {}: {}", product.getId(), e.getMessage());
+                log.error("Failed to update inventory for product {}: {}", product.getId(), e.getMessage());
+                throw new RuntimeException("Failed to update inventory: " + e.getMessage());
             }
 
             SalesOrderItem orderItem = SalesOrderItem.builder()
@@ -119,18 +127,6 @@ public class SalesOrderService {
                     .build();
 
             salesOrder.addItem(orderItem);
-
-            // Deduct inventory
-            try {
-                inventoryService.updateInventoryQuantity(
-                        product.getId(),
-                        -cartItem.getQuantity(),
-                        "POS-" + cashier.getId(),
-                        "Sale: " + orderNo);
-            } catch (Exception e) {
-                log.error("Failed to update inventory for product {}: {}", product.getId(), e.getMessage());
-                throw new RuntimeException("Failed to update inventory: " + e.getMessage());
-            }
         }
 
         // Increment discount usage if applied
@@ -140,6 +136,7 @@ public class SalesOrderService {
 
         @SuppressWarnings("null") // Spring Data JPA save() never returns null
         SalesOrder savedOrder = salesOrderRepository.save(salesOrder);
+        eventPublisher.publishEvent(SalesRecordedEvent.of(savedOrder));
         log.info("Created sales order: {}", orderNo);
         return savedOrder;
     }
@@ -171,6 +168,25 @@ public class SalesOrderService {
         return salesOrderRepository.findByStoreAndDateRange(storeId, startDate, endDate, pageable);
     }
 
+    /**
+     * Keyset listing of orders by store and date range. Each page seeks past
+     * the last row of the previous one, so deep pages cost the same as the
+     * first; the total is only counted on request.
+     */
+    public CursorPage<SalesOrder> scrollOrdersByStoreAndDateRange(
+            long storeId,
+            LocalDateTime startDate,
+            LocalDateTime endDate,
+            ScrollPosition position,
+            Sort sort,
+            int size,
+            boolean includeCount) {
+        var spec = SalesOrderRepository.inStoreBetween(storeId, startDate, endDate);
+        Window<SalesOrder> window = salesOrderRepository.findBy(spec,
+                query -> query.sortBy(sort).limit(size).scroll(position));
+        return CursorPage.of(window, includeCount ? salesOrderRepository.count(spec) : null);
+    }
+
     /**
      * Get orders by customer
      */
@@ -198,6 +214,7 @@ public class SalesOrderService {
             try {
                 inventoryService.updateInventoryQuantity(
                         item.getProduct().getId(),
+                        inventoryStoreId(item.getProduct(), order.getStore()),
                         item.getQuantity(),
                         "SYSTEM",
                         "Order cancelled: " + order.getOrderNo() + " - " + reason);
@@ -212,6 +229,7 @@ public class SalesOrderService {
                 "Cancelled: " + reason);
 
         SalesOrder cancelled = salesOrderRepository.save(order);
+        eventPublisher.publishEvent(SalesRecordedEvent.reversalOf(cancelled));
         log.info("Cancelled order: {}", order.getOrderNo());
         return cancelled;
     }
@@ -268,6 +286,55 @@ public class SalesOrderService {
         return salesOrderRepository.findByStoreIdAndStatus(storeId, OrderStatus.HELD);
     }
 
+    /**
+     * Take sold units out of inventory and return their unit cost. Stores that
+     * stock the product are picked batch by batch, earliest expiry first, and the
+     * cost is the quantity-weighted cost of the batches used; otherwise the
+     * product's single inventory row is decremented as before.
+     */
+    private BigDecimal deductInventory(Product product, Store store, int quantity, String updatedBy, String reason) {
+        if (inventoryService.isStockedInStore(product.getId(), store.getId())) {
+            List<BatchAllocation> allocations =
+                    inventoryService.allocateFefo(product.getId(), store.getId(), quantity, updatedBy, reason);
+            BigDecimal cost = BigDecimal.ZERO;
+            int costed = 0;
+            for (BatchAllocation allocation : allocations) {
+                if (allocation.getUnitCost() != null) {
+                    cost = cost.add(allocation.getUnitCost().multiply(BigDecimal.valueOf(allocation.getQuantity())));
+                    costed += allocation.getQuantity();
+                }
+            }
+            return costed > 0 ? cost.divide(BigDecimal.valueOf(costed), 2, RoundingMode.HALF_UP) : BigDecimal.ZERO;
+        }
+
+        BigDecimal costPrice = BigDecimal.ZERO;
+        try {
+            var inventory = inventoryService.getInventoryByProductId(product.getId());
+            if (inventory.isPresent() && inventory.get().getUnitCost() != null) {
+                costPrice = inventory.get().getUnitCost();
+            }
+        } catch (Exception e) {
+            log.warn("Could not get cost price for product {}: {}", product.getId(), e.getMessage());
+        }
+        inventoryService.updateInventoryQuantity(product.getId(), inventoryStoreId(product, store), -quantity,
+                updatedBy, reason);
+        return costPrice;
+    }
+
+    /**
+     * The store whose inventory a sale or return in the given store moves: that
+     * store if it stocks the product, otherwise the store of the product's single
+     * inventory row, as deductInventory falls back to.
+     */
+    private long inventoryStoreId(Product product, Store store) {
+        if (inventoryService.isStockedInStore(product.getId(), store.getId())) {
+            return store.getId();
+        }
+        return inventoryService.getInventoryByProductId(product.getId())
+                .map(inventory -> inventory.getStore().getId())
+                .orElseThrow(() -> new RuntimeException("Inventory record not found for product ID: " + product.getId()));
+    }
+
     private String generateOrderNumber(Long storeId) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
         String storePrefix = String.format("S%03d", storeId);
@@ -350,6 +417,7 @@ public class SalesOrderService {
             try {
                 inventoryService.updateInventoryQuantity(
                         originalItem.getProduct().getId(),
+                        inventoryStoreId(originalItem.getProduct(), store),
                         itemDTO.getQuantity(), // Positive quantity to add back
                         "POS-" + cashier.getId(),
                         "Return: " + returnOrder.getOrderNo());
@@ -364,6 +432,9 @@ public class SalesOrderService {
         returnOrder.setTaxAmount(totalTaxRefund.negate());
         returnOrder.setTotal(totalRefund.negate());
 
-        return salesOrderRepository.save(returnOrder);
+        SalesOrder savedReturn = salesOrderRepository.save(returnOrder);
+        // Return lines carry negative quantities, so the event lowers demand
+        eventPublisher.publishEvent(SalesRecordedEvent.of(savedReturn));
+        return savedReturn;
     }
 }
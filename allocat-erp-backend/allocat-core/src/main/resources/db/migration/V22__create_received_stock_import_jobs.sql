@@ -0,0 +1,49 @@
+-- Background received stock import jobs, keyed by the csv_upload_id written to received_stock.
+-- A job is claimed by one instance at a time: the owner renews lease_expires_at while it
+-- works, and other instances only take over a job whose lease has expired, so a running job
+-- is never resumed (and its rows deleted) by a second worker.
+CREATE TABLE IF NOT EXISTS received_stock_import_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    upload_id VARCHAR(100) NOT NULL UNIQUE,
+    file_name VARCHAR(255),
+    format VARCHAR(10) NOT NULL CHECK (format IN ('CSV', 'JSON')),
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED' CHECK (status IN ('QUEUED', 'RUNNING', 'COMPLETED', 'FAILED')),
+    total_rows INTEGER,
+    last_row_number INTEGER NOT NULL DEFAULT 0,   -- checkpoint: every row up to here is accounted for
+    processed_rows INTEGER NOT NULL DEFAULT 0,
+    imported_rows INTEGER NOT NULL DEFAULT 0,
+    failed_rows INTEGER NOT NULL DEFAULT 0,
+    products_created INTEGER NOT NULL DEFAULT 0,
+    products_updated INTEGER NOT NULL DEFAULT 0,
+    errors TEXT,                                   -- JSON array of the first row errors
+    failure_reason TEXT,
+    started_at TIMESTAMP,
+    completed_at TIMESTAMP,
+    last_checkpoint_at TIMESTAMP,
+    owner_id VARCHAR(100),
+    lease_expires_at TIMESTAMP,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    created_by BIGINT,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_by BIGINT,
+    deleted_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_received_stock_import_jobs_status ON received_stock_import_jobs(status);
+
+CREATE INDEX IF NOT EXISTS idx_received_stock_import_jobs_lease
+    ON received_stock_import_jobs(lease_expires_at)
+    WHERE status IN ('QUEUED', 'RUNNING');
+
+CREATE TRIGGER trigger_received_stock_import_jobs_updated_at
+    BEFORE UPDATE ON received_stock_import_jobs
+    FOR EACH ROW
+    EXECUTE FUNCTION update_updated_at_column();
+
+-- Uploads are staged in the database rather than on the local disk of the instance that
+-- received them, so whichever instance claims the job can read the file.
+CREATE TABLE IF NOT EXISTS received_stock_import_files (
+    upload_id VARCHAR(100) PRIMARY KEY REFERENCES received_stock_import_jobs(upload_id) ON DELETE CASCADE,
+    content BYTEA NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,13 @@
+-- Exponentially smoothed daily demand per product and store, maintained incrementally from checkouts
+CREATE TABLE IF NOT EXISTS demand_forecasts (
+    product_id BIGINT NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+    store_id BIGINT NOT NULL REFERENCES stores(id) ON DELETE CASCADE,
+    bucket_date DATE NOT NULL,                     -- day still being accumulated
+    bucket_quantity INTEGER NOT NULL DEFAULT 0,    -- units sold on bucket_date so far
+    mean_daily DOUBLE PRECISION NOT NULL DEFAULT 0,
+    variance_daily DOUBLE PRECISION NOT NULL DEFAULT 0,
+    observed_days INTEGER NOT NULL DEFAULT 0,      -- closed days folded into the averages
+    version BIGINT NOT NULL DEFAULT 0,             -- guards against out-of-order writes
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (product_id, store_id)
+);
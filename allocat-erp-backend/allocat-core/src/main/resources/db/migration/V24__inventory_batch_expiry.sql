@@ -0,0 +1,22 @@
+-- Batch-level inventory positions for first-expiry-first-out allocation
+
+-- A product can now hold one row per batch at the same location. Batch number and expiry
+-- date together identify a batch; the key columns are nullable, so absent values are
+-- compared as equal and two unbatched, undated rows of a position still collide.
+ALTER TABLE inventory DROP CONSTRAINT IF EXISTS uk_inventory_product_store_warehouse;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_inventory_product_store_warehouse_batch
+    ON inventory(product_id, store_id, COALESCE(warehouse_id, 0), COALESCE(warehouse_location_id, 0),
+                 COALESCE(batch_number, ''), COALESCE(expiry_date, '-infinity'::timestamp));
+
+-- FEFO candidates of one product in one store, earliest expiry first
+CREATE INDEX IF NOT EXISTS idx_inventory_fefo
+    ON inventory(product_id, store_id, expiry_date NULLS LAST, id)
+    WHERE available_quantity > 0;
+
+-- Near-expiry report only ever looks at dated rows that still hold stock
+CREATE INDEX IF NOT EXISTS idx_inventory_expiry_date
+    ON inventory(expiry_date)
+    WHERE expiry_date IS NOT NULL AND current_quantity > 0;
+
+-- Expiry is captured on receipt so verified stock lands in a dated batch
+ALTER TABLE received_stock ADD COLUMN IF NOT EXISTS expiry_date TIMESTAMP;
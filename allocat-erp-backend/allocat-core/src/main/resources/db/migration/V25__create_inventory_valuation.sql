@@ -0,0 +1,77 @@
+-- Perpetual inventory valuation: an append-only cost ledger with running balances under both
+-- weighted-average and FIFO costing, so any past date is answered with one seek per position
+
+-- Current balance of every product / store / warehouse position
+CREATE TABLE IF NOT EXISTS inventory_valuation_positions (
+    product_id BIGINT NOT NULL REFERENCES products(id),
+    store_id BIGINT NOT NULL REFERENCES stores(id),
+    warehouse VARCHAR(100) NOT NULL DEFAULT '',
+    quantity INTEGER NOT NULL DEFAULT 0,
+    wac_value NUMERIC(18,4) NOT NULL DEFAULT 0,
+    fifo_value NUMERIC(18,4) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (product_id, store_id, warehouse)
+);
+
+-- Every stock movement with the position's balance right after it
+CREATE TABLE IF NOT EXISTS inventory_valuation_entries (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    store_id BIGINT NOT NULL,
+    warehouse VARCHAR(100) NOT NULL DEFAULT '',
+    movement_type VARCHAR(20) NOT NULL
+        CHECK (movement_type IN ('OPENING', 'RECEIPT', 'ISSUE', 'RETURN', 'TRANSFER_IN', 'ADJUSTMENT')),
+    movement_at TIMESTAMP NOT NULL,
+    quantity INTEGER NOT NULL,                    -- signed change
+    wac_value NUMERIC(18,4) NOT NULL,             -- signed value change under weighted average
+    fifo_value NUMERIC(18,4) NOT NULL,            -- signed value change under FIFO
+    quantity_after INTEGER NOT NULL,
+    wac_value_after NUMERIC(18,4) NOT NULL,
+    fifo_value_after NUMERIC(18,4) NOT NULL,
+    reference VARCHAR(255),
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Point-in-time lookup: latest entry of a position at or before a date
+CREATE INDEX IF NOT EXISTS idx_valuation_entries_position_time
+    ON inventory_valuation_entries(product_id, store_id, warehouse, movement_at DESC, id DESC);
+
+-- Open FIFO layers, consumed oldest first
+CREATE TABLE IF NOT EXISTS inventory_cost_layers (
+    id BIGSERIAL PRIMARY KEY,
+    product_id BIGINT NOT NULL,
+    store_id BIGINT NOT NULL,
+    warehouse VARCHAR(100) NOT NULL DEFAULT '',
+    received_at TIMESTAMP NOT NULL,
+    unit_cost NUMERIC(18,4) NOT NULL,
+    original_quantity INTEGER NOT NULL,
+    remaining_quantity INTEGER NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_cost_layers_open
+    ON inventory_cost_layers(product_id, store_id, warehouse, received_at, id)
+    WHERE remaining_quantity > 0;
+
+-- Opening balances from the stock on hand today
+INSERT INTO inventory_valuation_positions (product_id, store_id, warehouse, quantity, wac_value, fifo_value)
+SELECT product_id, store_id, COALESCE(warehouse, ''), SUM(current_quantity),
+       SUM(COALESCE(unit_cost, 0) * current_quantity), SUM(COALESCE(unit_cost, 0) * current_quantity)
+FROM inventory
+WHERE current_quantity > 0 AND store_id IS NOT NULL
+GROUP BY product_id, store_id, COALESCE(warehouse, '')
+ON CONFLICT DO NOTHING;
+
+INSERT INTO inventory_valuation_entries (product_id, store_id, warehouse, movement_type, movement_at, quantity,
+                                         wac_value, fifo_value, quantity_after, wac_value_after, fifo_value_after,
+                                         reference)
+SELECT product_id, store_id, warehouse, 'OPENING', CURRENT_TIMESTAMP, quantity,
+       wac_value, fifo_value, quantity, wac_value, fifo_value, 'Opening balance'
+FROM inventory_valuation_positions;
+
+INSERT INTO inventory_cost_layers (product_id, store_id, warehouse, received_at, unit_cost,
+                                   original_quantity, remaining_quantity)
+SELECT product_id, store_id, COALESCE(warehouse, ''), COALESCE(MIN(created_at), CURRENT_TIMESTAMP),
+       COALESCE(unit_cost, 0), SUM(current_quantity), SUM(current_quantity)
+FROM inventory
+WHERE current_quantity > 0 AND store_id IS NOT NULL
+GROUP BY product_id, store_id, COALESCE(warehouse, ''), COALESCE(unit_cost, 0);
@@ -0,0 +1,22 @@
+-- Case-insensitive substring and typeahead search over products
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- Trigram indexes serve LOWER(col) LIKE '%term%' for terms of three or more characters
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm ON products USING gin (LOWER(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_products_code_trgm ON products USING gin (LOWER(product_code) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_products_barcode_trgm ON products USING gin (LOWER(barcode) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_products_brand_trgm ON products USING gin (LOWER(brand) gin_trgm_ops);
+
+-- Typeahead filters inactive products inside each candidate branch, so the ordered scans
+-- that feed its limits only cover active products.
+
+-- Ordered prefix scans: ORDER BY ... USING ~<~ matches the text_pattern_ops ordering
+CREATE INDEX IF NOT EXISTS idx_products_name_prefix ON products (LOWER(name) text_pattern_ops)
+    WHERE COALESCE(is_active, TRUE);
+CREATE INDEX IF NOT EXISTS idx_products_code_prefix ON products (LOWER(product_code) text_pattern_ops)
+    WHERE COALESCE(is_active, TRUE);
+
+-- Nearest-first substring matches on name (ORDER BY LOWER(name) <-> term); GIN cannot order by distance
+CREATE INDEX IF NOT EXISTS idx_products_name_trgm_knn ON products USING gist (LOWER(name) gist_trgm_ops)
+    WHERE COALESCE(is_active, TRUE);
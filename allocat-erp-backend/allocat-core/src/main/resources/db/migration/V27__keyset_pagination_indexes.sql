@@ -0,0 +1,7 @@
+-- Seek indexes for the keyset (cursor) listings: filter columns first, then the sort key and id tie-breaker
+
+CREATE INDEX IF NOT EXISTS idx_sales_orders_store_date_id ON sales_orders (store_id, order_date, id);
+
+CREATE INDEX IF NOT EXISTS idx_inventory_available_id ON inventory (id) WHERE available_quantity > 0;
+CREATE INDEX IF NOT EXISTS idx_inventory_out_of_stock_id ON inventory (id) WHERE available_quantity = 0;
+CREATE INDEX IF NOT EXISTS idx_inventory_available_qty_id ON inventory (available_quantity, id);
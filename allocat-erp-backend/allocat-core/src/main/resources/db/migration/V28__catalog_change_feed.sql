@@ -0,0 +1,104 @@
+-- Versioned catalog feed for POS terminals.
+-- Every change to a sellable product field, price or discount stamps the row with the
+-- next value of one global sequence; hard deletes leave a tombstone with their own version.
+-- Writers do not wait on each other: versions can commit out of order, and the feed only
+-- hands out versions no transaction still in progress can fall below (CatalogSyncService).
+
+CREATE SEQUENCE IF NOT EXISTS catalog_change_seq;
+
+ALTER TABLE products ADD COLUMN IF NOT EXISTS catalog_version BIGINT;
+ALTER TABLE discounts ADD COLUMN IF NOT EXISTS catalog_version BIGINT;
+
+CREATE TABLE IF NOT EXISTS catalog_tombstones (
+    entity_type VARCHAR(20) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    catalog_version BIGINT NOT NULL,
+    deleted_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (entity_type, entity_id)
+);
+
+UPDATE products SET catalog_version = nextval('catalog_change_seq') WHERE catalog_version IS NULL;
+UPDATE discounts SET catalog_version = nextval('catalog_change_seq') WHERE catalog_version IS NULL;
+
+CREATE INDEX IF NOT EXISTS idx_products_catalog_version ON products (catalog_version);
+CREATE INDEX IF NOT EXISTS idx_discounts_catalog_version ON discounts (catalog_version);
+CREATE INDEX IF NOT EXISTS idx_catalog_tombstones_version ON catalog_tombstones (catalog_version);
+
+-- The transaction id is assigned before the version is drawn, so any snapshot taken after
+-- a version was handed out lists its transaction as in progress until it ends
+CREATE OR REPLACE FUNCTION next_catalog_version() RETURNS BIGINT AS $$
+BEGIN
+    PERFORM pg_current_xact_id();
+    RETURN nextval('catalog_change_seq');
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION stamp_product_catalog_version() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO catalog_tombstones (entity_type, entity_id, catalog_version)
+        VALUES ('PRODUCT', OLD.id, next_catalog_version())
+        ON CONFLICT (entity_type, entity_id) DO UPDATE
+            SET catalog_version = EXCLUDED.catalog_version, deleted_at = CURRENT_TIMESTAMP;
+        RETURN OLD;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        NEW.catalog_version := next_catalog_version();
+    -- Saves that only touch stock levels, suppliers or audit columns are not catalog changes
+    ELSIF (NEW.product_code, NEW.name, NEW.description, NEW.category, NEW.unit_price, NEW.unit_of_measure,
+           NEW.barcode, NEW.sku, NEW.brand, NEW.is_active, NEW.deleted_at)
+          IS DISTINCT FROM
+          (OLD.product_code, OLD.name, OLD.description, OLD.category, OLD.unit_price, OLD.unit_of_measure,
+           OLD.barcode, OLD.sku, OLD.brand, OLD.is_active, OLD.deleted_at) THEN
+        NEW.catalog_version := next_catalog_version();
+    ELSE
+        NEW.catalog_version := OLD.catalog_version;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION stamp_discount_catalog_version() RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE' THEN
+        INSERT INTO catalog_tombstones (entity_type, entity_id, catalog_version)
+        VALUES ('DISCOUNT', OLD.id, next_catalog_version())
+        ON CONFLICT (entity_type, entity_id) DO UPDATE
+            SET catalog_version = EXCLUDED.catalog_version, deleted_at = CURRENT_TIMESTAMP;
+        RETURN OLD;
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        NEW.catalog_version := next_catalog_version();
+    -- Usage counters change on every sale and are checked server-side at checkout
+    ELSIF (NEW.code, NEW.name, NEW.type, NEW.value, NEW.min_purchase_amount, NEW.max_discount_amount,
+           NEW.valid_from, NEW.valid_to, NEW.is_active, NEW.deleted_at)
+          IS DISTINCT FROM
+          (OLD.code, OLD.name, OLD.type, OLD.value, OLD.min_purchase_amount, OLD.max_discount_amount,
+           OLD.valid_from, OLD.valid_to, OLD.is_active, OLD.deleted_at) THEN
+        NEW.catalog_version := next_catalog_version();
+    ELSE
+        NEW.catalog_version := OLD.catalog_version;
+    END IF;
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_products_catalog_version ON products;
+CREATE TRIGGER trg_products_catalog_version
+    BEFORE INSERT OR UPDATE ON products
+    FOR EACH ROW EXECUTE FUNCTION stamp_product_catalog_version();
+
+DROP TRIGGER IF EXISTS trg_products_catalog_tombstone ON products;
+CREATE TRIGGER trg_products_catalog_tombstone
+    AFTER DELETE ON products
+    FOR EACH ROW EXECUTE FUNCTION stamp_product_catalog_version();
+
+DROP TRIGGER IF EXISTS trg_discounts_catalog_version ON discounts;
+CREATE TRIGGER trg_discounts_catalog_version
+    BEFORE INSERT OR UPDATE ON discounts
+    FOR EACH ROW EXECUTE FUNCTION stamp_discount_catalog_version();
+
+DROP TRIGGER IF EXISTS trg_discounts_catalog_tombstone ON discounts;
+CREATE TRIGGER trg_discounts_catalog_tombstone
+    AFTER DELETE ON discounts
+    FOR EACH ROW EXECUTE FUNCTION stamp_discount_catalog_version();
@@ -0,0 +1,89 @@
+-- Dashboard summaries as materialized views, refreshed concurrently in the background
+-- (InventorySummaryService) instead of re-aggregating the inventory table on every request.
+-- One elected instance refreshes them when the source tables' versions (V32) move; the
+-- refresh state lives in inventory_summary_refresh so every instance reports the same
+-- as-of time.
+
+DROP VIEW IF EXISTS v_consolidated_inventory;
+DROP VIEW IF EXISTS v_store_inventory_summary;
+DROP VIEW IF EXISTS v_warehouse_inventory_summary;
+
+CREATE MATERIALIZED VIEW mv_consolidated_inventory AS
+SELECT
+    p.id AS product_id,
+    p.product_code,
+    p.name AS product_name,
+    p.sku,
+    p.barcode,
+    COALESCE(SUM(i.current_quantity), 0) AS total_quantity,
+    COALESCE(SUM(i.reserved_quantity), 0) AS total_reserved,
+    COALESCE(SUM(i.available_quantity), 0) AS total_available,
+    COUNT(DISTINCT i.store_id) AS store_count,
+    COUNT(DISTINCT i.warehouse_id) AS warehouse_count,
+    COALESCE(MIN(i.available_quantity), 0) AS min_available,
+    COALESCE(MAX(i.available_quantity), 0) AS max_available,
+    COALESCE(AVG(i.unit_cost), 0) AS avg_unit_cost,
+    COALESCE(SUM(i.total_value), 0) AS total_value
+FROM products p
+LEFT JOIN inventory i ON p.id = i.product_id
+WHERE p.is_active = true
+GROUP BY p.id, p.product_code, p.name, p.sku, p.barcode;
+
+CREATE MATERIALIZED VIEW mv_store_inventory_summary AS
+SELECT
+    s.id AS store_id,
+    s.code AS store_code,
+    s.name AS store_name,
+    COUNT(DISTINCT i.product_id) AS product_count,
+    COALESCE(SUM(i.current_quantity), 0) AS total_quantity,
+    COALESCE(SUM(i.available_quantity), 0) AS total_available,
+    COALESCE(SUM(i.total_value), 0) AS total_inventory_value,
+    COUNT(DISTINCT i.warehouse_id) AS warehouse_count
+FROM stores s
+LEFT JOIN inventory i ON s.id = i.store_id
+WHERE s.is_active = true
+GROUP BY s.id, s.code, s.name;
+
+CREATE MATERIALIZED VIEW mv_warehouse_inventory_summary AS
+SELECT
+    w.id AS warehouse_id,
+    w.code AS warehouse_code,
+    w.name AS warehouse_name,
+    w.store_id,
+    s.name AS store_name,
+    COUNT(DISTINCT i.product_id) AS product_count,
+    COALESCE(SUM(i.current_quantity), 0) AS total_quantity,
+    COALESCE(SUM(i.available_quantity), 0) AS total_available,
+    COALESCE(SUM(i.total_value), 0) AS total_inventory_value
+FROM warehouses w
+LEFT JOIN stores s ON w.store_id = s.id
+LEFT JOIN inventory i ON w.id = i.warehouse_id
+WHERE w.is_active = true
+GROUP BY w.id, w.code, w.name, w.store_id, s.name;
+
+-- REFRESH ... CONCURRENTLY needs a unique index on each view
+CREATE UNIQUE INDEX idx_mv_consolidated_inventory_product ON mv_consolidated_inventory (product_id);
+CREATE UNIQUE INDEX idx_mv_store_inventory_summary_store ON mv_store_inventory_summary (store_id);
+CREATE UNIQUE INDEX idx_mv_warehouse_inventory_summary_warehouse ON mv_warehouse_inventory_summary (warehouse_id);
+CREATE INDEX idx_mv_warehouse_inventory_summary_store ON mv_warehouse_inventory_summary (store_id);
+
+-- Substring search on the consolidated view (pg_trgm from V26)
+CREATE INDEX idx_mv_consolidated_inventory_code_trgm ON mv_consolidated_inventory USING gin (product_code gin_trgm_ops);
+CREATE INDEX idx_mv_consolidated_inventory_name_trgm ON mv_consolidated_inventory USING gin (product_name gin_trgm_ops);
+
+COMMENT ON MATERIALIZED VIEW mv_consolidated_inventory IS 'Consolidated inventory across all stores and warehouses, refreshed in the background';
+COMMENT ON MATERIALIZED VIEW mv_store_inventory_summary IS 'Inventory summary per store, refreshed in the background';
+COMMENT ON MATERIALIZED VIEW mv_warehouse_inventory_summary IS 'Inventory summary per warehouse, refreshed in the background';
+
+CREATE TABLE IF NOT EXISTS inventory_summary_refresh (
+    id SMALLINT PRIMARY KEY CHECK (id = 1),
+    -- Sum of the source tables' versions the summaries were last built from
+    source_version BIGINT NOT NULL DEFAULT -1,
+    -- Start of the transaction that last refreshed them
+    as_of TIMESTAMP
+);
+
+INSERT INTO inventory_summary_refresh (id) VALUES (1)
+ON CONFLICT (id) DO NOTHING;
+
+COMMENT ON TABLE inventory_summary_refresh IS 'When the inventory summary views were last refreshed and from which source versions';
@@ -0,0 +1,15 @@
+-- Refresh-token rotation.
+-- Each row is one issued refresh token: token holds its id (the jti claim) and token_hash
+-- the SHA-256 of the whole token. Tokens from one login share a session_id; presenting a
+-- token that was already used revokes the whole session.
+
+DELETE FROM refresh_tokens;
+
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS token_hash VARCHAR(64) NOT NULL;
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS session_id VARCHAR(36) NOT NULL;
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS used_at TIMESTAMP;
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS revoked_at TIMESTAMP;
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_session_id ON refresh_tokens(session_id);
+-- Revocations other instances have not seen yet
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_revoked_at ON refresh_tokens(revoked_at) WHERE revoked_at IS NOT NULL;
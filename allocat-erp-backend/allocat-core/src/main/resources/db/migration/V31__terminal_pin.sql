@@ -0,0 +1,12 @@
+-- Cashier PINs for POS terminal sign-in.
+-- A terminal exchanges its store's access code plus a cashier's username and PIN for a
+-- short-lived, store-scoped token. pin_hash is the BCrypt hash of the PIN; users without
+-- one cannot sign in at a terminal.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS pin_hash VARCHAR(255);
+
+-- Wrong-PIN count and lockout, on the user row so every instance enforces the same limit
+-- and a restart does not reset it. Not mapped on the entity: only TerminalSessionService
+-- writes them, with single-statement updates.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS pin_failed_attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS pin_locked_until TIMESTAMP;
@@ -0,0 +1,90 @@
+-- Per-table change versions, moved by triggers in the writing transaction.
+-- Instances keep in-memory state derived from these tables (compiled access grants,
+-- reference-data validators); they compare versions instead of relying on their own
+-- write events, so writes made by another instance or by bulk SQL are noticed too.
+--
+-- Writers never update a shared row: each writing transaction inserts one row per table
+-- into table_changes, keyed by its own transaction id. A table's version is its folded
+-- count in table_versions plus its rows still in table_changes, so every commit moves it
+-- by one whatever order transactions commit in. compact_table_versions() folds committed
+-- changes into table_versions in the background; the sum is the same before and after.
+
+CREATE TABLE IF NOT EXISTS table_versions (
+    table_name VARCHAR(63) PRIMARY KEY,
+    version BIGINT NOT NULL DEFAULT 0,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS table_changes (
+    table_name VARCHAR(63) NOT NULL,
+    txid XID8 NOT NULL,
+    changed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (table_name, txid)
+);
+
+CREATE OR REPLACE FUNCTION bump_table_version() RETURNS TRIGGER AS $$
+BEGIN
+    -- The key is this transaction's own, so this never waits on another writer
+    INSERT INTO table_changes (table_name, txid, changed_at)
+    VALUES (TG_TABLE_NAME, pg_current_xact_id(), clock_timestamp())
+    ON CONFLICT (table_name, txid) DO NOTHING;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Only committed changes are visible to the DELETE, and the move commits atomically
+CREATE OR REPLACE FUNCTION compact_table_versions() RETURNS VOID AS $$
+    WITH moved AS (
+        DELETE FROM table_changes RETURNING table_name, changed_at
+    )
+    INSERT INTO table_versions AS v (table_name, version, changed_at)
+    SELECT table_name, COUNT(*), MAX(changed_at) FROM moved GROUP BY table_name
+    ON CONFLICT (table_name) DO UPDATE
+        SET version = v.version + EXCLUDED.version,
+            changed_at = GREATEST(v.changed_at, EXCLUDED.changed_at);
+$$ LANGUAGE sql;
+
+INSERT INTO table_versions (table_name) VALUES
+    ('users'), ('roles'), ('user_store_access'), ('stores'), ('warehouses'), ('inventory')
+ON CONFLICT (table_name) DO NOTHING;
+
+-- Access-relevant tables: one change per writing transaction, however many rows it touches
+DROP TRIGGER IF EXISTS trg_roles_version ON roles;
+CREATE TRIGGER trg_roles_version
+    AFTER INSERT OR UPDATE OR DELETE ON roles
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trg_user_store_access_version ON user_store_access;
+CREATE TRIGGER trg_user_store_access_version
+    AFTER INSERT OR UPDATE OR DELETE ON user_store_access
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trg_stores_version ON stores;
+CREATE TRIGGER trg_stores_version
+    AFTER INSERT OR UPDATE OR DELETE ON stores
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trg_warehouses_version ON warehouses;
+CREATE TRIGGER trg_warehouses_version
+    AFTER INSERT OR UPDATE OR DELETE ON warehouses
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_table_version();
+
+-- Change signal for the inventory summaries (V29): the elected refresher rebuilds them
+-- only when the versions of their source tables moved
+DROP TRIGGER IF EXISTS trg_inventory_version ON inventory;
+CREATE TRIGGER trg_inventory_version
+    AFTER INSERT OR UPDATE OR DELETE ON inventory
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_table_version();
+
+-- Users are written on every login (last_login_at); only role and status changes count
+DROP TRIGGER IF EXISTS trg_users_version ON users;
+CREATE TRIGGER trg_users_version
+    AFTER UPDATE ON users
+    FOR EACH ROW
+    WHEN (OLD.role_id IS DISTINCT FROM NEW.role_id OR OLD.is_active IS DISTINCT FROM NEW.is_active)
+    EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trg_users_deleted_version ON users;
+CREATE TRIGGER trg_users_deleted_version
+    AFTER DELETE ON users
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_table_version();
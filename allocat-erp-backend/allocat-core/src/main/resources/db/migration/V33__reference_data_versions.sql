@@ -0,0 +1,15 @@
+-- Reference data served with conditional GETs takes its validators from table_versions
+-- (V32), so every instance answers with the same ETag and bulk SQL writes count too.
+
+INSERT INTO table_versions (table_name) VALUES ('products'), ('discounts')
+ON CONFLICT (table_name) DO NOTHING;
+
+DROP TRIGGER IF EXISTS trg_products_version ON products;
+CREATE TRIGGER trg_products_version
+    AFTER INSERT OR UPDATE OR DELETE ON products
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_table_version();
+
+DROP TRIGGER IF EXISTS trg_discounts_version ON discounts;
+CREATE TRIGGER trg_discounts_version
+    AFTER INSERT OR UPDATE OR DELETE ON discounts
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_table_version();
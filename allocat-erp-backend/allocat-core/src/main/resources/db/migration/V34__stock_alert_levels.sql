@@ -0,0 +1,19 @@
+-- Stock alert level per product and store, summed over its batches. Instances compare new
+-- levels against this row instead of their own memory, so each crossing is recorded once,
+-- and every instance forwards recent crossings to its own subscribers by polling changed_at.
+
+CREATE SEQUENCE IF NOT EXISTS stock_alert_change_seq;
+
+CREATE TABLE IF NOT EXISTS stock_alert_levels (
+    product_id BIGINT NOT NULL REFERENCES products(id) ON DELETE CASCADE,
+    store_id BIGINT NOT NULL REFERENCES stores(id) ON DELETE CASCADE,
+    level VARCHAR(20) NOT NULL,           -- OK, LOW_STOCK or OUT_OF_STOCK
+    previous_level VARCHAR(20) NOT NULL,
+    change_seq BIGINT NOT NULL,           -- identifies one crossing
+    changed_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (product_id, store_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_alert_levels_changed_at ON stock_alert_levels (changed_at);
+
+COMMENT ON TABLE stock_alert_levels IS 'Latest stock alert level per product and store, for crossing detection';
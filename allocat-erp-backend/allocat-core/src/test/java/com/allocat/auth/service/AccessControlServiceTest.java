@@ -0,0 +1,78 @@
+package com.allocat.auth.service;
+
+import com.allocat.auth.entity.Role;
+import com.allocat.auth.entity.Store;
+import com.allocat.auth.entity.User;
+import com.allocat.auth.entity.UserStoreAccess;
+import com.allocat.auth.repository.StoreRepository;
+import com.allocat.auth.repository.UserRepository;
+import com.allocat.auth.repository.UserStoreAccessRepository;
+import com.allocat.common.util.TableVersions;
+import com.allocat.inventory.repository.WarehouseRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AccessControlServiceTest {
+
+    private final UserStoreAccessRepository grants = mock(UserStoreAccessRepository.class);
+    private final UserRepository users = mock(UserRepository.class);
+    private final TableVersions tableVersions = mock(TableVersions.class);
+    private AccessControlService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AccessControlService(grants, users, mock(WarehouseRepository.class),
+                mock(StoreRepository.class), tableVersions);
+        User cashier = User.builder().id(7L).username("cashier")
+                .role(Role.builder().name("SALES_STAFF").build()).build();
+        when(users.findById(7L)).thenReturn(Optional.of(cashier));
+        when(grants.findByUserIdAndIsActive(7L, true)).thenReturn(List.of(UserStoreAccess.builder()
+                .store(Store.builder().id(1L).build())
+                .accessLevel(UserStoreAccess.AccessLevel.OPERATE)
+                .build()));
+        versions(1);
+        service.syncVersions();
+    }
+
+    @Test
+    void grantRevokedOnAnotherInstanceStopsWorkingAfterSync() {
+        assertThat(service.hasStoreAccess(7L, 1L, UserStoreAccess.AccessLevel.OPERATE)).isTrue();
+
+        // Another instance deactivates the grant; nothing is published in this JVM
+        when(grants.findByUserIdAndIsActive(7L, true)).thenReturn(List.of());
+        assertThat(service.hasStoreAccess(7L, 1L, UserStoreAccess.AccessLevel.OPERATE)).isTrue();
+
+        versions(2);
+        service.syncVersions();
+        assertThat(service.hasStoreAccess(7L, 1L, UserStoreAccess.AccessLevel.OPERATE)).isFalse();
+    }
+
+    @Test
+    void unchangedVersionsKeepCompiledAccess() {
+        assertThat(service.hasStoreAccess(7L, 1L, UserStoreAccess.AccessLevel.OPERATE)).isTrue();
+        when(grants.findByUserIdAndIsActive(7L, true)).thenReturn(List.of());
+
+        service.syncVersions();
+        assertThat(service.hasStoreAccess(7L, 1L, UserStoreAccess.AccessLevel.OPERATE)).isTrue();
+    }
+
+    private void versions(long userStoreAccess) {
+        Instant now = Instant.now();
+        when(tableVersions.read(any(String[].class))).thenReturn(Map.of(
+                "users", new TableVersions.Version(1, now),
+                "roles", new TableVersions.Version(1, now),
+                "user_store_access", new TableVersions.Version(userStoreAccess, now),
+                "stores", new TableVersions.Version(1, now),
+                "warehouses", new TableVersions.Version(1, now)));
+    }
+}
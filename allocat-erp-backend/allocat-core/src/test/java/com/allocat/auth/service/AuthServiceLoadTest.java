@@ -0,0 +1,166 @@
+package com.allocat.auth.service;
+
+import com.allocat.auth.entity.User;
+import com.allocat.auth.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 500 sign-ins at once against a 20 ms password check on 4 workers. Every
+ * caller must get an answer, either a session or a retryable rejection, and
+ * none may hang until the async request timeout. How fast the burst drains is
+ * measured by a benchmark outside the regular build.
+ */
+class AuthServiceLoadTest {
+
+    private static final int LOGINS = 500;
+    private static final int WORKERS = 4;
+    private static final long CHECK_MILLIS = 20;
+    private static final long MAX_WAIT_MILLIS = 400;
+
+    private final AtomicInteger checks = new AtomicInteger();
+    private final UserRepository users = mock(UserRepository.class);
+    private AuthService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AuthService(users, new SlowPasswordEncoder(), mock(LastLoginRecorder.class));
+        ReflectionTestUtils.setField(service, "hashWorkers", WORKERS);
+        ReflectionTestUtils.setField(service, "maxWaitMillis", MAX_WAIT_MILLIS);
+        ReflectionTestUtils.setField(service, "ioWorkers", 2);
+        service.startExecutor();
+        checks.set(0);
+
+        User cashier = User.builder().id(7L).username("cashier").passwordHash("hash").active(true).build();
+        when(users.findByUsernameOrEmail(anyString())).thenReturn(List.of(cashier));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stopExecutor();
+    }
+
+    @Test
+    void burstOfLoginsIsAnsweredWithinTheWaitBudget() throws Exception {
+        AtomicInteger responsesOffIoPool = new AtomicInteger();
+        List<String> outcomes = burst(responsesOffIoPool);
+
+        long ok = outcomes.stream().filter("ok"::equals).count();
+        long rejected = outcomes.stream().filter("503"::equals).count();
+        assertThat(ok + rejected).isEqualTo(LOGINS);
+        assertThat(ok).isGreaterThanOrEqualTo(WORKERS);
+        assertThat(rejected).isPositive();
+        // Rejected logins never reached the password check
+        assertThat(checks.get()).isEqualTo((int) ok);
+        assertThat(responsesOffIoPool).hasValue(0);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void burstDrainsWithinTheWaitBudget() throws Exception {
+        long began = System.nanoTime();
+        burst(new AtomicInteger());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - began);
+
+        // Nothing waits for a worker longer than the budget, so the burst drains promptly
+        assertThat(elapsedMillis).isLessThan(MAX_WAIT_MILLIS + 10 * CHECK_MILLIS + 1_000);
+    }
+
+    @Test
+    void stageRejectedByAFullIoQueueStillCompletes() throws Exception {
+        service.stopExecutor();
+        ReflectionTestUtils.setField(service, "ioWorkers", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 1);
+        service.startExecutor();
+
+        CountDownLatch release = new CountDownLatch(1);
+        // One task holds the only worker and another fills the queue
+        service.ioExecutor().execute(() -> awaitQuietly(release));
+        service.ioExecutor().execute(() -> { });
+
+        CompletableFuture<String> response = service.authenticateAsync("cashier", "secret")
+                .thenApplyAsync(user -> Thread.currentThread().getName(), service.ioExecutor());
+
+        // Ran on the login worker that finished the check
+        assertThat(response.get(5, TimeUnit.SECONDS)).startsWith("login-").doesNotStartWith("login-io-");
+        release.countDown();
+    }
+
+    /**
+     * Start every login at once through the same chain as AuthController.login
+     * and collect "ok", "503" or "error" for each; none may hang.
+     */
+    private List<String> burst(AtomicInteger responsesOffIoPool) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService clients = Executors.newFixedThreadPool(50);
+        List<CompletableFuture<CompletableFuture<String>>> submitted = new ArrayList<>();
+        for (int i = 0; i < LOGINS; i++) {
+            submitted.add(CompletableFuture.supplyAsync(() -> {
+                awaitQuietly(start);
+                return service.authenticateAsync("cashier", "secret")
+                        .thenApplyAsync(user -> {
+                            if (!Thread.currentThread().getName().startsWith("login-io-")) {
+                                responsesOffIoPool.incrementAndGet();
+                            }
+                            return "ok";
+                        }, service.ioExecutor())
+                        .exceptionally(failure -> failure instanceof CompletionException
+                                && failure.getCause() instanceof IllegalStateException ? "503" : "error");
+            }, clients));
+        }
+
+        start.countDown();
+        List<String> outcomes = new ArrayList<>();
+        for (CompletableFuture<CompletableFuture<String>> login : submitted) {
+            outcomes.add(login.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS));
+        }
+        clients.shutdown();
+        return outcomes;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class SlowPasswordEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return "hash";
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            checks.incrementAndGet();
+            try {
+                Thread.sleep(CHECK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "secret".contentEquals(rawPassword) && "hash".equals(encodedPassword);
+        }
+    }
+}
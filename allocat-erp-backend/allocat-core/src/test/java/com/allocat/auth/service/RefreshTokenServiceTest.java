@@ -0,0 +1,106 @@
+package com.allocat.auth.service;
+
+import com.allocat.auth.entity.RefreshToken;
+import com.allocat.auth.repository.RefreshTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private static final Instant EXPIRES = Instant.now().plusSeconds(86_400);
+
+    private final RefreshTokenRepository repository = mock(RefreshTokenRepository.class);
+    private final RefreshTokenService service = new RefreshTokenService(repository);
+    private RefreshToken issued;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "refreshExpirationMillis", 86_400_000L);
+        when(repository.save(any(RefreshToken.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        issued = service.register(7L, "session-1", "rt-1", "refresh-token-1", EXPIRES);
+        issued.setId(1L);
+        when(repository.findByTokenId("rt-1")).thenReturn(Optional.of(issued));
+    }
+
+    @Test
+    void rotationConsumesTheTokenAndRegistersItsSuccessorInTheSameSession() {
+        when(repository.markUsed(eq(1L), any())).thenReturn(1);
+
+        RefreshToken consumed = service.rotate("rt-1", "refresh-token-1", "rt-2", "refresh-token-2", EXPIRES);
+
+        assertThat(consumed).isSameAs(issued);
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(repository, times(2)).save(saved.capture());
+        RefreshToken successor = saved.getValue();
+        assertThat(successor.getTokenId()).isEqualTo("rt-2");
+        assertThat(successor.getSessionId()).isEqualTo("session-1");
+        assertThat(successor.getUserId()).isEqualTo(7L);
+        // Only the hash is stored
+        assertThat(successor.getTokenHash()).isNotEqualTo("refresh-token-2").hasSize(64);
+        assertThat(service.isRevoked("session-1")).isFalse();
+    }
+
+    @Test
+    void secondUseOfAConsumedTokenRevokesTheSession() {
+        when(repository.markUsed(eq(1L), any())).thenReturn(1, 0);
+        service.rotate("rt-1", "refresh-token-1", "rt-2", "refresh-token-2", EXPIRES);
+
+        assertThatThrownBy(() -> service.rotate("rt-1", "refresh-token-1", "rt-3", "refresh-token-3", EXPIRES))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("already been used");
+
+        verify(repository).revokeSession(eq("session-1"), any(LocalDateTime.class));
+        assertThat(service.isRevoked("session-1")).isTrue();
+        // Nothing was issued from the replayed token
+        verify(repository, times(2)).save(any(RefreshToken.class));
+    }
+
+    @Test
+    void tokenOfARevokedSessionIsRefusedBeforeItIsConsumed() {
+        service.revokeSession("session-1");
+
+        assertThatThrownBy(() -> service.rotate("rt-1", "refresh-token-1", "rt-2", "refresh-token-2", EXPIRES))
+                .hasMessageContaining("revoked");
+        verify(repository, never()).markUsed(any(), any());
+    }
+
+    @Test
+    void wrongSecretForAKnownTokenIdIsRejected() {
+        assertThatThrownBy(() -> service.rotate("rt-1", "guessed", "rt-2", "refresh-token-2", EXPIRES))
+                .hasMessage("Unknown refresh token");
+        verify(repository, never()).markUsed(any(), any());
+    }
+
+    @Test
+    void revocationMadeByAnotherInstanceIsPickedUpBySync() {
+        when(repository.findRevokedSessions(any(), any())).thenReturn(List.<Object[]>of(
+                new Object[] {"session-9", LocalDateTime.now().plusHours(1)},
+                new Object[] {"session-old", LocalDateTime.now().minusHours(1)}));
+
+        service.syncRevocations();
+
+        assertThat(service.isRevoked("session-9")).isTrue();
+        // Every token of that session has expired already
+        assertThat(service.isRevoked("session-old")).isFalse();
+        verify(repository, never()).revokeSession(anyString(), any());
+    }
+}
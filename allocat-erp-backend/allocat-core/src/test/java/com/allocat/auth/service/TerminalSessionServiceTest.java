@@ -0,0 +1,91 @@
+package com.allocat.auth.service;
+
+import com.allocat.auth.entity.Role;
+import com.allocat.auth.entity.Store;
+import com.allocat.auth.entity.User;
+import com.allocat.auth.repository.StoreRepository;
+import com.allocat.auth.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TerminalSessionServiceTest {
+
+    private final StoreRepository stores = mock(StoreRepository.class);
+    private final UserRepository users = mock(UserRepository.class);
+    private final PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private TerminalSessionService service;
+    private Store store;
+
+    @BeforeEach
+    void setUp() {
+        service = new TerminalSessionService(stores, users, passwordEncoder, mock(AccessControlService.class),
+                mock(AuthService.class), mock(LastLoginRecorder.class), jdbcTemplate);
+        store = Store.builder().id(1L).code("S1").accessCode("hash-old").build();
+        when(stores.findByCode("S1")).thenReturn(Optional.of(store));
+        when(stores.findById(1L)).thenReturn(Optional.of(store));
+        when(passwordEncoder.matches("old-code", "hash-old")).thenReturn(true);
+        when(passwordEncoder.matches("pin", "pin-hash")).thenReturn(true);
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), any(), any(), any())).thenReturn(List.of(1));
+
+        User cashier = User.builder().id(7L).username("cashier").storeId(1L).pinHash("pin-hash")
+                .role(Role.builder().name("SALES_STAFF").build()).build();
+        when(users.findByUsername("cashier")).thenReturn(Optional.of(cashier));
+    }
+
+    @Test
+    void accessCodeRotatedOnAnotherInstanceStopsMatching() {
+        assertThat(service.open("S1", "old-code", "cashier", "pin").store()).isSameAs(store);
+
+        // Another instance stores the hash of a new code; nothing is published in this JVM
+        store.setAccessCode("hash-new");
+
+        assertThatThrownBy(() -> service.open("S1", "old-code", "cashier", "pin"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("access code");
+    }
+
+    @Test
+    void lockoutRecordedInDatabaseRefusesCorrectPin() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Integer.class), any(), any(), any())).thenReturn(List.of());
+
+        assertThatThrownBy(() -> service.open("S1", "old-code", "cashier", "pin"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Too many wrong PINs");
+        verify(passwordEncoder, never()).matches("pin", "pin-hash");
+    }
+
+    @Test
+    void attemptIsCountedBeforeThePinIsComparedAndClearedOnlyOnSuccess() {
+        service.open("S1", "old-code", "cashier", "pin");
+
+        InOrder order = inOrder(jdbcTemplate, passwordEncoder);
+        order.verify(jdbcTemplate).queryForList(contains("pin_failed_attempts"), eq(Integer.class), any(), any(),
+                eq(7L));
+        order.verify(passwordEncoder).matches("pin", "pin-hash");
+        order.verify(jdbcTemplate).update(contains("pin_failed_attempts = 0"), eq(7L));
+
+        assertThatThrownBy(() -> service.open("S1", "old-code", "cashier", "wrong"))
+                .hasMessageContaining("Invalid username or PIN");
+        verify(jdbcTemplate, times(1)).update(contains("pin_failed_attempts = 0"), eq(7L));
+    }
+}
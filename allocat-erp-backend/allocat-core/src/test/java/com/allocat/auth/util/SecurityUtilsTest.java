@@ -0,0 +1,84 @@
+package com.allocat.auth.util;
+
+import com.allocat.common.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecurityUtilsTest {
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void jwtPrincipalIsResolvedWithoutLoadingTheUser() {
+        AuthenticatedUser cashier = new AuthenticatedUser(7L, "cashier", "SALES_STAFF", 3L);
+        authenticate(new UsernamePasswordAuthenticationToken(cashier, null,
+                AuthorityUtils.createAuthorityList("ROLE_SALES_STAFF")));
+
+        assertThat(SecurityUtils.getCurrentUser()).isSameAs(cashier);
+        assertThat(SecurityUtils.getCurrentUserId()).isEqualTo(7L);
+        assertThat(SecurityUtils.getCurrentUserStoreId()).isEqualTo(3L);
+        assertThat(SecurityUtils.getCurrentUsername()).isEqualTo("cashier");
+        assertThat(SecurityUtils.hasRole("SALES_STAFF")).isTrue();
+        assertThat(SecurityUtils.isAdmin()).isFalse();
+    }
+
+    @Test
+    void otherAuthenticationsStillYieldANumericUserId() {
+        authenticate(new UsernamePasswordAuthenticationToken("42", null, List.of()));
+
+        assertThat(SecurityUtils.getCurrentUser()).isNull();
+        assertThat(SecurityUtils.getCurrentUserId()).isEqualTo(42L);
+        assertThat(SecurityUtils.getCurrentUserStoreId()).isNull();
+    }
+
+    @Test
+    void principalOfAnUnauthenticatedTokenIsIgnored() {
+        authenticate(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(7L, "cashier", "SALES_STAFF", 3L), null));
+
+        assertThat(SecurityUtils.getCurrentUser()).isNull();
+        assertThat(SecurityUtils.getCurrentUserId()).isNull();
+        assertThat(SecurityUtils.getCurrentUserStoreId()).isNull();
+    }
+
+    @Test
+    void anonymousCallerHasNoUser() {
+        assertThat(SecurityUtils.getCurrentUser()).isNull();
+        assertThat(SecurityUtils.getCurrentUserId()).isNull();
+        assertThat(SecurityUtils.isAuthenticated()).isFalse();
+
+        authenticate(new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+
+        assertThat(SecurityUtils.getCurrentUser()).isNull();
+        assertThat(SecurityUtils.isAuthenticated()).isFalse();
+    }
+
+    @Test
+    void terminalPrincipalKeepsAnImmutableCopyOfItsPermissions() {
+        List<String> permissions = new ArrayList<>(List.of("SALES_CREATE"));
+        AuthenticatedUser terminal = new AuthenticatedUser(7L, "cashier", "SALES_STAFF", 3L, true, permissions);
+        permissions.add("USER_MANAGE");
+
+        assertThat(terminal.permissions()).containsExactly("SALES_CREATE");
+        assertThat(terminal.getName()).isEqualTo("cashier");
+        assertThat(new AuthenticatedUser(7L, "cashier", "SALES_STAFF", 3L, false, null).permissions()).isEmpty();
+    }
+
+    private static void authenticate(Authentication authentication) {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+    }
+}
@@ -0,0 +1,124 @@
+package com.allocat.inventory.repository;
+
+import com.allocat.auth.entity.Store;
+import com.allocat.inventory.dto.InventoryListItem;
+import com.allocat.inventory.dto.ReceivedStockSummary;
+import com.allocat.inventory.entity.Inventory;
+import com.allocat.inventory.entity.Product;
+import com.allocat.inventory.entity.ReceivedStock;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Counts the statements the received-stock and product inventory endpoints
+ * issue. A projection is one query however many rows it returns; serializing
+ * the entities touched each row's lazy product.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:projections;MODE=PostgreSQL;INIT=CREATE DOMAIN IF NOT EXISTS jsonb AS JSON",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProjectionQueryCountTest {
+
+    private static final int ROWS = 5;
+
+    @SpringBootConfiguration
+    @EnableJpaAuditing
+    @EntityScan(basePackageClasses = {Inventory.class, Store.class})
+    @EnableJpaRepositories(basePackageClasses = InventoryRepository.class, includeFilters = @ComponentScan.Filter(
+            type = FilterType.ASSIGNABLE_TYPE, classes = {InventoryRepository.class, ReceivedStockRepository.class}))
+    static class Config {
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ReceivedStockRepository receivedStockRepository;
+
+    private Statistics statistics;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        Store store = entityManager.persist(Store.builder().code("S001").name("Main").accessCode("1234").build());
+        for (int i = 0; i < ROWS; i++) {
+            // A product per received row, so every row has its own lazy association
+            Product rowProduct = entityManager.persist(Product.builder()
+                    .productCode("P" + i).name("Product " + i).minimumStockLevel(5).build());
+            entityManager.persist(ReceivedStock.builder()
+                    .product(rowProduct).productCode(rowProduct.getProductCode()).productName(rowProduct.getName())
+                    .expectedQuantity(10).receivedQuantity(10).csvUploadId("upload-1").build());
+            product = rowProduct;
+        }
+        for (int i = 0; i < ROWS; i++) {
+            entityManager.persist(Inventory.builder()
+                    .product(product).store(store).batchNumber("B" + i)
+                    .expiryDate(LocalDateTime.now().plusDays(ROWS - i))
+                    .currentQuantity(10).reservedQuantity(0).build());
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void receivedStockOfAnUploadIsOneQuery() {
+        List<ReceivedStockSummary> summaries = receivedStockRepository.findSummariesByCsvUploadId("upload-1");
+
+        assertThat(summaries).hasSize(ROWS).extracting(ReceivedStockSummary::getProductId).doesNotContainNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void receivedStockEntitiesLoadAProductPerRow() {
+        // What serializing the old List<ReceivedStock> response cost
+        List<ReceivedStock> rows = receivedStockRepository.findByCsvUploadId("upload-1");
+        rows.forEach(row -> row.getProduct().getName());
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + ROWS);
+    }
+
+    @Test
+    void everyBatchOfAProductIsOneQuery() {
+        List<InventoryListItem> batches = inventoryRepository.findListItemsByProductId(product.getId());
+
+        assertThat(batches).hasSize(ROWS)
+                .extracting(InventoryListItem::getBatchNumber).containsExactly("B4", "B3", "B2", "B1", "B0");
+        assertThat(batches).extracting(InventoryListItem::getProductCode).containsOnly(product.getProductCode());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,51 @@
+package com.allocat.inventory.service;
+
+import com.allocat.pos.event.SalesRecordedEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DemandForecastServiceTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final DemandForecastService service = new DemandForecastService(jdbcTemplate);
+
+    @Test
+    void saleIsAddedToTheLockedRowNotToThisInstancesCopy() throws Exception {
+        LocalDate today = LocalDate.now();
+        // Another instance already recorded 5 units today
+        ResultSet row = mock(ResultSet.class);
+        when(row.getLong("product_id")).thenReturn(10L);
+        when(row.getLong("store_id")).thenReturn(1L);
+        when(row.getDate("bucket_date")).thenReturn(Date.valueOf(today));
+        when(row.getInt("bucket_quantity")).thenReturn(5);
+        when(jdbcTemplate.query(contains("FOR UPDATE"), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenAnswer(invocation -> List.of(invocation.<RowMapper<?>>getArgument(2).mapRow(row, 0)));
+
+        service.onSalesRecorded(SalesRecordedEvent.builder()
+                .storeId(1L)
+                .saleDate(today)
+                .quantities(Map.of(10L, 2))
+                .build());
+
+        ArgumentCaptor<SqlParameterSource[]> updates = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE demand_forecasts"), updates.capture());
+        assertThat(updates.getValue()).hasSize(1);
+        assertThat(updates.getValue()[0].getValue("bucketQuantity")).isEqualTo(7);
+    }
+}
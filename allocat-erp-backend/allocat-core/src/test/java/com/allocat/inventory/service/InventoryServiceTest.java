@@ -0,0 +1,161 @@
+package com.allocat.inventory.service;
+
+import com.allocat.auth.entity.Store;
+import com.allocat.auth.repository.StoreRepository;
+import com.allocat.inventory.dto.BatchAllocation;
+import com.allocat.inventory.dto.BulkVerifyRequest;
+import com.allocat.inventory.dto.BulkVerifyResult;
+import com.allocat.inventory.entity.Inventory;
+import com.allocat.inventory.entity.Product;
+import com.allocat.inventory.repository.InventoryRepository;
+import com.allocat.inventory.repository.ReceivedStockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryServiceTest {
+
+    private final InventoryRepository inventory = mock(InventoryRepository.class);
+    private final StoreRepository stores = mock(StoreRepository.class);
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final InventoryValuationService valuation = mock(InventoryValuationService.class);
+    private InventoryService service;
+    private Inventory expired;
+    private Inventory early;
+    private Inventory late;
+
+    @BeforeEach
+    void setUp() {
+        service = new InventoryService(inventory, mock(ReceivedStockRepository.class), stores, jdbcTemplate,
+                mock(ApplicationEventPublisher.class), valuation);
+        LocalDateTime now = LocalDateTime.now();
+        expired = batch(1L, 10, now.minusDays(1));
+        early = batch(2L, 4, now.plusDays(5));
+        late = batch(3L, 6, now.plusDays(30));
+        // Locked query order: earliest expiry first, store 1 only
+        when(inventory.findBatchesForUpdate(9L, 1L)).thenReturn(List.of(expired, early, late));
+        when(inventory.save(any(Inventory.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void reservationSpansBatchesEarliestExpiryFirst() {
+        List<BatchAllocation> reserved = service.reserveInventory(9L, 1L, 7, "clerk");
+
+        assertThat(reserved).extracting(BatchAllocation::getInventoryId).containsExactly(2L, 3L);
+        assertThat(early.getReservedQuantity()).isEqualTo(4);
+        assertThat(late.getReservedQuantity()).isEqualTo(3);
+        assertThat(expired.getReservedQuantity()).isZero();
+    }
+
+    @Test
+    void issueNeverTakesFromExpiredBatches() {
+        assertThatThrownBy(() -> service.updateInventoryQuantity(9L, 1L, -11, "clerk", "sale"))
+                .hasMessageContaining("Insufficient inventory");
+
+        service.updateInventoryQuantity(9L, 1L, -5, "clerk", "sale");
+        assertThat(expired.getCurrentQuantity()).isEqualTo(10);
+        assertThat(early.getCurrentQuantity()).isZero();
+        assertThat(late.getCurrentQuantity()).isEqualTo(5);
+    }
+
+    @Test
+    void releaseUndoesLatestExpiryFirst() {
+        service.reserveInventory(9L, 1L, 7, "clerk");
+
+        service.releaseReservation(9L, 1L, 3, "clerk");
+
+        assertThat(early.getReservedQuantity()).isEqualTo(4);
+        assertThat(late.getReservedQuantity()).isZero();
+    }
+
+    @Test
+    void returnGoesToLatestExpiringBatchOfTheStore() {
+        List<BatchAllocation> returned = service.updateInventoryQuantity(9L, 1L, 2, "clerk", "return");
+
+        assertThat(returned).extracting(BatchAllocation::getInventoryId).containsExactly(3L);
+        assertThat(late.getCurrentQuantity()).isEqualTo(8);
+        verify(inventory).findBatchesForUpdate(9L, 1L);
+    }
+
+    @Test
+    void storeWithoutBatchesIsRejected() {
+        assertThatThrownBy(() -> service.reserveInventory(9L, 2L, 1, "clerk"))
+                .hasMessageContaining("in store 2");
+    }
+
+    @Test
+    void bulkVerificationMatchesTheReceivingStoreAndPostsValuationInOneBatch() throws Exception {
+        when(stores.findByCode("MAIN")).thenReturn(Optional.of(Store.builder().id(1L).build()));
+        when(jdbcTemplate.getJdbcTemplate()).thenReturn(mock(JdbcTemplate.class));
+        ResultSet verified = mock(ResultSet.class);
+        when(verified.getLong("id")).thenReturn(101L, 102L, 103L);
+        when(verified.getLong("product_id")).thenReturn(9L);
+        when(verified.getString("status")).thenReturn("VERIFIED");
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (int row = 0; row < 3; row++) {
+                handler.processRow(verified);
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("UPDATE received_stock"), any(SqlParameterSource.class),
+                any(RowCallbackHandler.class));
+        List<InventoryValuationService.Receipt> receipts = List.of(
+                new InventoryValuationService.Receipt(9L, 1L, "Main Warehouse", 12, new BigDecimal("4.5000")),
+                new InventoryValuationService.Receipt(10L, 1L, "Main Warehouse", 6, new BigDecimal("2.0000")),
+                new InventoryValuationService.Receipt(11L, 1L, "Main Warehouse", 3, new BigDecimal("1.0000")));
+        when(jdbcTemplate.query(contains("CROSS JOIN LATERAL"), any(SqlParameterSource.class),
+                any(RowMapper.class))).thenReturn(receipts);
+
+        BulkVerifyResult result = service.bulkVerifyAndAddToInventory(BulkVerifyRequest.builder()
+                .verifiedBy("clerk")
+                .items(List.of(new BulkVerifyRequest.Item(101L, 12), new BulkVerifyRequest.Item(102L, 6),
+                        new BulkVerifyRequest.Item(103L, 3)))
+                .build());
+
+        assertThat(result.getVerified()).isEqualTo(3);
+        // Existing rows are matched within the receiving store, by batch number and expiry date
+        ArgumentCaptor<String> upserts = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<SqlParameterSource> params = ArgumentCaptor.forClass(SqlParameterSource.class);
+        verify(jdbcTemplate, times(2)).update(upserts.capture(), params.capture());
+        assertThat(upserts.getAllValues()).allSatisfy(sql -> assertThat(sql)
+                .contains("i.store_id = :storeId")
+                .contains("i.expiry_date IS NOT DISTINCT FROM"));
+        assertThat(params.getAllValues()).allSatisfy(source ->
+                assertThat(((MapSqlParameterSource) source).getValue("storeId")).isEqualTo(1L));
+        // One posting for all positions instead of a round trip per position
+        verify(valuation).recordReceipts(eq(receipts), anyString());
+        verify(valuation, never()).recordMovement(anyLong(), anyLong(), anyString(), anyInt(), any(), any(), any());
+    }
+
+    private static Inventory batch(Long id, int quantity, LocalDateTime expiry) {
+        return Inventory.builder().id(id).product(Product.builder().id(9L).build()).currentQuantity(quantity).reservedQuantity(0).expiryDate(expiry).build();
+    }
+}
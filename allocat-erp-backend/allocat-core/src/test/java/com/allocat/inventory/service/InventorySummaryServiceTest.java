@@ -0,0 +1,65 @@
+package com.allocat.inventory.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventorySummaryServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final InventorySummaryService service = new InventorySummaryService(jdbcTemplate, transactionTemplate);
+
+    @BeforeEach
+    void setUp() {
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(jdbcTemplate.queryForObject(contains("pg_try_advisory_xact_lock"), eq(Boolean.class), anyLong()))
+                .thenReturn(true);
+        when(jdbcTemplate.queryForObject(contains("table_versions"), eq(Long.class))).thenReturn(12L);
+    }
+
+    @Test
+    void unchangedSourcesSkipTheRefreshAndKeepTheAsOfTime() {
+        when(jdbcTemplate.queryForObject(contains("inventory_summary_refresh"), eq(Long.class))).thenReturn(12L);
+
+        assertThat(service.refreshIfChanged()).isFalse();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).update(contains("as_of"), any(Object[].class));
+    }
+
+    @Test
+    void changedSourcesRefreshAndRecordTheVersion() {
+        when(jdbcTemplate.queryForObject(contains("inventory_summary_refresh"), eq(Long.class))).thenReturn(11L);
+
+        assertThat(service.refreshIfChanged()).isTrue();
+
+        verify(jdbcTemplate, times(3)).execute(contains("REFRESH MATERIALIZED VIEW CONCURRENTLY"));
+        verify(jdbcTemplate).update(contains("as_of"), eq(12L));
+    }
+
+    @Test
+    void instanceThatLosesTheElectionDoesNothing() {
+        when(jdbcTemplate.queryForObject(contains("pg_try_advisory_xact_lock"), eq(Boolean.class), anyLong()))
+                .thenReturn(false);
+
+        assertThat(service.refreshIfChanged()).isFalse();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
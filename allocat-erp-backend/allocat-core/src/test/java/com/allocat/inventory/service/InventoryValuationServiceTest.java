@@ -0,0 +1,101 @@
+package com.allocat.inventory.service;
+
+import com.allocat.auth.entity.Store;
+import com.allocat.inventory.dto.IssuedCost;
+import com.allocat.inventory.entity.Inventory;
+import com.allocat.inventory.entity.Product;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryValuationServiceTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final InventoryValuationService service = new InventoryValuationService(jdbcTemplate);
+
+    @Test
+    void transferReceiptCarriesTheFifoCostTheUnitsLeftWith() {
+        // Source: 3 units at 2.00 then 10 at 4.00
+        givenBalance(13, "46.0000", "46.0000");
+        when(jdbcTemplate.queryForList(contains("FROM inventory_cost_layers"), any(SqlParameterSource.class)))
+                .thenReturn(List.of(layer(1L, "2.00", 3), layer(2L, "4.00", 10)));
+
+        IssuedCost issued = service.recordMovement(batch(1L), -5, null,
+                InventoryValuationService.MovementType.ISSUE, "Transfer to store 2");
+
+        assertThat(issued.fifoValue()).isEqualByComparingTo("14");
+        assertThat(issued.layers()).containsExactly(
+                new IssuedCost.Layer(new BigDecimal("2.00"), 3), new IssuedCost.Layer(new BigDecimal("4.00"), 2));
+
+        // Destination holds nothing yet
+        givenBalance(0, "0", "0");
+        service.recordTransferIn(batch(2L), issued, "Transfer from store 1");
+
+        List<MapSqlParameterSource> layers = captured("INSERT INTO inventory_cost_layers");
+        assertThat(layers).extracting(params -> params.getValue("unitCost"))
+                .containsExactly(new BigDecimal("2.00"), new BigDecimal("4.00"));
+        assertThat(layers).extracting(params -> params.getValue("quantity")).containsExactly(3, 2);
+
+        MapSqlParameterSource destination = captured("UPDATE inventory_valuation_positions").get(1);
+        assertThat((BigDecimal) destination.getValue("fifoValue")).isEqualByComparingTo("14");
+        assertThat((BigDecimal) destination.getValue("wacValue")).isEqualByComparingTo(issued.wacValue());
+        assertThat(destination.getValue("quantity")).isEqualTo(5);
+    }
+
+    @Test
+    void receiptsOfManyPositionsArePostedWithOneBatchPerStatementInKeyOrder() {
+        service.recordReceipts(List.of(
+                new InventoryValuationService.Receipt(12L, 1L, "Main Warehouse", 4, new BigDecimal("2.50")),
+                new InventoryValuationService.Receipt(10L, 1L, "Main Warehouse", 12, new BigDecimal("4.50")),
+                new InventoryValuationService.Receipt(11L, 1L, null, 0, new BigDecimal("1.00"))), "Bulk verification");
+
+        ArgumentCaptor<SqlParameterSource[]> batch = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE inventory_valuation_positions"), batch.capture());
+        assertThat(batch.getValue()).extracting(params -> params.getValue("productId")).containsExactly(10L, 12L);
+        assertThat(batch.getValue()).extracting(params -> (BigDecimal) params.getValue("value"))
+                .usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("54"), new BigDecimal("10"));
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO inventory_valuation_entries"),
+                any(SqlParameterSource[].class));
+        verify(jdbcTemplate).batchUpdate(contains("INSERT INTO inventory_cost_layers"), any(SqlParameterSource[].class));
+        verify(jdbcTemplate, never()).queryForMap(any(), any(SqlParameterSource.class));
+    }
+
+    private void givenBalance(int quantity, String wacValue, String fifoValue) {
+        when(jdbcTemplate.queryForMap(contains("FROM inventory_valuation_positions"), any(SqlParameterSource.class)))
+                .thenReturn(Map.of("quantity", quantity, "wac_value", new BigDecimal(wacValue),
+                        "fifo_value", new BigDecimal(fifoValue)));
+    }
+
+    private List<MapSqlParameterSource> captured(String sql) {
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate, atLeastOnce()).update(contains(sql), params.capture());
+        return params.getAllValues();
+    }
+
+    private static Map<String, Object> layer(long id, String unitCost, int remaining) {
+        return Map.of("id", id, "unit_cost", new BigDecimal(unitCost), "remaining_quantity", remaining);
+    }
+
+    private static Inventory batch(long storeId) {
+        return Inventory.builder()
+                .product(Product.builder().id(10L).build())
+                .store(Store.builder().id(storeId).build())
+                .build();
+    }
+}
@@ -0,0 +1,116 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.dto.ProductUpsertResult;
+import com.allocat.inventory.dto.ProductUpsertResult.Outcome;
+import com.allocat.inventory.entity.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductBulkUpsertServiceTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private final ProductBulkUpsertService service = new ProductBulkUpsertService(jdbcTemplate, transactionTemplate);
+
+    // product_code -> id as the products table holds them
+    private final Map<String, Long> stored = new HashMap<>(Map.of("P100", 55L, "P200", 56L));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "batchSize", 500);
+        ReflectionTestUtils.setField(service, "maxProducts", 50_000);
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        doAnswer(invocation -> {
+            SqlParameterSource params = invocation.getArgument(1);
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (Object code : (Collection<?>) params.getValue("codes")) {
+                if (stored.containsKey(code)) {
+                    ResultSet row = mock(ResultSet.class);
+                    when(row.getString("product_code")).thenReturn((String) code);
+                    when(row.getLong("id")).thenReturn(stored.get(code));
+                    handler.processRow(row);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(contains("FROM products WHERE product_code IN"), any(SqlParameterSource.class),
+                any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void existingCodeIsUpdatedInPlaceAndOnlyReportedChangedWhenARowWasWritten() {
+        // P300 is new; the database writes P100, skips the identical P200 and inserts P300
+        when(jdbcTemplate.batchUpdate(contains("ON CONFLICT (product_code) DO UPDATE"), any(SqlParameterSource[].class)))
+                .thenAnswer(invocation -> {
+                    stored.put("P300", 57L);
+                    return new int[] {1, 0, 1};
+                });
+
+        ProductUpsertResult result = service.upsert(List.of(
+                product("P300", "Green tea"), product(" P100 ", "Black tea, 500g"), product("P200", "Oolong")));
+
+        assertThat(result.getRows()).extracting(ProductUpsertResult.Row::getProductCode,
+                        ProductUpsertResult.Row::getOutcome, ProductUpsertResult.Row::getProductId)
+                .containsExactly(
+                        tuple("P300", Outcome.CREATED, 57L),
+                        tuple("P100", Outcome.UPDATED, 55L),
+                        tuple("P200", Outcome.UNCHANGED, 56L));
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getUpdated()).isEqualTo(1);
+        assertThat(result.getUnchanged()).isEqualTo(1);
+
+        // One statement per product, in code order, keyed by the trimmed code
+        ArgumentCaptor<SqlParameterSource[]> batch = ArgumentCaptor.forClass(SqlParameterSource[].class);
+        verify(jdbcTemplate).batchUpdate(contains("ON CONFLICT"), batch.capture());
+        assertThat(batch.getValue()).extracting(params -> params.getValue("productCode"))
+                .containsExactly("P100", "P200", "P300");
+        assertThat(batch.getValue()[0].getValue("sku")).isEqualTo("P100");
+        assertThat(batch.getValue()[0].getValue("isActive")).isEqualTo(true);
+    }
+
+    @Test
+    void repeatedCodeFailsWithoutReachingTheDatabase() {
+        when(jdbcTemplate.batchUpdate(contains("ON CONFLICT"), any(SqlParameterSource[].class)))
+                .thenReturn(new int[] {1});
+
+        ProductUpsertResult result = service.upsert(List.of(product("P100", "Black tea"), product("P100", "Again")));
+
+        assertThat(result.getRows().get(0).getOutcome()).isEqualTo(Outcome.UPDATED);
+        assertThat(result.getRows().get(1).getOutcome()).isEqualTo(Outcome.FAILED);
+        assertThat(result.getRows().get(1).getError()).contains("first given at index 0");
+    }
+
+    private static Product product(String code, String name) {
+        Product product = new Product();
+        product.setProductCode(code);
+        product.setName(name);
+        product.setUnitPrice(new BigDecimal("3.20"));
+        return product;
+    }
+}
@@ -0,0 +1,73 @@
+package com.allocat.inventory.service;
+
+import com.allocat.common.util.TableVersions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductFacetServiceTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final TableVersions tableVersions = mock(TableVersions.class);
+    private ProductFacetService service;
+    private List<String> categories;
+
+    @BeforeEach
+    void setUp() {
+        service = new ProductFacetService(jdbcTemplate, tableVersions);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (String category : categories) {
+                ResultSet row = mock(ResultSet.class);
+                when(row.getString("category")).thenReturn(category);
+                when(row.getBoolean("active")).thenReturn(true);
+                when(row.getLong("products")).thenReturn(1L);
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void firstReadLoadsInsteadOfServingEmptyCounts() {
+        categories = List.of("Dairy");
+        products(1);
+
+        assertThat(service.getCategories()).containsExactly("Dairy");
+    }
+
+    @Test
+    void productWrittenElsewhereIsCountedOnceVersionMoves() {
+        categories = List.of("Dairy");
+        products(1);
+        assertThat(service.getCategories()).containsExactly("Dairy");
+
+        // Another instance adds a category; nothing is published in this JVM
+        categories = List.of("Dairy", "Bakery");
+        assertThat(service.getCategories()).containsExactly("Dairy");
+
+        products(2);
+        assertThat(service.getCategories()).containsExactly("Bakery", "Dairy");
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    private void products(long version) {
+        when(tableVersions.read("products")).thenReturn(
+                Map.of("products", new TableVersions.Version(version, Instant.now())));
+    }
+}
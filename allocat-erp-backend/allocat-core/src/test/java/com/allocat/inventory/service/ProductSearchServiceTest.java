@@ -0,0 +1,53 @@
+package com.allocat.inventory.service;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class ProductSearchServiceTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final ProductSearchService service = new ProductSearchService(jdbcTemplate);
+
+    @Test
+    void everyLimitedBranchIsOrderedAndSkipsInactiveProductsFirst() {
+        service.typeahead("choc", 10);
+
+        List<String> branches = branches(executedSql());
+        assertThat(branches).hasSize(5);
+        for (String branch : branches.stream().filter(branch -> branch.contains("LIMIT")).toList()) {
+            assertThat(branch).contains("COALESCE(is_active, TRUE)").contains("ORDER BY");
+            assertThat(branch.indexOf("COALESCE(is_active, TRUE)")).isLessThan(branch.indexOf("LIMIT"));
+        }
+        assertThat(branches).filteredOn(branch -> branch.contains("LIKE :prefix"))
+                .allSatisfy(branch -> assertThat(branch).contains("USING ~<~"));
+    }
+
+    @Test
+    void shortTermSkipsTheSubstringBranches() {
+        service.typeahead("ch", 10);
+
+        assertThat(executedSql()).doesNotContain(":contains");
+    }
+
+    private String executedSql() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(SqlParameterSource.class), any(RowMapper.class));
+        return sql.getValue();
+    }
+
+    private static List<String> branches(String sql) {
+        String candidates = sql.substring(sql.indexOf("JOIN (") + "JOIN (".length(), sql.indexOf(") c ON"));
+        return Arrays.stream(candidates.split("UNION")).map(String::trim).toList();
+    }
+}
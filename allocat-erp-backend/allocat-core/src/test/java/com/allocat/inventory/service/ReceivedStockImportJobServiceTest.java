@@ -0,0 +1,59 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.repository.ReceivedStockImportJobRepository;
+import com.allocat.inventory.repository.ReceivedStockRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReceivedStockImportJobServiceTest {
+
+    private final ReceivedStockImportJobRepository jobs = mock(ReceivedStockImportJobRepository.class);
+    private final ReceivedStockRepository receivedStock = mock(ReceivedStockRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private ReceivedStockImportJobService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReceivedStockImportJobService(jobs, receivedStock, mock(ReceivedStockImportService.class),
+                mock(TransactionTemplate.class), new ObjectMapper(), jdbcTemplate);
+        ReflectionTestUtils.setField(service, "workers", 1);
+        ReflectionTestUtils.setField(service, "queueCapacity", 4);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 60L);
+        service.startExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stopExecutor();
+    }
+
+    @Test
+    void jobLeasedByAnotherInstanceIsNotResumed() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("upload-1"));
+        // The claim updates no row: the owner renewed its lease after the listing
+
+        service.resumeInterruptedJobs();
+
+        verify(jdbcTemplate, timeout(1000)).update(anyString(), any(), any(), eq("upload-1"), any());
+        verify(jobs, after(200).never()).findByUploadId(any());
+        verify(receivedStock, never()).deleteByCsvUploadIdAfterRow(anyString(), anyInt());
+    }
+}
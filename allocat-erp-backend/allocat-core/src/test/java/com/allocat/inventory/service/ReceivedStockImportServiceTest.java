@@ -0,0 +1,101 @@
+package com.allocat.inventory.service;
+
+import com.allocat.inventory.dto.ReceivedStockImportResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The import pipeline itself, with the database mocked out: parsing,
+ * validation and chunking of a large delivery, and how many JDBC round trips
+ * it costs. Its throughput is measured by a benchmark outside the regular build.
+ */
+class ReceivedStockImportServiceTest {
+
+    private static final int ROWS = 20_000;
+    private static final int CHUNK_SIZE = 500;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    private ReceivedStockImportService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ReceivedStockImportService(jdbcTemplate, transactionTemplate, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "chunkSize", CHUNK_SIZE);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+    }
+
+    @Test
+    void largeCsvIsWrittenInOneBatchPerChunk() {
+        ReceivedStockImportResult result = service.importCsv(csv(ROWS, -1), "upload-1");
+
+        assertThat(result.getImportedRows()).isEqualTo(ROWS);
+        assertThat(result.getFailedRows()).isZero();
+        // Three statements per chunk however many rows it holds
+        verify(jdbcTemplate, times(ROWS / CHUNK_SIZE))
+                .batchUpdate(contains("INSERT INTO received_stock"), any(SqlParameterSource[].class));
+        verify(jdbcTemplate, times(ROWS / CHUNK_SIZE))
+                .batchUpdate(contains("INSERT INTO products"), any(SqlParameterSource[].class));
+    }
+
+    @Test
+    void badRowIsReportedWithoutFailingItsChunk() {
+        ReceivedStockImportResult result = service.importCsv(csv(1_000, 700), "upload-2");
+
+        assertThat(result.getImportedRows()).isEqualTo(999);
+        assertThat(result.getFailedRows()).isEqualTo(1);
+        // Header is product_code; the failed row still reports its code
+        assertThat(result.getErrors()).singleElement()
+                .satisfies(error -> {
+                    assertThat(error.getMessage()).contains("expectedquantity: many");
+                    assertThat(error.getProductCode()).isEqualTo("P100");
+                });
+    }
+
+    @Test
+    @Tag("benchmark")
+    void largeCsvImportThroughput() {
+        long start = System.nanoTime();
+        ReceivedStockImportResult result = service.importCsv(csv(ROWS, -1), "upload-3");
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Row-by-row processing took minutes for a delivery this size
+        assertThat(result.getImportedRows()).isEqualTo(ROWS);
+        assertThat(elapsedMillis).isLessThan(10_000);
+        assertThat(result.getRowsPerSecond()).isGreaterThan(2_000);
+    }
+
+    /**
+     * A delivery of 200 distinct products received in many batches, with an
+     * invalid quantity on {@code badRow} (1-based, -1 for none).
+     */
+    private static ByteArrayInputStream csv(int rows, int badRow) {
+        StringBuilder csv = new StringBuilder("product_code,product_name,expected_quantity,unit_price,batch_number\n");
+        for (int row = 1; row <= rows; row++) {
+            int product = row % 200;
+            csv.append("P").append(product).append(",Product ").append(product).append(',')
+                    .append(row == badRow ? "many" : "12").append(",4.50,B").append(row).append('\n');
+        }
+        return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
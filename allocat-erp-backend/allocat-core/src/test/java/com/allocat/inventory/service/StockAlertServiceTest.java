@@ -0,0 +1,77 @@
+package com.allocat.inventory.service;
+
+import com.allocat.common.util.TableVersions;
+import com.allocat.inventory.event.StockLevelChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockAlertServiceTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final StockAlertService service = new StockAlertService(jdbcTemplate, mock(TableVersions.class));
+
+    @Test
+    void lowBatchOfAWellStockedProductDoesNotAlert() throws Exception {
+        // Two batches of 5 and 25 units against a minimum of 20
+        givenPosition(30, 30, 20);
+
+        service.onStockLevelChanged(batchChange(5));
+
+        assertThat(recordedLevel()).isEqualTo("OK");
+        verify(jdbcTemplate, never()).update(contains("INSERT INTO stock_alert_levels"), any(SqlParameterSource.class));
+    }
+
+    @Test
+    void productBelowItsMinimumAcrossBatchesIsRecordedLow() throws Exception {
+        // No stored level yet, so the update matches nothing
+        givenPosition(15, 15, 20);
+
+        service.onStockLevelChanged(batchChange(10));
+
+        assertThat(recordedLevel()).isEqualTo("LOW_STOCK");
+        verify(jdbcTemplate).update(contains("INSERT INTO stock_alert_levels"), any(SqlParameterSource.class));
+    }
+
+    private void givenPosition(int current, int available, int minimum) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("product_id")).thenReturn(10L);
+        when(rs.getLong("store_id")).thenReturn(1L);
+        when(rs.getInt("current_quantity")).thenReturn(current);
+        when(rs.getInt("available_quantity")).thenReturn(available);
+        when(rs.getObject("minimum_stock_level", Integer.class)).thenReturn(minimum);
+        when(jdbcTemplate.query(contains("i.product_id = :productId"), any(SqlParameterSource.class), any(RowMapper.class)))
+                .thenAnswer(invocation -> List.of(invocation.<RowMapper<?>>getArgument(2).mapRow(rs, 0)));
+    }
+
+    private static StockLevelChangedEvent batchChange(int batchQuantity) {
+        return StockLevelChangedEvent.builder()
+                .inventoryId(100L)
+                .productId(10L)
+                .storeId(1L)
+                .currentQuantity(batchQuantity)
+                .availableQuantity(batchQuantity)
+                .minimumStockLevel(20)
+                .build();
+    }
+
+    private Object recordedLevel() {
+        ArgumentCaptor<MapSqlParameterSource> params = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(jdbcTemplate).update(contains("UPDATE stock_alert_levels"), params.capture());
+        return params.getValue().getValue("level");
+    }
+}
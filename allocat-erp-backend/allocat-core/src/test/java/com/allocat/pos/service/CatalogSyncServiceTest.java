@@ -0,0 +1,117 @@
+package com.allocat.pos.service;
+
+import com.allocat.pos.dto.CatalogDTO;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogSyncServiceTest {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+    private final CatalogSyncService service = new CatalogSyncService(jdbcTemplate);
+
+    @Test
+    void deltaCutOffAtTheLimitStopsAtTheLastVersionOfTheFullKind() {
+        settled(10);
+        products(product(1L, 3), product(2L, 5));
+        discounts(discount(1L, 4), discount(2L, 7));
+        removed(tombstone("PRODUCT", 9L, 6));
+
+        CatalogDTO.Delta delta = service.getChangesSince(0, 2);
+
+        // Products filled the page at version 5, so nothing past it is handed out yet
+        assertThat(delta.isHasMore()).isTrue();
+        assertThat(delta.getToVersion()).isEqualTo(5);
+        assertThat(delta.getProducts()).extracting(CatalogDTO.ProductEntry::getId).containsExactly(1L, 2L);
+        assertThat(delta.getDiscounts()).extracting(CatalogDTO.DiscountEntry::getId).containsExactly(1L);
+        assertThat(delta.getRemovedProductIds()).isEmpty();
+    }
+
+    @Test
+    void deltaBelowTheLimitRunsUpToTheStableVersion() {
+        settled(10);
+        products(product(1L, 3), product(2L, 5));
+        discounts(discount(1L, 4));
+        removed(tombstone("PRODUCT", 9L, 6), tombstone("DISCOUNT", 4L, 8));
+
+        CatalogDTO.Delta delta = service.getChangesSince(0, 3);
+
+        assertThat(delta.isHasMore()).isFalse();
+        assertThat(delta.getToVersion()).isEqualTo(10);
+        assertThat(delta.getProducts()).hasSize(2);
+        assertThat(delta.getDiscounts()).hasSize(1);
+        assertThat(delta.getRemovedProductIds()).containsExactly(9L);
+        assertThat(delta.getRemovedDiscountIds()).containsExactly(4L);
+    }
+
+    @Test
+    void callerAlreadyAtTheStableVersionGetsAnEmptyDeltaWithoutQueryingRows() {
+        settled(10);
+
+        CatalogDTO.Delta delta = service.getChangesSince(10, 100);
+
+        assertThat(delta.isHasMore()).isFalse();
+        assertThat(delta.getToVersion()).isEqualTo(10);
+        assertThat(delta.getProducts()).isEmpty();
+        verify(jdbcTemplate, never()).queryForList(contains("catalog_tombstones"), any(SqlParameterSource.class));
+    }
+
+    @Test
+    void versionBecomesStableOnceEveryTransactionThatCouldHoldALowerOneHasEnded() {
+        // Transactions 100..104 are still running, so version 10 may yet be preceded by a lower commit
+        assertThat(service.stableVersion(10, 100, 105)).isZero();
+        // All of them ended: what the first snapshot saw is final, the newer 12 not yet
+        assertThat(service.stableVersion(12, 105, 108)).isEqualTo(10);
+        // Nothing in progress at all
+        assertThat(service.stableVersion(12, 108, 108)).isEqualTo(12);
+    }
+
+    private void settled(long version) {
+        when(jdbcTemplate.queryForObject(contains("GREATEST"), any(SqlParameterSource.class), eq(Long.class)))
+                .thenReturn(version);
+        when(jdbcTemplate.queryForMap(contains("pg_current_snapshot"), any(SqlParameterSource.class)))
+                .thenReturn(Map.of("xmin", 50L, "xmax", 50L));
+    }
+
+    private void products(CatalogDTO.ProductEntry... rows) {
+        when(jdbcTemplate.query(contains("FROM products"), any(SqlParameterSource.class),
+                ArgumentMatchers.<RowMapper<CatalogDTO.ProductEntry>>any())).thenReturn(List.of(rows));
+    }
+
+    private void discounts(CatalogDTO.DiscountEntry... rows) {
+        when(jdbcTemplate.query(contains("FROM discounts"), any(SqlParameterSource.class),
+                ArgumentMatchers.<RowMapper<CatalogDTO.DiscountEntry>>any())).thenReturn(List.of(rows));
+    }
+
+    @SafeVarargs
+    private void removed(Map<String, Object>... rows) {
+        when(jdbcTemplate.queryForList(contains("catalog_tombstones"), any(SqlParameterSource.class)))
+                .thenReturn(List.of(rows));
+    }
+
+    private static CatalogDTO.ProductEntry product(Long id, long version) {
+        return CatalogDTO.ProductEntry.builder().id(id).productCode("P" + id).version(version).build();
+    }
+
+    private static CatalogDTO.DiscountEntry discount(Long id, long version) {
+        return CatalogDTO.DiscountEntry.builder().id(id).code("D" + id).version(version).build();
+    }
+
+    private static Map<String, Object> tombstone(String entityType, Long entityId, long version) {
+        return Map.of("entity_type", entityType, "entity_id", entityId, "catalog_version", version);
+    }
+}
@@ -0,0 +1,37 @@
+package com.allocat.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * A buffered upstream response.
+ *
+ * @param shareable    whether it may be served to other clients than the one that asked
+ * @param storedAt     System.nanoTime() when it was received or last revalidated
+ * @param freshFor     nanoseconds it may be served without revalidation
+ */
+public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body,
+                             boolean shareable, long storedAt, long freshFor) {
+
+    public boolean isFresh(long nowNanos) {
+        return nowNanos - storedAt < freshFor;
+    }
+
+    public String etag() {
+        return headers.getETag();
+    }
+
+    /**
+     * The same body with the headers and freshness of a 304 from upstream.
+     */
+    public CachedResponse revalidated(HttpHeaders notModified, long nowNanos, long freshFor) {
+        HttpHeaders merged = new HttpHeaders();
+        merged.putAll(headers);
+        notModified.forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                merged.put(name, values);
+            }
+        });
+        return new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(merged), body, shareable, nowNanos, freshFor);
+    }
+}
@@ -0,0 +1,91 @@
+package com.allocat.gateway.cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gateway response cache under gateway.cache. Only GETs matching one of the
+ * cacheable routes are cached or coalesced; the route's ttl caps how long a
+ * response is served without asking the backend, and the backend's
+ * Cache-Control can only shorten it.
+ */
+@Component
+@ConfigurationProperties(prefix = "gateway.cache")
+public class ResponseCacheProperties {
+
+    private boolean enabled = true;
+    // Total size of cached bodies
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    // Larger responses are passed through but not kept
+    private DataSize maxEntrySize = DataSize.ofMegabytes(2);
+    private List<CacheRoute> routes = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public DataSize getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public void setMaxEntrySize(DataSize maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    public List<CacheRoute> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<CacheRoute> routes) {
+        this.routes = routes;
+    }
+
+    public static class CacheRoute {
+
+        private String name;
+        // Path patterns, e.g. /api/products/**
+        private List<String> paths = new ArrayList<>();
+        private Duration ttl = Duration.ofSeconds(30);
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+    }
+}
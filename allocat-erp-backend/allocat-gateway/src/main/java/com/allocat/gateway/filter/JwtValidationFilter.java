@@ -0,0 +1,207 @@
+package com.allocat.gateway.filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.NimbusReactiveJwtDecoder;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Verifies the bearer token at the edge so forged or expired tokens never
+ * reach the backend. The verified identity is forwarded as internal headers
+ * signed with jwt.identity-secret, which allocat-security trusts instead of
+ * verifying the token again.
+ * <p>
+ * The mode is set per route with the {@code jwt-validation} metadata key:
+ * {@code required} rejects requests without a valid token, {@code optional}
+ * lets anonymous requests through but rejects bad tokens, and {@code off}
+ * forwards the request untouched apart from dropping spoofed identity headers.
+ */
+@Component
+public class JwtValidationFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtValidationFilter.class);
+
+    public static final String MODE_METADATA = "jwt-validation";
+    // Exchange attribute holding the verified token for later filters
+    public static final String JWT_ATTRIBUTE = JwtValidationFilter.class.getName() + ".jwt";
+
+    // Must match GatewayIdentity in allocat-security
+    static final String USER_ID_HEADER = "X-Allocat-User-Id";
+    static final String USERNAME_HEADER = "X-Allocat-Username";
+    static final String ROLE_HEADER = "X-Allocat-Role";
+    static final String STORE_ID_HEADER = "X-Allocat-Store-Id";
+    static final String SESSION_ID_HEADER = "X-Allocat-Session-Id";
+    static final String PERMISSIONS_HEADER = "X-Allocat-Permissions";
+    static final String EXPIRES_HEADER = "X-Allocat-Expires";
+    static final String SIGNATURE_HEADER = "X-Allocat-Identity-Signature";
+    private static final List<String> IDENTITY_HEADERS = List.of(
+            USER_ID_HEADER, USERNAME_HEADER, ROLE_HEADER, STORE_ID_HEADER, SESSION_ID_HEADER, PERMISSIONS_HEADER,
+            EXPIRES_HEADER, SIGNATURE_HEADER);
+
+    public enum Mode {
+        REQUIRED,
+        OPTIONAL,
+        OFF
+    }
+
+    private final ReactiveJwtDecoder decoder;
+    private final SecretKeySpec identityKey;
+    private final Mode defaultMode;
+
+    public JwtValidationFilter(@Value("${jwt.secret}") String secret,
+                               @Value("${jwt.identity-secret:}") String identitySecret,
+                               @Value("${gateway.jwt.default-mode:optional}") String defaultMode) {
+        this.decoder = decoder(secret);
+        this.identityKey = identitySecret.isBlank()
+                ? null
+                : new SecretKeySpec(identitySecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.defaultMode = Mode.valueOf(defaultMode.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Decoder for tokens signed by the backend with jwt.secret.
+     */
+    public static ReactiveJwtDecoder decoder(String secret) {
+        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        // Same algorithm the backend picks for the key length when signing
+        MacAlgorithm algorithm = keyBytes.length >= 64 ? MacAlgorithm.HS512
+                : keyBytes.length >= 48 ? MacAlgorithm.HS384
+                : MacAlgorithm.HS256;
+        return NimbusReactiveJwtDecoder
+                .withSecretKey(new SecretKeySpec(keyBytes, "HmacSHA" + algorithm.getName().substring(2)))
+                .macAlgorithm(algorithm)
+                .build();
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        // Identity headers only ever come from this filter
+        ServerWebExchange cleaned = exchange.mutate()
+                .request(r -> r.headers(headers -> IDENTITY_HEADERS.forEach(headers::remove)))
+                .build();
+
+        Mode mode = modeOf(exchange);
+        // Preflight requests never carry credentials
+        if (mode == Mode.OFF || HttpMethod.OPTIONS.equals(exchange.getRequest().getMethod())) {
+            return chain.filter(cleaned);
+        }
+
+        String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return mode == Mode.REQUIRED ? reject(cleaned, "Authentication required") : chain.filter(cleaned);
+        }
+
+        return decoder.decode(authHeader.substring(7))
+                .map(jwt -> Optional.of(withIdentity(cleaned, jwt)))
+                .onErrorResume(JwtException.class, e -> {
+                    log.debug("Rejected token for {}: {}", exchange.getRequest().getPath(), e.getMessage());
+                    return Mono.just(Optional.empty());
+                })
+                .flatMap(verified -> verified.isPresent()
+                        ? chain.filter(verified.get())
+                        : reject(cleaned, "Invalid or expired token"));
+    }
+
+    @Override
+    public int getOrder() {
+        // Execute this filter early in the chain
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    private Mode modeOf(ServerWebExchange exchange) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        Object configured = route != null ? route.getMetadata().get(MODE_METADATA) : null;
+        return configured != null ? Mode.valueOf(configured.toString().toUpperCase(Locale.ROOT)) : defaultMode;
+    }
+
+    private ServerWebExchange withIdentity(ServerWebExchange exchange, Jwt jwt) {
+        exchange.getAttributes().put(JWT_ATTRIBUTE, jwt);
+        if (identityKey == null) {
+            return exchange;
+        }
+        String userId = claim(jwt, "userId");
+        String username = URLEncoder.encode(jwt.getSubject() != null ? jwt.getSubject() : "", StandardCharsets.UTF_8);
+        String role = claim(jwt, "role");
+        String storeId = claim(jwt, "storeId");
+        String sessionId = claim(jwt, "sid");
+        String expires = jwt.getExpiresAt() != null ? String.valueOf(jwt.getExpiresAt().getEpochSecond()) : "";
+        // Terminal tokens embed the cashier's permissions; only they get the header
+        List<String> perms = jwt.hasClaim("perms") ? jwt.getClaimAsStringList("perms") : null;
+        String permissions = perms != null ? String.join(",", perms) : null;
+        String signature = permissions != null
+                ? sign(userId, username, role, storeId, sessionId, expires, permissions)
+                : sign(userId, username, role, storeId, sessionId, expires);
+
+        return exchange.mutate()
+                .request(r -> r.headers(headers -> {
+                    headers.set(USER_ID_HEADER, userId);
+                    headers.set(USERNAME_HEADER, username);
+                    headers.set(ROLE_HEADER, role);
+                    headers.set(STORE_ID_HEADER, storeId);
+                    headers.set(SESSION_ID_HEADER, sessionId);
+                    if (permissions != null) {
+                        headers.set(PERMISSIONS_HEADER, permissions);
+                    }
+                    headers.set(EXPIRES_HEADER, expires);
+                    headers.set(SIGNATURE_HEADER, signature);
+                }))
+                .build();
+    }
+
+    /**
+     * HMAC-SHA256 over the header values joined by newlines, base64url encoded.
+     */
+    private String sign(String... values) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(identityKey);
+            byte[] digest = mac.doFinal(String.join("\n", values).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot sign identity headers", e);
+        }
+    }
+
+    private static String claim(Jwt jwt, String name) {
+        Object value = jwt.getClaims().get(name);
+        return value != null ? value.toString() : "";
+    }
+
+    private static Mono<Void> reject(ServerWebExchange exchange, String error) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.UNAUTHORIZED);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+        byte[] body = ("{\"success\":false,\"error\":\"" + error + "\"}").getBytes(StandardCharsets.UTF_8);
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+}
@@ -0,0 +1,175 @@
+package com.allocat.gateway.filter;
+
+import com.allocat.gateway.ratelimit.RateLimitProperties;
+import com.allocat.gateway.ratelimit.RateLimitStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Token-bucket rate limiting per user and per store, so one client polling
+ * in a loop cannot take the backend's connection pool from everyone else.
+ * Runs after {@link JwtValidationFilter}: authenticated requests are keyed
+ * by the token's user and store, anonymous ones by client address.
+ * Throttled requests get a 429 with Retry-After and are counted in the
+ * gateway.ratelimit.throttled metric.
+ */
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    private static final Logger log = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    // Trust only the address appended by the load balancer in front of us
+    private static final XForwardedRemoteAddressResolver CLIENT_ADDRESS = XForwardedRemoteAddressResolver.maxTrustedIndex(1);
+
+    private final RateLimitProperties properties;
+    private final RateLimitStore store;
+    private final MeterRegistry meterRegistry;
+    private final List<CompiledClass> classes;
+    private final CompiledClass defaults;
+    private final Map<String, Counter> throttled = new ConcurrentHashMap<>();
+
+    private record CompiledClass(RateLimitProperties.RouteClass config, List<PathPattern> paths, Set<String> methods) {
+
+        boolean matches(ServerWebExchange exchange) {
+            String method = exchange.getRequest().getMethod().name();
+            if (!methods.isEmpty() && !methods.contains(method)) {
+                return false;
+            }
+            PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+            return paths.stream().anyMatch(pattern -> pattern.matches(path));
+        }
+    }
+
+    public RateLimitFilter(RateLimitProperties properties, RateLimitStore store, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.classes = properties.getClasses().stream().map(RateLimitFilter::compile).toList();
+        this.defaults = compile(properties.getDefaults());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        RateLimitProperties.RouteClass routeClass = classOf(exchange).config();
+        Jwt jwt = exchange.getAttribute(JwtValidationFilter.JWT_ATTRIBUTE);
+        String userKey = routeClass.getName() + ":user:" + userOf(exchange, jwt);
+        Object storeId = jwt != null ? jwt.getClaims().get("storeId") : null;
+
+        return store.tryConsume(userKey, routeClass.getUser())
+                .flatMap(userWait -> {
+                    if (userWait > 0) {
+                        return throttle(exchange, routeClass, "user", userWait);
+                    }
+                    if (storeId == null) {
+                        return chain.filter(exchange);
+                    }
+                    return store.tryConsume(routeClass.getName() + ":store:" + storeId, routeClass.getStore())
+                            .flatMap(storeWait -> storeWait > 0
+                                    ? throttle(exchange, routeClass, "store", storeWait)
+                                    : chain.filter(exchange));
+                });
+    }
+
+    @Override
+    public int getOrder() {
+        // Right after the token has been validated
+        return Ordered.HIGHEST_PRECEDENCE + 1;
+    }
+
+    private CompiledClass classOf(ServerWebExchange exchange) {
+        for (CompiledClass candidate : classes) {
+            if (candidate.matches(exchange)) {
+                return candidate;
+            }
+        }
+        return defaults;
+    }
+
+    private static String userOf(ServerWebExchange exchange, Jwt jwt) {
+        if (jwt != null) {
+            Object userId = jwt.getClaims().get("userId");
+            return userId != null ? userId.toString() : jwt.getSubject();
+        }
+        InetSocketAddress address = CLIENT_ADDRESS.resolve(exchange);
+        return address != null && address.getAddress() != null
+                ? "ip:" + address.getAddress().getHostAddress()
+                : "anonymous";
+    }
+
+    private Mono<Void> throttle(ServerWebExchange exchange, RateLimitProperties.RouteClass routeClass,
+                                String scope, long waitNanos) {
+        throttled.computeIfAbsent(routeClass.getName() + ":" + scope, key -> Counter.builder("gateway.ratelimit.throttled")
+                        .description("Requests rejected by the gateway rate limiter")
+                        .tag("class", routeClass.getName())
+                        .tag("scope", scope)
+                        .register(meterRegistry))
+                .increment();
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        log.debug("Throttled {} {} ({} limit of {})", exchange.getRequest().getMethod(),
+                exchange.getRequest().getPath(), scope, routeClass.getName());
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter));
+        byte[] body = "{\"success\":false,\"error\":\"Too many requests\"}".getBytes(StandardCharsets.UTF_8);
+        DataBuffer buffer = response.bufferFactory().wrap(body);
+        return response.writeWith(Mono.just(buffer));
+    }
+
+    private static CompiledClass compile(RateLimitProperties.RouteClass routeClass) {
+        validate(routeClass, "user", routeClass.getUser());
+        validate(routeClass, "store", routeClass.getStore());
+        List<PathPattern> paths = routeClass.getPaths().stream()
+                .map(PathPatternParser.defaultInstance::parse)
+                .toList();
+        Set<String> methods = routeClass.getMethods().stream()
+                .map(method -> method.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        return new CompiledClass(routeClass, paths, methods);
+    }
+
+    /**
+     * A bucket that never refills would throttle its key forever, and a
+     * zero capacity rejects every request; fail at startup instead.
+     */
+    private static void validate(RateLimitProperties.RouteClass routeClass, String scope, RateLimitProperties.Limit limit) {
+        if (limit.getCapacity() < 1 || !(limit.getRefillPerSecond() > 0)) {
+            throw new IllegalArgumentException("Rate limit class '" + routeClass.getName() + "' needs a " + scope
+                    + " capacity of at least 1 and a refill-per-second above 0, got " + limit.getCapacity()
+                    + " and " + limit.getRefillPerSecond());
+        }
+    }
+}
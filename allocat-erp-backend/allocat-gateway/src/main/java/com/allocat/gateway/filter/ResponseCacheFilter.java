@@ -0,0 +1,418 @@
+package com.allocat.gateway.filter;
+
+import com.allocat.gateway.cache.CachedResponse;
+import com.allocat.gateway.cache.ResponseCache;
+import com.allocat.gateway.cache.ResponseCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches and coalesces GETs on cacheable routes. Concurrent identical
+ * requests wait for one upstream call that builds the body, and responses
+ * the backend allows shared caches to keep are held in memory.
+ * <p>
+ * Cache-Control is honoured the way a shared cache must: private, no-store
+ * and Set-Cookie responses are never shared, no-cache ones are always
+ * revalidated, max-age / s-maxage shorten the route's ttl, and responses to
+ * authenticated requests are only shared when marked public.
+ * <p>
+ * A shared body never skips the backend's authorization. Authenticated
+ * requests are always revalidated upstream with the caller's own
+ * credentials and the cached ETag, and only a 304 answers them with the
+ * shared body; anything else the backend says (a new body, a 403) is what
+ * the caller gets. So every terminal asking for the same catalog costs the
+ * backend a version check instead of a listing. Anonymous requests are kept
+ * apart from authenticated ones and are served while fresh.
+ * <p>
+ * Bodies are buffered up to max-entry-size; a larger one is streamed to its
+ * client as it arrives and not cached.
+ */
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    private static final Set<String> HOP_BY_HOP = Set.of(
+            "connection", "keep-alive", "transfer-encoding", "content-length", "upgrade");
+    // Request headers that are part of the cache key, so responses may vary on them
+    private static final List<String> KEY_HEADERS = List.of(
+            HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING, HttpHeaders.ORIGIN);
+    private static final Set<String> KEYED_VARY = Set.of(
+            "accept", "accept-encoding", "origin", "access-control-request-method", "access-control-request-headers");
+
+    private final ResponseCacheProperties properties;
+    private final ResponseCache cache;
+    private final List<CompiledRoute> routes;
+    private final long maxEntryBytes;
+    private final MeterRegistry meterRegistry;
+    // Cache key -> the upstream call in progress for it
+    private final Map<String, Mono<CachedResponse>> inflight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> requests = new ConcurrentHashMap<>();
+
+    private record CompiledRoute(ResponseCacheProperties.CacheRoute config, List<PathPattern> paths) {
+
+        boolean matches(PathContainer path) {
+            return paths.stream().anyMatch(pattern -> pattern.matches(path));
+        }
+    }
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.cache = new ResponseCache(properties.getMaxSize().toBytes());
+        this.maxEntryBytes = properties.getMaxEntrySize().toBytes();
+        this.routes = properties.getRoutes().stream()
+                .map(route -> new CompiledRoute(route, route.getPaths().stream()
+                        .map(PathPatternParser.defaultInstance::parse)
+                        .toList()))
+                .toList();
+        Gauge.builder("gateway.cache.bytes", cache, ResponseCache::bytes)
+                .description("Size of the response bodies held by the gateway cache")
+                .register(meterRegistry);
+        Gauge.builder("gateway.cache.entries", cache, ResponseCache::size)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || !HttpMethod.GET.equals(request.getMethod())) {
+            return chain.filter(exchange);
+        }
+        CompiledRoute route = routeOf(request.getPath().pathWithinApplication());
+        List<String> requestDirectives = directives(request.getHeaders());
+        if (route == null || requestDirectives.contains("no-store")) {
+            return chain.filter(exchange);
+        }
+
+        String key = keyOf(request);
+        boolean authenticated = request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION);
+        CachedResponse cached = cache.get(key);
+        if (cached != null && !authenticated && cached.isFresh(System.nanoTime())
+                && !requestDirectives.contains("no-cache")) {
+            count("hit");
+            return write(exchange, cached);
+        }
+
+        Sinks.One<CachedResponse> sink = Sinks.one();
+        Mono<CachedResponse> shared = sink.asMono();
+        Mono<CachedResponse> existing = inflight.putIfAbsent(key, shared);
+        if (existing != null) {
+            count("coalesced");
+            // Fall back to an own upstream call when the shared one failed or cannot be shared
+            return existing.map(Optional::of)
+                    .onErrorResume(e -> Mono.just(Optional.empty()))
+                    .flatMap(result -> {
+                        if (result.isEmpty() || !result.get().shareable()) {
+                            return chain.filter(exchange);
+                        }
+                        return authenticated
+                                ? forward(exchange, chain, key, route, result.get(), null)
+                                : write(exchange, result.get());
+                    });
+        }
+
+        count(cached != null ? "revalidated" : "miss");
+        return forward(exchange, chain, key, route, cached, sink)
+                .doFinally(signal -> {
+                    inflight.remove(key, shared);
+                    // No-op once a value was emitted; releases followers if this call failed or was cancelled
+                    sink.tryEmitError(new CancellationException("Upstream call for " + key + " did not complete"));
+                });
+    }
+
+    /**
+     * Call upstream with the caller's credentials, conditional on the copy
+     * we hold, store what comes back and answer the caller with it.
+     *
+     * @param sink receives the stored response for coalesced followers, or null
+     */
+    private Mono<Void> forward(ServerWebExchange exchange, GatewayFilterChain chain, String key,
+                               CompiledRoute route, CachedResponse base, Sinks.One<CachedResponse> sink) {
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpRequest upstreamRequest = request.mutate()
+                .headers(headers -> {
+                    // Ask upstream about our copy, not the client's
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                    if (base != null && base.etag() != null) {
+                        headers.setIfNoneMatch(base.etag());
+                    }
+                })
+                .build();
+        CapturingResponse capture = new CapturingResponse(exchange.getResponse(), maxEntryBytes);
+
+        return chain.filter(exchange.mutate().request(upstreamRequest).response(capture).build())
+                .then(Mono.fromSupplier(() -> store(key, route, base, capture,
+                        request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION))))
+                .doOnNext(result -> {
+                    if (sink != null) {
+                        sink.tryEmitValue(result);
+                    }
+                })
+                // A streamed body has already reached the client
+                .flatMap(result -> capture.streamed() ? Mono.empty() : write(exchange, result));
+    }
+
+    @Override
+    public int getOrder() {
+        // After token validation and rate limiting
+        return Ordered.HIGHEST_PRECEDENCE + 2;
+    }
+
+    private CachedResponse store(String key, CompiledRoute route, CachedResponse cached,
+                                 CapturingResponse capture, boolean authorized) {
+        long now = System.nanoTime();
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(capture.getHeaders());
+        List<String> directives = directives(headers);
+        long freshFor = freshFor(directives, route.config());
+        // The server defaults to 200 when nothing set a status
+        HttpStatusCode status = capture.getStatusCode() != null ? capture.getStatusCode() : HttpStatus.OK;
+
+        if (capture.streamed()) {
+            cache.remove(key);
+            return new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(headers), new byte[0], false, now, 0);
+        }
+        if (status.value() == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+            CachedResponse refreshed = cached.revalidated(headers, now, freshFor);
+            cache.put(key, refreshed);
+            return refreshed;
+        }
+
+        boolean shareable = status.value() == HttpStatus.OK.value() && shareable(directives, headers, authorized);
+        CachedResponse response = new CachedResponse(status, HttpHeaders.readOnlyHttpHeaders(headers),
+                capture.body(), shareable, now, freshFor);
+        if (shareable) {
+            cache.put(key, response);
+        } else if (!status.isError() || status.value() == HttpStatus.NOT_FOUND.value()
+                || status.value() == HttpStatus.GONE.value()) {
+            // A refusal or failure says something about the caller or the backend, not the resource
+            cache.remove(key);
+        }
+        return response;
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, CachedResponse result) {
+        ServerHttpResponse response = exchange.getResponse();
+        result.headers().forEach((name, values) -> {
+            if (!HOP_BY_HOP.contains(name.toLowerCase(Locale.ROOT))) {
+                response.getHeaders().put(name, values);
+            }
+        });
+        response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+
+        String etag = result.etag();
+        List<String> ifNoneMatch = exchange.getRequest().getHeaders().getIfNoneMatch();
+        if (etag != null && result.status().value() == HttpStatus.OK.value()
+                && (ifNoneMatch.contains(etag) || ifNoneMatch.contains("*"))) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+            return response.setComplete();
+        }
+
+        response.setStatusCode(result.status());
+        response.getHeaders().setContentLength(result.body().length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(result.body())));
+    }
+
+    private CompiledRoute routeOf(PathContainer path) {
+        for (CompiledRoute route : routes) {
+            if (route.matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static String keyOf(ServerHttpRequest request) {
+        StringBuilder key = new StringBuilder(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String header : KEY_HEADERS) {
+            key.append('\n').append(String.join(",", request.getHeaders().getOrEmpty(header)));
+        }
+        // Authenticated callers share entries (each is revalidated upstream); anonymous ones never see them
+        key.append('\n').append(request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION)
+                ? "authenticated" : "anonymous");
+        return key.toString();
+    }
+
+    private static boolean shareable(List<String> directives, HttpHeaders headers, boolean authorized) {
+        if (directives.contains("no-store") || directives.contains("private")
+                || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        for (String vary : headers.getVary()) {
+            if (!KEYED_VARY.contains(vary.toLowerCase(Locale.ROOT))) {
+                return false;
+            }
+        }
+        // Answers to authenticated requests are only shared when the origin marked them public
+        return !authorized || directives.contains("public");
+    }
+
+    private static long freshFor(List<String> directives, ResponseCacheProperties.CacheRoute route) {
+        if (directives.contains("no-cache")) {
+            return 0;
+        }
+        long ttl = route.getTtl().toNanos();
+        Long maxAge = seconds(directives, "s-maxage");
+        if (maxAge == null) {
+            maxAge = seconds(directives, "max-age");
+        }
+        return maxAge != null ? Math.min(ttl, TimeUnit.SECONDS.toNanos(maxAge)) : ttl;
+    }
+
+    private static List<String> directives(HttpHeaders headers) {
+        List<String> directives = new ArrayList<>();
+        for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+            for (String directive : value.split(",")) {
+                if (!directive.isBlank()) {
+                    directives.add(directive.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return directives;
+    }
+
+    private static Long seconds(List<String> directives, String name) {
+        for (String directive : directives) {
+            if (directive.startsWith(name + "=")) {
+                try {
+                    return Long.parseLong(directive.substring(name.length() + 1).replace("\"", ""));
+                } catch (NumberFormatException e) {
+                    return 0L;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void count(String result) {
+        requests.computeIfAbsent(result, key -> Counter.builder("gateway.cache.requests")
+                        .description("Cacheable GETs by how the gateway answered them")
+                        .tag("result", key)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Buffers the upstream body instead of writing it, so it can be cached
+     * and handed to every waiting request. Status and headers still land on
+     * the wrapped response. Once the body grows past the entry limit it is
+     * written through to the wrapped response instead, buffered part first.
+     */
+    private static class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final long maxBytes;
+        private final List<DataBuffer> held = new ArrayList<>();
+        private long heldBytes;
+        private boolean streamed;
+        private byte[] body = new byte[0];
+
+        CapturingResponse(ServerHttpResponse delegate, long maxBytes) {
+            super(delegate);
+            this.maxBytes = maxBytes;
+        }
+
+        byte[] body() {
+            return body;
+        }
+
+        /**
+         * Whether the body exceeded the limit and went straight to the client.
+         */
+        boolean streamed() {
+            return streamed;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            // The first window ends with the buffer that crosses the limit; a second one is the rest
+            return Flux.from(body)
+                    .windowUntil(this::crossesLimit)
+                    .concatMap(window -> streamed
+                            ? getDelegate().writeWith(Flux.concat(Flux.fromIterable(takeHeld()), window))
+                            : window.doOnNext(held::add).then())
+                    .then(Mono.defer(this::finish))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                    .doOnError(e -> takeHeld().forEach(DataBufferUtils::release));
+        }
+
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return writeWith(Flux.from(body).concatMap(Flux::from));
+        }
+
+        @Override
+        public Mono<Void> setComplete() {
+            return streamed ? getDelegate().setComplete() : Mono.empty();
+        }
+
+        private boolean crossesLimit(DataBuffer buffer) {
+            if (streamed) {
+                return false;
+            }
+            heldBytes += buffer.readableByteCount();
+            streamed = heldBytes > maxBytes;
+            return streamed;
+        }
+
+        private Mono<Void> finish() {
+            if (streamed) {
+                // The crossing buffer was the last one, so no second window carried the held part
+                List<DataBuffer> rest = takeHeld();
+                return rest.isEmpty() ? Mono.empty() : getDelegate().writeWith(Flux.fromIterable(rest));
+            }
+            List<DataBuffer> buffers = takeHeld();
+            byte[] bytes = new byte[(int) heldBytes];
+            int offset = 0;
+            for (DataBuffer buffer : buffers) {
+                int length = buffer.readableByteCount();
+                buffer.read(bytes, offset, length);
+                offset += length;
+                DataBufferUtils.release(buffer);
+            }
+            this.body = bytes;
+            return Mono.empty();
+        }
+
+        private List<DataBuffer> takeHeld() {
+            List<DataBuffer> buffers = new ArrayList<>(held);
+            held.clear();
+            return buffers;
+        }
+    }
+}
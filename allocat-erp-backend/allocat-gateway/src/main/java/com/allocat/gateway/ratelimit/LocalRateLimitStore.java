@@ -0,0 +1,42 @@
+package com.allocat.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Buckets held in this gateway instance. With several instances each one
+ * enforces the limits on its own share of the traffic.
+ */
+public class LocalRateLimitStore implements RateLimitStore {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    @Override
+    public Mono<Long> tryConsume(String key, RateLimitProperties.Limit limit) {
+        long now = System.nanoTime();
+        sweepIfDue(now);
+        return Mono.just(buckets.computeIfAbsent(key, k -> new TokenBucket(limit, now)).tryConsume(now));
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Drop buckets that have refilled completely; recreating them full is
+     * equivalent, and it keeps one-off clients from accumulating.
+     */
+    private void sweepIfDue(long now) {
+        long last = lastSweep.get();
+        if (now - last >= SWEEP_INTERVAL_NANOS && lastSweep.compareAndSet(last, now)) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+    }
+}
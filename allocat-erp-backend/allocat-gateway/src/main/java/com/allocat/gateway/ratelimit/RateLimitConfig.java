@@ -0,0 +1,21 @@
+package com.allocat.gateway.ratelimit;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    public RateLimitStore localRateLimitStore(MeterRegistry meterRegistry) {
+        LocalRateLimitStore store = new LocalRateLimitStore();
+        Gauge.builder("gateway.ratelimit.buckets", store, LocalRateLimitStore::size)
+                .description("Token buckets held by this gateway instance")
+                .register(meterRegistry);
+        return store;
+    }
+}
@@ -0,0 +1,135 @@
+package com.allocat.gateway.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Token-bucket limits under gateway.rate-limit. Requests are sorted into
+ * route classes by path and method; the first matching class applies, and
+ * the default limits cover everything else. Each class limits every user and
+ * every store separately.
+ */
+@Component
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    private RouteClass defaults = new RouteClass();
+    private List<RouteClass> classes = new ArrayList<>();
+
+    public RateLimitProperties() {
+        defaults.setName("default");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public RouteClass getDefaults() {
+        return defaults;
+    }
+
+    public void setDefaults(RouteClass defaults) {
+        this.defaults = defaults;
+    }
+
+    public List<RouteClass> getClasses() {
+        return classes;
+    }
+
+    public void setClasses(List<RouteClass> classes) {
+        this.classes = classes;
+    }
+
+    public static class RouteClass {
+
+        private String name;
+        // Path patterns, e.g. /api/inventory/current/**
+        private List<String> paths = new ArrayList<>();
+        // HTTP methods; empty matches any method
+        private List<String> methods = new ArrayList<>();
+        // Per user, or per client address for anonymous requests
+        private Limit user = new Limit(100, 20);
+        // Per store, shared by every user of the store
+        private Limit store = new Limit(300, 60);
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public List<String> getPaths() {
+            return paths;
+        }
+
+        public void setPaths(List<String> paths) {
+            this.paths = paths;
+        }
+
+        public List<String> getMethods() {
+            return methods;
+        }
+
+        public void setMethods(List<String> methods) {
+            this.methods = methods;
+        }
+
+        public Limit getUser() {
+            return user;
+        }
+
+        public void setUser(Limit user) {
+            this.user = user;
+        }
+
+        public Limit getStore() {
+            return store;
+        }
+
+        public void setStore(Limit store) {
+            this.store = store;
+        }
+    }
+
+    public static class Limit {
+
+        // Burst size
+        private int capacity;
+        // Sustained requests per second
+        private double refillPerSecond;
+
+        public Limit() {
+        }
+
+        public Limit(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.allocat.gateway.ratelimit;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Where the token buckets live. The default {@link LocalRateLimitStore}
+ * keeps them in this gateway instance; a store shared between instances
+ * (e.g. backed by Redis) can replace it by declaring its own bean.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Take one token from the bucket for the key, creating it full when absent.
+     *
+     * @return 0 when the request may proceed, otherwise the nanoseconds until it may
+     */
+    Mono<Long> tryConsume(String key, RateLimitProperties.Limit limit);
+}
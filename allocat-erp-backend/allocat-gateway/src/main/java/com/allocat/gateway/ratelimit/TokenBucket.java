@@ -0,0 +1,52 @@
+package com.allocat.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Token bucket updated with compare-and-set, so concurrent requests for the
+ * same key never block each other. Tokens refill continuously at the
+ * configured rate up to the bucket's capacity.
+ */
+public class TokenBucket {
+
+    private record State(double tokens, long refilledAt) {
+    }
+
+    private final RateLimitProperties.Limit limit;
+    private final AtomicReference<State> state;
+
+    public TokenBucket(RateLimitProperties.Limit limit, long nowNanos) {
+        this.limit = limit;
+        this.state = new AtomicReference<>(new State(limit.getCapacity(), nowNanos));
+    }
+
+    /**
+     * Take one token.
+     *
+     * @return 0 when a token was taken, otherwise the nanoseconds until one is available
+     */
+    public long tryConsume(long nowNanos) {
+        while (true) {
+            State current = state.get();
+            double tokens = available(current, nowNanos);
+            if (tokens < 1) {
+                return (long) Math.ceil((1 - tokens) / limit.getRefillPerSecond() * 1_000_000_000L);
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, Math.max(nowNanos, current.refilledAt())))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * True once the bucket has refilled completely, i.e. dropping it loses nothing.
+     */
+    public boolean isFull(long nowNanos) {
+        return available(state.get(), nowNanos) >= limit.getCapacity();
+    }
+
+    private double available(State current, long nowNanos) {
+        long elapsed = Math.max(0, nowNanos - current.refilledAt());
+        return Math.min(limit.getCapacity(), current.tokens() + elapsed * limit.getRefillPerSecond() / 1_000_000_000d);
+    }
+}
@@ -1,19 +1,58 @@
 package com.allocat.gateway.security;
 
+import com.allocat.gateway.filter.JwtValidationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsConfigurationSource;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 @Configuration
 public class SecurityConfig {
 
+    // Roles that may read the gateway's own metrics
+    private static final List<String> OPERATOR_ROLES = List.of("SUPER_ADMIN", "ADMIN");
+
+    /**
+     * The gateway's actuator endpoints are served by the gateway itself, not
+     * proxied, so the route filters never see them. Health and info stay open
+     * for probes; everything else needs an administrator's token.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityWebFilterChain actuatorSecurityFilterChain(ServerHttpSecurity http,
+                                                              @Value("${jwt.secret}") String secret) {
+        http
+            .securityMatcher(ServerWebExchangeMatchers.pathMatchers("/actuator", "/actuator/**"))
+            .csrf(ServerHttpSecurity.CsrfSpec::disable)
+            .authorizeExchange(exchange -> exchange
+                .pathMatchers("/actuator/health", "/actuator/health/**", "/actuator/info").permitAll()
+                .anyExchange().hasAnyAuthority(OPERATOR_ROLES.stream().map(role -> "ROLE_" + role).toArray(String[]::new))
+            )
+            .oauth2ResourceServer(oauth2 -> oauth2.jwt(jwt -> jwt
+                .jwtDecoder(JwtValidationFilter.decoder(secret))
+                .jwtAuthenticationConverter(token -> {
+                    String role = token.getClaimAsString("role");
+                    return Mono.just(new JwtAuthenticationToken(token, role != null
+                            ? List.of(new SimpleGrantedAuthority("ROLE_" + role))
+                            : List.of()));
+                })
+            ));
+        return http.build();
+    }
+
     @Bean
     public SecurityWebFilterChain springSecurityFilterChain(ServerHttpSecurity http) {
         http
@@ -0,0 +1,129 @@
+package com.allocat.gateway.filter;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Edge verification of backend-issued tokens, and (as a benchmark outside the
+ * regular build) what it costs per request.
+ */
+class JwtValidationFilterTest {
+
+    private static final String SECRET = "test-secret-that-is-long-enough-for-hs256-signing";
+
+    private final AtomicReference<ServerHttpRequest> forwarded = new AtomicReference<>();
+    private final GatewayFilterChain chain = exchange -> {
+        forwarded.set(exchange.getRequest());
+        return Mono.empty();
+    };
+
+    @Test
+    void verifiedIdentityIsForwardedAndSpoofedHeadersAreDropped() throws Exception {
+        JwtValidationFilter filter = new JwtValidationFilter(SECRET, "identity-secret", "optional");
+        MockServerWebExchange exchange = exchange(token(Instant.now().plusSeconds(900)), "999");
+
+        filter.filter(exchange, chain).block();
+
+        HttpHeaders headers = forwarded.get().getHeaders();
+        assertThat(headers.getFirst(JwtValidationFilter.USER_ID_HEADER)).isEqualTo("7");
+        assertThat(headers.getFirst(JwtValidationFilter.ROLE_HEADER)).isEqualTo("SALES_STAFF");
+        assertThat(headers.getFirst(JwtValidationFilter.STORE_ID_HEADER)).isEqualTo("3");
+        assertThat(headers.getFirst(JwtValidationFilter.SIGNATURE_HEADER)).isNotBlank();
+
+        // Without an identity secret nothing is forwarded, and client-sent headers still never pass
+        new JwtValidationFilter(SECRET, "", "optional")
+                .filter(exchange(token(Instant.now().plusSeconds(900)), "999"), chain).block();
+        assertThat(forwarded.get().getHeaders().containsKey(JwtValidationFilter.USER_ID_HEADER)).isFalse();
+    }
+
+    @Test
+    void forgedAndExpiredTokensAreRejectedAtTheEdge() throws Exception {
+        JwtValidationFilter filter = new JwtValidationFilter(SECRET, "identity-secret", "optional");
+        String valid = token(Instant.now().plusSeconds(900));
+        String forged = valid.substring(0, valid.lastIndexOf('.') + 1) + "AAAA" + valid.substring(valid.lastIndexOf('.') + 5);
+
+        for (String token : new String[]{forged, token(Instant.now().minusSeconds(600))}) {
+            forwarded.set(null);
+            MockServerWebExchange exchange = exchange(token, null);
+            filter.filter(exchange, chain).block();
+
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+            assertThat(forwarded.get()).isNull();
+        }
+    }
+
+    @Test
+    void requiredRouteRejectsAnonymousRequests() {
+        JwtValidationFilter filter = new JwtValidationFilter(SECRET, "", "required");
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/products"));
+
+        filter.filter(exchange, chain).block();
+
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void verificationCostPerRequest() throws Exception {
+        JwtValidationFilter filter = new JwtValidationFilter(SECRET, "identity-secret", "optional");
+        String token = token(Instant.now().plusSeconds(900));
+        int requests = 5_000;
+        // Warm up the decoder and the JIT
+        for (int i = 0; i < 500; i++) {
+            filter.filter(exchange(token, null), chain).block();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            filter.filter(exchange(token, null), chain).block();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        assertThat(forwarded.get().getHeaders().getFirst(JwtValidationFilter.USER_ID_HEADER)).isEqualTo("7");
+        // HMAC verification plus header signing stays well under a millisecond
+        assertThat(TimeUnit.NANOSECONDS.toMicros(elapsedNanos / requests)).as("µs per request").isLessThan(1_000);
+    }
+
+    private static MockServerWebExchange exchange(String token, String spoofedUserId) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/products")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        if (spoofedUserId != null) {
+            request.header(JwtValidationFilter.USER_ID_HEADER, spoofedUserId);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private static String token(Instant expiresAt) throws Exception {
+        SignedJWT jwt = new SignedJWT(new JWSHeader(JWSAlgorithm.HS256), new JWTClaimsSet.Builder()
+                .subject("cashier")
+                .claim("role", "SALES_STAFF")
+                .claim("userId", 7)
+                .claim("storeId", 3)
+                .claim("sid", "session-1")
+                .issueTime(new Date())
+                .expirationTime(Date.from(expiresAt))
+                .build());
+        jwt.sign(new MACSigner(SECRET.getBytes(StandardCharsets.UTF_8)));
+        return jwt.serialize();
+    }
+}
@@ -0,0 +1,81 @@
+package com.allocat.gateway.filter;
+
+import com.allocat.gateway.ratelimit.LocalRateLimitStore;
+import com.allocat.gateway.ratelimit.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitFilterTest {
+
+    private static final GatewayFilterChain PASS = exchange -> Mono.empty();
+
+    @Test
+    void sessionEndpointsBehindOneAddressAreLimitedPerUser() {
+        RateLimitFilter filter = filter(limit(1, 0.01));
+
+        // Two terminals behind the same store router
+        assertThat(status(filter, post("/api/auth/me", "7"))).isNull();
+        assertThat(status(filter, post("/api/auth/me", "8"))).isNull();
+        assertThat(status(filter, post("/api/auth/me", "7"))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void loginIsLimitedPerAddress() {
+        RateLimitFilter filter = filter(limit(1, 0.01));
+
+        assertThat(status(filter, post("/api/auth/terminal/login", null))).isNull();
+        assertThat(status(filter, post("/api/auth/login", null))).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    void limitThatNeverRefillsIsRejectedAtStartup() {
+        assertThatThrownBy(() -> filter(limit(10, 0)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("login");
+    }
+
+    private static RateLimitFilter filter(RateLimitProperties.Limit loginLimit) {
+        RateLimitProperties.RouteClass login = new RateLimitProperties.RouteClass();
+        login.setName("login");
+        login.setPaths(List.of("/api/auth/login", "/api/auth/terminal/login"));
+        login.setUser(loginLimit);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setClasses(List.of(login));
+        properties.getDefaults().setUser(limit(1, 0.01));
+        return new RateLimitFilter(properties, new LocalRateLimitStore(), new SimpleMeterRegistry());
+    }
+
+    private static RateLimitProperties.Limit limit(int capacity, double refillPerSecond) {
+        return new RateLimitProperties.Limit(capacity, refillPerSecond);
+    }
+
+    private static MockServerWebExchange post(String path, String userId) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post(path)
+                .remoteAddress(new InetSocketAddress("10.0.0.5", 40000)));
+        if (userId != null) {
+            exchange.getAttributes().put(JwtValidationFilter.JWT_ATTRIBUTE, Jwt.withTokenValue("token")
+                    .header("alg", "HS256")
+                    .subject("user" + userId)
+                    .claim("userId", userId)
+                    .build());
+        }
+        return exchange;
+    }
+
+    private static HttpStatus status(RateLimitFilter filter, MockServerWebExchange exchange) {
+        filter.filter(exchange, PASS).block();
+        return (HttpStatus) exchange.getResponse().getStatusCode();
+    }
+}
@@ -0,0 +1,198 @@
+package com.allocat.gateway.filter;
+
+import com.allocat.gateway.cache.ResponseCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheFilterTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    private ResponseCacheFilter filter;
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicInteger bodiesBuilt = new AtomicInteger();
+    private final List<String> upstreamCredentials = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        filter = filter(DataSize.ofMegabytes(2));
+    }
+
+    @Test
+    void authenticatedCallersShareAPublicBodyButAreEachRevalidated() {
+        GatewayFilterChain backend = backend("public, no-cache", Mono.empty());
+
+        assertThat(body(run(get("Bearer admin"), backend))).isEqualTo("catalog");
+        assertThat(body(run(get("Bearer cashier"), backend))).isEqualTo("catalog");
+
+        assertThat(bodiesBuilt).hasValue(1);
+        assertThat(upstreamCalls).hasValue(2);
+        // Each caller was checked upstream with their own token
+        assertThat(upstreamCredentials).containsExactly("Bearer admin", "Bearer cashier");
+    }
+
+    @Test
+    void callerRejectedByBackendDoesNotGetTheSharedBody() {
+        GatewayFilterChain backend = backend("public, no-cache", Mono.empty());
+        run(get("Bearer admin"), backend);
+
+        MockServerWebExchange stranger = run(get("Bearer stranger"), backend);
+
+        assertThat(stranger.getResponse().getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+        assertThat(body(stranger)).isNotEqualTo("catalog");
+        // The refusal did not evict the entry the others revalidate against
+        assertThat(body(run(get("Bearer cashier"), backend))).isEqualTo("catalog");
+        assertThat(bodiesBuilt).hasValue(1);
+    }
+
+    @Test
+    void concurrentTerminalsWaitForOneBuild() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        GatewayFilterChain backend = backend("public, no-cache", release.asMono());
+
+        MockServerWebExchange admin = get("Bearer admin");
+        MockServerWebExchange cashier = get("Bearer cashier");
+        CompletableFuture<Void> both = Mono.when(filter.filter(admin, backend), filter.filter(cashier, backend))
+                .toFuture();
+        release.tryEmitEmpty();
+        both.join();
+
+        assertThat(body(admin)).isEqualTo("catalog");
+        assertThat(body(cashier)).isEqualTo("catalog");
+        assertThat(bodiesBuilt).hasValue(1);
+        assertThat(upstreamCredentials).containsExactlyInAnyOrder("Bearer admin", "Bearer cashier");
+    }
+
+    @Test
+    void privateResponseIsNotShared() {
+        GatewayFilterChain backend = backend("private, no-cache", Mono.empty());
+
+        run(get("Bearer admin"), backend);
+        run(get("Bearer cashier"), backend);
+
+        assertThat(bodiesBuilt).hasValue(2);
+    }
+
+    @Test
+    void anonymousRequestDoesNotJoinAnAuthenticatedCall() {
+        Sinks.Empty<Void> release = Sinks.empty();
+        GatewayFilterChain slowUpstream = exchange -> {
+            upstreamCalls.incrementAndGet();
+            String body = "for " + exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            return release.asMono().then(respond(exchange, "public, max-age=60", body));
+        };
+
+        MockServerWebExchange admin = get("Bearer admin");
+        MockServerWebExchange anonymous = get(null);
+        Mono<Void> first = filter.filter(admin, slowUpstream);
+        Mono<Void> second = filter.filter(anonymous, slowUpstream);
+        // Both are waiting on the upstream when it answers
+        CompletableFuture<Void> both = Mono.when(first, second).toFuture();
+        release.tryEmitEmpty();
+        both.join();
+
+        assertThat(upstreamCalls).hasValue(2);
+        assertThat(body(anonymous)).isEqualTo("for null");
+    }
+
+    @Test
+    void bodyLargerThanAnEntryIsStreamedAndNotCached() {
+        filter = filter(DataSize.ofBytes(8));
+        GatewayFilterChain chunked = exchange -> {
+            upstreamCalls.incrementAndGet();
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.OK);
+            response.getHeaders().setCacheControl("public, max-age=60");
+            Flux<DataBuffer> chunks = Flux.just("aaaaa", "bbbbb", "ccccc")
+                    .map(chunk -> response.bufferFactory().wrap(chunk.getBytes(StandardCharsets.UTF_8)));
+            return response.writeWith(chunks);
+        };
+
+        assertThat(body(run(get(null), chunked))).isEqualTo("aaaaabbbbbccccc");
+        assertThat(body(run(get(null), chunked))).isEqualTo("aaaaabbbbbccccc");
+        assertThat(upstreamCalls).hasValue(2);
+    }
+
+    private ResponseCacheFilter filter(DataSize maxEntrySize) {
+        ResponseCacheProperties.CacheRoute route = new ResponseCacheProperties.CacheRoute();
+        route.setName("catalog");
+        route.setPaths(List.of("/api/stores/**"));
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setRoutes(List.of(route));
+        properties.setMaxEntrySize(maxEntrySize);
+        return new ResponseCacheFilter(properties, new SimpleMeterRegistry());
+    }
+
+    /**
+     * A backend that serves one catalog version to admin and cashier,
+     * refuses anyone else and answers a matching If-None-Match with 304.
+     */
+    private GatewayFilterChain backend(String cacheControl, Mono<Void> gate) {
+        Set<String> allowed = Set.of("Bearer admin", "Bearer cashier");
+        return exchange -> gate.then(Mono.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            String authorization = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            upstreamCredentials.add(authorization);
+            ServerHttpResponse response = exchange.getResponse();
+            if (!allowed.contains(authorization)) {
+                response.setStatusCode(HttpStatus.FORBIDDEN);
+                return response.setComplete();
+            }
+            if (exchange.getRequest().getHeaders().getIfNoneMatch().contains(ETAG)) {
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                response.getHeaders().setETag(ETAG);
+                response.getHeaders().setCacheControl(cacheControl);
+                return response.setComplete();
+            }
+            bodiesBuilt.incrementAndGet();
+            response.getHeaders().setETag(ETAG);
+            return respond(exchange, cacheControl, "catalog");
+        }));
+    }
+
+    private MockServerWebExchange get(String authorization) {
+        MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/api/stores");
+        if (authorization != null) {
+            request.header(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return MockServerWebExchange.from(request);
+    }
+
+    private MockServerWebExchange run(MockServerWebExchange exchange, GatewayFilterChain chain) {
+        filter.filter(exchange, chain).block();
+        return exchange;
+    }
+
+    private static Mono<Void> respond(ServerWebExchange exchange, String cacheControl, String body) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setCacheControl(cacheControl);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    private static String body(MockServerWebExchange exchange) {
+        return exchange.getResponse().getBodyAsString().block();
+    }
+}
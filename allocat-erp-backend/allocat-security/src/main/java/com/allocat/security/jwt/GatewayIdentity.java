@@ -0,0 +1,125 @@
+package com.allocat.security.jwt;
+
+import com.allocat.common.security.AuthenticatedUser;
+import com.allocat.common.security.SessionRevocations;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Reads the identity the gateway forwards after verifying a token. The
+ * headers are signed with jwt.identity-secret, shared only between the
+ * gateway and this service, so a request that did not pass the gateway
+ * cannot forge them. Without a configured secret the headers are ignored.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GatewayIdentity {
+
+    // Must match JwtValidationFilter in allocat-gateway
+    static final String USER_ID_HEADER = "X-Allocat-User-Id";
+    static final String USERNAME_HEADER = "X-Allocat-Username";
+    static final String ROLE_HEADER = "X-Allocat-Role";
+    static final String STORE_ID_HEADER = "X-Allocat-Store-Id";
+    static final String SESSION_ID_HEADER = "X-Allocat-Session-Id";
+    static final String PERMISSIONS_HEADER = "X-Allocat-Permissions";
+    static final String EXPIRES_HEADER = "X-Allocat-Expires";
+    static final String SIGNATURE_HEADER = "X-Allocat-Identity-Signature";
+
+    private final ObjectProvider<SessionRevocations> sessionRevocations;
+
+    @Value("${jwt.identity-secret:}")
+    private String identitySecret;
+
+    private SecretKeySpec identityKey;
+
+    @PostConstruct
+    void initKey() {
+        if (!identitySecret.isBlank()) {
+            identityKey = new SecretKeySpec(identitySecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        }
+    }
+
+    /**
+     * The forwarded user, or null when the headers are absent, unsigned,
+     * tampered with, past the token's expiry or of a revoked session.
+     */
+    public AuthenticatedUser resolve(HttpServletRequest request) {
+        String signature = request.getHeader(SIGNATURE_HEADER);
+        if (identityKey == null || signature == null) {
+            return null;
+        }
+
+        String userId = valueOf(request, USER_ID_HEADER);
+        String username = valueOf(request, USERNAME_HEADER);
+        String role = valueOf(request, ROLE_HEADER);
+        String storeId = valueOf(request, STORE_ID_HEADER);
+        String sessionId = valueOf(request, SESSION_ID_HEADER);
+        String permissions = request.getHeader(PERMISSIONS_HEADER);
+        String expires = valueOf(request, EXPIRES_HEADER);
+
+        // Absent for ordinary tokens, present (possibly empty) for terminal sessions
+        byte[] expected = permissions != null
+                ? sign(userId, username, role, storeId, sessionId, expires, permissions)
+                : sign(userId, username, role, storeId, sessionId, expires);
+        if (!MessageDigest.isEqual(expected, signature.getBytes(StandardCharsets.US_ASCII))) {
+            log.warn("Rejected gateway identity with a bad signature for {}", request.getRequestURI());
+            return null;
+        }
+
+        // Refresh tokens carry no role; those requests go through token verification
+        if (username.isEmpty() || role.isEmpty()) {
+            return null;
+        }
+        // The gateway does not know about logouts; token verification then rejects the request too
+        SessionRevocations revocations = sessionRevocations.getIfAvailable();
+        if (revocations != null && !sessionId.isEmpty() && revocations.isRevoked(sessionId)) {
+            return null;
+        }
+        try {
+            if (!expires.isEmpty() && !Instant.now().isBefore(Instant.ofEpochSecond(Long.parseLong(expires)))) {
+                return null;
+            }
+            return new AuthenticatedUser(
+                    userId.isEmpty() ? null : Long.valueOf(userId),
+                    URLDecoder.decode(username, StandardCharsets.UTF_8),
+                    role,
+                    storeId.isEmpty() ? null : Long.valueOf(storeId),
+                    permissions != null,
+                    permissions == null || permissions.isEmpty() ? List.of() : List.of(permissions.split(",")));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String... values) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(identityKey);
+            byte[] digest = mac.doFinal(String.join("\n", values).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest).getBytes(StandardCharsets.US_ASCII);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot verify identity headers", e);
+        }
+    }
+
+    private static String valueOf(HttpServletRequest request, String header) {
+        String value = request.getHeader(header);
+        return value != null ? value : "";
+    }
+}
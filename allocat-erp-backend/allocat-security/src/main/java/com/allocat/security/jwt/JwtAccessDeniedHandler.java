@@ -23,7 +23,7 @@ public class JwtAccessDeniedHandler implements AccessDeniedHandler {
                       HttpServletResponse response,
                       AccessDeniedException accessDeniedException) throws IOException, ServletException {
         
-        log.error("Access denied error: {} for URI: {}", accessDeniedException.getMessage(), request.getRequestURI());
+        log.debug("Access denied: {} for URI: {}", accessDeniedException.getMessage(), request.getRequestURI());
         
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
         response.setStatus(HttpServletResponse.SC_FORBIDDEN);
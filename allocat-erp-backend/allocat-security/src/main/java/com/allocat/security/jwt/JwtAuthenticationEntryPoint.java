@@ -23,7 +23,7 @@ public class JwtAuthenticationEntryPoint implements AuthenticationEntryPoint {
                         HttpServletResponse response,
                         AuthenticationException authException) throws IOException, ServletException {
         
-        log.error("Unauthorized error: {} for URI: {}", authException.getMessage(), request.getRequestURI());
+        log.debug("Unauthorized: {} for URI: {}", authException.getMessage(), request.getRequestURI());
         
         response.setContentType(MediaType.APPLICATION_JSON_VALUE);
         response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
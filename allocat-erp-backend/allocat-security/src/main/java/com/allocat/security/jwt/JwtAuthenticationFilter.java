@@ -1,13 +1,18 @@
 package com.allocat.security.jwt;
 
+import com.allocat.common.security.AuthenticatedUser;
+import com.allocat.common.security.SessionRevocations;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -15,14 +20,19 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    public static final String PRINCIPAL_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".principal";
+
     private final JwtUtil jwtUtil;
+    private final GatewayIdentity gatewayIdentity;
+    private final ObjectProvider<SessionRevocations> sessionRevocations;
 
     @Override
     protected void doFilterInternal(
@@ -34,12 +44,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String jwt;
         final String username;
 
-        log.info("Processing request: {} {}", request.getMethod(), request.getRequestURI());
-        log.info("Authorization header: {}", authHeader != null ? "Bearer ***" : "null");
+        // The gateway already verified the token and signed the identity it carries
+        AuthenticatedUser forwarded = gatewayIdentity.resolve(request);
+        if (forwarded != null) {
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                authenticate(forwarded, request);
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
 
         // Check if Authorization header exists and starts with "Bearer "
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            log.warn("No valid Authorization header found for: {} {}", request.getMethod(), request.getRequestURI());
+            log.debug("No bearer token on: {} {}", request.getMethod(), request.getRequestURI());
             // Mark this request as potentially a 404 so the entry point can handle it better
             request.setAttribute("missing-auth-header", true);
             filterChain.doFilter(request, response);
@@ -49,47 +66,50 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             // Extract JWT token
             jwt = authHeader.substring(7);
-            log.info("Extracted JWT token (first 20 chars): {}...", jwt.length() > 20 ? jwt.substring(0, 20) : jwt);
-            
-            username = jwtUtil.extractUsername(jwt);
-            log.info("Extracted username from token: {}", username);
-
-            // If username is valid and user is not already authenticated
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                
-                // Validate token
-                if (jwtUtil.validateToken(jwt, username)) {
-                    // Extract role from token
-                    String role = jwtUtil.extractRole(jwt);
-                    log.info("Token validated successfully. User: {}, Role: {}", username, role);
-                    
-                    // Create authentication token with role as authority
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            username,
-                            null,
-                            Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
-                    );
-                    
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    
-                    // Set authentication in security context
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    
-                    log.info("Successfully authenticated user: {} with role: {}", username, role);
-                } else {
-                    log.warn("Token validation failed for user: {}", username);
-                }
+
+            // One signature check per token; repeats are served from the verified-token cache
+            VerifiedToken token = jwtUtil.verify(jwt);
+            username = token.username();
+
+            SessionRevocations revocations = sessionRevocations.getIfAvailable();
+            if (token.tokenId() != null) {
+                // Refresh tokens are only good for /api/auth/refresh
+                log.debug("Refresh token presented on: {} {}", request.getMethod(), request.getRequestURI());
+            } else if (revocations != null && revocations.isRevoked(token.sessionId())) {
+                log.warn("Token of revoked session {} rejected", token.sessionId());
+            } else if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                // Username is valid and user is not already authenticated
+                // Typed principal from the claims, so nothing downstream reloads the user
+                authenticate(new AuthenticatedUser(token.userId(), username, token.role(), token.storeId(),
+                        token.isTerminal(), token.permissions()), request);
             } else if (username == null) {
-                log.warn("Username extracted from token is null");
-            } else {
-                log.info("User already authenticated: {}", SecurityContextHolder.getContext().getAuthentication().getName());
+                log.warn("Token without subject rejected");
             }
+        } catch (JwtException e) {
+            log.debug("Token validation failed: {}", e.getMessage());
         } catch (Exception e) {
-            log.error("Cannot set user authentication: {} - {}", e.getMessage(), e.getClass().getName());
-            e.printStackTrace();
+            log.error("Cannot set user authentication", e);
         }
 
         filterChain.doFilter(request, response);
     }
-}
 
+    private void authenticate(AuthenticatedUser principal, HttpServletRequest request) {
+        List<GrantedAuthority> authorities = new ArrayList<>();
+        authorities.add(new SimpleGrantedAuthority("ROLE_" + principal.role()));
+        // Terminal tokens carry their permissions, so permission checks need no lookup
+        principal.permissions().forEach(permission -> authorities.add(new SimpleGrantedAuthority(permission)));
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                authorities
+        );
+
+        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+
+        // Set authentication in security context
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+        // Outlives the security context, for request telemetry
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal);
+    }
+}
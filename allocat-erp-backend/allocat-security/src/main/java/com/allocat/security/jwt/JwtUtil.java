@@ -1,19 +1,33 @@
 package com.allocat.security.jwt;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
+/**
+ * Issues and verifies JWTs. The signing key and parser are built once, and
+ * recently verified tokens are remembered by SHA-256 digest until they
+ * expire, so a client repeating the same token skips parsing and the HMAC check.
+ */
 @Component
 @Slf4j
 public class JwtUtil {
@@ -27,20 +41,74 @@ public class JwtUtil {
     @Value("${jwt.refresh-expiration}")
     private Long refreshExpiration;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    @Value("${jwt.terminal-expiration:14400000}")
+    private Long terminalExpiration;
+
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // SHA-256 of the token -> its verified claims
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void initKey() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser().verifyWith(signingKey).build();
     }
 
     public String generateToken(String username, String role, Long userId) {
+        return generateToken(username, role, userId, null, null);
+    }
+
+    /**
+     * Access token carrying the user's id, role and home store, enough to
+     * authorize most requests without loading the user, and the session it
+     * belongs to so logging out ends it.
+     */
+    public String generateToken(String username, String role, Long userId, Long storeId, String sessionId) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
         claims.put("userId", userId);
+        if (storeId != null) {
+            claims.put("storeId", storeId);
+        }
+        if (sessionId != null) {
+            claims.put("sid", sessionId);
+        }
         return createToken(claims, username, expiration);
     }
 
-    public String generateRefreshToken(String username) {
-        return createToken(new HashMap<>(), username, refreshExpiration);
+    /**
+     * Access token of a POS terminal session: confined to storeId and carrying
+     * the cashier's permissions, so requests need no permission lookups. It
+     * has no refresh token; the cashier signs in again when it expires.
+     */
+    public String generateTerminalToken(String username, String role, Long userId, Long storeId,
+                                        String sessionId, List<String> permissions) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("role", role);
+        claims.put("userId", userId);
+        claims.put("storeId", storeId);
+        claims.put("sid", sessionId);
+        claims.put("perms", List.copyOf(permissions));
+        return createToken(claims, username, terminalExpiration);
+    }
+
+    public long getTerminalExpiration() {
+        return terminalExpiration;
+    }
+
+    /**
+     * Single-use refresh token; tokenId identifies it in the refresh-token store.
+     */
+    public String generateRefreshToken(String username, String sessionId, String tokenId) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put("sid", sessionId);
+        claims.put("jti", tokenId);
+        return createToken(claims, username, refreshExpiration);
     }
 
     private String createToken(Map<String, Object> claims, String subject, Long expirationTime) {
@@ -52,24 +120,57 @@ public class JwtUtil {
                 .subject(subject)
                 .issuedAt(now)
                 .expiration(expiryDate)
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Check the token's signature and expiry once and return its claims.
+     *
+     * @throws JwtException if the token is malformed, forged or expired
+     */
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        Instant now = Instant.now();
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (!cached.isExpired(now)) {
+                return cached;
+            }
+            verifiedTokens.remove(digest);
+        }
+
+        Claims claims = extractAllClaims(token);
+        if (claims.getExpiration() == null) {
+            throw new JwtException("Token has no expiry");
+        }
+        VerifiedToken verified = new VerifiedToken(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("userId", Long.class),
+                claims.get("storeId", Long.class),
+                claims.get("sid", String.class),
+                claims.getId(),
+                permissionsOf(claims),
+                claims.getExpiration().toInstant());
+        remember(digest, verified, now);
+        return verified;
+    }
+
     public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+        return verify(token).username();
     }
 
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return Date.from(verify(token).expiresAt());
     }
 
     public String extractRole(String token) {
-        return extractClaim(token, claims -> claims.get("role", String.class));
+        return verify(token).role();
     }
 
     public Long extractUserId(String token) {
-        return extractClaim(token, claims -> claims.get("userId", Long.class));
+        return verify(token).userId();
     }
 
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
@@ -78,20 +179,39 @@ public class JwtUtil {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Boolean validateToken(String token, String username) {
+        VerifiedToken verified = verify(token);
+        return verified.username().equals(username) && !verified.isExpired(Instant.now());
     }
 
-    public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
+    private static List<String> permissionsOf(Claims claims) {
+        Object perms = claims.get("perms");
+        if (!(perms instanceof List<?> list)) {
+            return null;
+        }
+        return list.stream().map(String::valueOf).toList();
+    }
+
+    private void remember(String digest, VerifiedToken verified, Instant now) {
+        if (verifiedTokens.size() >= verifiedCacheSize) {
+            verifiedTokens.values().removeIf(entry -> entry.isExpired(now));
+            if (verifiedTokens.size() >= verifiedCacheSize) {
+                // Still full of live tokens: start over rather than track recency on every hit
+                verifiedTokens.clear();
+            }
+        }
+        verifiedTokens.put(digest, verified);
     }
-}
 
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.allocat.security.jwt;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Claims of a token whose signature and expiry have been checked.
+ *
+ * @param username  subject of the token
+ * @param role      role claim, null for refresh tokens
+ * @param userId    userId claim, null for refresh tokens
+ * @param storeId   storeId claim, null when the user has no home store
+ * @param sessionId sid claim, the login session the token belongs to
+ * @param tokenId     jti claim, set on refresh tokens
+ * @param permissions perms claim, set on terminal tokens only
+ * @param expiresAt   when the token stops being accepted
+ */
+public record VerifiedToken(String username, String role, Long userId, Long storeId,
+                            String sessionId, String tokenId, List<String> permissions, Instant expiresAt) {
+
+    /**
+     * Whether this is a POS terminal session, confined to its storeId.
+     */
+    public boolean isTerminal() {
+        return permissions != null;
+    }
+
+    public boolean isExpired(Instant now) {
+        return !now.isBefore(expiresAt);
+    }
+}
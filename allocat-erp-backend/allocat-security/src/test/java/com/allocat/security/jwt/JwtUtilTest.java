@@ -0,0 +1,107 @@
+package com.allocat.security.jwt;
+
+import io.jsonwebtoken.JwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Verification cost per request: a token seen before is answered from the
+ * verified-claims cache instead of being parsed and HMAC-checked again.
+ */
+class JwtUtilTest {
+
+    private static final int REQUESTS = 20_000;
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = jwtUtil(900_000L);
+    }
+
+    @Test
+    void claimsAreReadInOneVerification() {
+        VerifiedToken token = jwtUtil.verify(jwtUtil.generateToken("cashier", "SALES_STAFF", 7L, 3L, "session-1"));
+
+        assertThat(token.username()).isEqualTo("cashier");
+        assertThat(token.role()).isEqualTo("SALES_STAFF");
+        assertThat(token.userId()).isEqualTo(7L);
+        assertThat(token.storeId()).isEqualTo(3L);
+    }
+
+    @Test
+    void repeatedTokenIsServedFromTheCache() {
+        String token = jwtUtil.generateToken("cashier", "SALES_STAFF", 7L);
+        VerifiedToken first = jwtUtil.verify(token);
+
+        // The cached claims themselves, not a fresh parse of the same token
+        for (int i = 0; i < 100; i++) {
+            assertThat(jwtUtil.verify(token)).isSameAs(first);
+        }
+        assertThat(jwtUtil.verify(jwtUtil.generateToken("other", "SALES_STAFF", 8L))).isNotSameAs(first);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void cachedVerificationIsCheaperThanParsing() {
+        String token = jwtUtil.generateToken("cashier", "SALES_STAFF", 7L);
+        jwtUtil.verify(token);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            jwtUtil.verify(token);
+        }
+        long cachedNanos = System.nanoTime() - start;
+
+        List<String> distinct = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            distinct.add(jwtUtil.generateToken("user" + i, "SALES_STAFF", (long) i));
+        }
+        start = System.nanoTime();
+        for (String each : distinct) {
+            jwtUtil.verify(each);
+        }
+        long parsedNanos = System.nanoTime() - start;
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(cachedNanos)).isLessThan(2_000);
+        assertThat(cachedNanos).as("cached vs parsed").isLessThan(parsedNanos);
+    }
+
+    @Test
+    void tamperedTokenIsRejectedEvenAfterTheOriginalWasCached() {
+        String token = jwtUtil.generateToken("cashier", "SALES_STAFF", 7L);
+        jwtUtil.verify(token);
+        String[] parts = token.split("\\.");
+        String forged = parts[0] + "." + parts[1] + "." + new StringBuilder(parts[2]).reverse();
+
+        assertThatThrownBy(() -> jwtUtil.verify(forged)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void expiredTokenIsRejected() {
+        JwtUtil expiring = jwtUtil(-1_000L);
+        String token = expiring.generateToken("cashier", "SALES_STAFF", 7L);
+
+        assertThatThrownBy(() -> expiring.verify(token)).isInstanceOf(JwtException.class);
+    }
+
+    private static JwtUtil jwtUtil(long expirationMillis) {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", "test-secret-that-is-long-enough-for-hs256-signing");
+        ReflectionTestUtils.setField(util, "expiration", expirationMillis);
+        ReflectionTestUtils.setField(util, "refreshExpiration", 86_400_000L);
+        ReflectionTestUtils.setField(util, "terminalExpiration", 14_400_000L);
+        ReflectionTestUtils.setField(util, "verifiedCacheSize", 10_000);
+        util.initKey();
+        return util;
+    }
+}